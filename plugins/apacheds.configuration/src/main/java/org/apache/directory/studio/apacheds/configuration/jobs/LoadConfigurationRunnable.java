@@ -350,15 +350,20 @@ public class LoadConfigurationRunnable implements StudioRunnableWithProgress
                 throw monitor.getException();
             }
 
-            // Getting the entry
-            if ( enumeration.hasMore() )
+            try
             {
-                // Creating the 'ou=config' base entry
-                StudioSearchResult searchResult = enumeration.next();
-                configEntry = new DefaultEntry( schemaManager, searchResult.getEntry() );
+                // Getting the entry
+                if ( enumeration.hasMore() )
+                {
+                    // Creating the 'ou=config' base entry
+                    StudioSearchResult searchResult = enumeration.next();
+                    configEntry = new DefaultEntry( schemaManager, searchResult.getEntry() );
+                }
+            }
+            finally
+            {
+                SearchRunnable.closeQuietly( enumeration );
             }
-
-            enumeration.close();
 
             // Verifying we found the 'ou=config' base entry
             if ( configEntry == null )
@@ -400,14 +405,19 @@ public class LoadConfigurationRunnable implements StudioRunnableWithProgress
                     throw monitor.getException();
                 }
 
-                while ( childrenEnumeration.hasMore() )
+                try
                 {
-                    // Adding the children to the list of entries
-                    StudioSearchResult searchResult = childrenEnumeration.next();
-                    entries.add( new DefaultEntry( schemaManager, searchResult.getEntry() ) );
+                    while ( childrenEnumeration.hasMore() )
+                    {
+                        // Adding the children to the list of entries
+                        StudioSearchResult searchResult = childrenEnumeration.next();
+                        entries.add( new DefaultEntry( schemaManager, searchResult.getEntry() ) );
+                    }
+                }
+                finally
+                {
+                    SearchRunnable.closeQuietly( childrenEnumeration );
                 }
-                
-                childrenEnumeration.close();
             }
 
             // Setting the created partition to the input
@@ -83,7 +83,13 @@ public class StudioProgressMonitor extends ProgressMonitorWrapper
         super( monitor );
         this.pluginId = pluginId;
         isDone = false;
-        CommonCorePlugin.getDefault().getStudioProgressMonitorWatcherJob().addMonitor(this);
+
+        // the watcher job only runs within the platform, not in plain unit tests
+        CommonCorePlugin plugin = CommonCorePlugin.getDefault();
+        if ( plugin != null && plugin.getStudioProgressMonitorWatcherJob() != null )
+        {
+            plugin.getStudioProgressMonitorWatcherJob().addMonitor( this );
+        }
         allowMessageReporting = new AtomicBoolean( true );
     }
 
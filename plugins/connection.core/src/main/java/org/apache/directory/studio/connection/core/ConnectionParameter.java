@@ -110,6 +110,15 @@ public class ConnectionParameter
         DEFAULT, FILE, MANUAL
     }
 
+    /** The extended property key for the minimum number of pooled connections */
+    public static final String EXTENDED_PROPERTY_POOL_MIN_SIZE = "connection.poolMinSize"; //$NON-NLS-1$
+
+    /** The extended property key for the maximum number of pooled connections */
+    public static final String EXTENDED_PROPERTY_POOL_MAX_SIZE = "connection.poolMaxSize"; //$NON-NLS-1$
+
+    /** The default pool size, a single connection shared by all operations */
+    public static final int DEFAULT_POOL_SIZE = 1;
+
     /** The unique id. */
     private String id;
 
@@ -827,6 +836,58 @@ public class ConnectionParameter
     }
 
 
+    /**
+     * Gets the minimum number of bound connections kept open for this connection,
+     * including the primary connection.
+     * 
+     * @return the minimum pool size
+     */
+    public int getPoolMinSize()
+    {
+        int poolMinSize = getExtendedIntProperty( EXTENDED_PROPERTY_POOL_MIN_SIZE );
+
+        return poolMinSize > 0 ? poolMinSize : DEFAULT_POOL_SIZE;
+    }
+
+
+    /**
+     * Sets the minimum number of bound connections kept open for this connection.
+     * 
+     * @param poolMinSize the minimum pool size
+     */
+    public void setPoolMinSize( int poolMinSize )
+    {
+        setExtendedIntProperty( EXTENDED_PROPERTY_POOL_MIN_SIZE, poolMinSize );
+    }
+
+
+    /**
+     * Gets the maximum number of bound connections opened for this connection,
+     * including the primary connection. A value of 1 shares a single connection
+     * between all operations.
+     * 
+     * @return the maximum pool size
+     */
+    public int getPoolMaxSize()
+    {
+        int poolMaxSize = getExtendedIntProperty( EXTENDED_PROPERTY_POOL_MAX_SIZE );
+
+        return poolMaxSize > 0 ? Math.max( poolMaxSize, getPoolMinSize() ) : Math.max( DEFAULT_POOL_SIZE,
+            getPoolMinSize() );
+    }
+
+
+    /**
+     * Sets the maximum number of bound connections opened for this connection.
+     * 
+     * @param poolMaxSize the maximum pool size
+     */
+    public void setPoolMaxSize( int poolMaxSize )
+    {
+        setExtendedIntProperty( EXTENDED_PROPERTY_POOL_MAX_SIZE, poolMaxSize );
+    }
+
+
     /**
      * Creates a unique id.
      * 
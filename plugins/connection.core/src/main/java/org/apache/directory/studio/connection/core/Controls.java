@@ -26,12 +26,17 @@ import org.apache.directory.api.asn1.util.Asn1Buffer;
 import org.apache.directory.api.ldap.codec.api.ControlFactory;
 import org.apache.directory.api.ldap.codec.api.LdapApiService;
 import org.apache.directory.api.ldap.codec.api.LdapApiServiceFactory;
+import org.apache.directory.api.ldap.extras.controls.vlv.VirtualListViewRequest;
+import org.apache.directory.api.ldap.extras.controls.vlv.VirtualListViewRequestImpl;
 import org.apache.directory.api.ldap.model.message.Control;
 import org.apache.directory.api.ldap.model.message.controls.ManageDsaIT;
 import org.apache.directory.api.ldap.model.message.controls.ManageDsaITImpl;
 import org.apache.directory.api.ldap.model.message.controls.OpaqueControl;
 import org.apache.directory.api.ldap.model.message.controls.PagedResults;
 import org.apache.directory.api.ldap.model.message.controls.PagedResultsImpl;
+import org.apache.directory.api.ldap.model.message.controls.SortKey;
+import org.apache.directory.api.ldap.model.message.controls.SortRequest;
+import org.apache.directory.api.ldap.model.message.controls.SortRequestImpl;
 import org.apache.directory.api.ldap.model.message.controls.Subentries;
 import org.apache.directory.api.ldap.model.message.controls.SubentriesImpl;
 
@@ -71,6 +76,45 @@ public class Controls
     }
 
 
+    /**
+     * Creates a server side sort request control with a single sort key.
+     * 
+     * @param attributeDescription the attribute to sort by
+     * @param reverseOrder true to sort in descending order
+     * @return the sort request control
+     */
+    public static final SortRequest newSortRequestControl( String attributeDescription, boolean reverseOrder )
+    {
+        SortRequest control = new SortRequestImpl();
+        control.addSortKey( new SortKey( attributeDescription, null, reverseOrder ) );
+        return control;
+    }
+
+
+    /**
+     * Creates a virtual list view request control that requests the window of the 
+     * given size starting at the given offset. The virtual list view control must 
+     * be sent together with a server side sort control.
+     * 
+     * @param offset the 1-based offset of the first entry of the window
+     * @param size the size of the window
+     * @param contentCount the content count estimate of the previous response, 0 if unknown
+     * @param contextId the context ID of the previous response, may be null
+     * @return the virtual list view request control
+     */
+    public static final VirtualListViewRequest newVirtualListViewRequestControl( int offset, int size,
+        int contentCount, byte[] contextId )
+    {
+        VirtualListViewRequest control = new VirtualListViewRequestImpl();
+        control.setBeforeCount( 0 );
+        control.setAfterCount( Math.max( size - 1, 0 ) );
+        control.setOffset( offset );
+        control.setContentCount( contentCount );
+        control.setContextId( contextId );
+        return control;
+    }
+
+
     public static Control create( String oid, boolean isCritical, byte[] value )
     {
         try
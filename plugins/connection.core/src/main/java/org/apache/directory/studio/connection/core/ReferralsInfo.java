@@ -30,7 +30,8 @@ import org.apache.directory.api.ldap.model.message.Referral;
 
 /**
  * Helper class that holds info about referrals to be processed and
- * already processed referrals. 
+ * already processed referrals. Thread-safe, referrals may be
+ * followed in parallel.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -59,7 +60,7 @@ public class ReferralsInfo
      * 
      * @param referral the referral
      */
-    public void addReferral( Referral referral )
+    public synchronized void addReferral( Referral referral )
     {
         referralsToProcess.addLast( referral );
     }
@@ -71,7 +72,7 @@ public class ReferralsInfo
      * @return the next referral or null
      * @throws LdapLoopDetectedException 
      */
-    public Referral getNextReferral() throws LdapLoopDetectedException
+    public synchronized Referral getNextReferral() throws LdapLoopDetectedException
     {
         handleAlreadyProcessedUrls();
         if ( !referralsToProcess.isEmpty() )
@@ -93,7 +94,7 @@ public class ReferralsInfo
      * @return true, if there are more referrals
      * @throws LdapLoLinkLoopExceptionopDetectedException 
      */
-    public boolean hasMoreReferrals() throws LdapLoopDetectedException
+    public synchronized boolean hasMoreReferrals() throws LdapLoopDetectedException
     {
         handleAlreadyProcessedUrls();
         return !referralsToProcess.isEmpty();
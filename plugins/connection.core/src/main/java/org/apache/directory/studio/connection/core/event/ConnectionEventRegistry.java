@@ -21,10 +21,10 @@
 package org.apache.directory.studio.connection.core.event;
 
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.directory.studio.connection.core.Connection;
@@ -44,19 +44,52 @@ import org.eclipse.core.runtime.Status;
 public class ConnectionEventRegistry
 {
 
-    /** The list of threads with suspended event firing. */
-    private static List<Long> suspendedEventFiringThreads = new ArrayList<Long>();
+    /**
+     * The number of nested suspensions of event firing in the current thread, followed by
+     * the number of nested {@link #runWithEventFiring(Runnable)} calls.
+     */
+    private static final ThreadLocal<int[]> suspendedEventFiring = new ThreadLocal<int[]>()
+    {
+        protected int[] initialValue()
+        {
+            return new int[2];
+        }
+    };
 
     /** The lock used to synchronize event firings */
     protected static Object lock = new Object();
 
     /** The list with time stamps of recent event firings */
-    private static List<Long> fireTimeStamps = new ArrayList<Long>();
+    private static Deque<Long> fireTimeStamps = new ArrayDeque<Long>();
 
     /** A counter for fired events */
     private static long fireCount = 0L;
 
 
+    /**
+     * Checks if event firing is suspended in the current thread, without counting
+     * the event as fired.
+     *
+     * @return true, if event firing is suspended in the current thread
+     */
+    protected static boolean isEventFiringSuspended()
+    {
+        return suspendedEventFiring.get()[0] > 0;
+    }
+
+
+    /**
+     * Checks if the current thread runs within {@link #runWithEventFiring(Runnable)}, 
+     * i.e. it publishes intermediate results of a runnable.
+     *
+     * @return true, if the current thread runs within runWithEventFiring
+     */
+    protected static boolean isRunningWithEventFiring()
+    {
+        return suspendedEventFiring.get()[1] > 0;
+    }
+
+
     /**
      * Checks if event firing is suspended in the current thread.
      *
@@ -64,7 +97,7 @@ public class ConnectionEventRegistry
      */
     protected static boolean isEventFiringSuspendedInCurrentThread()
     {
-        boolean suspended = suspendedEventFiringThreads.contains( Thread.currentThread().getId() );
+        boolean suspended = isEventFiringSuspended();
 
         // count the number of fired event in the last second
         // if more then five per second: print a warning
@@ -77,17 +110,9 @@ public class ConnectionEventRegistry
                 long now = System.currentTimeMillis();
 
                 // remove all time stamps older than one second
-                for ( Iterator<Long> it = fireTimeStamps.iterator(); it.hasNext(); )
+                while ( !fireTimeStamps.isEmpty() && fireTimeStamps.peekFirst() + 1000 < now )
                 {
-                    Long ts = it.next();
-                    if ( ts + 1000 < now )
-                    {
-                        it.remove();
-                    }
-                    else
-                    {
-                        break;
-                    }
+                    fireTimeStamps.removeFirst();
                 }
 
                 fireTimeStamps.add( now );
@@ -122,9 +147,10 @@ public class ConnectionEventRegistry
      */
     public static void resumeEventFiringInCurrentThread()
     {
-        synchronized ( suspendedEventFiringThreads )
+        int[] suspended = suspendedEventFiring.get();
+        if ( suspended[0] > 0 )
         {
-            suspendedEventFiringThreads.remove( Thread.currentThread().getId() );
+            suspended[0]--;
         }
     }
 
@@ -134,9 +160,30 @@ public class ConnectionEventRegistry
      */
     public static void suspendEventFiringInCurrentThread()
     {
-        synchronized ( suspendedEventFiringThreads )
+        suspendedEventFiring.get()[0]++;
+    }
+
+    /**
+     * Runs the given runnable with event firing enabled in the current thread, even
+     * if event firing is suspended. Used to publish intermediate results of runnables
+     * that run with suspended event firing.
+     *
+     * @param runnable the runnable
+     */
+    public static void runWithEventFiring( Runnable runnable )
+    {
+        int[] suspended = suspendedEventFiring.get();
+        int depth = suspended[0];
+        suspended[0] = 0;
+        suspended[1]++;
+        try
+        {
+            runnable.run();
+        }
+        finally
         {
-            suspendedEventFiringThreads.add( Thread.currentThread().getId() );
+            suspended[0] = depth;
+            suspended[1]--;
         }
     }
 
@@ -375,7 +422,8 @@ public class ConnectionEventRegistry
 
     public static class EventManager<L, R extends EventRunner>
     {
-        private Map<L, EventRunner> listeners = new HashMap<L, EventRunner>();
+        /** The registered listeners, copied on write so that firing needs no copy and no lock */
+        private volatile Map<L, EventRunner> listeners = Collections.emptyMap();
 
 
         /**
@@ -389,11 +437,13 @@ public class ConnectionEventRegistry
             assert listener != null;
             assert runner != null;
 
-            synchronized ( listeners )
+            synchronized ( this )
             {
                 if ( !listeners.containsKey( listener ) )
                 {
-                    listeners.put( listener, runner );
+                    Map<L, EventRunner> copy = new LinkedHashMap<L, EventRunner>( listeners );
+                    copy.put( listener, runner );
+                    listeners = copy;
                 }
             }
         }
@@ -406,11 +456,13 @@ public class ConnectionEventRegistry
          */
         public void removeListener( L listener )
         {
-            synchronized ( listeners )
+            synchronized ( this )
             {
                 if ( listeners.containsKey( listener ) )
                 {
-                    listeners.remove( listener );
+                    Map<L, EventRunner> copy = new LinkedHashMap<L, EventRunner>( listeners );
+                    copy.remove( listener );
+                    listeners = copy;
                 }
             }
         }
@@ -430,14 +482,18 @@ public class ConnectionEventRegistry
                 return;
             }
 
-            Map<L, EventRunner> clone = new HashMap<L, EventRunner>( listeners );
-            for ( final L listener : clone.keySet() )
+            Map<L, EventRunner> snapshot = listeners;
+            if ( snapshot.isEmpty() )
+            {
+                return;
+            }
+
+            synchronized ( lock )
             {
-                EventRunner runner = clone.get( listener );
-                synchronized ( lock )
+                for ( Map.Entry<L, EventRunner> entry : snapshot.entrySet() )
                 {
-                    EventRunnable runnable = factory.createEventRunnable( listener );
-                    runner.execute( runnable );
+                    EventRunnable runnable = factory.createEventRunnable( entry.getKey() );
+                    entry.getValue().execute( runnable );
                 }
             }
         }
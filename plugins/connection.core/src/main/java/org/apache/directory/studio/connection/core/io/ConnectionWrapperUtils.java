@@ -53,19 +53,30 @@ public class ConnectionWrapperUtils
         IReferralHandler referralHandler = ConnectionCorePlugin.getDefault().getReferralHandler();
         if ( referralHandler != null )
         {
-            referralConnection = referralHandler
-                .getReferralConnection( new ArrayList<String>( referral.getLdapUrls() ) );
+            // referrals may be followed in parallel, ask the referral handler one at a time
+            synchronized ( referralHandler )
+            {
+                referralConnection = referralHandler
+                    .getReferralConnection( new ArrayList<String>( referral.getLdapUrls() ) );
+            }
 
             // open connection if not yet open
-            if ( referralConnection != null && !referralConnection.getConnectionWrapper().isConnected() )
+            if ( referralConnection != null )
             {
-                referralConnection.getConnectionWrapper().connect( monitor );
-                referralConnection.getConnectionWrapper().bind( monitor );
-                for ( IConnectionListener listener : ConnectionCorePlugin.getDefault().getConnectionListeners() )
+                synchronized ( referralConnection )
                 {
-                    listener.connectionOpened( referralConnection, monitor );
+                    if ( !referralConnection.getConnectionWrapper().isConnected() )
+                    {
+                        referralConnection.getConnectionWrapper().connect( monitor );
+                        referralConnection.getConnectionWrapper().bind( monitor );
+                        for ( IConnectionListener listener : ConnectionCorePlugin.getDefault()
+                            .getConnectionListeners() )
+                        {
+                            listener.connectionOpened( referralConnection, monitor );
+                        }
+                        ConnectionEventRegistry.fireConnectionOpened( referralConnection, source );
+                    }
                 }
-                ConnectionEventRegistry.fireConnectionOpened( referralConnection, source );
             }
         }
         return referralConnection;
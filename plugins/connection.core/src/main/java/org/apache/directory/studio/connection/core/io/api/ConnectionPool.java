@@ -0,0 +1,382 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.connection.core.io.api;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.directory.api.ldap.extras.controls.vlv.VirtualListViewRequest;
+import org.apache.directory.api.ldap.extras.controls.vlv.VirtualListViewResponse;
+import org.apache.directory.api.ldap.model.message.Control;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
+
+
+/**
+ * The pool of additional connections used by a connection wrapper to run operations
+ * concurrently, the primary connection of the wrapper is not part of the pool.
+ *
+ * A paged or VLV search can only be continued on the connection that holds its
+ * server side context. When such a search is returned with a continuation cookie
+ * or context ID its connection is parked under that key and handed out again to
+ * the request that continues the search. Parked connections are reused for other
+ * operations only when the pool is exhausted, oldest first.
+ *
+ * If the pool is exhausted a temporary connection is opened, it is closed when
+ * it is returned.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @param <C> the connection type
+ */
+class ConnectionPool<C>
+{
+    /**
+     * Opens, checks and closes the connections of the pool.
+     *
+     * @param <C> the connection type
+     */
+    interface Connector<C>
+    {
+        /**
+         * Opens and binds a new connection.
+         *
+         * @return the new connection
+         * @throws Exception if the connection could not be opened or bound
+         */
+        C open() throws Exception;
+
+
+        /**
+         * Checks if the connection is still open.
+         *
+         * @param connection the connection
+         * @return true if the connection is open
+         */
+        boolean isConnected( C connection );
+
+
+        /**
+         * Closes the connection, errors are ignored.
+         *
+         * @param connection the connection
+         */
+        void close( C connection );
+    }
+
+    /** Opens, checks and closes the connections */
+    private final Connector<C> connector;
+
+    /** The idle connections, also used as lock */
+    private final Deque<C> idleConnections = new ArrayDeque<>();
+
+    /** The connections parked for the continuation of a paged or VLV search, oldest first */
+    private final Map<Object, C> pinnedConnections = new LinkedHashMap<>();
+
+    /** All pool members, idle, parked or checked out */
+    private final Set<C> members = new HashSet<>();
+
+
+    /**
+     * Creates a new, empty pool.
+     *
+     * @param connector opens, checks and closes the connections
+     */
+    ConnectionPool( Connector<C> connector )
+    {
+        this.connector = connector;
+    }
+
+
+    /**
+     * Opens connections until the pool has the given number of members.
+     * Failures are ignored, the pool will grow on demand later.
+     *
+     * @param size the minimum number of members
+     */
+    void fill( int size )
+    {
+        while ( true )
+        {
+            synchronized ( idleConnections )
+            {
+                if ( members.size() >= size )
+                {
+                    return;
+                }
+            }
+
+            C connection;
+
+            try
+            {
+                connection = connector.open();
+            }
+            catch ( Exception e )
+            {
+                return;
+            }
+
+            synchronized ( idleConnections )
+            {
+                members.add( connection );
+                idleConnections.push( connection );
+            }
+        }
+    }
+
+
+    /**
+     * Checks out a connection for a single operation. The connection parked under
+     * the continuation key is preferred, then an idle connection. A new member is
+     * opened if the pool has less than the given number of members, otherwise the
+     * oldest parked connection is taken or a temporary connection is opened.
+     * Every checked out connection must be returned with {@link #release(Object, Object)}.
+     *
+     * @param size the maximum number of members
+     * @param continuationKey the continuation key of the request, may be null
+     * @return the connection to use
+     * @throws Exception if a new connection could not be opened or bound
+     */
+    C checkout( int size, Object continuationKey ) throws Exception
+    {
+        boolean member;
+
+        synchronized ( idleConnections )
+        {
+            if ( continuationKey != null )
+            {
+                C pinnedConnection = pinnedConnections.remove( continuationKey );
+
+                if ( pinnedConnection != null )
+                {
+                    if ( connector.isConnected( pinnedConnection ) )
+                    {
+                        return pinnedConnection;
+                    }
+
+                    members.remove( pinnedConnection );
+                }
+            }
+
+            while ( !idleConnections.isEmpty() )
+            {
+                C idleConnection = idleConnections.pop();
+
+                if ( connector.isConnected( idleConnection ) )
+                {
+                    return idleConnection;
+                }
+
+                members.remove( idleConnection );
+            }
+
+            member = members.size() < size;
+
+            if ( !member )
+            {
+                Iterator<C> pinned = pinnedConnections.values().iterator();
+
+                while ( pinned.hasNext() )
+                {
+                    C pinnedConnection = pinned.next();
+                    pinned.remove();
+
+                    if ( connector.isConnected( pinnedConnection ) )
+                    {
+                        return pinnedConnection;
+                    }
+
+                    members.remove( pinnedConnection );
+                }
+
+                member = members.size() < size;
+            }
+        }
+
+        C connection = connector.open();
+
+        if ( member )
+        {
+            synchronized ( idleConnections )
+            {
+                members.add( connection );
+            }
+        }
+
+        return connection;
+    }
+
+
+    /**
+     * Returns a checked out connection. A connection returned with a continuation
+     * key is parked under that key. Connections that were closed, e.g. by
+     * cancellation, temporary connections and connections that belong to a pool
+     * that was closed in the meantime are discarded.
+     *
+     * @param connection the connection to return
+     * @param continuationKey the continuation key of the response, may be null
+     */
+    void release( C connection, Object continuationKey )
+    {
+        if ( connection == null )
+        {
+            return;
+        }
+
+        synchronized ( idleConnections )
+        {
+            if ( members.contains( connection ) )
+            {
+                if ( connector.isConnected( connection ) )
+                {
+                    if ( continuationKey != null )
+                    {
+                        C replaced = pinnedConnections.put( continuationKey, connection );
+
+                        if ( replaced != null && replaced != connection )
+                        {
+                            idleConnections.push( replaced );
+                        }
+                    }
+                    else
+                    {
+                        idleConnections.push( connection );
+                    }
+
+                    return;
+                }
+
+                members.remove( connection );
+            }
+        }
+
+        connector.close( connection );
+    }
+
+
+    /**
+     * Closes a checked out connection, e.g. to abort its operation. Other
+     * connections are not affected, the connection must still be returned.
+     *
+     * @param connection the connection to close
+     */
+    void abort( C connection )
+    {
+        if ( connection != null )
+        {
+            connector.close( connection );
+        }
+    }
+
+
+    /**
+     * Closes all idle and parked connections, checked out connections are closed when they are returned.
+     */
+    void close()
+    {
+        List<C> toClose;
+
+        synchronized ( idleConnections )
+        {
+            toClose = new ArrayList<>( idleConnections );
+            toClose.addAll( pinnedConnections.values() );
+            idleConnections.clear();
+            pinnedConnections.clear();
+            members.clear();
+        }
+
+        for ( C connection : toClose )
+        {
+            connector.close( connection );
+        }
+    }
+
+
+    /**
+     * Gets the number of pool members, idle, parked or checked out.
+     *
+     * @return the number of pool members
+     */
+    int size()
+    {
+        synchronized ( idleConnections )
+        {
+            return members.size();
+        }
+    }
+
+
+    /**
+     * Gets the continuation key of a paged or VLV search, the paged results cookie
+     * or the VLV context ID of the given request or response controls.
+     *
+     * @param controls the request or response controls, may be null
+     * @return the continuation key, null if the controls don't continue a search
+     */
+    static Object getContinuationKey( Collection<Control> controls )
+    {
+        if ( controls == null )
+        {
+            return null;
+        }
+
+        for ( Control control : controls )
+        {
+            if ( control instanceof PagedResults )
+            {
+                return getContinuationKey( PagedResults.OID, ( ( PagedResults ) control ).getCookie() );
+            }
+            else if ( control instanceof VirtualListViewRequest )
+            {
+                return getContinuationKey( VirtualListViewRequest.OID,
+                    ( ( VirtualListViewRequest ) control ).getContextId() );
+            }
+            else if ( control instanceof VirtualListViewResponse )
+            {
+                // a VLV search is continued with the VLV request control
+                return getContinuationKey( VirtualListViewRequest.OID,
+                    ( ( VirtualListViewResponse ) control ).getContextId() );
+            }
+        }
+
+        return null;
+    }
+
+
+    private static Object getContinuationKey( String oid, byte[] id )
+    {
+        if ( id == null || id.length == 0 )
+        {
+            return null;
+        }
+
+        return Arrays.asList( oid, ByteBuffer.wrap( id.clone() ) );
+    }
+}
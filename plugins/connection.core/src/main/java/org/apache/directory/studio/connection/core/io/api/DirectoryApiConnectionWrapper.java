@@ -22,9 +22,12 @@ package org.apache.directory.studio.connection.core.io.api;
 
 import java.security.KeyStore;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.naming.directory.SearchControls;
@@ -114,11 +117,39 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     /** The LDAP connection */
     private LdapNetworkConnection ldapConnection;
 
+    /** The LDAP connection configuration, shared by the primary and the pooled connections */
+    private LdapConnectionConfig ldapConnectionConfig;
+
+    /** The credentials used for the last successful bind, reused to bind pooled connections */
+    private ICredentials boundCredentials;
+
+    /** The pooled connections, not including the primary connection */
+    private final ConnectionPool<LdapNetworkConnection> connectionPool = new ConnectionPool<>(
+        new ConnectionPool.Connector<LdapNetworkConnection>()
+        {
+            public LdapNetworkConnection open() throws Exception
+            {
+                return openPooledConnection();
+            }
+
+
+            public boolean isConnected( LdapNetworkConnection pooledConnection )
+            {
+                return pooledConnection.isConnected();
+            }
+
+
+            public void close( LdapNetworkConnection pooledConnection )
+            {
+                closeQuietly( pooledConnection );
+            }
+        } );
+
     /** The binary attribute detector */
     private DefaultConfigurableBinaryAttributeDetector binaryAttributeDetector;
 
-    /** The current job thread */
-    private Thread jobThread;
+    /** The current job threads */
+    private final Set<Thread> jobThreads = ConcurrentHashMap.newKeySet();
 
     /**
      * Creates a new instance of DirectoryApiConnectionWrapper.
@@ -137,7 +168,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     public void connect( StudioProgressMonitor monitor )
     {
         ldapConnection = null;
-        jobThread = null;
+        jobThreads.clear();
 
         try
         {
@@ -155,7 +186,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     {
         ldapConnection = null;
 
-        LdapConnectionConfig ldapConnectionConfig = new LdapConnectionConfig();
+        ldapConnectionConfig = new LdapConnectionConfig();
         ldapConnectionConfig.setLdapHost( connection.getHost() );
         ldapConnectionConfig.setLdapPort( connection.getPort() );
 
@@ -210,69 +241,20 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
         {
             public void run()
             {
-                /*
-                 * Use local temp variable while the connection is being established and secured.
-                 * This process can take a while and the user might be asked to inspect the server
-                 * certificate. During that process the connection must not be used.
-                 */
-                LdapNetworkConnection ldapConnectionUnderConstruction = null;
                 try
                 {
-                    // Set lower timeout for connecting
-                    long oldTimeout = ldapConnectionConfig.getTimeout();
-                    ldapConnectionConfig.setTimeout( Math.min( oldTimeout, 5000L ) );
-
-                    // Connecting
-                    ldapConnectionUnderConstruction = new LdapNetworkConnection( ldapConnectionConfig );
-                    ldapConnectionUnderConstruction.connect();
-
-                    // DIRSTUDIO-1219: Establish TLS layer if TLS is enabled and SSL is not
-                    if ( ldapConnectionConfig.isUseTls() && !ldapConnectionConfig.isUseSsl() )
-                    {
-                        ldapConnectionUnderConstruction.startTls();
-                    }
-
-                    // Set original timeout again
-                    ldapConnectionConfig.setTimeout( oldTimeout );
-                    ldapConnectionUnderConstruction.setTimeOut( oldTimeout );
-
-                    // Now set the LDAP connection once the (optional) security layer is in place
-                    ldapConnection = ldapConnectionUnderConstruction;
-
-                    if ( !isConnected() )
-                    {
-                        throw new Exception( Messages.DirectoryApiConnectionWrapper_UnableToConnect );
-                    }
-
-                    // DIRSTUDIO-1219: Verify secure connection if ldaps:// or StartTLS is configured
-                    if ( ldapConnectionConfig.isUseTls() || ldapConnectionConfig.isUseSsl() )
-                    {
-                        if ( !isSecured() )
-                        {
-                            throw new Exception( Messages.DirectoryApiConnectionWrapper_UnsecuredConnection );
-                        }
-                    }
+                    /*
+                     * The connection is only published once it is established and secured.
+                     * This process can take a while and the user might be asked to inspect the server
+                     * certificate. During that process the connection must not be used.
+                     */
+                    ldapConnection = openConnection();
                 }
                 catch ( Exception e )
                 {
                     exception = toStudioLdapException( e );
-
-                    try
-                    {
-                        if ( ldapConnectionUnderConstruction != null )
-                        {
-                            ldapConnectionUnderConstruction.close();
-                        }
-                    }
-                    catch ( Exception exception )
-                    {
-                        // Nothing to do
-                    }
-                    finally
-                    {
-                        ldapConnection = null;
-                        binaryAttributeDetector = null;
-                    }
+                    ldapConnection = null;
+                    binaryAttributeDetector = null;
                 }
             }
         };
@@ -286,30 +268,83 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     }
 
 
+    /**
+     * Opens a new network connection using the current connection configuration.
+     * The returned connection is connected and, if configured, secured, but not bound.
+     *
+     * @return the opened connection
+     * @throws Exception if the connection could not be established or secured
+     */
+    private LdapNetworkConnection openConnection() throws Exception
+    {
+        LdapNetworkConnection ldapConnectionUnderConstruction = null;
+
+        try
+        {
+            // Set lower timeout for connecting
+            long oldTimeout = ldapConnectionConfig.getTimeout();
+            ldapConnectionConfig.setTimeout( Math.min( oldTimeout, 5000L ) );
+
+            // Connecting
+            ldapConnectionUnderConstruction = new LdapNetworkConnection( ldapConnectionConfig );
+            ldapConnectionUnderConstruction.connect();
+
+            // DIRSTUDIO-1219: Establish TLS layer if TLS is enabled and SSL is not
+            if ( ldapConnectionConfig.isUseTls() && !ldapConnectionConfig.isUseSsl() )
+            {
+                ldapConnectionUnderConstruction.startTls();
+            }
+
+            // Set original timeout again
+            ldapConnectionConfig.setTimeout( oldTimeout );
+            ldapConnectionUnderConstruction.setTimeOut( oldTimeout );
+
+            if ( !ldapConnectionUnderConstruction.isConnected() )
+            {
+                throw new Exception( Messages.DirectoryApiConnectionWrapper_UnableToConnect );
+            }
+
+            // DIRSTUDIO-1219: Verify secure connection if ldaps:// or StartTLS is configured
+            if ( ldapConnectionConfig.isUseTls() || ldapConnectionConfig.isUseSsl() )
+            {
+                if ( !ldapConnectionUnderConstruction.isSecured() )
+                {
+                    throw new Exception( Messages.DirectoryApiConnectionWrapper_UnsecuredConnection );
+                }
+            }
+
+            return ldapConnectionUnderConstruction;
+        }
+        catch ( Exception e )
+        {
+            closeQuietly( ldapConnectionUnderConstruction );
+
+            throw e;
+        }
+    }
+
+
     /**
      * {@inheritDoc}
      */
     public void disconnect()
     {
-        if ( jobThread != null )
+        for ( Thread t : jobThreads )
         {
-            Thread t = jobThread;
-            jobThread = null;
             t.interrupt();
         }
+        jobThreads.clear();
+
+        connectionPool.close();
+
         if ( ldapConnection != null )
         {
-            try
-            {
-                ldapConnection.close();
-            }
-            catch ( Exception e )
-            {
-                // ignore
-            }
+            closeQuietly( ldapConnection );
             ldapConnection = null;
             binaryAttributeDetector = null;
         }
+
+        boundCredentials = null;
     }
 
 
@@ -330,7 +365,8 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     }
 
 
-    private BindResponse bindSimple( String bindPrincipal, String bindPassword ) throws LdapException
+    private BindResponse bindSimple( LdapNetworkConnection ldapConnection, String bindPrincipal,
+        String bindPassword ) throws LdapException
     {
         BindRequest bindRequest = new BindRequestImpl();
         bindRequest.setName( bindPrincipal );
@@ -350,16 +386,11 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                 {
                     try
                     {
-                        BindResponse bindResponse = null;
+                        ICredentials credentials = null;
 
                         // No Authentication
                         if ( connection.getConnectionParameter()
-                            .getAuthMethod() == ConnectionParameter.AuthenticationMethod.NONE )
-                        {
-                            BindRequest bindRequest = new BindRequestImpl();
-                            bindResponse = ldapConnection.bind( bindRequest );
-                        }
-                        else
+                            .getAuthMethod() != ConnectionParameter.AuthenticationMethod.NONE )
                         {
                             // Setup credentials
                             IAuthHandler authHandler = ConnectionCorePlugin.getDefault().getAuthHandler();
@@ -370,8 +401,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                                 monitor.reportError( Messages.model__no_auth_handler, exception );
                                 throw exception;
                             }
-                            ICredentials credentials = authHandler
-                                .getCredentials( connection.getConnectionParameter() );
+                            credentials = authHandler.getCredentials( connection.getConnectionParameter() );
                             if ( credentials == null )
                             {
                                 Exception exception = new Exception();
@@ -385,98 +415,10 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                                 monitor.reportError( Messages.model__no_credentials, exception );
                                 throw exception;
                             }
-                            String bindPrincipal = credentials.getBindPrincipal();
-                            String bindPassword = credentials.getBindPassword();
-
-                            switch ( connection.getConnectionParameter().getAuthMethod() )
-                            {
-                                case SIMPLE:
-                                    // Simple Authentication
-                                    bindResponse = bindSimple( bindPrincipal, bindPassword );
-                                    break;
-
-                                case SASL_CRAM_MD5:
-                                    // CRAM-MD5 Authentication
-                                    SaslCramMd5Request cramMd5Request = new SaslCramMd5Request();
-                                    cramMd5Request.setUsername( bindPrincipal );
-                                    cramMd5Request.setCredentials( bindPassword );
-                                    cramMd5Request
-                                        .setQualityOfProtection( connection.getConnectionParameter().getSaslQop() );
-                                    cramMd5Request.setSecurityStrength( connection.getConnectionParameter()
-                                        .getSaslSecurityStrength() );
-                                    cramMd5Request.setMutualAuthentication( connection.getConnectionParameter()
-                                        .isSaslMutualAuthentication() );
-
-                                    bindResponse = ldapConnection.bind( cramMd5Request );
-                                    break;
-
-                                case SASL_DIGEST_MD5:
-                                    // DIGEST-MD5 Authentication
-                                    SaslDigestMd5Request digestMd5Request = new SaslDigestMd5Request();
-                                    digestMd5Request.setUsername( bindPrincipal );
-                                    digestMd5Request.setCredentials( bindPassword );
-                                    digestMd5Request.setRealmName( connection.getConnectionParameter().getSaslRealm() );
-                                    digestMd5Request.setQualityOfProtection( connection.getConnectionParameter()
-                                        .getSaslQop() );
-                                    digestMd5Request.setSecurityStrength( connection.getConnectionParameter()
-                                        .getSaslSecurityStrength() );
-                                    digestMd5Request.setMutualAuthentication( connection.getConnectionParameter()
-                                        .isSaslMutualAuthentication() );
-
-                                    bindResponse = ldapConnection.bind( digestMd5Request );
-                                    break;
-
-                                case SASL_GSSAPI:
-                                    // GSSAPI Authentication
-                                    SaslGssApiRequest gssApiRequest = new SaslGssApiRequest();
-
-                                    Preferences preferences = ConnectionCorePlugin.getDefault().getPluginPreferences();
-                                    boolean useKrb5SystemProperties = preferences
-                                        .getBoolean( ConnectionCoreConstants.PREFERENCE_USE_KRB5_SYSTEM_PROPERTIES );
-                                    String krb5LoginModule = preferences
-                                        .getString( ConnectionCoreConstants.PREFERENCE_KRB5_LOGIN_MODULE );
-
-                                    if ( !useKrb5SystemProperties )
-                                    {
-                                        gssApiRequest.setUsername( bindPrincipal );
-                                        gssApiRequest.setCredentials( bindPassword );
-                                        gssApiRequest.setQualityOfProtection( connection
-                                            .getConnectionParameter().getSaslQop() );
-                                        gssApiRequest.setSecurityStrength( connection
-                                            .getConnectionParameter()
-                                            .getSaslSecurityStrength() );
-                                        gssApiRequest.setMutualAuthentication( connection
-                                            .getConnectionParameter()
-                                            .isSaslMutualAuthentication() );
-                                        gssApiRequest
-                                            .setLoginModuleConfiguration( new InnerConfiguration(
-                                                krb5LoginModule ) );
-
-                                        switch ( connection.getConnectionParameter().getKrb5Configuration() )
-                                        {
-                                            case FILE:
-                                                gssApiRequest.setKrb5ConfFilePath( connection.getConnectionParameter()
-                                                    .getKrb5ConfigurationFile() );
-                                                break;
-                                            case MANUAL:
-                                                gssApiRequest.setRealmName( connection.getConnectionParameter()
-                                                    .getKrb5Realm() );
-                                                gssApiRequest.setKdcHost( connection.getConnectionParameter()
-                                                    .getKrb5KdcHost() );
-                                                gssApiRequest.setKdcPort( connection.getConnectionParameter()
-                                                    .getKrb5KdcPort() );
-                                                break;
-                                            default:
-                                                break;
-                                        }
-                                    }
-
-                                    bindResponse = ldapConnection.bind( gssApiRequest );
-                                    break;
-                            }
                         }
 
-                        checkResponse( bindResponse );
+                        bindConnection( ldapConnection, credentials );
+                        boundCredentials = credentials;
                     }
                     catch ( Exception e )
                     {
@@ -491,6 +433,8 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
             {
                 throw runnable.getException();
             }
+
+            fillPool();
         }
         else
         {
@@ -499,6 +443,219 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     }
 
 
+    /**
+     * Binds the given network connection using the connection's authentication method.
+     *
+     * @param ldapConnection the network connection to bind
+     * @param credentials the credentials, null for anonymous authentication
+     * @throws Exception if the bind fails
+     */
+    private void bindConnection( LdapNetworkConnection ldapConnection, ICredentials credentials ) throws Exception
+    {
+        BindResponse bindResponse = null;
+
+        // No Authentication
+        if ( connection.getConnectionParameter().getAuthMethod() == ConnectionParameter.AuthenticationMethod.NONE )
+        {
+            BindRequest bindRequest = new BindRequestImpl();
+            bindResponse = ldapConnection.bind( bindRequest );
+        }
+        else
+        {
+            String bindPrincipal = credentials.getBindPrincipal();
+            String bindPassword = credentials.getBindPassword();
+
+            switch ( connection.getConnectionParameter().getAuthMethod() )
+            {
+                case SIMPLE:
+                    // Simple Authentication
+                    bindResponse = bindSimple( ldapConnection, bindPrincipal, bindPassword );
+                    break;
+
+                case SASL_CRAM_MD5:
+                    // CRAM-MD5 Authentication
+                    SaslCramMd5Request cramMd5Request = new SaslCramMd5Request();
+                    cramMd5Request.setUsername( bindPrincipal );
+                    cramMd5Request.setCredentials( bindPassword );
+                    cramMd5Request
+                        .setQualityOfProtection( connection.getConnectionParameter().getSaslQop() );
+                    cramMd5Request.setSecurityStrength( connection.getConnectionParameter()
+                        .getSaslSecurityStrength() );
+                    cramMd5Request.setMutualAuthentication( connection.getConnectionParameter()
+                        .isSaslMutualAuthentication() );
+
+                    bindResponse = ldapConnection.bind( cramMd5Request );
+                    break;
+
+                case SASL_DIGEST_MD5:
+                    // DIGEST-MD5 Authentication
+                    SaslDigestMd5Request digestMd5Request = new SaslDigestMd5Request();
+                    digestMd5Request.setUsername( bindPrincipal );
+                    digestMd5Request.setCredentials( bindPassword );
+                    digestMd5Request.setRealmName( connection.getConnectionParameter().getSaslRealm() );
+                    digestMd5Request.setQualityOfProtection( connection.getConnectionParameter()
+                        .getSaslQop() );
+                    digestMd5Request.setSecurityStrength( connection.getConnectionParameter()
+                        .getSaslSecurityStrength() );
+                    digestMd5Request.setMutualAuthentication( connection.getConnectionParameter()
+                        .isSaslMutualAuthentication() );
+
+                    bindResponse = ldapConnection.bind( digestMd5Request );
+                    break;
+
+                case SASL_GSSAPI:
+                    // GSSAPI Authentication
+                    SaslGssApiRequest gssApiRequest = new SaslGssApiRequest();
+
+                    Preferences preferences = ConnectionCorePlugin.getDefault().getPluginPreferences();
+                    boolean useKrb5SystemProperties = preferences
+                        .getBoolean( ConnectionCoreConstants.PREFERENCE_USE_KRB5_SYSTEM_PROPERTIES );
+                    String krb5LoginModule = preferences
+                        .getString( ConnectionCoreConstants.PREFERENCE_KRB5_LOGIN_MODULE );
+
+                    if ( !useKrb5SystemProperties )
+                    {
+                        gssApiRequest.setUsername( bindPrincipal );
+                        gssApiRequest.setCredentials( bindPassword );
+                        gssApiRequest.setQualityOfProtection( connection
+                            .getConnectionParameter().getSaslQop() );
+                        gssApiRequest.setSecurityStrength( connection
+                            .getConnectionParameter()
+                            .getSaslSecurityStrength() );
+                        gssApiRequest.setMutualAuthentication( connection
+                            .getConnectionParameter()
+                            .isSaslMutualAuthentication() );
+                        gssApiRequest
+                            .setLoginModuleConfiguration( new InnerConfiguration(
+                                krb5LoginModule ) );
+
+                        switch ( connection.getConnectionParameter().getKrb5Configuration() )
+                        {
+                            case FILE:
+                                gssApiRequest.setKrb5ConfFilePath( connection.getConnectionParameter()
+                                    .getKrb5ConfigurationFile() );
+                                break;
+                            case MANUAL:
+                                gssApiRequest.setRealmName( connection.getConnectionParameter()
+                                    .getKrb5Realm() );
+                                gssApiRequest.setKdcHost( connection.getConnectionParameter()
+                                    .getKrb5KdcHost() );
+                                gssApiRequest.setKdcPort( connection.getConnectionParameter()
+                                    .getKrb5KdcPort() );
+                                break;
+                            default:
+                                break;
+                        }
+                    }
+
+                    bindResponse = ldapConnection.bind( gssApiRequest );
+                    break;
+            }
+        }
+
+        checkResponse( bindResponse );
+    }
+
+
+    /**
+     * Opens pooled connections until the configured minimum pool size is reached.
+     * The primary connection counts as one pool member. Failures are ignored,
+     * the pool will grow on demand later.
+     */
+    private void fillPool()
+    {
+        connectionPool.fill( connection.getConnectionParameter().getPoolMinSize() - 1 );
+    }
+
+
+    /**
+     * Opens and binds a new pooled connection.
+     *
+     * @return the new connection
+     * @throws Exception if the connection could not be opened or bound
+     */
+    private LdapNetworkConnection openPooledConnection() throws Exception
+    {
+        LdapNetworkConnection pooledConnection = null;
+
+        try
+        {
+            pooledConnection = openConnection();
+            bindConnection( pooledConnection, boundCredentials );
+
+            return pooledConnection;
+        }
+        catch ( Exception e )
+        {
+            closeQuietly( pooledConnection );
+
+            throw e;
+        }
+    }
+
+
+    /**
+     * Checks out a connection for a single operation.
+     * 
+     * If the pool is disabled (maximum size of 1) the shared primary connection is
+     * returned. Otherwise the pooled connection that holds the server side context
+     * of a continued paged or VLV search, an idle pooled connection, a new pooled
+     * connection or, if the pool is exhausted, a temporary connection is used. Every
+     * checked out connection must be returned with
+     * {@link #releaseConnection(LdapNetworkConnection, Object)}.
+     *
+     * @param continuationKey the continuation key of the request, may be null
+     * @return the connection to use
+     * @throws Exception if a new connection could not be opened or bound
+     */
+    private LdapNetworkConnection checkoutConnection( Object continuationKey ) throws Exception
+    {
+        int maxSize = connection.getConnectionParameter().getPoolMaxSize();
+
+        if ( maxSize <= 1 )
+        {
+            return ldapConnection;
+        }
+
+        return connectionPool.checkout( maxSize - 1, continuationKey );
+    }
+
+
+    /**
+     * Returns a connection obtained by {@link #checkoutConnection(Object)}. A pooled
+     * connection returned with a continuation key is kept for the request that
+     * continues the paged or VLV search.
+     *
+     * @param checkedOutConnection the connection to return
+     * @param continuationKey the continuation key of the response, may be null
+     */
+    private void releaseConnection( LdapNetworkConnection checkedOutConnection, Object continuationKey )
+    {
+        if ( checkedOutConnection == null || checkedOutConnection == ldapConnection )
+        {
+            return;
+        }
+
+        connectionPool.release( checkedOutConnection, continuationKey );
+    }
+
+
+    private static void closeQuietly( LdapNetworkConnection ldapConnection )
+    {
+        if ( ldapConnection != null )
+        {
+            try
+            {
+                ldapConnection.close();
+            }
+            catch ( Exception e )
+            {
+                // ignore
+            }
+        }
+    }
+
+
     /***
      * {@inheritDoc}
      */
@@ -587,7 +744,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                     request.setDerefAliases( convertAliasDerefMode( aliasesDereferencingMethod ) );
 
                     // Performing the search operation
-                    SearchCursor cursor = ldapConnection.search( request );
+                    SearchCursor cursor = operationConnection.search( request );
 
                     // Returning the result of the search
                     searchResultEnumeration = new StudioSearchResultEnumeration( connection, cursor, searchBase, filter,
@@ -615,6 +772,10 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                 }
             }
         };
+        if ( controls != null )
+        {
+            runnable.continuationKey = ConnectionPool.getContinuationKey( Arrays.asList( controls ) );
+        }
 
         try
         {
@@ -734,7 +895,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                     }
 
                     // Performing the modify operation
-                    ModifyResponse modifyResponse = ldapConnection.modify( request );
+                    ModifyResponse modifyResponse = operationConnection.modify( request );
 
                     // Handle referral
                     ReferralHandlingDataConsumer consumer = referralHandlingData -> referralHandlingData.connectionWrapper
@@ -813,7 +974,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                     }
 
                     // Performing the rename operation
-                    ModifyDnResponse modifyDnResponse = ldapConnection.modifyDn( request );
+                    ModifyDnResponse modifyDnResponse = operationConnection.modifyDn( request );
 
                     // Handle referral
                     ReferralHandlingDataConsumer consumer = referralHandlingData -> referralHandlingData.connectionWrapper
@@ -889,7 +1050,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                     }
 
                     // Performing the add operation
-                    AddResponse addResponse = ldapConnection.add( request );
+                    AddResponse addResponse = operationConnection.add( request );
 
                     // Handle referral
                     ReferralHandlingDataConsumer consumer = referralHandlingData -> {
@@ -968,7 +1129,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                     }
 
                     // Performing the delete operation
-                    DeleteResponse deleteResponse = ldapConnection.delete( request );
+                    DeleteResponse deleteResponse = operationConnection.delete( request );
 
                     // Handle referral
                     ReferralHandlingDataConsumer consumer = referralHandlingData -> referralHandlingData.connectionWrapper
@@ -1033,7 +1194,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
             {
                 try
                 {
-                    ExtendedResponse response = ldapConnection.extended( request );
+                    ExtendedResponse response = operationConnection.extended( request );
                     outerResponse[0] = response;
 
                     // TODO: handle referrals?
@@ -1080,6 +1241,10 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
      */
     abstract class InnerRunnable implements Runnable
     {
+        /** The connection checked out for this operation */
+        protected LdapNetworkConnection operationConnection = null;
+        /** The continuation key of a paged or VLV search, selects the connection that holds the search context */
+        protected Object continuationKey = null;
         protected StudioSearchResultEnumeration searchResultEnumeration = null;
         protected StudioLdapException exception = null;
         protected boolean canceled = false;
@@ -1206,7 +1371,30 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
         // loop for reconnection
         for ( int i = 0; i <= 1; i++ )
         {
-            runAndMonitor( runnable, monitor );
+            runnable.operationConnection = checkoutConnection( runnable.continuationKey );
+            boolean handedOver = false;
+
+            try
+            {
+                runAndMonitor( runnable, monitor );
+
+                // a search keeps its connection until the enumeration is exhausted or closed
+                if ( runnable.getResult() != null )
+                {
+                    LdapNetworkConnection searchConnection = runnable.operationConnection;
+                    StudioSearchResultEnumeration result = runnable.getResult();
+                    result.setConnectionReleaser( () -> releaseConnection( searchConnection,
+                        ConnectionPool.getContinuationKey( result.getResponseControls() ) ) );
+                    handedOver = true;
+                }
+            }
+            finally
+            {
+                if ( !handedOver )
+                {
+                    releaseConnection( runnable.operationConnection, null );
+                }
+            }
 
             // check reconnection
             if ( ( i == 0 ) && ( runnable.getException() instanceof InvalidConnectionException ) )
@@ -1228,32 +1416,34 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     {
         if ( !monitor.isCanceled() )
         {
+            Thread jobThread = Thread.currentThread();
+
             // monitor
             StudioProgressMonitor.CancelListener listener = event -> {
                 if ( monitor.isCanceled() )
                 {
-                    if ( jobThread != null && jobThread.isAlive() )
+                    if ( jobThread.isAlive() )
                     {
                         jobThread.interrupt();
                     }
 
-                    if ( ldapConnection != null )
-                    {
-                        try
-                        {
-                            ldapConnection.close();
-                        }
-                        catch ( Exception e )
-                        {
-                        }
+                    LdapNetworkConnection operationConnection = runnable.operationConnection;
 
+                    if ( operationConnection != null && operationConnection != ldapConnection )
+                    {
+                        // only close the pooled connection of the cancelled operation
+                        connectionPool.abort( operationConnection );
+                    }
+                    else if ( ldapConnection != null )
+                    {
+                        closeQuietly( ldapConnection );
                         ldapConnection = null;
                     }
                 }
             };
 
             monitor.addCancelListener( listener );
-            jobThread = Thread.currentThread();
+            jobThreads.add( jobThread );
 
             // run
             try
@@ -1263,7 +1453,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
             finally
             {
                 monitor.removeCancelListener( listener );
-                jobThread = null;
+                jobThreads.remove( jobThread );
             }
 
             if ( monitor.isCanceled() )
@@ -0,0 +1,391 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.apache.directory.studio.connection.core.io.api;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.directory.SearchControls;
+
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.Control;
+import org.apache.directory.api.ldap.model.message.Referral;
+import org.apache.directory.api.ldap.model.url.LdapUrl;
+import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
+import org.apache.directory.studio.connection.core.Connection;
+import org.apache.directory.studio.connection.core.Connection.AliasDereferencingMethod;
+import org.apache.directory.studio.connection.core.Connection.ReferralHandlingMethod;
+import org.apache.directory.studio.connection.core.ReferralsInfo;
+import org.apache.directory.studio.connection.core.io.ConnectionWrapperUtils;
+
+
+/**
+ * Follows the referrals of a search concurrently. Each referral is searched in its own
+ * thread, at most {@link #MAX_PARALLEL_REFERRALS} at once, the search results are 
+ * merged in the order they arrive. Referrals returned by the referral targets are 
+ * added to the shared {@link ReferralsInfo} and followed the same way.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class ReferralChaser
+{
+    /** The maximum number of referrals followed in parallel per search. */
+    static final int MAX_PARALLEL_REFERRALS = 8;
+
+    /** The maximum number of search results received but not yet consumed. */
+    private static final int QUEUE_CAPACITY = 1000;
+
+    /** The poll interval, to notice cancellation. */
+    private static final long POLL_INTERVAL = 100L;
+
+    /** Marks the end of the search of a referral. */
+    private static final Object DONE = new Object();
+
+    /**
+     * Searches the target of a single referral.
+     */
+    interface ReferralSearcher
+    {
+        /**
+         * Searches the target of the referral.
+         * 
+         * @param referral the referral
+         * @param monitor the progress monitor of the referral search
+         * @return the enumeration of the search results of the referral target, null if not followed
+         * @throws LdapException if the referral search failed
+         */
+        StudioSearchResultEnumeration search( Referral referral, StudioProgressMonitor monitor ) throws LdapException;
+    }
+
+    /** The connection of the original search. */
+    private final Connection connection;
+
+    private final String searchBase;
+    private final String filter;
+    private final SearchControls searchControls;
+    private final AliasDereferencingMethod aliasesDereferencingMethod;
+    private final ReferralHandlingMethod referralsHandlingMethod;
+    private final Control[] controls;
+    private final StudioProgressMonitor monitor;
+    private final ReferralsInfo referralsInfo;
+
+    /** The source of the connection opened events. */
+    private final Object source;
+
+    /** Searches the referral targets. */
+    private final ReferralSearcher referralSearcher;
+
+    /** The search results of the referrals, the monitors of failed referral searches and DONE per referral. */
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>( QUEUE_CAPACITY );
+
+    /** The referral searches, created when the first referral is followed. */
+    private ExecutorService executor;
+
+    /** The number of referral searches that are not done. */
+    private int running;
+
+    /** The current search result. */
+    private StudioSearchResult current;
+
+    /** Set when the search results are no longer consumed. */
+    private volatile boolean stopped;
+
+
+    ReferralChaser( Connection connection, String searchBase, String filter, SearchControls searchControls,
+        AliasDereferencingMethod aliasesDereferencingMethod, ReferralHandlingMethod referralsHandlingMethod,
+        Control[] controls, StudioProgressMonitor monitor, ReferralsInfo referralsInfo, Object source )
+    {
+        this( connection, searchBase, filter, searchControls, aliasesDereferencingMethod, referralsHandlingMethod,
+            controls, monitor, referralsInfo, source, null );
+    }
+
+
+    ReferralChaser( Connection connection, String searchBase, String filter, SearchControls searchControls,
+        AliasDereferencingMethod aliasesDereferencingMethod, ReferralHandlingMethod referralsHandlingMethod,
+        Control[] controls, StudioProgressMonitor monitor, ReferralsInfo referralsInfo, Object source,
+        ReferralSearcher referralSearcher )
+    {
+        this.connection = connection;
+        this.searchBase = searchBase;
+        this.filter = filter;
+        this.searchControls = searchControls;
+        this.aliasesDereferencingMethod = aliasesDereferencingMethod;
+        this.referralsHandlingMethod = referralsHandlingMethod;
+        this.controls = controls;
+        this.monitor = monitor;
+        this.referralsInfo = referralsInfo;
+        this.source = source;
+        this.referralSearcher = referralSearcher != null ? referralSearcher : this::searchReferral;
+    }
+
+
+    /**
+     * Checks if there is another search result. Starts the searches of pending
+     * referrals and waits for the next search result of any referral.
+     * 
+     * The errors of a referral search are reported to the monitor, the other
+     * referrals are still followed.
+     * 
+     * @return true if there is another search result
+     * @throws LdapException if the next referral could not be taken
+     */
+    boolean hasMore() throws LdapException
+    {
+        current = null;
+
+        try
+        {
+            while ( !stopped )
+            {
+                if ( monitor.isCanceled() )
+                {
+                    stop();
+                    return false;
+                }
+
+                startReferralSearches();
+
+                if ( running == 0 )
+                {
+                    stop();
+                    return false;
+                }
+
+                Object element = queue.poll( POLL_INTERVAL, TimeUnit.MILLISECONDS );
+                if ( element == DONE )
+                {
+                    running--;
+                }
+                else if ( element instanceof StudioProgressMonitor )
+                {
+                    monitor.reportError( ( ( StudioProgressMonitor ) element ).getException() );
+                }
+                else if ( element != null )
+                {
+                    current = ( StudioSearchResult ) element;
+                    return true;
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            stop();
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Gets the current search result.
+     * 
+     * @return the current search result
+     */
+    StudioSearchResult next()
+    {
+        return current;
+    }
+
+
+    /**
+     * Stops following referrals.
+     */
+    void stop()
+    {
+        stopped = true;
+        queue.clear();
+        if ( executor != null )
+        {
+            executor.shutdown();
+        }
+    }
+
+
+    private void startReferralSearches() throws LdapException
+    {
+        while ( running < MAX_PARALLEL_REFERRALS && referralsInfo.hasMoreReferrals() )
+        {
+            Referral referral = referralsInfo.getNextReferral();
+            if ( referral == null )
+            {
+                return;
+            }
+
+            if ( executor == null )
+            {
+                executor = Executors.newFixedThreadPool( MAX_PARALLEL_REFERRALS, r -> {
+                    Thread thread = new Thread( r, "ReferralChaser" ); //$NON-NLS-1$
+                    thread.setDaemon( true );
+                    return thread;
+                } );
+            }
+
+            running++;
+            executor.execute( () -> search( referral ) );
+        }
+    }
+
+
+    /**
+     * Searches the target of the referral, runs in a thread of the executor.
+     * 
+     * @param referral the referral
+     */
+    private void search( Referral referral )
+    {
+        // the monitor of the search is not thread-safe, errors are reported by the consumer
+        StudioProgressMonitor referralMonitor = new StudioProgressMonitor( monitor );
+        StudioSearchResultEnumeration referralEnumeration = null;
+
+        try
+        {
+            referralEnumeration = referralSearcher.search( referral, referralMonitor );
+
+            while ( referralEnumeration != null && !isStopped() && referralEnumeration.hasMore() )
+            {
+                if ( !put( new StudioSearchResult( referralEnumeration.next().getSearchResultEntry(), connection,
+                    true, null ) ) )
+                {
+                    break;
+                }
+            }
+        }
+        catch ( Exception e )
+        {
+            // only this referral failed, its error is reported and the other referrals are followed
+            referralMonitor.reportError( e );
+        }
+        finally
+        {
+            if ( referralEnumeration != null )
+            {
+                try
+                {
+                    referralEnumeration.close();
+                }
+                catch ( LdapException e )
+                {
+                    // the connection is released anyway
+                }
+            }
+
+            if ( referralMonitor.errorsReported() )
+            {
+                put( referralMonitor );
+            }
+            put( DONE );
+        }
+    }
+
+
+    /**
+     * Opens the connection of the referral and searches its target.
+     * 
+     * @param referral the referral
+     * @param referralMonitor the progress monitor of the referral search
+     * @return the enumeration of the search results of the referral target, null if not followed
+     * @throws LdapException if the referral URL is invalid
+     */
+    private StudioSearchResultEnumeration searchReferral( Referral referral, StudioProgressMonitor referralMonitor )
+        throws LdapException
+    {
+        List<String> referralUrls = new ArrayList<String>( referral.getLdapUrls() );
+        LdapUrl url = new LdapUrl( referralUrls.get( 0 ) );
+
+        Connection referralConnection = ConnectionWrapperUtils.getReferralConnection( referral, referralMonitor,
+            source );
+        if ( referralConnection == null || isStopped() )
+        {
+            return null;
+        }
+
+        String referralSearchBase = url.getDn() != null && !url.getDn().isEmpty()
+            ? url.getDn().getName()
+            : searchBase;
+        String referralFilter = url.getFilter() != null && url.getFilter().length() == 0
+            ? url.getFilter()
+            : filter;
+        SearchControls referralSearchControls = new SearchControls();
+        referralSearchControls.setSearchScope( url.getScope().getScope() > -1
+            ? url.getScope().getScope()
+            : searchControls.getSearchScope() );
+        referralSearchControls
+            .setReturningAttributes( url.getAttributes() != null && url.getAttributes().size() > 0
+                ? url.getAttributes().toArray( new String[url.getAttributes().size()] )
+                : searchControls.getReturningAttributes() );
+        referralSearchControls.setCountLimit( searchControls.getCountLimit() );
+        referralSearchControls.setTimeLimit( searchControls.getTimeLimit() );
+        referralSearchControls.setDerefLinkFlag( searchControls.getDerefLinkFlag() );
+        referralSearchControls.setReturningObjFlag( searchControls.getReturningObjFlag() );
+
+        // referrals returned by the referral target are added to the referrals info
+        // and followed by this chaser, not by the referral enumeration
+        return referralConnection.getConnectionWrapper().search( referralSearchBase, referralFilter,
+            referralSearchControls, aliasesDereferencingMethod, referralsHandlingMethod, controls, referralMonitor,
+            referralsInfo );
+    }
+
+
+    /**
+     * Checks if the referral searches should end, because the search results are no
+     * longer consumed or the search was canceled.
+     * 
+     * @return true if the referral searches should end
+     */
+    private boolean isStopped()
+    {
+        return stopped || monitor.isCanceled();
+    }
+
+
+    /**
+     * Puts an element into the queue, waits while the queue is full.
+     * 
+     * @param element the element
+     * @return false if the search results are no longer consumed
+     */
+    private boolean put( Object element )
+    {
+        try
+        {
+            while ( !isStopped() )
+            {
+                if ( queue.offer( element, POLL_INTERVAL, TimeUnit.MILLISECONDS ) )
+                {
+                    return true;
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        return false;
+    }
+}
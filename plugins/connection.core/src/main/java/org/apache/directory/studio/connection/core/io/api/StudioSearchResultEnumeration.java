@@ -35,6 +35,7 @@ import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.message.Control;
 import org.apache.directory.api.ldap.model.message.Referral;
 import org.apache.directory.api.ldap.model.message.Response;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
 import org.apache.directory.api.ldap.model.message.SearchResultDone;
 import org.apache.directory.api.ldap.model.message.SearchResultEntry;
 import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
@@ -47,15 +48,18 @@ import org.apache.directory.studio.connection.core.Connection.ReferralHandlingMe
 import org.apache.directory.studio.connection.core.ConnectionCorePlugin;
 import org.apache.directory.studio.connection.core.ILdapLogger;
 import org.apache.directory.studio.connection.core.ReferralsInfo;
-import org.apache.directory.studio.connection.core.io.ConnectionWrapperUtils;
 
 
 /**
  * A naming enumeration that handles referrals itself. 
+ * 
+ * The enumeration holds a network connection until it is exhausted, fails or is 
+ * closed. Callers that may stop before the enumeration is exhausted must close it, 
+ * e.g. in a finally block or with a try-with-resources statement.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
-public class StudioSearchResultEnumeration
+public class StudioSearchResultEnumeration implements AutoCloseable
 {
     private Connection connection;
 
@@ -73,9 +77,16 @@ public class StudioSearchResultEnumeration
     private SearchCursor cursor;
     private SearchResultEntry currentSearchResultEntry;
     private List<String> currentReferralUrlsList;
-    private StudioSearchResultEnumeration referralEnumeration;
+    private boolean chaseReferrals;
+    private ReferralChaser referralChaser;
     private SearchResultDone searchResultDone;
 
+    /** Returns the underlying network connection to its pool, invoked once the cursor is done */
+    private Runnable connectionReleaser;
+
+    /** Set when the enumeration was closed */
+    private boolean closed;
+
 
     /**
      * Creates a new instance of StudioSearchResultEnumeration.
@@ -113,27 +124,121 @@ public class StudioSearchResultEnumeration
 
         if ( referralsInfo == null )
         {
+            // this is the original search, it follows the referrals of all referral searches
             this.referralsInfo = new ReferralsInfo( false );
+            this.chaseReferrals = true;
         }
 
         this.cursor = cursor;
     }
 
 
+    /**
+     * Sets the callback that returns the underlying network connection to its pool.
+     * It is invoked once, when the cursor is exhausted or when this enumeration is closed.
+     *
+     * @param connectionReleaser the callback
+     */
+    public void setConnectionReleaser( Runnable connectionReleaser )
+    {
+        this.connectionReleaser = connectionReleaser;
+    }
+
+
+    private void releaseConnection()
+    {
+        if ( connectionReleaser != null )
+        {
+            Runnable releaser = connectionReleaser;
+            connectionReleaser = null;
+            releaser.run();
+        }
+    }
+
+
+    /**
+     * Closes the enumeration: stops following referrals, closes the cursor and releases 
+     * the network connection. Closing an enumeration more than once has no effect.
+     * 
+     * @throws LdapException if the cursor could not be closed
+     */
+    @Override
     public void close() throws LdapException
     {
+        if ( closed )
+        {
+            return;
+        }
+        closed = true;
+
+        if ( referralChaser != null )
+        {
+            referralChaser.stop();
+        }
+
         try
         {
-            cursor.close();
+            if ( cursor != null && !cursor.isClosed() )
+            {
+                cursor.close();
+            }
         }
         catch ( Exception e )
         {
             throw new LdapException( e.getMessage() );
         }
+        finally
+        {
+            releaseConnection();
+        }
     }
 
 
+    /**
+     * Checks if there is another search result. The enumeration is closed when 
+     * there are no more search results, when the search is canceled or fails.
+     * 
+     * @return true if there is another search result
+     * @throws LdapException if the search failed
+     */
     public boolean hasMore() throws LdapException
+    {
+        if ( closed )
+        {
+            return false;
+        }
+
+        boolean hasMore = false;
+
+        try
+        {
+            hasMore = ( monitor == null || !monitor.isCanceled() ) && fetchNext();
+            return hasMore;
+        }
+        finally
+        {
+            if ( !hasMore )
+            {
+                closeQuietly();
+            }
+        }
+    }
+
+
+    private void closeQuietly()
+    {
+        try
+        {
+            close();
+        }
+        catch ( LdapException e )
+        {
+            // the connection is released anyway
+        }
+    }
+
+
+    private boolean fetchNext() throws LdapException
     {
         try
         {
@@ -169,6 +274,7 @@ public class StudioSearchResultEnumeration
             if ( searchResultDone == null )
             {
                 searchResultDone = ( ( SearchCursor ) cursor ).getSearchResultDone();
+                releaseConnection();
                 Referral referral = searchResultDone.getLdapResult().getReferral();
                 if ( referralsHandlingMethod != ReferralHandlingMethod.IGNORE && referral != null )
                 {
@@ -198,49 +304,18 @@ public class StudioSearchResultEnumeration
                 }
             }
             // Are we following referrals automatically?
-            else if ( referralsHandlingMethod == ReferralHandlingMethod.FOLLOW )
+            else if ( referralsHandlingMethod == ReferralHandlingMethod.FOLLOW && chaseReferrals )
             {
-                if ( ( referralEnumeration != null ) && ( referralEnumeration.hasMore() ) )
+                if ( referralChaser == null && referralsInfo.hasMoreReferrals() )
                 {
-                    // return true if there's at least one more entry in the current cursor naming enumeration
-                    return true;
+                    referralChaser = new ReferralChaser( connection, searchBase, filter, searchControls,
+                        aliasesDereferencingMethod, referralsHandlingMethod, controls, monitor, referralsInfo, this );
                 }
 
-                if ( referralsInfo.hasMoreReferrals() )
+                if ( ( referralChaser != null ) && ( referralChaser.hasMore() ) )
                 {
-                    Referral referral = referralsInfo.getNextReferral();
-                    List<String> referralUrls = new ArrayList<String>( referral.getLdapUrls() );
-                    LdapUrl url = new LdapUrl( referralUrls.get( 0 ) );
-
-                    Connection referralConnection = ConnectionWrapperUtils.getReferralConnection( referral, monitor,
-                        this );
-                    if ( referralConnection != null )
-                    {
-                        String referralSearchBase = url.getDn() != null && !url.getDn().isEmpty()
-                            ? url.getDn().getName()
-                            : searchBase;
-                        String referralFilter = url.getFilter() != null && url.getFilter().length() == 0
-                            ? url.getFilter()
-                            : filter;
-                        SearchControls referralSearchControls = new SearchControls();
-                        referralSearchControls.setSearchScope( url.getScope().getScope() > -1
-                            ? url.getScope().getScope()
-                            : searchControls.getSearchScope() );
-                        referralSearchControls
-                            .setReturningAttributes( url.getAttributes() != null && url.getAttributes().size() > 0
-                                ? url.getAttributes().toArray( new String[url.getAttributes().size()] )
-                                : searchControls.getReturningAttributes() );
-                        referralSearchControls.setCountLimit( searchControls.getCountLimit() );
-                        referralSearchControls.setTimeLimit( searchControls.getTimeLimit() );
-                        referralSearchControls.setDerefLinkFlag( searchControls.getDerefLinkFlag() );
-                        referralSearchControls.setReturningObjFlag( searchControls.getReturningObjFlag() );
-
-                        referralEnumeration = referralConnection.getConnectionWrapper().search( referralSearchBase,
-                            referralFilter, referralSearchControls, aliasesDereferencingMethod, referralsHandlingMethod,
-                            controls, monitor, referralsInfo );
-
-                        return referralEnumeration.hasMore();
-                    }
+                    // return true if there's at least one more entry of the followed referrals
+                    return true;
                 }
             }
 
@@ -297,8 +372,7 @@ public class StudioSearchResultEnumeration
             else if ( referralsHandlingMethod == ReferralHandlingMethod.FOLLOW )
             {
                 resultEntryCounter++;
-                return new StudioSearchResult( referralEnumeration.next().getSearchResultEntry(), connection,
-                    true, null );
+                return referralChaser.next();
             }
 
             return null;
@@ -341,4 +415,21 @@ public class StudioSearchResultEnumeration
         return Collections.emptyList();
     }
 
+
+    /**
+     * Gets the result code of the search, e.g. to detect a search that
+     * was truncated by a size or time limit.
+     * 
+     * @return the result code, null if the search is not done
+     */
+    public ResultCodeEnum getResultCode()
+    {
+        if ( searchResultDone != null )
+        {
+            return searchResultDone.getLdapResult().getResultCode();
+        }
+
+        return null;
+    }
+
 }
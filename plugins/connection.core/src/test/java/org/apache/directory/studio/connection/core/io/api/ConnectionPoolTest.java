@@ -0,0 +1,317 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.connection.core.io.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.directory.api.ldap.extras.controls.vlv.VirtualListViewRequest;
+import org.apache.directory.api.ldap.extras.controls.vlv.VirtualListViewRequestImpl;
+import org.apache.directory.api.ldap.extras.controls.vlv.VirtualListViewResponse;
+import org.apache.directory.api.ldap.extras.controls.vlv.VirtualListViewResponseImpl;
+import org.apache.directory.api.ldap.model.message.Control;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
+import org.apache.directory.api.ldap.model.message.controls.PagedResultsImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the checkout and release, the exhausted pool, the abort and the paged and VLV
+ * search continuation of the {@link ConnectionPool}.
+ */
+public class ConnectionPoolTest
+{
+    /** The connections opened by the connector. */
+    private List<FakeConnection> opened;
+
+    /** The error thrown by the connector, null to open connections. */
+    private Exception openError;
+
+    private ConnectionPool<FakeConnection> pool;
+
+
+    @BeforeEach
+    public void setup()
+    {
+        opened = new ArrayList<>();
+        openError = null;
+        pool = new ConnectionPool<>( new ConnectionPool.Connector<FakeConnection>()
+        {
+            public FakeConnection open() throws Exception
+            {
+                if ( openError != null )
+                {
+                    throw openError;
+                }
+                FakeConnection connection = new FakeConnection();
+                opened.add( connection );
+                return connection;
+            }
+
+
+            public boolean isConnected( FakeConnection connection )
+            {
+                return connection.connected;
+            }
+
+
+            public void close( FakeConnection connection )
+            {
+                connection.connected = false;
+            }
+        } );
+    }
+
+
+    /**
+     * Tests that released connections are checked out again instead of opening new ones.
+     */
+    @Test
+    public void testCheckoutAndRelease() throws Exception
+    {
+        pool.fill( 2 );
+        assertEquals( 2, opened.size() );
+
+        FakeConnection first = pool.checkout( 2, null );
+        FakeConnection second = pool.checkout( 2, null );
+        assertNotSame( first, second );
+        pool.release( first, null );
+        pool.release( second, null );
+
+        assertSame( second, pool.checkout( 2, null ) );
+        assertSame( first, pool.checkout( 2, null ) );
+        assertEquals( 2, opened.size() );
+        assertEquals( 2, pool.size() );
+        assertTrue( first.connected );
+        assertTrue( second.connected );
+    }
+
+
+    /**
+     * Tests that an exhausted pool opens a temporary connection that is closed when it is released.
+     */
+    @Test
+    public void testExhaustedPoolOpensTemporaryConnection() throws Exception
+    {
+        FakeConnection member = pool.checkout( 1, null );
+        FakeConnection temporary = pool.checkout( 1, null );
+
+        assertNotSame( member, temporary );
+        assertEquals( 1, pool.size() );
+
+        pool.release( temporary, null );
+        assertFalse( temporary.connected );
+        pool.release( member, null );
+        assertTrue( member.connected );
+
+        assertSame( member, pool.checkout( 1, null ) );
+        assertEquals( 2, opened.size() );
+    }
+
+
+    /**
+     * Tests that an exhausted pool reports the error if no connection could be opened.
+     */
+    @Test
+    public void testExhaustedPoolReportsOpenError() throws Exception
+    {
+        FakeConnection member = pool.checkout( 1, null );
+        openError = new Exception( "connection refused" );
+
+        assertSame( openError, assertThrows( Exception.class, () -> pool.checkout( 1, null ) ) );
+        assertTrue( member.connected );
+        assertEquals( 1, pool.size() );
+    }
+
+
+    /**
+     * Tests that a failing fill is ignored and the pool grows on demand later.
+     */
+    @Test
+    public void testFillIgnoresOpenError() throws Exception
+    {
+        openError = new Exception( "connection refused" );
+        pool.fill( 2 );
+        assertEquals( 0, pool.size() );
+
+        openError = null;
+        pool.checkout( 2, null );
+        assertEquals( 1, pool.size() );
+    }
+
+
+    /**
+     * Tests that aborting an operation only closes its own connection and that it is discarded when released.
+     */
+    @Test
+    public void testAbortClosesOnlyItsConnection() throws Exception
+    {
+        FakeConnection aborted = pool.checkout( 2, null );
+        FakeConnection other = pool.checkout( 2, null );
+
+        pool.abort( aborted );
+        assertFalse( aborted.connected );
+        assertTrue( other.connected );
+
+        pool.release( aborted, null );
+        pool.release( other, null );
+        assertEquals( 1, pool.size() );
+        assertSame( other, pool.checkout( 2, null ) );
+
+        FakeConnection replacement = pool.checkout( 2, null );
+        assertNotSame( aborted, replacement );
+        assertTrue( replacement.connected );
+    }
+
+
+    /**
+     * Tests that the connection of a paged search is kept for the request that continues the search.
+     */
+    @Test
+    public void testContinuationIsPinnedToItsConnection() throws Exception
+    {
+        Object cookie = ConnectionPool.getContinuationKey( pagedResults( 1, 2, 3 ) );
+
+        FakeConnection paged = pool.checkout( 2, null );
+        pool.release( paged, cookie );
+
+        FakeConnection other = pool.checkout( 2, null );
+        assertNotSame( paged, other );
+        pool.release( other, null );
+
+        assertSame( paged, pool.checkout( 2, ConnectionPool.getContinuationKey( pagedResults( 1, 2, 3 ) ) ) );
+        pool.release( paged, null );
+
+        // the last page was returned, the connection is idle again
+        assertSame( paged, pool.checkout( 2, null ) );
+        assertSame( other, pool.checkout( 2, null ) );
+        assertEquals( 2, opened.size() );
+    }
+
+
+    /**
+     * Tests that parked connections are reused, oldest first, when the pool is exhausted.
+     */
+    @Test
+    public void testPinnedConnectionReusedWhenExhausted() throws Exception
+    {
+        Object firstCookie = ConnectionPool.getContinuationKey( pagedResults( 1 ) );
+        Object secondCookie = ConnectionPool.getContinuationKey( pagedResults( 2 ) );
+
+        FakeConnection first = pool.checkout( 2, null );
+        FakeConnection second = pool.checkout( 2, null );
+        pool.release( first, firstCookie );
+        pool.release( second, secondCookie );
+
+        assertSame( first, pool.checkout( 2, null ) );
+        assertSame( second, pool.checkout( 2, secondCookie ) );
+        assertEquals( 2, opened.size() );
+
+        // the search context of the first search is gone, the continuation uses a temporary connection
+        FakeConnection temporary = pool.checkout( 2, firstCookie );
+        assertNotSame( first, temporary );
+        assertNotSame( second, temporary );
+        pool.release( temporary, null );
+        assertFalse( temporary.connected );
+    }
+
+
+    /**
+     * Tests that closing the pool closes the idle and parked connections and the checked out ones when released.
+     */
+    @Test
+    public void testClose() throws Exception
+    {
+        FakeConnection idle = pool.checkout( 3, null );
+        FakeConnection pinned = pool.checkout( 3, null );
+        FakeConnection checkedOut = pool.checkout( 3, null );
+        pool.release( idle, null );
+        pool.release( pinned, ConnectionPool.getContinuationKey( pagedResults( 1 ) ) );
+
+        pool.close();
+        assertFalse( idle.connected );
+        assertFalse( pinned.connected );
+        assertTrue( checkedOut.connected );
+        assertEquals( 0, pool.size() );
+
+        pool.release( checkedOut, null );
+        assertFalse( checkedOut.connected );
+    }
+
+
+    /**
+     * Tests the continuation keys of the paged results and VLV controls.
+     */
+    @Test
+    public void testGetContinuationKey()
+    {
+        assertNull( ConnectionPool.getContinuationKey( null ) );
+        assertNull( ConnectionPool.getContinuationKey( Collections.<Control> emptyList() ) );
+        assertNull( ConnectionPool.getContinuationKey( pagedResults() ) );
+        assertEquals( ConnectionPool.getContinuationKey( pagedResults( 1, 2 ) ),
+            ConnectionPool.getContinuationKey( pagedResults( 1, 2 ) ) );
+        assertNotEquals( ConnectionPool.getContinuationKey( pagedResults( 1, 2 ) ),
+            ConnectionPool.getContinuationKey( pagedResults( 1, 3 ) ) );
+
+        VirtualListViewRequest vlvRequest = new VirtualListViewRequestImpl();
+        vlvRequest.setContextId( new byte[]
+            { 1, 2 } );
+        VirtualListViewResponse vlvResponse = new VirtualListViewResponseImpl();
+        vlvResponse.setContextId( new byte[]
+            { 1, 2 } );
+        Object vlvKey = ConnectionPool.getContinuationKey( Collections.<Control> singletonList( vlvRequest ) );
+        assertEquals( vlvKey, ConnectionPool.getContinuationKey( Collections.<Control> singletonList( vlvResponse ) ) );
+        assertNotEquals( vlvKey, ConnectionPool.getContinuationKey( pagedResults( 1, 2 ) ) );
+
+        vlvRequest.setContextId( null );
+        assertNull( ConnectionPool.getContinuationKey( Collections.<Control> singletonList( vlvRequest ) ) );
+    }
+
+
+    private static List<Control> pagedResults( int... cookie )
+    {
+        byte[] bytes = new byte[cookie.length];
+        for ( int i = 0; i < cookie.length; i++ )
+        {
+            bytes[i] = ( byte ) cookie[i];
+        }
+        PagedResults control = new PagedResultsImpl();
+        control.setSize( 10 );
+        control.setCookie( bytes );
+        return Collections.<Control> singletonList( control );
+    }
+
+    private static class FakeConnection
+    {
+        private boolean connected = true;
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.connection.core.io.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.naming.directory.SearchControls;
+
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.Referral;
+import org.apache.directory.api.ldap.model.message.ReferralImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
+import org.apache.directory.studio.connection.core.Connection.AliasDereferencingMethod;
+import org.apache.directory.studio.connection.core.Connection.ReferralHandlingMethod;
+import org.apache.directory.studio.connection.core.ReferralsInfo;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the error handling, the cancellation and the closing of the referral searches of the {@link ReferralChaser}.
+ */
+public class ReferralChaserTest
+{
+    private StudioProgressMonitor monitor;
+
+    private ReferralsInfo referralsInfo;
+
+    /** The enumerations returned by the referral searcher. */
+    private List<ReferralEnumeration> enumerations;
+
+
+    @BeforeEach
+    public void setup()
+    {
+        monitor = new StudioProgressMonitor( new NullProgressMonitor() );
+        referralsInfo = new ReferralsInfo( false );
+        enumerations = Collections.synchronizedList( new ArrayList<ReferralEnumeration>() );
+    }
+
+
+    /**
+     * Tests that a failed referral search is reported and the other referrals are still followed.
+     */
+    @Test
+    public void testFailedReferralDoesNotStopOthers() throws Exception
+    {
+        LdapException error = new LdapException( "ldap://b failed" );
+        addReferrals( "ldap://a/ou=a", "ldap://b/ou=b", "ldap://c/ou=c" );
+        ReferralChaser chaser = newReferralChaser( ( referral, referralMonitor ) -> {
+            String url = referral.getLdapUrls().iterator().next();
+            if ( url.startsWith( "ldap://b" ) )
+            {
+                throw error;
+            }
+            return newEnumeration( url.substring( url.lastIndexOf( '=' ) + 1 ), 2 );
+        } );
+
+        List<String> dns = new ArrayList<>();
+        while ( chaser.hasMore() )
+        {
+            dns.add( chaser.next().getDn().getName() );
+        }
+        Collections.sort( dns );
+
+        assertEquals( Arrays.asList( "cn=a0", "cn=a1", "cn=c0", "cn=c1" ), dns );
+        assertTrue( monitor.errorsReported() );
+        assertSame( error, monitor.getException() );
+        assertEquals( 2, enumerations.size() );
+        for ( ReferralEnumeration enumeration : enumerations )
+        {
+            assertTrue( enumeration.closed );
+        }
+    }
+
+
+    /**
+     * Tests that a referral enumeration that fails while it is read is closed and the other referrals are followed.
+     */
+    @Test
+    public void testEnumerationClosedOnError() throws Exception
+    {
+        LdapException error = new LdapException( "ldap://a failed" );
+        addReferrals( "ldap://a/ou=a", "ldap://b/ou=b" );
+        ReferralChaser chaser = newReferralChaser( ( referral, referralMonitor ) -> {
+            String url = referral.getLdapUrls().iterator().next();
+            if ( url.startsWith( "ldap://a" ) )
+            {
+                ReferralEnumeration enumeration = newEnumeration( "a", 0 );
+                enumeration.error = error;
+                return enumeration;
+            }
+            return newEnumeration( "b", 1 );
+        } );
+
+        assertTrue( chaser.hasMore() );
+        assertEquals( "cn=b0", chaser.next().getDn().getName() );
+        assertFalse( chaser.hasMore() );
+        assertSame( error, monitor.getException() );
+        assertTrue( enumerations.get( 0 ).closed );
+        assertTrue( enumerations.get( 1 ).closed );
+    }
+
+
+    /**
+     * Tests that the referral searches end and close their enumerations when the search is canceled.
+     */
+    @Test
+    public void testCancel() throws Exception
+    {
+        addReferrals( "ldap://a/ou=a", "ldap://b/ou=b" );
+        ReferralChaser chaser = newReferralChaser( ( referral, referralMonitor ) -> {
+            String url = referral.getLdapUrls().iterator().next();
+            return newEnumeration( url.substring( url.lastIndexOf( '=' ) + 1 ), Integer.MAX_VALUE );
+        } );
+
+        assertTrue( chaser.hasMore() );
+        monitor.setCanceled( true );
+        assertFalse( chaser.hasMore() );
+
+        waitUntilClosed( 2 );
+    }
+
+
+    /**
+     * Tests that the referral searches end and close their enumerations when the chaser is stopped.
+     */
+    @Test
+    public void testStop() throws Exception
+    {
+        addReferrals( "ldap://a/ou=a" );
+        ReferralChaser chaser = newReferralChaser( ( referral, referralMonitor ) -> newEnumeration( "a",
+            Integer.MAX_VALUE ) );
+
+        assertTrue( chaser.hasMore() );
+        chaser.stop();
+
+        waitUntilClosed( 1 );
+    }
+
+
+    private void addReferrals( String... urls )
+    {
+        for ( String url : urls )
+        {
+            Referral referral = new ReferralImpl();
+            referral.addLdapUrl( url );
+            referralsInfo.addReferral( referral );
+        }
+    }
+
+
+    private ReferralChaser newReferralChaser( ReferralChaser.ReferralSearcher referralSearcher )
+    {
+        return new ReferralChaser( null, "dc=example,dc=com", "(objectClass=*)", new SearchControls(),
+            AliasDereferencingMethod.NEVER, ReferralHandlingMethod.FOLLOW, null, monitor, referralsInfo, null,
+            referralSearcher );
+    }
+
+
+    private ReferralEnumeration newEnumeration( String prefix, int size )
+    {
+        ReferralEnumeration enumeration = new ReferralEnumeration( prefix, size );
+        enumerations.add( enumeration );
+        return enumeration;
+    }
+
+
+    private void waitUntilClosed( int count ) throws InterruptedException
+    {
+        long end = System.currentTimeMillis() + 10000L;
+        while ( System.currentTimeMillis() < end )
+        {
+            synchronized ( enumerations )
+            {
+                if ( enumerations.size() == count && enumerations.stream().allMatch( e -> e.closed ) )
+                {
+                    return;
+                }
+            }
+            Thread.sleep( 50L );
+        }
+        assertEquals( count, enumerations.size() );
+        for ( ReferralEnumeration enumeration : enumerations )
+        {
+            assertTrue( enumeration.closed );
+        }
+    }
+
+
+    /**
+     * The search results of a referral target, cn=&lt;prefix&gt;0, cn=&lt;prefix&gt;1 and so on.
+     */
+    private static class ReferralEnumeration extends StudioSearchResultEnumeration
+    {
+        private final String prefix;
+
+        private final int size;
+
+        private int index;
+
+        /** Thrown by hasMore after the search results, if set. */
+        private volatile LdapException error;
+
+        private volatile boolean closed;
+
+
+        ReferralEnumeration( String prefix, int size )
+        {
+            super( null, null, null, null, null, null, null, null, 0, null, null );
+            this.prefix = prefix;
+            this.size = size;
+        }
+
+
+        @Override
+        public boolean hasMore() throws LdapException
+        {
+            if ( index < size )
+            {
+                return true;
+            }
+            if ( error != null )
+            {
+                throw error;
+            }
+            return false;
+        }
+
+
+        @Override
+        public StudioSearchResult next() throws LdapException
+        {
+            SearchResultEntryImpl entry = new SearchResultEntryImpl();
+            entry.setEntry( new DefaultEntry( "cn=" + prefix + index++ ) );
+            return new StudioSearchResult( entry, null, false, null );
+        }
+
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+    }
+}
@@ -84,6 +84,8 @@ import org.eclipse.ui.dialogs.PreferencesUtil;
  * | | |  Hostname :          [----------------------------------------|v] | | |
  * | | |  Port :              [----------------------------------------|v] | | |
  * | | |  Timeout :                  [                                   ] | | |
+ * | | |  Minimum pool size :        [                                   ] | | |
+ * | | |  Maximum pool size :        [                                   ] | | |
  * | | |  Encryption method : [-No encryption--------------------------|v] | | |
  * | | |                      Server certificates for LDAP connections can | | |
  * | | |                      managed in the '<certificate validation>'    | | |
@@ -134,6 +136,12 @@ public class NetworkParameterPage extends AbstractConnectionParameterPage
     /** A timeout for the connection. Default to 30s */
     private Text timeoutSecondsText;
 
+    /** The minimum number of pooled connections. Default to 1 */
+    private Text poolMinSizeText;
+
+    /** The maximum number of pooled connections. Default to 1 */
+    private Text poolMaxSizeText;
+
     /**
      * A listener for the Link data widget. It will open the CertificateValidationPreference dialog.
      */
@@ -206,6 +214,27 @@ public class NetworkParameterPage extends AbstractConnectionParameterPage
     }
 
 
+    /**
+     * Gets the pool size entered in the given text widget.
+     *
+     * @param poolSizeText the text widget
+     * @return The pool size
+     */
+    private int getPoolSize( Text poolSizeText )
+    {
+        String poolSizeString = poolSizeText.getText();
+
+        if ( Strings.isEmpty( poolSizeString ) )
+        {
+            return ConnectionParameter.DEFAULT_POOL_SIZE;
+        }
+        else
+        {
+            return Math.max( 1, Integer.parseInt( poolSizeString ) );
+        }
+    }
+
+
     /**
      * Gets the encyrption method.
      *
@@ -293,6 +322,14 @@ public class NetworkParameterPage extends AbstractConnectionParameterPage
         timeoutSecondsText = BaseWidgetUtils.createText( groupComposite, "30", 1 ); //$NON-NLS-1$
         timeoutSecondsText.setTextLimit( 7 );
 
+        // The connection pool sizes
+        BaseWidgetUtils.createLabel( groupComposite, Messages.getString( "NetworkParameterPage.PoolMinSize" ), 2 ); //$NON-NLS-1$
+        poolMinSizeText = BaseWidgetUtils.createText( groupComposite, "1", 1 ); //$NON-NLS-1$
+        poolMinSizeText.setTextLimit( 3 );
+        BaseWidgetUtils.createLabel( groupComposite, Messages.getString( "NetworkParameterPage.PoolMaxSize" ), 2 ); //$NON-NLS-1$
+        poolMaxSizeText = BaseWidgetUtils.createText( groupComposite, "1", 1 ); //$NON-NLS-1$
+        poolMaxSizeText.setTextLimit( 3 );
+
         String[] encMethods = new String[]
             {
                 Messages.getString( "NetworkParameterPage.NoEncryption" ), //$NON-NLS-1$
@@ -418,6 +455,8 @@ public class NetworkParameterPage extends AbstractConnectionParameterPage
         encryptionMethodCombo.select( encryptionMethodIndex );
         readOnlyConnectionCheckbox.setSelection( parameter.isReadOnly() );
         timeoutSecondsText.setText( Long.toString( parameter.getTimeoutMillis() / 1000L ) );
+        poolMinSizeText.setText( Integer.toString( parameter.getPoolMinSize() ) );
+        poolMaxSizeText.setText( Integer.toString( parameter.getPoolMaxSize() ) );
 
     }
 
@@ -532,6 +571,20 @@ public class NetworkParameterPage extends AbstractConnectionParameterPage
                 event.doit = false;
             }
         } );
+
+        // The pool size events
+        for ( Text poolSizeText : new Text[]
+            { poolMinSizeText, poolMaxSizeText } )
+        {
+            poolSizeText.addModifyListener( event -> connectionPageModified() );
+
+            poolSizeText.addVerifyListener( event -> {
+                if ( !event.text.matches( "[0-9]*" ) ) //$NON-NLS-1$
+                {
+                    event.doit = false;
+                }
+            } );
+        }
     }
 
 
@@ -547,6 +600,8 @@ public class NetworkParameterPage extends AbstractConnectionParameterPage
         parameter.setEncryptionMethod( getEncyrptionMethod() );
         parameter.setReadOnly( isReadOnly() );
         parameter.setTimeoutMillis( getTimeoutSeconds() * 1000L );
+        parameter.setPoolMinSize( getPoolSize( poolMinSizeText ) );
+        parameter.setPoolMaxSize( Math.max( getPoolSize( poolMinSizeText ), getPoolSize( poolMaxSizeText ) ) );
     }
 
 
@@ -593,7 +648,9 @@ public class NetworkParameterPage extends AbstractConnectionParameterPage
             || ( connectionParameter.getPort() != getPort() )
             || ( connectionParameter.getEncryptionMethod() != getEncyrptionMethod() )
             || ( connectionParameter.isReadOnly() != isReadOnly() )
-            || ( connectionParameter.getTimeoutMillis() != getTimeoutSeconds() * 1000L );
+            || ( connectionParameter.getTimeoutMillis() != getTimeoutSeconds() * 1000L )
+            || ( connectionParameter.getPoolMinSize() != getPoolSize( poolMinSizeText ) )
+            || ( connectionParameter.getPoolMaxSize() != getPoolSize( poolMaxSizeText ) );
     }
 
 
@@ -92,6 +92,11 @@ public class BrowserEntryPage
         {
             return subpages;
         }
+        else if ( !sorter.isSorted( entry.getChildrenCount() ) )
+        {
+            // the children are not sorted, only get the children of this page
+            return entry.getChildren( first, last );
+        }
         else
         {
             // 1. get children
@@ -196,6 +201,33 @@ public class BrowserEntryPage
     }
 
 
+    /**
+     * {@inheritDoc}
+     * 
+     * Pages of the same range are equal, so the tree keeps their expanded 
+     * state if the pages are recreated while more children are fetched.
+     */
+    public boolean equals( Object o )
+    {
+        if ( !( o instanceof BrowserEntryPage ) )
+        {
+            return false;
+        }
+
+        BrowserEntryPage other = ( BrowserEntryPage ) o;
+        return entry.equals( other.entry ) && first == other.first && last == other.last;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public int hashCode()
+    {
+        return ( entry.hashCode() * 31 + first ) * 31 + last;
+    }
+
+
     /**
      * {@inheritDoc}
      */
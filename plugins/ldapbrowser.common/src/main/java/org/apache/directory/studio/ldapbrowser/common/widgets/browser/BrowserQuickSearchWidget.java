@@ -335,9 +335,12 @@ public class BrowserQuickSearchWidget
         // set new quick search
         conn.setQuickSearch( quickSearch );
 
-        // execute quick search
-        new StudioBrowserJob( new SearchRunnable( new ISearch[]
-            { quickSearch } ) ).execute();
+        // execute quick search, on the cached entries if possible
+        if ( !quickSearch.performIndexSearch() )
+        {
+            new StudioBrowserJob( new SearchRunnable( new ISearch[]
+                { quickSearch } ) ).execute();
+        }
     }
 
 
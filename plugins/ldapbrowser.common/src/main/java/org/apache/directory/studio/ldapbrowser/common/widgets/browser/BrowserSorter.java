@@ -79,13 +79,26 @@ public class BrowserSorter extends ViewerSorter
      */
     public void sort( final Viewer viewer, final Object[] elements )
     {
-        if ( elements != null && ( preferences.getSortLimit() <= 0 || elements.length < preferences.getSortLimit() ) )
+        if ( elements != null && isSorted( elements.length ) )
         {
             BrowserSorter.super.sort( viewer, elements );
         }
     }
 
 
+    /**
+     * Checks if the given number of elements is sorted, or if it exceeds the sort limit.
+     * 
+     * @param numberOfElements the number of elements
+     * 
+     * @return true if the elements are sorted
+     */
+    public boolean isSorted( int numberOfElements )
+    {
+        return preferences.getSortLimit() <= 0 || numberOfElements < preferences.getSortLimit();
+    }
+
+
     /**
      * {@inheritDoc}
      * 
@@ -134,9 +134,21 @@ public class BrowserParameterPage extends AbstractConnectionParameterPage
     /** The paged search scroll mode button. */
     private Button pagedSearchScrollModeButton;
 
+    /** The virtual list view sort attribute label. */
+    private Label vlvSortAttributeLabel;
+
+    /** The virtual list view sort attribute text. */
+    private Text vlvSortAttributeText;
+
     /** The fetch operational attributes button. */
     private Button fetchOperationalAttributesButton;
 
+    /** The cache size text. */
+    private Text cacheSizeText;
+
+    /** The quick search index attributes text. */
+    private Text quickSearchIndexAttributesText;
+
 
     /**
      * Creates a new instance of BrowserParameterPage.
@@ -294,6 +306,49 @@ public class BrowserParameterPage extends AbstractConnectionParameterPage
     }
 
 
+    /**
+     * Gets the attribute used to sort the pages on the server.
+     * 
+     * @return the sort attribute, empty to disable the virtual list view
+     */
+    private String getVirtualListViewSortAttribute()
+    {
+        return vlvSortAttributeText.getText().trim();
+    }
+
+
+    /**
+     * Gets the attributes indexed for quick search.
+     * 
+     * @return the comma separated attributes, empty to not keep an index
+     */
+    private String getQuickSearchIndexAttributes()
+    {
+        return quickSearchIndexAttributesText.getText().trim();
+    }
+
+
+    /**
+     * Gets the cache size.
+     * 
+     * @return the cache size in MB
+     */
+    private int getCacheSize()
+    {
+        int cacheSize;
+        try
+        {
+            cacheSize = Integer.valueOf( cacheSizeText.getText() );
+        }
+        catch ( NumberFormatException e )
+        {
+            cacheSize = IBrowserConnection.DEFAULT_CACHE_SIZE;
+        }
+        
+        return cacheSize;
+    }
+
+
     /**
      * Gets a temporary connection with all connection parameter 
      * entered in this page. 
@@ -388,6 +443,15 @@ public class BrowserParameterPage extends AbstractConnectionParameterPage
             .getString( "BrowserParameterPage.ScrollMode" ), 1 ); //$NON-NLS-1$
         pagedSearchScrollModeButton.setToolTipText( Messages.getString( "BrowserParameterPage.ScrollModeTooltip" ) ); //$NON-NLS-1$
         pagedSearchScrollModeButton.setSelection( true );
+
+        // virtual list view sort attribute
+        Composite vlvComposite = BaseWidgetUtils.createColumnContainer( groupComposite, 2, 1 );
+        vlvSortAttributeLabel = BaseWidgetUtils.createLabel( vlvComposite, Messages
+            .getString( "BrowserParameterPage.VirtualListViewSortAttribute" ), 1 ); //$NON-NLS-1$
+        vlvSortAttributeText = BaseWidgetUtils.createText( vlvComposite,
+            IBrowserConnection.DEFAULT_VIRTUAL_LIST_VIEW_SORT_ATTRIBUTE, 15, 1 );
+        vlvSortAttributeText.setToolTipText( Messages
+            .getString( "BrowserParameterPage.VirtualListViewSortAttributeTooltip" ) ); //$NON-NLS-1$
     }
 
 
@@ -409,6 +473,21 @@ public class BrowserParameterPage extends AbstractConnectionParameterPage
         fetchOperationalAttributesButton.setToolTipText( Messages
             .getString( "BrowserParameterPage.FetchOperationalAttributesWhileBrowsingTooltip" ) ); //$NON-NLS-1$
         fetchOperationalAttributesButton.setSelection( false );
+
+        // cache size
+        Composite cacheSizeComposite = BaseWidgetUtils.createColumnContainer( groupComposite, 2, 1 );
+        BaseWidgetUtils.createLabel( cacheSizeComposite, Messages.getString( "BrowserParameterPage.CacheSize" ), 1 ); //$NON-NLS-1$
+        cacheSizeText = BaseWidgetUtils.createText( cacheSizeComposite,
+            Integer.toString( IBrowserConnection.DEFAULT_CACHE_SIZE ), 5, 1 );
+        cacheSizeText.setToolTipText( Messages.getString( "BrowserParameterPage.CacheSizeTooltip" ) ); //$NON-NLS-1$
+
+        // quick search index
+        Composite indexComposite = BaseWidgetUtils.createColumnContainer( groupComposite, 2, 1 );
+        BaseWidgetUtils.createLabel( indexComposite, Messages
+            .getString( "BrowserParameterPage.QuickSearchIndexAttributes" ), 1 ); //$NON-NLS-1$
+        quickSearchIndexAttributesText = BaseWidgetUtils.createText( indexComposite, "", 25, 1 ); //$NON-NLS-1$
+        quickSearchIndexAttributesText.setToolTipText( Messages
+            .getString( "BrowserParameterPage.QuickSearchIndexAttributesTooltip" ) ); //$NON-NLS-1$
     }
 
 
@@ -442,6 +521,8 @@ public class BrowserParameterPage extends AbstractConnectionParameterPage
         pagedSearchSizeLabel.setEnabled( isPagedSearch() );
         pagedSearchSizeText.setEnabled( isPagedSearch() );
         pagedSearchScrollModeButton.setEnabled( isPagedSearch() );
+        vlvSortAttributeLabel.setEnabled( isPagedSearch() && isPagedSearchScrollMode() );
+        vlvSortAttributeText.setEnabled( isPagedSearch() && isPagedSearchScrollMode() );
 
         // validate input fields
         message = null;
@@ -502,10 +583,22 @@ public class BrowserParameterPage extends AbstractConnectionParameterPage
         boolean pagedSearchScrollMode = parameter
             .getExtendedBoolProperty( IBrowserConnection.CONNECTION_PARAMETER_PAGED_SEARCH_SCROLL_MODE );
         pagedSearchScrollModeButton.setSelection( pagedSearch ? pagedSearchScrollMode : true );
+        String vlvSortAttribute = parameter
+            .getExtendedProperty( IBrowserConnection.CONNECTION_PARAMETER_VIRTUAL_LIST_VIEW_SORT_ATTRIBUTE );
+        vlvSortAttributeText.setText( vlvSortAttribute != null ? vlvSortAttribute
+            : IBrowserConnection.DEFAULT_VIRTUAL_LIST_VIEW_SORT_ATTRIBUTE );
 
         boolean fetchOperationalAttributes = parameter
             .getExtendedBoolProperty( IBrowserConnection.CONNECTION_PARAMETER_FETCH_OPERATIONAL_ATTRIBUTES );
         fetchOperationalAttributesButton.setSelection( fetchOperationalAttributes );
+
+        int cacheSize = parameter.getExtendedIntProperty( IBrowserConnection.CONNECTION_PARAMETER_CACHE_SIZE );
+        cacheSizeText.setText( Integer.toString( cacheSize < 0 ? IBrowserConnection.DEFAULT_CACHE_SIZE : cacheSize ) );
+
+        String quickSearchIndexAttributes = parameter
+            .getExtendedProperty( IBrowserConnection.CONNECTION_PARAMETER_QUICK_SEARCH_INDEX_ATTRIBUTES );
+        quickSearchIndexAttributesText.setText( quickSearchIndexAttributes != null ? quickSearchIndexAttributes
+            : "" ); //$NON-NLS-1$
     }
 
 
@@ -606,6 +699,13 @@ public class BrowserParameterPage extends AbstractConnectionParameterPage
                 connectionPageModified();
             }
         } );
+        vlvSortAttributeText.addModifyListener( new ModifyListener()
+        {
+            public void modifyText( ModifyEvent e )
+            {
+                connectionPageModified();
+            }
+        } );
 
         fetchOperationalAttributesButton.addSelectionListener( new SelectionAdapter()
         {
@@ -614,6 +714,31 @@ public class BrowserParameterPage extends AbstractConnectionParameterPage
                 connectionPageModified();
             }
         } );
+
+        cacheSizeText.addVerifyListener( new VerifyListener()
+        {
+            public void verifyText( VerifyEvent e )
+            {
+                if ( !e.text.matches( "[0-9]*" ) ) //$NON-NLS-1$
+                {
+                    e.doit = false;
+                }
+            }
+        } );
+        cacheSizeText.addModifyListener( new ModifyListener()
+        {
+            public void modifyText( ModifyEvent e )
+            {
+                connectionPageModified();
+            }
+        } );
+        quickSearchIndexAttributesText.addModifyListener( new ModifyListener()
+        {
+            public void modifyText( ModifyEvent e )
+            {
+                connectionPageModified();
+            }
+        } );
     }
 
 
@@ -640,8 +765,13 @@ public class BrowserParameterPage extends AbstractConnectionParameterPage
             getPagedSearchSize() );
         parameter.setExtendedBoolProperty( IBrowserConnection.CONNECTION_PARAMETER_PAGED_SEARCH_SCROLL_MODE,
             isPagedSearchScrollMode() );
+        parameter.setExtendedProperty( IBrowserConnection.CONNECTION_PARAMETER_VIRTUAL_LIST_VIEW_SORT_ATTRIBUTE,
+            getVirtualListViewSortAttribute() );
         parameter.setExtendedBoolProperty( IBrowserConnection.CONNECTION_PARAMETER_FETCH_OPERATIONAL_ATTRIBUTES,
             isFetchOperationalAttributes() );
+        parameter.setExtendedIntProperty( IBrowserConnection.CONNECTION_PARAMETER_CACHE_SIZE, getCacheSize() );
+        parameter.setExtendedProperty( IBrowserConnection.CONNECTION_PARAMETER_QUICK_SEARCH_INDEX_ATTRIBUTES,
+            getQuickSearchIndexAttributes() );
     }
 
 
@@ -681,10 +811,29 @@ public class BrowserParameterPage extends AbstractConnectionParameterPage
             .getExtendedIntProperty( IBrowserConnection.CONNECTION_PARAMETER_PAGED_SEARCH_SIZE );
         boolean pagedSearchScrollMode = connectionParameter
             .getExtendedBoolProperty( IBrowserConnection.CONNECTION_PARAMETER_PAGED_SEARCH_SCROLL_MODE );
+        String vlvSortAttribute = connectionParameter
+            .getExtendedProperty( IBrowserConnection.CONNECTION_PARAMETER_VIRTUAL_LIST_VIEW_SORT_ATTRIBUTE );
+        if ( vlvSortAttribute == null )
+        {
+            vlvSortAttribute = IBrowserConnection.DEFAULT_VIRTUAL_LIST_VIEW_SORT_ATTRIBUTE;
+        }
+        int cacheSize = connectionParameter.getExtendedIntProperty( IBrowserConnection.CONNECTION_PARAMETER_CACHE_SIZE );
+        if ( cacheSize < 0 )
+        {
+            cacheSize = IBrowserConnection.DEFAULT_CACHE_SIZE;
+        }
+        String quickSearchIndexAttributes = connectionParameter
+            .getExtendedProperty( IBrowserConnection.CONNECTION_PARAMETER_QUICK_SEARCH_INDEX_ATTRIBUTES );
+        if ( quickSearchIndexAttributes == null )
+        {
+            quickSearchIndexAttributes = ""; //$NON-NLS-1$
+        }
 
         return isReconnectionRequired() || countLimit != getCountLimit() || timeLimit != getTimeLimit()
             || manageDsaIT != manageDsaIT() || fetchSubentries != isFetchSubentries() || pagedSearch != isPagedSearch()
-            || pagedSearchSize != getPagedSearchSize() || pagedSearchScrollMode != isPagedSearchScrollMode();
+            || pagedSearchSize != getPagedSearchSize() || pagedSearchScrollMode != isPagedSearchScrollMode()
+            || !vlvSortAttribute.equals( getVirtualListViewSortAttribute() ) || cacheSize != getCacheSize()
+            || !quickSearchIndexAttributes.equals( getQuickSearchIndexAttributes() );
     }
 
 
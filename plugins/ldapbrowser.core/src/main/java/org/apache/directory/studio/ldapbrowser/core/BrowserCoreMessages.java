@@ -59,6 +59,8 @@ public class BrowserCoreMessages extends NLS
 
     public static String event__dn_children_initialized;
 
+    public static String event__dn_children_added;
+
     public static String event__bulk_modification;
 
     public static String event__empty_value_added_to_att_at_dn;
@@ -181,6 +183,11 @@ public class BrowserCoreMessages extends NLS
 
     public static String ldif__error_msg;
 
+    public static String ldif__checkpoint_ldif_modified;
+    public static String ldif__checkpoint_not_written;
+
+    public static String ldif__parent_not_imported;
+
     public static String dsml__n_errors_see_responsefile;
 
     public static String dsml__kind_request_not_supported;
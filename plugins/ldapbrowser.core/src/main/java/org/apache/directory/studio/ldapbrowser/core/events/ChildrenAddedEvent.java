@@ -0,0 +1,58 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.events;
+
+
+import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+
+
+/**
+ * A ChildrenAddedEvent indicates that more children of an {@link IEntry}
+ * were fetched from the underlying directory while its children are initialized.
+ * Unlike the {@link ChildrenInitializedEvent} the already shown children stay valid.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class ChildrenAddedEvent extends EntryModificationEvent
+{
+
+    /**
+     * Creates a new instance of ChildrenAddedEvent.
+     * 
+     * @param parentEntry the parent entry
+     */
+    public ChildrenAddedEvent( IEntry parentEntry )
+    {
+        super( parentEntry.getBrowserConnection(), parentEntry );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString()
+    {
+        return BrowserCoreMessages.bind( BrowserCoreMessages.event__dn_children_added, new String[]
+            { getModifiedEntry().getDn().getName() } );
+    }
+
+}
@@ -0,0 +1,258 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.events;
+
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+
+
+/**
+ * The EntryModificationEventCoalescer coalesces bursts of fine-grained entry modification
+ * events while the model is loaded. Events of user edits are never coalesced, listeners 
+ * e.g. select a new empty value when they receive the {@link EmptyValueAddedEvent}.
+ * The first event of an entry is dispatched immediately, the events that follow
+ * within the dispatch window are collected and dispatched as one aggregated event when
+ * the window closes:
+ * <ul>
+ * <li>value and attribute events of an entry are aggregated to a {@link ValueMultiModificationEvent}</li>
+ * <li>{@link EntryAddedEvent}s of the children of an entry are aggregated to the last one,
+ * which refreshes the parent entry</li>
+ * </ul>
+ * All other events are dispatched immediately, after the pending events. Events of different
+ * sources are never aggregated, so listeners can still tell e.g. edits of the user from
+ * updates of the entry editor manager.
+ * <p>
+ * All events are dispatched through one queue by one thread at a time, in the order they
+ * were fired and their windows were closed. If another thread is dispatching, the event is
+ * queued and dispatched by that thread. Events fired by a listener are dispatched after
+ * the current event.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class EntryModificationEventCoalescer
+{
+    /** The dispatch window in milliseconds */
+    static final long DISPATCH_WINDOW = 100L;
+
+    /** The scheduler that closes the dispatch windows */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor( r -> {
+        Thread thread = new Thread( r, "EntryModificationEventCoalescer" ); //$NON-NLS-1$
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    /** The dispatcher of the coalesced events */
+    private final Consumer<EntryModificationEvent> dispatcher;
+
+    /** The open dispatch windows, guarded by this */
+    private final Map<List<Object>, List<EntryModificationEvent>> windows = new HashMap<>();
+
+    /** The events to dispatch, guarded by this */
+    private final Deque<EntryModificationEvent> queue = new ArrayDeque<>();
+
+    /** Whether a thread is dispatching the queued events, guarded by this */
+    private boolean dispatching;
+
+
+    /**
+     * Creates a new instance of EntryModificationEventCoalescer.
+     *
+     * @param dispatcher the dispatcher of the coalesced events
+     */
+    EntryModificationEventCoalescer( Consumer<EntryModificationEvent> dispatcher )
+    {
+        this.dispatcher = dispatcher;
+    }
+
+
+    /**
+     * Fires the given event, either immediately or aggregated when the dispatch window closes.
+     *
+     * @param event the event
+     * @param coalesce true if the event may be coalesced, i.e. it is fired while the model is loaded
+     */
+    void fire( EntryModificationEvent event, boolean coalesce )
+    {
+        List<Object> key = coalesce ? getKey( event ) : null;
+
+        synchronized ( this )
+        {
+            if ( key == null )
+            {
+                for ( List<EntryModificationEvent> events : windows.values() )
+                {
+                    addAggregatedEvent( events, queue );
+                }
+                windows.clear();
+                queue.add( event );
+            }
+            else if ( windows.containsKey( key ) )
+            {
+                windows.get( key ).add( event );
+            }
+            else
+            {
+                List<EntryModificationEvent> events = new ArrayList<>();
+                windows.put( key, events );
+                SCHEDULER.schedule( () -> close( key, events ), DISPATCH_WINDOW, TimeUnit.MILLISECONDS );
+                queue.add( event );
+            }
+        }
+
+        dispatchQueued();
+    }
+
+
+    /**
+     * Closes the dispatch window and dispatches the aggregated event, if any.
+     *
+     * @param key the key of the window
+     * @param events the events collected within the window
+     */
+    private void close( List<Object> key, List<EntryModificationEvent> events )
+    {
+        synchronized ( this )
+        {
+            // the window may already be flushed by a non-coalesced event
+            if ( windows.get( key ) != events )
+            {
+                return;
+            }
+            windows.remove( key );
+            addAggregatedEvent( events, queue );
+        }
+
+        dispatchQueued();
+    }
+
+
+    /**
+     * Dispatches the queued events, unless another thread or an outer call of this thread
+     * is already dispatching them. The events are dispatched outside the monitor, listeners
+     * may fire events themselves.
+     */
+    private void dispatchQueued()
+    {
+        synchronized ( this )
+        {
+            if ( dispatching )
+            {
+                return;
+            }
+            dispatching = true;
+        }
+
+        boolean drained = false;
+        try
+        {
+            while ( true )
+            {
+                EntryModificationEvent event;
+                synchronized ( this )
+                {
+                    event = queue.poll();
+                    if ( event == null )
+                    {
+                        // reset within the monitor, so no event is queued without a dispatching thread
+                        dispatching = false;
+                        drained = true;
+                        return;
+                    }
+                }
+                dispatcher.accept( event );
+            }
+        }
+        finally
+        {
+            if ( !drained )
+            {
+                synchronized ( this )
+                {
+                    dispatching = false;
+                }
+            }
+        }
+    }
+
+
+    private static void addAggregatedEvent( List<EntryModificationEvent> events,
+        Deque<EntryModificationEvent> toDispatch )
+    {
+        if ( events.isEmpty() )
+        {
+            return;
+        }
+
+        EntryModificationEvent last = events.get( events.size() - 1 );
+        if ( events.size() == 1 || last instanceof EntryAddedEvent )
+        {
+            toDispatch.add( last );
+        }
+        else
+        {
+            ValueMultiModificationEvent aggregated = new ValueMultiModificationEvent( last.getConnection(),
+                last.getModifiedEntry() );
+            aggregated.setSource( last.getSource() );
+            toDispatch.add( aggregated );
+        }
+    }
+
+
+    /**
+     * Gets the coalescing key of the event.
+     *
+     * @param event the event
+     * @return the key, null if the event must not be coalesced
+     */
+    private static List<Object> getKey( EntryModificationEvent event )
+    {
+        if ( event instanceof ValueAddedEvent || event instanceof ValueDeletedEvent
+            || event instanceof ValueModifiedEvent || event instanceof ValueRenamedEvent
+            || event instanceof AttributeAddedEvent || event instanceof AttributeDeletedEvent
+            || event instanceof ValueMultiModificationEvent )
+        {
+            return Arrays.asList( ValueMultiModificationEvent.class, event.getConnection(), event.getModifiedEntry(),
+                event.getSource() );
+        }
+        else if ( event instanceof EntryAddedEvent )
+        {
+            IEntry parent = event.getModifiedEntry().getParententry();
+            return parent != null ? Arrays.asList( EntryAddedEvent.class, event.getConnection(), parent,
+                event.getSource() ) : null;
+        }
+        else
+        {
+            return null;
+        }
+    }
+
+}
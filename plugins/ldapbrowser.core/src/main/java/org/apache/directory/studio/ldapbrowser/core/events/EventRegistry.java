@@ -25,6 +25,7 @@ import org.apache.directory.studio.connection.core.event.ConnectionEventRegistry
 import org.apache.directory.studio.connection.core.event.EventRunnable;
 import org.apache.directory.studio.connection.core.event.EventRunnableFactory;
 import org.apache.directory.studio.connection.core.event.EventRunner;
+import org.eclipse.core.runtime.jobs.Job;
 
 
 /**
@@ -192,6 +193,10 @@ public class EventRegistry extends ConnectionEventRegistry
 
     static final EventManager<EntryUpdateListener, EventRunner> entryUpdateEventManager = new EventManager<EntryUpdateListener, EventRunner>();
 
+    /** Coalesces bursts of entry update events before they are dispatched to the listeners */
+    private static final EntryModificationEventCoalescer entryUpdateEventCoalescer = new EntryModificationEventCoalescer(
+        EventRegistry::dispatchEntryUpdated );
+
 
     /**
      * Adds the entry update listener.
@@ -218,7 +223,8 @@ public class EventRegistry extends ConnectionEventRegistry
 
     /**
      * Notifies each {@link EntryUpdateListener} about the the given {@link EntryModificationEvent}.
-     * Uses the {@link EventRunner}s.
+     * Uses the {@link EventRunner}s. Bursts of value events of an entry and of added children
+     * of an entry are coalesced while the model is loaded, see {@link EntryModificationEventCoalescer}.
      *
      * @param entryUpdateEvent the entry update event
      * @param source the source
@@ -226,6 +232,35 @@ public class EventRegistry extends ConnectionEventRegistry
     public static void fireEntryUpdated( final EntryModificationEvent entryUpdateEvent, final Object source )
     {
         entryUpdateEvent.setSource( source );
+        if ( isEventFiringSuspended() )
+        {
+            return;
+        }
+        entryUpdateEventCoalescer.fire( entryUpdateEvent, isModelLoading() );
+    }
+
+
+    /**
+     * Checks if the current thread loads the model, i.e. it runs a job or publishes the 
+     * intermediate results of a job. Events of user edits are fired in the UI thread, 
+     * they are never coalesced as listeners react on the concrete event.
+     *
+     * @return true if the current thread loads the model
+     */
+    private static boolean isModelLoading()
+    {
+        return isRunningWithEventFiring() || Job.getJobManager().currentJob() != null;
+    }
+
+
+    /**
+     * Notifies each {@link EntryUpdateListener} about the the given, possibly aggregated,
+     * {@link EntryModificationEvent}.
+     *
+     * @param entryUpdateEvent the entry update event
+     */
+    private static void dispatchEntryUpdated( final EntryModificationEvent entryUpdateEvent )
+    {
         EventRunnableFactory<EntryUpdateListener> factory = new EventRunnableFactory<EntryUpdateListener>()
         {
             public EventRunnable createEventRunnable( final EntryUpdateListener listener )
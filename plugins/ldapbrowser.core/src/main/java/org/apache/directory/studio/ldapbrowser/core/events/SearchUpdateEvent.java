@@ -22,6 +22,7 @@ package org.apache.directory.studio.ldapbrowser.core.events;
 
 
 import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearchResult;
 
 
 /**
@@ -47,6 +48,9 @@ public class SearchUpdateEvent
         /** Indicates that the search was performed. */
         SEARCH_PERFORMED,
 
+        /** Indicates that search results were received while the search is still running. */
+        SEARCH_RESULTS_ADDED,
+
         /**
          * Indicates that the search parameters were updated.
          * Note: This event detail doesn't include the renaming of a search!
@@ -63,6 +67,9 @@ public class SearchUpdateEvent
     /** The updated search. */
     private ISearch search;
 
+    /** The added search results, only set for {@link EventDetail#SEARCH_RESULTS_ADDED}. */
+    private ISearchResult[] addedSearchResults;
+
 
     /**
      * Creates a new instance of SearchUpdateEvent.
@@ -77,6 +84,20 @@ public class SearchUpdateEvent
     }
 
 
+    /**
+     * Creates a new instance of SearchUpdateEvent with the detail 
+     * {@link EventDetail#SEARCH_RESULTS_ADDED}.
+     *
+     * @param search the updated search
+     * @param addedSearchResults the search results that were added to the search
+     */
+    public SearchUpdateEvent( ISearch search, ISearchResult[] addedSearchResults )
+    {
+        this( search, EventDetail.SEARCH_RESULTS_ADDED );
+        this.addedSearchResults = addedSearchResults;
+    }
+
+
     /**
      * Gets the updated search.
      *
@@ -98,4 +119,16 @@ public class SearchUpdateEvent
         return detail;
     }
 
+
+    /**
+     * Gets the search results that were added to the search.
+     *
+     * @return the added search results, null if the event detail is not
+     *         {@link EventDetail#SEARCH_RESULTS_ADDED}
+     */
+    public ISearchResult[] getAddedSearchResults()
+    {
+        return addedSearchResults;
+    }
+
 }
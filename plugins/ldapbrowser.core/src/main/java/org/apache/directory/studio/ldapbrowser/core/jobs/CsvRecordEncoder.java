@@ -0,0 +1,256 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.text.translate.CharSequenceTranslator;
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
+import org.apache.directory.studio.ldapbrowser.core.model.AttributeDescription;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
+import org.apache.directory.studio.ldifparser.LdifUtils;
+
+
+/**
+ * Encodes the entries returned by the search to CSV lines. The entries are encoded 
+ * directly, without converting them to LDIF records first, so binary values are only 
+ * encoded once and by the thread that encodes the line. The columns are resolved once
+ * per export, the values of an entry are collected per column instead of per attribute
+ * name. Instances are immutable apart from a concurrent cache and may be used by
+ * several threads at once.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class CsvRecordEncoder
+{
+    private static final int[] NO_COLUMNS = new int[0];
+
+    private final Schema schema;
+    private final String[] attributes;
+    private final String attributeDelimiter;
+    private final String valueDelimiter;
+    private final String quoteCharacter;
+    private final String lineSeparator;
+    private final Charset charset;
+    private final int binaryEncoding;
+    private final boolean exportDn;
+
+    /** The columns of each exported attribute OID, an attribute may be exported in several columns */
+    private final Map<String, int[]> columnsByOid = new HashMap<>();
+
+    /** The postal address flags of the columns */
+    private final boolean[] postalAddress;
+
+    /** The postal address decoder, stateless */
+    private final CharSequenceTranslator decoder;
+
+    /** The columns of each attribute description seen in the records */
+    private final Map<String, int[]> columnsByDescription = new ConcurrentHashMap<>();
+
+
+    /**
+     * Creates a new instance of CsvRecordEncoder.
+     *
+     * @param schema the schema
+     * @param attributes the exported attributes
+     * @param attributeDelimiter the attribute delimiter
+     * @param valueDelimiter the value delimiter
+     * @param quoteCharacter the quote character
+     * @param lineSeparator the line separator
+     * @param encoding the encoding
+     * @param binaryEncoding the binary encoding
+     * @param exportDn the export dn flag
+     */
+    CsvRecordEncoder( Schema schema, String[] attributes, String attributeDelimiter, String valueDelimiter,
+        String quoteCharacter, String lineSeparator, String encoding, int binaryEncoding, boolean exportDn )
+    {
+        this.schema = schema;
+        this.attributes = attributes;
+        this.attributeDelimiter = attributeDelimiter;
+        this.valueDelimiter = valueDelimiter;
+        this.quoteCharacter = quoteCharacter;
+        this.lineSeparator = lineSeparator;
+        this.charset = Charset.forName( encoding );
+        this.binaryEncoding = binaryEncoding;
+        this.exportDn = exportDn;
+        this.decoder = Utils.createPostalAddressDecoder( lineSeparator );
+
+        postalAddress = new boolean[attributes.length];
+        for ( int i = 0; i < attributes.length; i++ )
+        {
+            String oidString = AttributeDescription.valueOf( attributes[i] ).toOidString( schema );
+            int[] columns = columnsByOid.getOrDefault( oidString, NO_COLUMNS );
+            columns = Arrays.copyOf( columns, columns.length + 1 );
+            columns[columns.length - 1] = i;
+            columnsByOid.put( oidString, columns );
+
+            AttributeType type = schema.getAttributeTypeDescription( attributes[i] );
+            postalAddress[i] = SchemaConstants.POSTAL_ADDRESS_SYNTAX.equals( type.getSyntaxOid() );
+        }
+    }
+
+
+    /**
+     * Encodes the entry to a CSV line, including the line separator.
+     *
+     * @param entry the entry
+     * @return the CSV line
+     */
+    String encode( Entry entry )
+    {
+        CharsetEncoder encoder = charset.newEncoder();
+
+        // group multi-valued attributes
+        StringBuilder[] values = new StringBuilder[attributes.length];
+        for ( Attribute attribute : entry )
+        {
+            int[] columns = getColumns( attribute.getUpId() );
+            if ( columns.length == 0 )
+            {
+                continue;
+            }
+
+            for ( Value rawValue : attribute )
+            {
+                String value = encodeValue( rawValue, encoder );
+                for ( int column : columns )
+                {
+                    if ( values[column] == null )
+                    {
+                        values[column] = new StringBuilder( value );
+                    }
+                    else
+                    {
+                        values[column].append( valueDelimiter ).append( value );
+                    }
+                }
+            }
+        }
+
+        // print attributes
+        StringBuilder sb = new StringBuilder();
+        if ( exportDn )
+        {
+            appendValue( sb, entry.getDn().getName() );
+
+            if ( attributes.length > 0 )
+            {
+                sb.append( attributeDelimiter );
+            }
+        }
+        for ( int i = 0; i < attributes.length; i++ )
+        {
+            if ( values[i] != null )
+            {
+                String value = values[i].toString();
+                if ( postalAddress[i] )
+                {
+                    value = decoder.translate( value );
+                }
+                appendValue( sb, value );
+            }
+
+            // delimiter
+            if ( i + 1 < attributes.length )
+            {
+                sb.append( attributeDelimiter );
+            }
+        }
+        sb.append( lineSeparator );
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Encodes the value, binary values and values that can't be represented in the
+     * encoding of the export are encoded as configured.
+     *
+     * @param value the value
+     * @param encoder the encoder of the export encoding
+     * @return the encoded value
+     */
+    private String encodeValue( Value value, CharsetEncoder encoder )
+    {
+        // the same string an LDIF record of the value yields
+        String string = value.isHumanReadable() ? value.getString() : LdifUtils.utf8decode( value.getBytes() );
+        if ( encoder.canEncode( string ) )
+        {
+            return string;
+        }
+
+        byte[] bytes = value.isHumanReadable() ? LdifUtils.utf8encode( string ) : value.getBytes();
+        if ( binaryEncoding == BrowserCoreConstants.BINARYENCODING_BASE64 )
+        {
+            return LdifUtils.base64encode( bytes );
+        }
+        else if ( binaryEncoding == BrowserCoreConstants.BINARYENCODING_HEX )
+        {
+            return LdifUtils.hexEncode( bytes );
+        }
+        else
+        {
+            return BrowserCoreConstants.BINARY;
+        }
+    }
+
+
+    private int[] getColumns( String attributeDescription )
+    {
+        int[] columns = columnsByDescription.get( attributeDescription );
+
+        if ( columns == null )
+        {
+            String oidString = AttributeDescription.valueOf( attributeDescription ).toOidString( schema );
+            columns = columnsByOid.getOrDefault( oidString, NO_COLUMNS );
+            columnsByDescription.put( attributeDescription, columns );
+        }
+
+        return columns;
+    }
+
+
+    private void appendValue( StringBuilder sb, String value )
+    {
+        // always quote, escape quote character
+        sb.append( quoteCharacter );
+
+        // prefix values starting with '=' with a single quote to avoid interpretation as formula
+        if ( value.startsWith( "=" ) ) //$NON-NLS-1$
+        {
+            sb.append( '\'' );
+        }
+
+        sb.append( value.replace( quoteCharacter, quoteCharacter + quoteCharacter ) );
+        sb.append( quoteCharacter );
+    }
+}
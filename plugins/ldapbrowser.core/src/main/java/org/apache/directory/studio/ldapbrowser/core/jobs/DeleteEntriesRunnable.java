@@ -324,6 +324,10 @@ public class DeleteEntriesRunnable implements StudioConnectionBulkRunnableWithPr
                         break;
                     }
                 }
+                finally
+                {
+                    SearchRunnable.closeQuietly( result );
+                }
             }
             while ( numberInBatch > 0 && !monitor.isCanceled() && !dummyMonitor.errorsReported() );
 
@@ -0,0 +1,149 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.directory.api.dsmlv2.ParserUtils;
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.XMLWriter;
+
+
+/**
+ * Writes a DSML batch request or batch response incrementally. The batch element and
+ * nested container elements are opened and closed explicitly, their children are
+ * written and detached one by one, so the document is never held in memory as a whole.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class DsmlBatchWriter
+{
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"; //$NON-NLS-1$
+
+    /** The XML writer */
+    private XMLWriter xmlWriter;
+
+    /** The batch element */
+    private Element batchElement;
+
+    /** The current nesting level */
+    private int level;
+
+
+    /**
+     * Creates a new instance of DsmlBatchWriter and writes the XML declaration.
+     *
+     * @param writer the writer, must encode UTF-8
+     * @param name the name of the batch element, either batchRequest or batchResponse
+     * @throws IOException if writing fails
+     */
+    DsmlBatchWriter( Writer writer, String name ) throws IOException
+    {
+        writer.write( XML_DECLARATION );
+
+        OutputFormat outputFormat = OutputFormat.createPrettyPrint();
+        outputFormat.setEncoding( "UTF-8" ); //$NON-NLS-1$
+        outputFormat.setSuppressDeclaration( true );
+        xmlWriter = new XMLWriter( writer, outputFormat );
+
+        Document document = DocumentHelper.createDocument();
+        batchElement = document.addElement( name );
+        batchElement.add( ParserUtils.DSML_NAMESPACE );
+        batchElement.add( ParserUtils.XSD_NAMESPACE );
+        batchElement.add( ParserUtils.XSI_NAMESPACE );
+
+        open( batchElement );
+    }
+
+
+    /**
+     * Gets the batch element, the parent of requests or responses to write.
+     *
+     * @return the batch element
+     */
+    Element getBatchElement()
+    {
+        return batchElement;
+    }
+
+
+    /**
+     * Writes the start tag of a container element, e.g. a search response.
+     *
+     * @param element the element, its children are not written
+     * @throws IOException if writing fails
+     */
+    void open( Element element ) throws IOException
+    {
+        xmlWriter.setIndentLevel( level );
+        xmlWriter.println();
+        xmlWriter.writeOpen( element );
+        level++;
+        xmlWriter.setIndentLevel( level );
+    }
+
+
+    /**
+     * Writes a child element of the innermost opened element and detaches it,
+     * so the parent element never holds more than one child.
+     *
+     * @param element the child element
+     * @throws IOException if writing fails
+     */
+    void write( Element element ) throws IOException
+    {
+        xmlWriter.write( element );
+        element.detach();
+    }
+
+
+    /**
+     * Writes the end tag of a container element.
+     *
+     * @param element the element
+     * @throws IOException if writing fails
+     */
+    void close( Element element ) throws IOException
+    {
+        level--;
+        xmlWriter.setIndentLevel( level );
+        xmlWriter.println();
+        xmlWriter.writeClose( element );
+        element.detach();
+    }
+
+
+    /**
+     * Writes the end tag of the batch element and flushes the writer.
+     *
+     * @throws IOException if writing fails
+     */
+    void finish() throws IOException
+    {
+        close( batchElement );
+        xmlWriter.println();
+        xmlWriter.flush();
+    }
+}
@@ -26,14 +26,18 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.text.translate.CharSequenceTranslator;
-import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.exception.LdapException;
-import org.apache.directory.api.ldap.model.schema.AttributeType;
 import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
 import org.apache.directory.studio.connection.core.Connection;
 import org.apache.directory.studio.connection.core.jobs.StudioConnectionRunnableWithProgress;
@@ -44,10 +48,7 @@ import org.apache.directory.studio.ldapbrowser.core.model.AttributeDescription;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
 import org.apache.directory.studio.ldapbrowser.core.utils.JNDIUtils;
-import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
 import org.apache.directory.studio.ldifparser.LdifUtils;
-import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
-import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
 import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
 import org.apache.directory.studio.ldifparser.model.lines.LdifAttrValLine;
 import org.eclipse.core.runtime.Preferences;
@@ -60,6 +61,13 @@ import org.eclipse.core.runtime.Preferences;
  */
 public class ExportCsvRunnable implements StudioConnectionRunnableWithProgress
 {
+    /** The number of threads encoding records, the search thread is not counted */
+    private static final int ENCODER_THREADS = Math.max( 1, Math.min( 4,
+        Runtime.getRuntime().availableProcessors() - 1 ) );
+
+    /** The maximum number of records searched but not yet written */
+    private static final int MAX_PENDING_RECORDS = 256;
+
     /** The filename of the CSV file. */
     private String exportCsvFilename;
 
@@ -72,6 +80,9 @@ public class ExportCsvRunnable implements StudioConnectionRunnableWithProgress
     /** The export dn flag. */
     private boolean exportDn;
 
+    /** The number of concurrently exported subtrees. */
+    private int partitionWorkers;
+
 
     /**
      * Creates a new instance of ExportCsvRunnable.
@@ -83,11 +94,29 @@ public class ExportCsvRunnable implements StudioConnectionRunnableWithProgress
      */
     public ExportCsvRunnable( String exportCsvFilename, IBrowserConnection browserConnection,
         SearchParameter searchParameter, boolean exportDn )
+    {
+        this( exportCsvFilename, browserConnection, searchParameter, exportDn, 1 );
+    }
+
+
+    /**
+     * Creates a new instance of ExportCsvRunnable.
+     * 
+     * @param exportCsvFilename the filename of the csv file
+     * @param browserConnection the browser connection
+     * @param searchParameter the search parameter
+     * @param exportDn true to export the Dn
+     * @param partitionWorkers the number of child subtrees of a subtree search exported concurrently,
+     *        1 to export with a single search
+     */
+    public ExportCsvRunnable( String exportCsvFilename, IBrowserConnection browserConnection,
+        SearchParameter searchParameter, boolean exportDn, int partitionWorkers )
     {
         this.exportCsvFilename = exportCsvFilename;
         this.browserConnection = browserConnection;
         this.searchParameter = searchParameter;
         this.exportDn = exportDn;
+        this.partitionWorkers = partitionWorkers;
     }
 
 
@@ -171,9 +200,18 @@ public class ExportCsvRunnable implements StudioConnectionRunnableWithProgress
             bufferedWriter.write( BrowserCoreConstants.LINE_SEPARATOR );
 
             // export
-            int count = 0;
-            exportToCsv( browserConnection, searchParameter, bufferedWriter, count, monitor, exportAttributes,
+            CsvRecordEncoder encoder = new CsvRecordEncoder( browserConnection.getSchema(), exportAttributes,
                 attributeDelimiter, valueDelimiter, quoteCharacter, lineSeparator, encoding, binaryEncoding, exportDn );
+            if ( PartitionedExport.isPartitionable( searchParameter, partitionWorkers ) )
+            {
+                PartitionedExport.export( browserConnection, searchParameter, partitionWorkers, bufferedWriter,
+                    Charset.forName( encoding ), ( parameter, writer, segmentMonitor ) -> exportToCsv(
+                        browserConnection, parameter, writer, segmentMonitor, encoder ), monitor );
+            }
+            else
+            {
+                exportToCsv( browserConnection, searchParameter, bufferedWriter, monitor, encoder );
+            }
 
             // close file
             bufferedWriter.close();
@@ -189,49 +227,49 @@ public class ExportCsvRunnable implements StudioConnectionRunnableWithProgress
 
 
     /**
-     * Exports to CSV.
+     * Exports to CSV. The search thread hands the entries to a pool of encoder threads,
+     * the encoded lines are written in search result order.
      * 
      * @param browserConnection the browser connection
      * @param searchParameter the search parameter
      * @param bufferedWriter the buffered writer
-     * @param count the count
      * @param monitor the monitor
-     * @param attributes the attributes
-     * @param attributeDelimiter the attribute delimiter
-     * @param valueDelimiter the value delimiter
-     * @param quoteCharacter the quote character
-     * @param lineSeparator the line separator
-     * @param encoding the encoding
-     * @param binaryEncoding the binary encoding
-     * @param exportDn the export dn
+     * @param encoder the CSV record encoder
      * 
      * @throws IOException Signals that an I/O exception has occurred.
      */
     private static void exportToCsv( IBrowserConnection browserConnection, SearchParameter searchParameter,
-        BufferedWriter bufferedWriter, int count, StudioProgressMonitor monitor, String[] attributes,
-        String attributeDelimiter, String valueDelimiter, String quoteCharacter, String lineSeparator, String encoding,
-        int binaryEncoding, boolean exportDn ) throws IOException
+        BufferedWriter bufferedWriter, StudioProgressMonitor monitor, CsvRecordEncoder encoder ) throws IOException
     {
-        try
+        ExecutorService executor = Executors.newFixedThreadPool( ENCODER_THREADS );
+        Deque<Future<String>> pending = new ArrayDeque<>();
+        int count = 0;
+
+        try ( ExportLdifRunnable.DefaultLdifEnumeration enumeration = ExportLdifRunnable.search( browserConnection,
+            searchParameter, monitor ) )
         {
-            LdifEnumeration enumeration = ExportLdifRunnable.search( browserConnection, searchParameter, monitor );
             while ( !monitor.isCanceled() && !monitor.errorsReported() && enumeration.hasNext() )
             {
-                LdifContainer container = enumeration.next();
+                // the raw entry, the encoder threads encode its values
+                Entry entry = enumeration.nextEntry();
+                pending.add( executor.submit( () -> encoder.encode( entry ) ) );
 
-                if ( container instanceof LdifContentRecord )
+                if ( pending.size() >= MAX_PENDING_RECORDS )
                 {
-
-                    LdifContentRecord record = ( LdifContentRecord ) container;
-                    bufferedWriter.write( recordToCsv( browserConnection, record, attributes, attributeDelimiter,
-                        valueDelimiter, quoteCharacter, lineSeparator, encoding, binaryEncoding, exportDn ) );
+                    bufferedWriter.write( pending.poll().get() );
 
                     count++;
-                    monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
-                        new String[]
-                            { Integer.toString( count ) } ) );
+                    reportProgress( count, monitor );
                 }
             }
+
+            while ( !monitor.isCanceled() && !pending.isEmpty() )
+            {
+                bufferedWriter.write( pending.poll().get() );
+
+                count++;
+                reportProgress( count, monitor );
+            }
         }
         catch ( LdapException ce )
         {
@@ -245,90 +283,27 @@ public class ExportCsvRunnable implements StudioConnectionRunnableWithProgress
                 monitor.reportError( ce );
             }
         }
-    }
-
-
-    /**
-     * Transforms an LDIF rRecord to CSV.
-     * 
-     * @param browserConnection the browser connection
-     * @param record the record
-     * @param attributes the attributes
-     * @param attributeDelimiter the attribute delimiter
-     * @param valueDelimiter the value delimiter
-     * @param quoteCharacter the quote character
-     * @param lineSeparator the line separator
-     * @param encoding the encoding
-     * @param binaryEncoding the binary encoding
-     * @param exportDn the export dn
-     * 
-     * @return the string
-     */
-    private static String recordToCsv( IBrowserConnection browserConnection, LdifContentRecord record,
-        String[] attributes, String attributeDelimiter, String valueDelimiter, String quoteCharacter,
-        String lineSeparator, String encoding, int binaryEncoding, boolean exportDn )
-    {
-        CharSequenceTranslator decoder = Utils.createPostalAddressDecoder( lineSeparator );
-
-        // group multi-valued attributes
-        Map<String, String> attributeMap = getAttributeMap( browserConnection, record, valueDelimiter, encoding,
-            binaryEncoding );
-
-        // print attributes
-        StringBuffer sb = new StringBuffer();
-        if ( exportDn )
+        catch ( InterruptedException e )
         {
-            String value = record.getDnLine().getValueAsString();
-            appendValue( quoteCharacter, sb, value );
-
-            if ( attributes == null || attributes.length > 0 )
-                sb.append( attributeDelimiter );
+            Thread.currentThread().interrupt();
+            monitor.reportError( e );
         }
-        for ( int i = 0; i < attributes.length; i++ )
+        catch ( ExecutionException e )
         {
-
-            String attributeName = attributes[i];
-            AttributeDescription ad = new AttributeDescription( attributeName );
-            String oidString = ad.toOidString( browserConnection.getSchema() );
-            if ( attributeMap.containsKey( oidString ) )
-            {
-                String value = attributeMap.get( oidString );
-                AttributeType type = browserConnection.getSchema().getAttributeTypeDescription( attributeName );
-                if ( SchemaConstants.POSTAL_ADDRESS_SYNTAX.equals( type.getSyntaxOid() ) )
-                {
-                    value = decoder.translate( value );
-                }
-                appendValue( quoteCharacter, sb, value );
-            }
-
-            // delimiter
-            if ( i + 1 < attributes.length )
-            {
-                sb.append( attributeDelimiter );
-            }
-
+            monitor.reportError( e.getCause() instanceof Exception ? ( Exception ) e.getCause() : e );
+        }
+        finally
+        {
+            executor.shutdownNow();
         }
-        sb.append( lineSeparator );
-
-        return sb.toString();
     }
 
 
-    private static void appendValue( String quoteCharacter, StringBuffer sb, String value )
+    private static void reportProgress( int count, StudioProgressMonitor monitor )
     {
-        // escape quote character
-        value = value.replaceAll( quoteCharacter, quoteCharacter + quoteCharacter );
-
-        // prefix values starting with '=' with a single quote to avoid interpretation as formula
-        if ( value.startsWith( "=" ) )
-        {
-            value = "'" + value;
-        }
-
-        // always quote
-        sb.append( quoteCharacter );
-        sb.append( value );
-        sb.append( quoteCharacter );
+        monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
+            new String[]
+                { Integer.toString( count ) } ) );
     }
 
 
@@ -21,9 +21,11 @@
 package org.apache.directory.studio.ldapbrowser.core.jobs;
 
 
-import java.io.BufferedWriter;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -31,7 +33,6 @@ import java.util.List;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.directory.api.dsmlv2.DsmlDecorator;
 import org.apache.directory.api.dsmlv2.request.AddRequestDsml;
-import org.apache.directory.api.dsmlv2.request.BatchRequestDsml;
 import org.apache.directory.api.dsmlv2.response.BatchResponseDsml;
 import org.apache.directory.api.dsmlv2.response.SearchResponseDsml;
 import org.apache.directory.api.dsmlv2.response.SearchResultDoneDsml;
@@ -59,6 +60,7 @@ import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
 import org.apache.directory.studio.ldapbrowser.core.utils.JNDIUtils;
+import org.dom4j.Element;
 
 
 /**
@@ -194,37 +196,25 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
             StudioSearchResultEnumeration ne = SearchRunnable.search( browserConnection, searchParameter, dummyMonitor );
             monitor.worked( 1 );
 
-            // Getting the DSML string associated to the search
-            // and the type of answer the user is expecting
-            String dsmlExportString = null;
-            
-            switch ( type )
+            // Writing the DSML associated to the search and the type of answer
+            // the user is expecting, entry by entry, to the destination file
+            try ( Writer writer = Files.newBufferedWriter( Paths.get( exportDsmlFilename ), StandardCharsets.UTF_8 ) )
             {
-                case RESPONSE:
-                    dsmlExportString = processAsDsmlResponse( ne, dummyMonitor );
-                    break;
-                case REQUEST:
-                    dsmlExportString = processAsDsmlRequest( ne, dummyMonitor );
-                    break;
-            }
-            
-            monitor.worked( 1 );
-
-            // Writing the DSML string to the final destination file.
-            if ( dsmlExportString != null )
-            {
-                try ( FileOutputStream fos = new FileOutputStream( exportDsmlFilename ) )
+                switch ( type )
                 {
-                    try ( OutputStreamWriter osw = new OutputStreamWriter( fos, "UTF-8" ) ) //$NON-NLS-1$
-                    {
-                        try ( BufferedWriter bufferedWriter = new BufferedWriter( osw ) )
-                        {
-                            bufferedWriter.write( dsmlExportString );
-                        }
-                    }
+                    case RESPONSE:
+                        writeAsDsmlResponse( ne, new DsmlBatchWriter( writer, "batchResponse" ), dummyMonitor ); //$NON-NLS-1$
+                        break;
+                    case REQUEST:
+                        writeAsDsmlRequest( ne, new DsmlBatchWriter( writer, "batchRequest" ), dummyMonitor ); //$NON-NLS-1$
+                        break;
                 }
             }
-            monitor.worked( 1 );
+            finally
+            {
+                SearchRunnable.closeQuietly( ne );
+            }
+            monitor.worked( 2 );
         }
         catch ( Exception e )
         {
@@ -234,22 +224,59 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
 
 
     /**
-     * Processes the {@link StudioSearchResultEnumeration} as a DSML response.
+     * Writes the {@link StudioSearchResultEnumeration} as a DSML response.
      *
      * @param sre the search result enumeration
+     * @param batchWriter the DSML batch response writer
      * @param monitor the monitor
-     * @return the associated DSML
+     * @throws IOException if writing fails
      * @throws LdapException
      */
-    private String processAsDsmlResponse( StudioSearchResultEnumeration sre, StudioProgressMonitor monitor ) throws LdapException
+    private void writeAsDsmlResponse( StudioSearchResultEnumeration sre, DsmlBatchWriter batchWriter,
+        StudioProgressMonitor monitor ) throws IOException, LdapException
     {
-        // Creating the batch reponse
-        BatchResponseDsml batchResponse = new BatchResponseDsml();
+        // Creating the search response, its children are added, written and detached one by one
+        Element searchResponseElement = new SearchResponseDsml( codec ).toDsml( batchWriter.getBatchElement() );
+        batchWriter.open( searchResponseElement );
 
-        processAsDsmlResponse( sre, batchResponse, monitor, searchParameter );
+        try
+        {
+            int count = 0;
 
-        // Returning the associated DSML
-        return batchResponse.toDsml();
+            if ( !monitor.errorsReported() )
+            {
+                // Writing a search result entry or reference for each result
+                while ( sre.hasMore() )
+                {
+                    Entry entry = sre.next().getEntry();
+                    batchWriter.write( convertSearchResultToDsml( entry ).toDsml( searchResponseElement ) );
+
+                    count++;
+                    monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
+                        new String[]
+                            { Integer.toString( count ) } ) );
+                }
+            }
+        }
+        catch ( LdapException e )
+        {
+            int ldapStatusCode = JNDIUtils.getLdapStatusCode( e );
+            if ( ldapStatusCode == 3 || ldapStatusCode == 4 || ldapStatusCode == 11 )
+            {
+                // ignore
+            }
+            else
+            {
+                monitor.reportError( e );
+            }
+        }
+
+        // Writing a search result done at the end of the results
+        batchWriter.write( new SearchResultDoneDsml( codec, createSearchResultDone( monitor ) )
+            .toDsml( searchResponseElement ) );
+
+        batchWriter.close( searchResponseElement );
+        batchWriter.finish();
     }
 
 
@@ -305,6 +332,19 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
         }
 
         // Creating and adding a search result done at the end of the results
+        sr.addResponse( new SearchResultDoneDsml( codec, createSearchResultDone( monitor ) ) );
+    }
+
+
+    /**
+     * Creates the search result done, with the result code and diagnostic
+     * message of the error reported to the monitor, if any.
+     *
+     * @param monitor the monitor
+     * @return the search result done
+     */
+    private static SearchResultDone createSearchResultDone( StudioProgressMonitor monitor )
+    {
         SearchResultDone srd = new SearchResultDoneImpl();
         LdapResult ldapResult = srd.getLdapResult();
         if ( !monitor.errorsReported() )
@@ -325,7 +365,8 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
                 ldapResult.setDiagnosticMessage( t.getMessage() );
             }
         }
-        sr.addResponse( new SearchResultDoneDsml( codec, srd ) );
+
+        return srd;
     }
 
 
@@ -407,21 +448,20 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
 
 
     /**
-     * Processes the {@link StudioSearchResultEnumeration} as a DSML request.
+     * Writes the {@link StudioSearchResultEnumeration} as a DSML request.
      *
      * @param sre
      *      the search result enumeration
+     * @param batchWriter
+     *      the DSML batch request writer
      * @param monitor 
      *      the monitor
-     * @return
-     *      the associated DSML
+     * @throws IOException
      * @throws LdapException
      */
-    private String processAsDsmlRequest( StudioSearchResultEnumeration sre, StudioProgressMonitor monitor )
-        throws LdapException
+    private void writeAsDsmlRequest( StudioSearchResultEnumeration sre, DsmlBatchWriter batchWriter,
+        StudioProgressMonitor monitor ) throws IOException, LdapException
     {
-        // Creating the batch request
-        BatchRequestDsml batchRequest = new BatchRequestDsml();
 
         try
         {
@@ -429,12 +469,12 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
 
             if ( !monitor.errorsReported() )
             {
-                // Creating and adding an add request for each result
+                // Writing an add request for each result
                 while ( sre.hasMore() )
                 {
                     Entry entry = sre.next().getEntry();
                     AddRequestDsml arDsml = convertToAddRequestDsml( entry );
-                    batchRequest.addRequest( arDsml );
+                    batchWriter.write( arDsml.toDsml( batchWriter.getBatchElement() ) );
 
                     count++;
                     monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
@@ -456,8 +496,7 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
             }
         }
 
-        // Returning the associated DSML
-        return batchRequest.toDsml();
+        batchWriter.finish();
     }
 
 
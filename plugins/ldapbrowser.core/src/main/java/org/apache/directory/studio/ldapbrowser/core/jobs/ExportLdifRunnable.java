@@ -22,8 +22,10 @@ package org.apache.directory.studio.ldapbrowser.core.jobs;
 
 
 import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -34,6 +36,7 @@ import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.entry.Value;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.message.Control;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
 import org.apache.directory.api.ldap.model.message.controls.PagedResults;
 import org.apache.directory.api.ldap.model.name.Dn;
 import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
@@ -44,19 +47,14 @@ import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCorePlugin;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
-import org.apache.directory.studio.ldapbrowser.core.model.IValue;
 import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
-import org.apache.directory.studio.ldapbrowser.core.model.impl.DummyEntry;
-import org.apache.directory.studio.ldapbrowser.core.utils.AttributeComparator;
 import org.apache.directory.studio.ldapbrowser.core.utils.JNDIUtils;
-import org.apache.directory.studio.ldapbrowser.core.utils.ModelConverter;
 import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
 import org.apache.directory.studio.ldifparser.LdifFormatParameters;
 import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
 import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
 import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
 import org.apache.directory.studio.ldifparser.model.lines.LdifAttrValLine;
-import org.apache.directory.studio.ldifparser.model.lines.LdifDnLine;
 import org.apache.directory.studio.ldifparser.model.lines.LdifSepLine;
 import org.apache.directory.studio.ldifparser.model.lines.LdifVersionLine;
 
@@ -77,6 +75,9 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
     /** The search parameter. */
     private SearchParameter searchParameter;
 
+    /** The number of concurrently exported subtrees. */
+    private int partitionWorkers;
+
 
     /**
      * Creates a new instance of ExportLdifRunnable.
@@ -87,10 +88,27 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
      */
     public ExportLdifRunnable( String exportLdifFilename, IBrowserConnection browserConnection,
         SearchParameter searchParameter )
+    {
+        this( exportLdifFilename, browserConnection, searchParameter, 1 );
+    }
+
+
+    /**
+     * Creates a new instance of ExportLdifRunnable.
+     * 
+     * @param exportLdifFilename the filename of the LDIF file
+     * @param browserConnection the browser connection
+     * @param searchParameter the search parameter
+     * @param partitionWorkers the number of child subtrees of a subtree search exported concurrently,
+     *        1 to export with a single search
+     */
+    public ExportLdifRunnable( String exportLdifFilename, IBrowserConnection browserConnection,
+        SearchParameter searchParameter, int partitionWorkers )
     {
         this.exportLdifFilename = exportLdifFilename;
         this.browserConnection = browserConnection;
         this.searchParameter = searchParameter;
+        this.partitionWorkers = partitionWorkers;
     }
 
 
@@ -145,17 +163,12 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
         try
         {
             // open file
-            FileWriter fileWriter = new FileWriter( exportLdifFilename );
-            BufferedWriter bufferedWriter = new BufferedWriter( fileWriter );
-
-            // export
-            int count = 0;
-            export( browserConnection, searchParameter, bufferedWriter, count, monitor );
-
-            // close file
-            bufferedWriter.close();
-            fileWriter.close();
-
+            try ( BufferedWriter bufferedWriter = Files.newBufferedWriter( Paths.get( exportLdifFilename ),
+                StandardCharsets.UTF_8 ) )
+            {
+                // export
+                export( browserConnection, searchParameter, partitionWorkers, bufferedWriter, monitor );
+            }
         }
         catch ( Exception e )
         {
@@ -165,55 +178,55 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
 
 
     private static void export( IBrowserConnection browserConnection, SearchParameter searchParameter,
-        BufferedWriter bufferedWriter, int count, StudioProgressMonitor monitor ) throws IOException
+        int partitionWorkers, BufferedWriter bufferedWriter, StudioProgressMonitor monitor ) throws IOException
     {
-        try
+        LdifFormatParameters ldifFormatParameters = Utils.getLdifFormatParameters();
+
+        // add version spec
+        if ( BrowserCorePlugin.getDefault().getPluginPreferences()
+            .getBoolean( BrowserCoreConstants.PREFERENCE_LDIF_INCLUDE_VERSION_LINE ) )
         {
-            LdifEnumeration enumeration = search( browserConnection, searchParameter, monitor );
-            LdifFormatParameters ldifFormatParameters = Utils.getLdifFormatParameters();
+            LdifVersionLine ldifVersionLine = LdifVersionLine.create();
+            String ldifVersionLineString = ldifVersionLine.toFormattedString( ldifFormatParameters );
+            bufferedWriter.write( ldifVersionLineString );
+            LdifSepLine ldifSepLine = LdifSepLine.create();
+            String ldifSepLineString = ldifSepLine.toFormattedString( ldifFormatParameters );
+            bufferedWriter.write( ldifSepLineString );
+        }
+
+        // add the records
+        if ( PartitionedExport.isPartitionable( searchParameter, partitionWorkers ) )
+        {
+            PartitionedExport.export( browserConnection, searchParameter, partitionWorkers, bufferedWriter,
+                StandardCharsets.UTF_8, ( parameter, writer, segmentMonitor ) -> exportRecords( browserConnection,
+                    parameter, writer, ldifFormatParameters, segmentMonitor ), monitor );
+        }
+        else
+        {
+            exportRecords( browserConnection, searchParameter, bufferedWriter, ldifFormatParameters, monitor );
+        }
+    }
 
-            // add version spec
-            if ( BrowserCorePlugin.getDefault().getPluginPreferences()
-                .getBoolean( BrowserCoreConstants.PREFERENCE_LDIF_INCLUDE_VERSION_LINE ) )
-            {
-                LdifVersionLine ldifVersionLine = LdifVersionLine.create();
-                String ldifVersionLineString = ldifVersionLine.toFormattedString( ldifFormatParameters );
-                bufferedWriter.write( ldifVersionLineString );
-                LdifSepLine ldifSepLine = LdifSepLine.create();
-                String ldifSepLineString = ldifSepLine.toFormattedString( ldifFormatParameters );
-                bufferedWriter.write( ldifSepLineString );
-            }
 
-            // add the records
+    private static void exportRecords( IBrowserConnection browserConnection, SearchParameter searchParameter,
+        BufferedWriter bufferedWriter, LdifFormatParameters ldifFormatParameters, StudioProgressMonitor monitor )
+        throws IOException
+    {
+        try ( DefaultLdifEnumeration enumeration = search( browserConnection, searchParameter, monitor ) )
+        {
+            // sort and format the records directly from the search result entries
+            LdifExportWriter ldifWriter = new LdifExportWriter( bufferedWriter, browserConnection.getSchema(),
+                ldifFormatParameters );
+            int count = 0;
             while ( !monitor.isCanceled() && !monitor.errorsReported() && enumeration.hasNext() )
             {
-                LdifContainer container = enumeration.next();
-
-                if ( container instanceof LdifContentRecord )
-                {
-                    LdifContentRecord record = ( LdifContentRecord ) container;
-                    LdifDnLine dnLine = record.getDnLine();
-                    LdifSepLine sepLine = record.getSepLine();
-
-                    // sort and format
-                    DummyEntry entry = ModelConverter.ldifContentRecordToEntry( record, browserConnection );
-                    List<IValue> sortedValues = AttributeComparator.toSortedValues( entry );
-                    LdifContentRecord newRecord = new LdifContentRecord( dnLine );
-                    for ( IValue value : sortedValues )
-                    {
-                        newRecord.addAttrVal( ModelConverter.valueToLdifAttrValLine( value ) );
-                    }
-                    newRecord.finish( sepLine );
-                    String s = newRecord.toFormattedString( ldifFormatParameters );
+                Entry entry = enumeration.nextEntry();
+                ldifWriter.write( entry );
 
-                    // String s = record.toFormattedString();
-                    bufferedWriter.write( s );
-
-                    count++;
-                    monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
-                        new String[]
-                            { Integer.toString( count ) } ) );
-                }
+                count++;
+                monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
+                    new String[]
+                        { Integer.toString( count ) } ) );
             }
         }
         catch ( LdapException loe )
@@ -231,14 +244,14 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
     }
 
 
-    static LdifEnumeration search( IBrowserConnection browserConnection, SearchParameter parameter,
+    static DefaultLdifEnumeration search( IBrowserConnection browserConnection, SearchParameter parameter,
         StudioProgressMonitor monitor )
     {
         StudioSearchResultEnumeration result = SearchRunnable.search( browserConnection, parameter, monitor );
         return new DefaultLdifEnumeration( result, browserConnection, parameter, monitor );
     }
 
-    static class DefaultLdifEnumeration implements LdifEnumeration
+    static class DefaultLdifEnumeration implements LdifEnumeration, AutoCloseable
     {
 
         private StudioSearchResultEnumeration enumeration;
@@ -285,6 +298,7 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
                                     ( ( PagedResults ) requestControl ).setCookie( cookie );
                                 }
                             }
+                            SearchRunnable.closeQuietly( enumeration );
                             enumeration = SearchRunnable.search( browserConnection, parameter, monitor );
                             return enumeration != null && enumeration.hasMore();
                         }
@@ -296,9 +310,53 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
         }
 
 
+        /**
+         * Closes the underlying search result enumeration and releases its connection.
+         */
+        @Override
+        public void close()
+        {
+            SearchRunnable.closeQuietly( enumeration );
+        }
+
+
+        /**
+         * Gets the result code of the current search.
+         *
+         * @return the result code, null if the search failed or is not done
+         */
+        public ResultCodeEnum getResultCode()
+        {
+            return enumeration != null ? enumeration.getResultCode() : null;
+        }
+
+
+        /**
+         * Gets the next entry as returned by the search, without converting it to an LDIF record.
+         *
+         * @return the next entry
+         * @throws LdapException if the search fails
+         */
+        public Entry nextEntry() throws LdapException
+        {
+            return enumeration.next().getEntry();
+        }
+
+
         public LdifContainer next() throws LdapException
         {
-            Entry entry = enumeration.next().getEntry();
+            return toContentRecord( nextEntry() );
+        }
+
+
+        /**
+         * Converts the entry to an LDIF content record.
+         *
+         * @param entry the entry
+         * @return the LDIF content record
+         */
+        static LdifContentRecord toContentRecord( Entry entry )
+        {
             Dn dn = entry.getDn();
             LdifContentRecord record = LdifContentRecord.create( dn.getName() );
 
@@ -22,14 +22,9 @@ package org.apache.directory.studio.ldapbrowser.core.jobs;
 
 
 import java.io.IOException;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.text.translate.CharSequenceTranslator;
-import org.apache.directory.api.ldap.model.constants.SchemaConstants;
 import org.apache.directory.api.ldap.model.exception.LdapException;
-import org.apache.directory.api.ldap.model.schema.AttributeType;
 import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
 import org.apache.directory.studio.connection.core.Connection;
 import org.apache.directory.studio.connection.core.jobs.StudioConnectionRunnableWithProgress;
@@ -39,16 +34,9 @@ import org.apache.directory.studio.ldapbrowser.core.BrowserCorePlugin;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
 import org.apache.directory.studio.ldapbrowser.core.utils.JNDIUtils;
-import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
-import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
 import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
 import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
 import org.eclipse.core.runtime.Preferences;
-import org.odftoolkit.odfdom.type.ValueType;
-import org.odftoolkit.simple.SpreadsheetDocument;
-import org.odftoolkit.simple.table.Cell;
-import org.odftoolkit.simple.table.Row;
-import org.odftoolkit.simple.table.Table;
 
 
 /**
@@ -58,12 +46,6 @@ import org.odftoolkit.simple.table.Table;
  */
 public class ExportOdfRunnable implements StudioConnectionRunnableWithProgress
 {
-    /** The maximum count limit */
-    public static final int MAX_COUNT_LIMIT = 65000;
-
-    /** The postal address decoder. */
-    private static CharSequenceTranslator DECODER = Utils.createPostalAddressDecoder( "\n" ); //$NON-NLS-1$;
-
     /** The filename of the ODF file. */
     private String exportOdfFilename;
 
@@ -147,42 +129,10 @@ public class ExportOdfRunnable implements StudioConnectionRunnableWithProgress
         int binaryEncoding = coreStore.getInt( BrowserCoreConstants.PREFERENCE_FORMAT_ODF_BINARYENCODING );
 
         // export
-        try
+        try ( OdsStreamWriter writer = new OdsStreamWriter( exportOdfFilename, this.exportDn ) )
         {
-            SpreadsheetDocument doc = SpreadsheetDocument.newSpreadsheetDocument();
-
-            // Remove the default table added in construction
-            doc.removeSheet( 0 );
-
-            // create the table
-            Table table = doc.appendSheet( "Export" ); //$NON-NLS-1$
-
-            // header
-            Row headerRow = table.appendRow();
-            LinkedHashMap<String, Short> attributeNameMap = new LinkedHashMap<String, Short>();
-            if ( this.exportDn )
-            {
-                short cellNum = ( short ) 0;
-                attributeNameMap.put( "dn", new Short( cellNum ) ); //$NON-NLS-1$
-                Cell cell = headerRow.getCellByIndex( cellNum );
-                cell.setValueType( ValueType.STRING.name() );
-                cell.setStringValue( "dn" ); //$NON-NLS-1$
-            }
-
-            // max export
-            if ( searchParameter.getCountLimit() < 1 || searchParameter.getCountLimit() > MAX_COUNT_LIMIT )
-            {
-                searchParameter.setCountLimit( MAX_COUNT_LIMIT );
-            }
-
             int count = 0;
-            exportToOdf( browserConnection, searchParameter, table, headerRow, count, monitor,
-                attributeNameMap, valueDelimiter, binaryEncoding, this.exportDn );
-
-            // remove default rows
-            table.removeRowsByIndex( 0, 2 );
-
-            doc.save( exportOdfFilename );
+            exportToOdf( browserConnection, searchParameter, writer, count, monitor, valueDelimiter, binaryEncoding );
         }
         catch ( Exception e )
         {
@@ -196,25 +146,21 @@ public class ExportOdfRunnable implements StudioConnectionRunnableWithProgress
      * 
      * @param browserConnection the browser connection
      * @param searchParameter the search parameter
-     * @param table the table
-     * @param headerRow the header row
+     * @param writer the spreadsheet writer
      * @param count the count
      * @param monitor the monitor
-     * @param attributeNameMap the attribute name map
      * @param valueDelimiter the value delimiter
      * @param binaryEncoding the binary encoding
-     * @param exportDn the export dn
      * 
      * @throws IOException Signals that an I/O exception has occurred.
      */
     private static void exportToOdf( IBrowserConnection browserConnection, SearchParameter searchParameter,
-        Table table, Row headerRow, int count, StudioProgressMonitor monitor,
-        LinkedHashMap<String, Short> attributeNameMap, String valueDelimiter, int binaryEncoding, boolean exportDn )
+        OdsStreamWriter writer, int count, StudioProgressMonitor monitor, String valueDelimiter, int binaryEncoding )
         throws IOException
     {
-        try
+        try ( ExportLdifRunnable.DefaultLdifEnumeration enumeration = ExportLdifRunnable.search( browserConnection,
+            searchParameter, monitor ) )
         {
-            LdifEnumeration enumeration = ExportLdifRunnable.search( browserConnection, searchParameter, monitor );
             while ( !monitor.isCanceled() && !monitor.errorsReported() && enumeration.hasNext() )
             {
                 LdifContainer container = enumeration.next();
@@ -222,8 +168,7 @@ public class ExportOdfRunnable implements StudioConnectionRunnableWithProgress
                 if ( container instanceof LdifContentRecord )
                 {
                     LdifContentRecord record = ( LdifContentRecord ) container;
-                    recordToOdfRow( browserConnection, record, table, headerRow, attributeNameMap,
-                        valueDelimiter, binaryEncoding, exportDn );
+                    writer.writeRecord( browserConnection, record, valueDelimiter, binaryEncoding );
 
                     count++;
                     monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
@@ -246,67 +191,4 @@ public class ExportOdfRunnable implements StudioConnectionRunnableWithProgress
             }
         }
     }
-
-
-    /**
-     * Transforms an LDIF record to an OdfTableRow.
-     * 
-     * @param browserConnection the browser connection
-     * @param record the record
-     * @param table the table
-     * @param headerRow the header row
-     * @param headerRowAttributeNameMap the header row attribute name map
-     * @param valueDelimiter the value delimiter
-     * @param binaryEncoding the binary encoding
-     * @param exportDn the export dn
-     */
-    private static void recordToOdfRow( IBrowserConnection browserConnection, LdifContentRecord record,
-        Table table, Row headerRow, Map<String, Short> headerRowAttributeNameMap,
-        String valueDelimiter, int binaryEncoding, boolean exportDn )
-    {
-        // group multi-valued attributes
-        Map<String, String> attributeMap = ExportCsvRunnable.getAttributeMap( null, record, valueDelimiter, "UTF-16", //$NON-NLS-1$
-            binaryEncoding );
-
-        // output attributes
-        Row row = table.appendRow();
-
-        if ( exportDn )
-        {
-            Cell cell = row.getCellByIndex( 0 );
-            cell.setValueType( ValueType.STRING.name() );
-            cell.setStringValue( record.getDnLine().getValueAsString() );
-        }
-        for ( String attributeName : attributeMap.keySet() )
-        {
-            String value = attributeMap.get( attributeName );
-            if ( value == null )
-            {
-                value = ""; //$NON-NLS-1$
-            }
-            if ( !headerRowAttributeNameMap.containsKey( attributeName ) )
-            {
-                short cellNum = ( short ) headerRowAttributeNameMap.size();
-                headerRowAttributeNameMap.put( attributeName, new Short( cellNum ) );
-                Cell cell = headerRow.getCellByIndex( cellNum );
-                cell.setValueType( ValueType.STRING.name() );
-                cell.setStringValue( attributeName );
-            }
-            if ( headerRowAttributeNameMap.containsKey( attributeName ) )
-            {
-                short cellNum = headerRowAttributeNameMap.get( attributeName ).shortValue();
-                Cell cell = row.getCellByIndex( cellNum );
-                cell.setValueType( ValueType.STRING.name() );
-                AttributeType type = browserConnection.getSchema().getAttributeTypeDescription( attributeName );
-                if ( SchemaConstants.POSTAL_ADDRESS_SYNTAX.equals( type.getSyntaxOid() ) )
-                {
-                    // https://docs.oasis-open.org/office/OpenDocument/v1.3/os/part4-formula/OpenDocument-v1.3-os-part4-formula.html#__RefHeading__1017970_715980110
-                    value = DECODER.translate( value );
-                    cell.setTextWrapped( true );
-                }
-                cell.setStringValue( value );
-            }
-        }
-    }
-
 }
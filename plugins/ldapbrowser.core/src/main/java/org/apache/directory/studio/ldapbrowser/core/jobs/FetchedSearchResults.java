@@ -0,0 +1,196 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.Control;
+import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
+import org.apache.directory.studio.connection.core.io.api.StudioSearchResult;
+import org.apache.directory.studio.connection.core.io.api.StudioSearchResultEnumeration;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
+import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
+
+
+/**
+ * Holds the search results of a search that were fetched without updating the browser
+ * model, e.g. in another thread. The search results are replayed on the thread that 
+ * updates the browser model, see {@link SearchRunnable#updateModel}.
+ * 
+ * An error that occurred while fetching is thrown after all search results fetched 
+ * before the error were returned.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class FetchedSearchResults extends StudioSearchResultEnumeration
+{
+    /**
+     * Searches the directory.
+     */
+    interface Searcher
+    {
+        /**
+         * Searches the directory.
+         * 
+         * @param searchParameter the search parameter
+         * @param monitor the progress monitor
+         * @return the enumeration of the search results, null if the search failed
+         */
+        StudioSearchResultEnumeration search( SearchParameter searchParameter, StudioProgressMonitor monitor );
+    }
+
+    /** The fetched search results. */
+    private final List<StudioSearchResult> searchResults = new ArrayList<StudioSearchResult>();
+
+    /** The response controls. */
+    private Collection<Control> responseControls = Collections.emptyList();
+
+    /** The error that occurred while fetching, null if none. */
+    private LdapException error;
+
+    /** The index of the next search result to return. */
+    private int next;
+
+
+    /**
+     * Fetches the search results of the given search. Only reads the browser model.
+     * 
+     * @param browserConnection the browser connection
+     * @param search the search
+     * @param monitor the progress monitor
+     * @return the fetched search results
+     */
+    static FetchedSearchResults fetch( IBrowserConnection browserConnection, ISearch search,
+        StudioProgressMonitor monitor )
+    {
+        return fetch( browserConnection, SearchRunnable.getSearchParameter( search ), monitor,
+            ( searchParameter, searchMonitor ) -> SearchRunnable.search( browserConnection, searchParameter,
+                searchMonitor ) );
+    }
+
+
+    /**
+     * Fetches the search results of the given search parameter.
+     * 
+     * @param browserConnection the browser connection
+     * @param searchParameter the search parameter
+     * @param monitor the progress monitor
+     * @param searcher searches the directory
+     * @return the fetched search results
+     */
+    static FetchedSearchResults fetch( IBrowserConnection browserConnection, SearchParameter searchParameter,
+        StudioProgressMonitor monitor, Searcher searcher )
+    {
+        FetchedSearchResults fetchedResults = new FetchedSearchResults( browserConnection, searchParameter, monitor );
+
+        StudioSearchResultEnumeration enumeration = null;
+        try
+        {
+            enumeration = searcher.search( searchParameter, monitor );
+            while ( !monitor.isCanceled() && enumeration != null && enumeration.hasMore() )
+            {
+                fetchedResults.searchResults.add( enumeration.next() );
+            }
+        }
+        catch ( LdapException e )
+        {
+            fetchedResults.error = e;
+        }
+        finally
+        {
+            SearchRunnable.closeQuietly( enumeration );
+        }
+
+        if ( enumeration != null )
+        {
+            fetchedResults.responseControls = enumeration.getResponseControls();
+        }
+
+        return fetchedResults;
+    }
+
+
+    private FetchedSearchResults( IBrowserConnection browserConnection, SearchParameter searchParameter,
+        StudioProgressMonitor monitor )
+    {
+        super( browserConnection.getConnection(), null, searchParameter.getSearchBase().getName(), searchParameter
+            .getFilter(), null, searchParameter.getAliasesDereferencingMethod(), searchParameter
+            .getReferralsHandlingMethod(), null, 0, monitor, null );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws LdapException
+    {
+        // the connection was already released when fetching
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasMore() throws LdapException
+    {
+        if ( next < searchResults.size() )
+        {
+            return true;
+        }
+
+        if ( error != null )
+        {
+            LdapException exception = error;
+            error = null;
+            throw exception;
+        }
+
+        return false;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StudioSearchResult next() throws LdapException
+    {
+        return next < searchResults.size() ? searchResults.get( next++ ) : null;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Control> getResponseControls()
+    {
+        return responseControls;
+    }
+}
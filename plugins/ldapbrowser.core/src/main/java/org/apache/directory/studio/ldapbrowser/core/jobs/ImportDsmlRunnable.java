@@ -20,11 +20,13 @@
 package org.apache.directory.studio.ldapbrowser.core.jobs;
 
 
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -62,6 +64,7 @@ import org.apache.directory.api.ldap.model.message.MessageTypeEnum;
 import org.apache.directory.api.ldap.model.message.ModifyDnRequest;
 import org.apache.directory.api.ldap.model.message.ModifyRequest;
 import org.apache.directory.api.ldap.model.message.Request;
+import org.apache.directory.api.ldap.model.message.Response;
 import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
 import org.apache.directory.api.ldap.model.message.SearchRequest;
 import org.apache.directory.api.ldap.model.name.Dn;
@@ -187,35 +190,43 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
         monitor.reportProgress( " " ); //$NON-NLS-1$
         monitor.worked( 1 );
 
-        try
+        // Setting the errors counter
+        int errorsCount = 0;
+
+        try ( InputStream dsmlStream = new BufferedInputStream( new FileInputStream( dsmlFile ) );
+            Writer responseWriter = responseFile != null ? Files.newBufferedWriter( responseFile.toPath(),
+                StandardCharsets.UTF_8 ) : null )
         {
-            // Parsing the file
+            // Parsing the batch request element only, the requests are parsed one by one
             Dsmlv2Grammar grammar = new Dsmlv2Grammar();
             Dsmlv2Parser parser = new Dsmlv2Parser( grammar );
-            parser.setInput( new FileInputStream( dsmlFile ), "UTF-8" ); //$NON-NLS-1$
-            parser.parseAllRequests();
+            parser.setInput( dsmlStream, "UTF-8" ); //$NON-NLS-1$
+            parser.parseBatchRequest();
 
             // Getting the batch request
             BatchRequestDsml batchRequest = parser.getBatchRequest();
 
-            // Creating a DSML batch response (only if needed)
+            // Creating a DSML batch response and its writer (only if needed), the
+            // batch response only holds the responses of the current request
             BatchResponseDsml batchResponseDsml = null;
-            if ( responseFile != null )
+            DsmlBatchWriter batchWriter = null;
+            if ( responseWriter != null )
             {
                 batchResponseDsml = new BatchResponseDsml();
+                batchWriter = new DsmlBatchWriter( responseWriter, "batchResponse" ); //$NON-NLS-1$
             }
 
-            // Setting the errors counter
-            int errorsCount = 0;
-
             // Creating a dummy monitor that will be used to check if something
             // went wrong when executing the request
             StudioProgressMonitor dummyMonitor = new StudioProgressMonitor( monitor );
 
-            // Processing each request
-            List<DsmlDecorator<? extends Request>> requests = batchRequest.getRequests();
-            for ( DsmlDecorator<? extends Request> request : requests )
+            // Processing each request as soon as it is parsed
+            DsmlDecorator<? extends Request> request;
+            while ( !monitor.isCanceled() && ( request = parser.getNextRequest() ) != null )
             {
+                // The batch request does not need to keep the parsed requests
+                batchRequest.getRequests().clear();
+
                 // Processing the request
                 processRequest( request, batchResponseDsml, dummyMonitor );
 
@@ -226,32 +237,35 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
                 }
 
                 dummyMonitor.reset();
-            }
 
-            // Writing the DSML response file to its final destination file.
-            if ( responseFile != null )
-            {
-                FileOutputStream fos = new FileOutputStream( responseFile );
-                OutputStreamWriter osw = new OutputStreamWriter( fos, "UTF-8" ); //$NON-NLS-1$
-                BufferedWriter bufferedWriter = new BufferedWriter( osw );
-                bufferedWriter.write( batchResponseDsml.toDsml() );
-                bufferedWriter.close();
-                osw.close();
-                fos.close();
+                // Appending the responses of the request to the DSML response file
+                if ( batchWriter != null )
+                {
+                    for ( DsmlDecorator<? extends Response> response : batchResponseDsml.getResponses() )
+                    {
+                        batchWriter.write( response.toDsml( batchWriter.getBatchElement() ) );
+                    }
+                    batchResponseDsml.getResponses().clear();
+                }
             }
 
-            // Displaying an error message if we've had some errors
-            if ( errorsCount > 0 )
+            if ( batchWriter != null )
             {
-                monitor.reportError( BrowserCoreMessages.bind(
-                    BrowserCoreMessages.dsml__n_errors_see_responsefile, new String[]
-                        { "" + errorsCount } ) ); //$NON-NLS-1$
+                batchWriter.finish();
             }
         }
         catch ( Exception e )
         {
             monitor.reportError( e );
         }
+
+        // Displaying an error message if we've had some errors
+        if ( errorsCount > 0 )
+        {
+            monitor.reportError( BrowserCoreMessages.bind(
+                BrowserCoreMessages.dsml__n_errors_see_responsefile, new String[]
+                    { "" + errorsCount } ) ); //$NON-NLS-1$
+        }
     }
 
 
@@ -607,9 +621,16 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
                     getSearchControls( request ), getAliasDereferencingMethod( request ),
                     ReferralHandlingMethod.IGNORE, getControls( request ), monitor, null );
 
-            SearchParameter sp = new SearchParameter();
-            sp.setReferralsHandlingMethod( browserConnection.getReferralsHandlingMethod() );
-            ExportDsmlRunnable.processAsDsmlResponse( sre, batchResponseDsml, monitor, sp );
+            try
+            {
+                SearchParameter sp = new SearchParameter();
+                sp.setReferralsHandlingMethod( browserConnection.getReferralsHandlingMethod() );
+                ExportDsmlRunnable.processAsDsmlResponse( sre, batchResponseDsml, monitor, sp );
+            }
+            finally
+            {
+                SearchRunnable.closeQuietly( sre );
+            }
         }
     }
 
@@ -0,0 +1,258 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCorePlugin;
+import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+
+/**
+ * A checkpoint journal of an LDIF import. It holds the character offset behind the
+ * last acknowledged LDIF container and a hash of the LDIF file, so an interrupted
+ * import can be resumed by skipping the already imported part of the file.
+ * 
+ * The journal is only a help to resume, failures to write it are logged as warnings 
+ * and don't abort the import.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class ImportLdifCheckpoint
+{
+    /** The file name suffix of the checkpoint journal */
+    static final String CHECKPOINT_FILE_SUFFIX = ".checkpoint"; //$NON-NLS-1$
+
+    private static final String KEY_LDIF_HASH = "ldif.sha256"; //$NON-NLS-1$
+    private static final String KEY_OFFSET = "ldif.offset"; //$NON-NLS-1$
+    private static final String KEY_RECORDS = "ldif.records"; //$NON-NLS-1$
+
+    /** The number of acknowledged containers after which the journal is written */
+    private static final int SAVE_INTERVAL_COUNT = 1000;
+
+    /** The time in milliseconds after which the journal is written */
+    private static final long SAVE_INTERVAL_MILLIS = 2000L;
+
+    /** The range of the parser's character offsets, they are ints that wrap around in files above 2G characters */
+    private static final long PARSER_OFFSET_RANGE = 1L << 32;
+
+    /** The checkpoint journal file */
+    private File checkpointFile;
+
+    /** The hash of the LDIF file */
+    private String ldifHash;
+
+    /** The offset of the first parsed character in the LDIF file */
+    private long baseOffset;
+
+    /** The last offset reported by the parser, as unsigned value */
+    private long lastParserOffset;
+
+    /** The number of times the parser's offsets wrapped around */
+    private long parserOffsetWraps;
+
+    /** The offset behind the last acknowledged container */
+    private long offset;
+
+    /** The number of acknowledged records */
+    private long records;
+
+    private int unsavedCount;
+    private long lastSaveTime;
+
+    /** Set when the journal could not be written, it is not written again */
+    private boolean failed;
+
+
+    private ImportLdifCheckpoint( File checkpointFile, String ldifHash, long offset, long records )
+    {
+        this.checkpointFile = checkpointFile;
+        this.ldifHash = ldifHash;
+        this.baseOffset = offset;
+        this.offset = offset;
+        this.records = records;
+        this.lastSaveTime = System.currentTimeMillis();
+    }
+
+
+    /**
+     * Gets the checkpoint journal file of an import. It is placed next to the log file,
+     * or next to the LDIF file if logging is disabled.
+     *
+     * @param ldifFile the LDIF file
+     * @param logFile the log file, may be null
+     * @return the checkpoint journal file
+     */
+    static File getCheckpointFile( File ldifFile, File logFile )
+    {
+        File file = logFile != null ? logFile : ldifFile;
+
+        return new File( file.getPath() + CHECKPOINT_FILE_SUFFIX );
+    }
+
+
+    /**
+     * Opens the checkpoint journal of a resumable import. If a journal exists the import 
+     * continues where it was interrupted, otherwise it starts from the beginning.
+     *
+     * @param ldifFile the LDIF file
+     * @param checkpointFile the checkpoint journal file
+     * @return the checkpoint
+     * @throws IOException if the LDIF file or the existing journal can't be read, or if the 
+     *      LDIF file was modified since the journal was written
+     */
+    static ImportLdifCheckpoint open( File ldifFile, File checkpointFile ) throws IOException
+    {
+        String ldifHash;
+
+        try ( InputStream in = new FileInputStream( ldifFile ) )
+        {
+            ldifHash = DigestUtils.sha256Hex( in );
+        }
+
+        if ( checkpointFile.exists() )
+        {
+            Properties properties = new Properties();
+
+            try ( InputStream in = new FileInputStream( checkpointFile ) )
+            {
+                properties.load( in );
+            }
+
+            if ( !ldifHash.equals( properties.getProperty( KEY_LDIF_HASH ) ) )
+            {
+                throw new IOException( BrowserCoreMessages.bind( BrowserCoreMessages.ldif__checkpoint_ldif_modified,
+                    new String[]
+                        { ldifFile.getPath(), checkpointFile.getPath() } ) );
+            }
+
+            long offset = Long.parseLong( properties.getProperty( KEY_OFFSET, "0" ) ); //$NON-NLS-1$
+            long records = Long.parseLong( properties.getProperty( KEY_RECORDS, "0" ) ); //$NON-NLS-1$
+
+            return new ImportLdifCheckpoint( checkpointFile, ldifHash, offset, records );
+        }
+
+        return new ImportLdifCheckpoint( checkpointFile, ldifHash, 0L, 0L );
+    }
+
+
+    /**
+     * Gets the offset in characters where the import continues.
+     *
+     * @return the offset
+     */
+    long getOffset()
+    {
+        return offset;
+    }
+
+
+    /**
+     * Acknowledges a completely processed container. The journal is written
+     * periodically, not on every call.
+     *
+     * @param container the processed container
+     */
+    void acknowledge( LdifContainer container )
+    {
+        long parserOffset = ( container.getOffset() + container.getLength() ) & ( PARSER_OFFSET_RANGE - 1 );
+        if ( parserOffset < lastParserOffset - PARSER_OFFSET_RANGE / 2 )
+        {
+            parserOffsetWraps++;
+        }
+        lastParserOffset = parserOffset;
+
+        offset = baseOffset + parserOffsetWraps * PARSER_OFFSET_RANGE + parserOffset;
+        records++;
+        unsavedCount++;
+
+        if ( unsavedCount >= SAVE_INTERVAL_COUNT
+            || System.currentTimeMillis() - lastSaveTime >= SAVE_INTERVAL_MILLIS )
+        {
+            save();
+        }
+    }
+
+
+    /**
+     * Writes the journal. The journal is first written to a temporary file which then
+     * replaces the previous journal, so a crash never leaves a truncated journal.
+     * If the journal can't be written a warning is logged and the journal is no 
+     * longer written during this import.
+     */
+    void save()
+    {
+        if ( failed )
+        {
+            return;
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty( KEY_LDIF_HASH, ldifHash );
+        properties.setProperty( KEY_OFFSET, Long.toString( offset ) );
+        properties.setProperty( KEY_RECORDS, Long.toString( records ) );
+
+        File tempFile = new File( checkpointFile.getPath() + ".tmp" ); //$NON-NLS-1$
+
+        try
+        {
+            try ( OutputStream out = new FileOutputStream( tempFile ) )
+            {
+                properties.store( out, null );
+            }
+
+            Files.move( tempFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+        catch ( IOException e )
+        {
+            failed = true;
+            tempFile.delete();
+            BrowserCorePlugin.getDefault().getLog().log(
+                new Status( IStatus.WARNING, BrowserCoreConstants.PLUGIN_ID, BrowserCoreMessages.bind(
+                    BrowserCoreMessages.ldif__checkpoint_not_written, checkpointFile.getPath() ), e ) );
+        }
+
+        unsavedCount = 0;
+        lastSaveTime = System.currentTimeMillis();
+    }
+
+
+    /**
+     * Deletes the journal once the import completed.
+     */
+    void delete()
+    {
+        checkpointFile.delete();
+    }
+}
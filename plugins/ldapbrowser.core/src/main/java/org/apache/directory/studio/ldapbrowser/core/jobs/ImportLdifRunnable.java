@@ -31,10 +31,19 @@ import java.io.Reader;
 import java.io.Writer;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.directory.api.ldap.model.entry.DefaultAttribute;
@@ -47,6 +56,7 @@ import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
 import org.apache.directory.api.ldap.model.exception.LdapSchemaException;
 import org.apache.directory.api.ldap.model.message.Control;
 import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.Rdn;
 import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
 import org.apache.directory.studio.connection.core.Connection;
 import org.apache.directory.studio.connection.core.ConnectionCoreConstants;
@@ -58,6 +68,7 @@ import org.apache.directory.studio.ldapbrowser.core.events.BulkModificationEvent
 import org.apache.directory.studio.ldapbrowser.core.events.EventRegistry;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
 import org.apache.directory.studio.ldapbrowser.core.utils.ModelConverter;
 import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
 import org.apache.directory.studio.ldifparser.LdifFormatParameters;
@@ -100,6 +111,12 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
     /** The continue on error flag. */
     private boolean continueOnError;
 
+    /** The maximum number of operations in flight, 1 for sequential import. */
+    private int windowSize;
+
+    /** The flag to write and resume from the checkpoint journal. */
+    private boolean resume;
+
 
     /**
      * Creates a new instance of ImportLdifRunnable.
@@ -112,12 +129,63 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
      */
     public ImportLdifRunnable( IBrowserConnection browserConnection, File ldifFile, File logFile,
         boolean updateIfEntryExists, boolean continueOnError )
+    {
+        this( browserConnection, ldifFile, logFile, updateIfEntryExists, continueOnError, 1 );
+    }
+
+
+    /**
+     * Creates a new instance of ImportLdifRunnable.
+     * 
+     * @param browserConnection the browser connection
+     * @param ldifFile the LDIF file
+     * @param logFile the log file, may be null
+     * @param updateIfEntryExists the update if entry exists flag
+     * @param continueOnError the continue on error flag
+     * @param windowSize the maximum number of operations in flight, 1 for sequential import
+     */
+    public ImportLdifRunnable( IBrowserConnection browserConnection, File ldifFile, File logFile,
+        boolean updateIfEntryExists, boolean continueOnError, int windowSize )
+    {
+        this( browserConnection, ldifFile, logFile, updateIfEntryExists, continueOnError, windowSize, false );
+    }
+
+
+    /**
+     * Creates a new instance of ImportLdifRunnable.
+     * 
+     * @param browserConnection the browser connection
+     * @param ldifFile the LDIF file
+     * @param logFile the log file, may be null
+     * @param updateIfEntryExists the update if entry exists flag
+     * @param continueOnError the continue on error flag
+     * @param windowSize the maximum number of operations in flight, 1 for sequential import
+     * @param resume true to write a checkpoint journal and to continue after the last record 
+     *      acknowledged in the journal of an interrupted import
+     */
+    public ImportLdifRunnable( IBrowserConnection browserConnection, File ldifFile, File logFile,
+        boolean updateIfEntryExists, boolean continueOnError, int windowSize, boolean resume )
     {
         this.browserConnection = browserConnection;
         this.ldifFile = ldifFile;
         this.logFile = logFile;
         this.continueOnError = continueOnError;
         this.updateIfEntryExists = updateIfEntryExists;
+        this.windowSize = windowSize;
+        this.resume = resume;
+    }
+
+
+    /**
+     * Gets the checkpoint journal file written while importing the given LDIF file.
+     * 
+     * @param ldifFile the LDIF file
+     * @param logFile the log file, may be null
+     * @return the checkpoint journal file
+     */
+    public static File getCheckpointFile( File ldifFile, File logFile )
+    {
+        return ImportLdifCheckpoint.getCheckpointFile( ldifFile, logFile );
     }
 
 
@@ -186,14 +254,37 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
 
         try
         {
+            // the checkpoint journal is only read and written for resumable imports
+            ImportLdifCheckpoint checkpoint = null;
+            long resumeOffset = 0L;
+            if ( resume )
+            {
+                checkpoint = ImportLdifCheckpoint.open( ldifFile, ImportLdifCheckpoint.getCheckpointFile( ldifFile,
+                    logFile ) );
+                resumeOffset = checkpoint.getOffset();
+            }
+
+            // skip the characters up to the first record not acknowledged by a previous run,
+            // they are decoded but not parsed
             Reader ldifReader = new BufferedReader( new FileReader( this.ldifFile ) );
+            long toSkip = resumeOffset;
+            while ( toSkip > 0 )
+            {
+                long skipped = ldifReader.skip( toSkip );
+                if ( skipped <= 0 )
+                {
+                    break;
+                }
+                toSkip -= skipped;
+            }
+
             LdifParser parser = new LdifParser();
             LdifEnumeration enumeration = parser.parse( ldifReader );
 
             Writer logWriter;
             if ( this.logFile != null )
             {
-                logWriter = new BufferedWriter( new FileWriter( this.logFile ) );
+                logWriter = new BufferedWriter( new FileWriter( this.logFile, resumeOffset > 0 ) );
             }
             else
             {
@@ -215,10 +306,32 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
                 };
             }
 
-            importLdif( browserConnection, enumeration, logWriter, updateIfEntryExists, continueOnError, monitor );
+            boolean completed;
+            if ( windowSize > 1 )
+            {
+                completed = importLdifPipelined( browserConnection, enumeration, logWriter, updateIfEntryExists,
+                    continueOnError, windowSize, checkpoint, monitor );
+            }
+            else
+            {
+                completed = importLdif( browserConnection, enumeration, logWriter, updateIfEntryExists,
+                    continueOnError, checkpoint, monitor );
+            }
 
             logWriter.close();
             ldifReader.close();
+
+            if ( checkpoint != null )
+            {
+                if ( completed )
+                {
+                    checkpoint.delete();
+                }
+                else
+                {
+                    checkpoint.save();
+                }
+            }
         }
         catch ( Exception e )
         {
@@ -248,10 +361,30 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
      */
     static void importLdif( IBrowserConnection browserConnection, LdifEnumeration enumeration, Writer logWriter,
         boolean updateIfEntryExists, boolean continueOnError, StudioProgressMonitor monitor )
+    {
+        importLdif( browserConnection, enumeration, logWriter, updateIfEntryExists, continueOnError, null, monitor );
+    }
+
+
+    /**
+     * Imports the LDIF enumeration
+     * 
+     * @param browserConnection the browser connection
+     * @param enumeration the LDIF enumeration
+     * @param logWriter the log writer
+     * @param updateIfEntryExists the update if entry exists flag
+     * @param continueOnError the continue on error flag
+     * @param checkpoint the checkpoint journal to acknowledge processed containers, may be null
+     * @param monitor the progress monitor
+     * @return true if the whole enumeration was processed
+     */
+    static boolean importLdif( IBrowserConnection browserConnection, LdifEnumeration enumeration, Writer logWriter,
+        boolean updateIfEntryExists, boolean continueOnError, ImportLdifCheckpoint checkpoint,
+        StudioProgressMonitor monitor )
     {
         if ( browserConnection == null )
         {
-            return;
+            return false;
         }
 
         StudioProgressMonitor dummyMonitor = new StudioProgressMonitor( monitor );
@@ -279,7 +412,7 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
                             if ( !continueOnError )
                             {
                                 monitor.reportError( dummyMonitor.getException() );
-                                return;
+                                return false;
                             }
                         }
                         else
@@ -287,71 +420,7 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
                             importedCount++;
                             logModification( browserConnection, logWriter, record, monitor );
 
-                            // update cache and adjust attribute/children initialization flags
-                            Dn dn = new Dn( record.getDnLine().getValueAsString() );
-                            IEntry entry = browserConnection.getEntryFromCache( dn );
-                            Dn parentDn = dn.getParent();
-                            IEntry parentEntry = null;
-                            while ( parentEntry == null && parentDn != null )
-                            {
-                                parentEntry = browserConnection.getEntryFromCache( parentDn );
-                                parentDn = parentDn.getParent();
-                            }
-
-                            if ( record instanceof LdifChangeDeleteRecord )
-                            {
-                                if ( entry != null )
-                                {
-                                    entry.setAttributesInitialized( false );
-                                    browserConnection.uncacheEntryRecursive( entry );
-                                }
-                                if ( parentEntry != null )
-                                {
-                                    parentEntry.setChildrenInitialized( false );
-                                }
-                            }
-                            else if ( record instanceof LdifChangeModDnRecord )
-                            {
-                                if ( entry != null )
-                                {
-                                    entry.setAttributesInitialized( false );
-                                    browserConnection.uncacheEntryRecursive( entry );
-                                }
-                                if ( parentEntry != null )
-                                {
-                                    parentEntry.setChildrenInitialized( false );
-                                }
-                                LdifChangeModDnRecord modDnRecord = ( LdifChangeModDnRecord ) record;
-                                if ( modDnRecord.getNewsuperiorLine() != null )
-                                {
-                                    Dn newSuperiorDn = new Dn( modDnRecord.getNewsuperiorLine()
-                                        .getValueAsString() );
-                                    IEntry newSuperiorEntry = browserConnection.getEntryFromCache( newSuperiorDn );
-                                    if ( newSuperiorEntry != null )
-                                    {
-                                        newSuperiorEntry.setChildrenInitialized( false );
-                                    }
-                                }
-                            }
-                            else if ( record instanceof LdifChangeAddRecord || record instanceof LdifContentRecord )
-                            {
-                                if ( entry != null )
-                                {
-                                    entry.setAttributesInitialized( false );
-                                }
-                                if ( parentEntry != null )
-                                {
-                                    parentEntry.setChildrenInitialized( false );
-                                    parentEntry.setHasChildrenHint( true );
-                                }
-                            }
-                            else
-                            {
-                                if ( entry != null )
-                                {
-                                    entry.setAttributesInitialized( false );
-                                }
-                            }
+                            updateCache( browserConnection, record );
                         }
                     }
                     catch ( Exception e )
@@ -362,7 +431,7 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
                         if ( !continueOnError )
                         {
                             monitor.reportError( e );
-                            return;
+                            return false;
                         }
                     }
 
@@ -374,6 +443,16 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
                 {
                     logWriter.write( container.toRawString() );
                 }
+
+                if ( checkpoint != null )
+                {
+                    checkpoint.acknowledge( container );
+                }
+            }
+
+            if ( monitor.isCanceled() )
+            {
+                return false;
             }
 
             if ( errorCount > 0 )
@@ -386,6 +465,463 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
         catch ( Exception e )
         {
             monitor.reportError( e );
+            return false;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Imports the LDIF enumeration keeping up to windowSize operations in flight.
+     * 
+     * Records are sent concurrently but their results are logged and applied to the cache
+     * in the original record order. A record is only sent once no in-flight record
+     * targets the same entry, one of its ancestors or one of its descendants, so a child
+     * is never sent before the add of its parent has completed. Dns are compared in their
+     * schema normalized form. Rename records and records with an invalid Dn are executed
+     * as barriers. Records below an entry whose add failed are not sent but logged as errors.
+     * If the import is aborted on an error the records already in flight are still awaited
+     * and logged in order before returning.
+     * 
+     * @param browserConnection the browser connection
+     * @param enumeration the LDIF enumeration
+     * @param logWriter the log writer
+     * @param updateIfEntryExists the update if entry exists flag
+     * @param continueOnError the continue on error flag
+     * @param windowSize the maximum number of operations in flight
+     * @param checkpoint the checkpoint journal to acknowledge processed containers, may be null
+     * @param monitor the progress monitor
+     * @return true if the whole enumeration was processed
+     */
+    static boolean importLdifPipelined( IBrowserConnection browserConnection, LdifEnumeration enumeration,
+        Writer logWriter, boolean updateIfEntryExists, boolean continueOnError, int windowSize,
+        ImportLdifCheckpoint checkpoint, StudioProgressMonitor monitor )
+    {
+        if ( browserConnection == null )
+        {
+            return false;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( windowSize );
+        Deque<StudioProgressMonitor> freeMonitors = new ArrayDeque<>();
+        for ( int i = 0; i < windowSize; i++ )
+        {
+            freeMonitors.add( new StudioProgressMonitor( monitor ) );
+        }
+
+        Deque<PendingRecord> inFlight = new ArrayDeque<>();
+        ImportCounter counter = new ImportCounter();
+
+        try
+        {
+            while ( !monitor.isCanceled() && enumeration.hasNext() )
+            {
+                LdifContainer container = enumeration.next();
+
+                if ( container instanceof LdifRecord )
+                {
+                    LdifRecord record = ( LdifRecord ) container;
+                    List<String> key = getDependencyKey( record, browserConnection.getSchema() );
+
+                    // wait for a free slot and for all in-flight records this record depends on
+                    while ( !inFlight.isEmpty() && ( inFlight.size() >= windowSize || dependsOn( key, inFlight ) ) )
+                    {
+                        if ( !completeOldest( browserConnection, inFlight, freeMonitors, logWriter,
+                            continueOnError, counter, checkpoint, monitor ) )
+                        {
+                            completeAborted( browserConnection, inFlight, freeMonitors, logWriter, counter,
+                                checkpoint, monitor );
+                            return false;
+                        }
+                    }
+
+                    StudioProgressMonitor recordMonitor = freeMonitors.pop();
+                    recordMonitor.reset();
+                    Future<?> future;
+
+                    if ( hasFailedAncestor( key, counter.failedAdds ) )
+                    {
+                        // the parent doesn't exist, the record is only logged as error
+                        recordMonitor.reportError( new Exception( BrowserCoreMessages.bind(
+                            BrowserCoreMessages.ldif__parent_not_imported, record.getDnLine().getValueAsString() ) ) );
+                        future = CompletableFuture.completedFuture( null );
+                    }
+                    else
+                    {
+                        future = executor.submit( () -> {
+                            try
+                            {
+                                importLdifRecord( browserConnection, record, updateIfEntryExists, recordMonitor );
+                            }
+                            catch ( Exception e )
+                            {
+                                recordMonitor.reportError( e );
+                            }
+                        } );
+                    }
+
+                    inFlight.add( new PendingRecord( record, key, recordMonitor, future ) );
+                }
+                else if ( inFlight.isEmpty() )
+                {
+                    logWriter.write( container.toRawString() );
+
+                    if ( checkpoint != null )
+                    {
+                        checkpoint.acknowledge( container );
+                    }
+                }
+                else
+                {
+                    inFlight.add( new PendingRecord( container ) );
+                }
+            }
+
+            while ( !inFlight.isEmpty() )
+            {
+                if ( !completeOldest( browserConnection, inFlight, freeMonitors, logWriter, continueOnError,
+                    counter, checkpoint, monitor ) )
+                {
+                    completeAborted( browserConnection, inFlight, freeMonitors, logWriter, counter, checkpoint,
+                        monitor );
+                    return false;
+                }
+            }
+
+            if ( monitor.isCanceled() )
+            {
+                return false;
+            }
+
+            if ( counter.errorCount > 0 )
+            {
+                monitor.reportError( BrowserCoreMessages.bind( BrowserCoreMessages.ldif__n_errors_see_logfile,
+                    new String[]
+                        { "" + counter.errorCount } ) ); //$NON-NLS-1$
+            }
+        }
+        catch ( Exception e )
+        {
+            monitor.reportError( e );
+            return false;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Waits for the oldest in-flight record, then logs its result and updates the cache.
+     * 
+     * @return false if the import must be aborted
+     */
+    private static boolean completeOldest( IBrowserConnection browserConnection, Deque<PendingRecord> inFlight,
+        Deque<StudioProgressMonitor> freeMonitors, Writer logWriter, boolean continueOnError,
+        ImportCounter counter, ImportLdifCheckpoint checkpoint, StudioProgressMonitor monitor ) throws Exception
+    {
+        PendingRecord pending = inFlight.poll();
+
+        if ( pending.future == null )
+        {
+            logWriter.write( pending.container.toRawString() );
+
+            if ( checkpoint != null )
+            {
+                checkpoint.acknowledge( pending.container );
+            }
+
+            return true;
+        }
+
+        pending.future.get();
+        freeMonitors.push( pending.monitor );
+        LdifRecord record = ( LdifRecord ) pending.container;
+
+        try
+        {
+            if ( pending.monitor.errorsReported() )
+            {
+                counter.errorCount++;
+
+                if ( pending.key != null
+                    && ( record instanceof LdifChangeAddRecord || record instanceof LdifContentRecord ) )
+                {
+                    counter.failedAdds.add( pending.key );
+                }
+
+                logModificationError( browserConnection, logWriter, record, pending.monitor.getException(),
+                    monitor );
+
+                if ( !continueOnError )
+                {
+                    monitor.reportError( pending.monitor.getException() );
+                    return false;
+                }
+            }
+            else
+            {
+                counter.importedCount++;
+                logModification( browserConnection, logWriter, record, monitor );
+
+                updateCache( browserConnection, record );
+            }
+        }
+        catch ( Exception e )
+        {
+            logModificationError( browserConnection, logWriter, record, e, monitor );
+            counter.errorCount++;
+
+            if ( !continueOnError )
+            {
+                monitor.reportError( e );
+                return false;
+            }
+        }
+
+        monitor.reportProgress( BrowserCoreMessages.bind(
+            BrowserCoreMessages.ldif__imported_n_entries_m_errors, new String[]
+                { "" + counter.importedCount, "" + counter.errorCount } ) ); //$NON-NLS-1$ //$NON-NLS-2$
+
+        if ( checkpoint != null )
+        {
+            checkpoint.acknowledge( record );
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Waits for the records still in flight after the import was aborted. They were already
+     * sent, so each result is logged, counted and applied to the cache in order, as if the
+     * import continued on error.
+     */
+    private static void completeAborted( IBrowserConnection browserConnection, Deque<PendingRecord> inFlight,
+        Deque<StudioProgressMonitor> freeMonitors, Writer logWriter, ImportCounter counter,
+        ImportLdifCheckpoint checkpoint, StudioProgressMonitor monitor ) throws Exception
+    {
+        while ( !inFlight.isEmpty() )
+        {
+            completeOldest( browserConnection, inFlight, freeMonitors, logWriter, true, counter, checkpoint,
+                monitor );
+        }
+    }
+
+
+    /**
+     * Gets the key used to track dependencies between records: the schema normalized
+     * Rdns of the record's Dn, starting with the Rdn next to the root.
+     * 
+     * @param record the LDIF record
+     * @param schema the schema used to normalize the Dn
+     * @return the record's key, or null if the record must be executed as a barrier
+     */
+    static List<String> getDependencyKey( LdifRecord record, Schema schema )
+    {
+        if ( record instanceof LdifChangeModDnRecord || !record.isValid() )
+        {
+            return null;
+        }
+
+        try
+        {
+            Dn dn = new Dn( record.getDnLine().getValueAsString() );
+            List<String> key = new ArrayList<>( dn.size() );
+
+            for ( Rdn rdn : dn )
+            {
+                key.add( Utils.getNormalizedOidString( rdn, schema ) );
+            }
+
+            Collections.reverse( key );
+
+            return key;
+        }
+        catch ( LdapInvalidDnException e )
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     * Checks if a record with the given key must wait for one of the in-flight records.
+     * 
+     * @param key the record's key, null for a barrier
+     * @param inFlight the in-flight records
+     * @return true if the record depends on an in-flight record
+     */
+    private static boolean dependsOn( List<String> key, Deque<PendingRecord> inFlight )
+    {
+        for ( PendingRecord pending : inFlight )
+        {
+            if ( pending.future == null )
+            {
+                continue;
+            }
+
+            if ( key == null || pending.key == null || isAncestorOrSelf( key, pending.key )
+                || isAncestorOrSelf( pending.key, key ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Checks if one of the ancestors of the entry with the given key could not be added.
+     * 
+     * @param key the record's key, null for a barrier
+     * @param failedAdds the keys of the entries whose add failed
+     * @return true if an ancestor is missing
+     */
+    static boolean hasFailedAncestor( List<String> key, Set<List<String>> failedAdds )
+    {
+        if ( key == null || failedAdds.isEmpty() )
+        {
+            return false;
+        }
+
+        for ( int i = 1; i < key.size(); i++ )
+        {
+            if ( failedAdds.contains( key.subList( 0, i ) ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Checks if the first key denotes the same entry as the second key or one of its ancestors.
+     */
+    static boolean isAncestorOrSelf( List<String> ancestor, List<String> key )
+    {
+        return ancestor.size() <= key.size() && key.subList( 0, ancestor.size() ).equals( ancestor );
+    }
+
+    /**
+     * An LDIF container waiting to be logged in order, with the pending operation if it is a record.
+     */
+    private static class PendingRecord
+    {
+        private final LdifContainer container;
+        private final List<String> key;
+        private final StudioProgressMonitor monitor;
+        private final Future<?> future;
+
+
+        private PendingRecord( LdifContainer container )
+        {
+            this( container, null, null, null );
+        }
+
+
+        private PendingRecord( LdifContainer container, List<String> key, StudioProgressMonitor monitor,
+            Future<?> future )
+        {
+            this.container = container;
+            this.key = key;
+            this.monitor = monitor;
+            this.future = future;
+        }
+    }
+
+    /**
+     * Counts imported and failed records and remembers the entries that could not be added.
+     */
+    private static class ImportCounter
+    {
+        private int importedCount;
+        private int errorCount;
+        private final Set<List<String>> failedAdds = new HashSet<>();
+    }
+
+
+    /**
+     * Updates the cache and adjusts the attribute/children initialization flags
+     * after the given record was imported successfully.
+     * 
+     * @param browserConnection the browser connection
+     * @param record the imported LDIF record
+     * @throws LdapInvalidDnException if the record's Dn is invalid
+     */
+    private static void updateCache( IBrowserConnection browserConnection, LdifRecord record )
+        throws LdapInvalidDnException
+    {
+        Dn dn = new Dn( record.getDnLine().getValueAsString() );
+        IEntry entry = browserConnection.getEntryFromCache( dn );
+        Dn parentDn = dn.getParent();
+        IEntry parentEntry = null;
+        while ( parentEntry == null && parentDn != null )
+        {
+            parentEntry = browserConnection.getEntryFromCache( parentDn );
+            parentDn = parentDn.getParent();
+        }
+
+        if ( record instanceof LdifChangeDeleteRecord )
+        {
+            if ( entry != null )
+            {
+                entry.setAttributesInitialized( false );
+                browserConnection.uncacheEntryRecursive( entry );
+            }
+            if ( parentEntry != null )
+            {
+                parentEntry.setChildrenInitialized( false );
+            }
+        }
+        else if ( record instanceof LdifChangeModDnRecord )
+        {
+            if ( entry != null )
+            {
+                entry.setAttributesInitialized( false );
+                browserConnection.uncacheEntryRecursive( entry );
+            }
+            if ( parentEntry != null )
+            {
+                parentEntry.setChildrenInitialized( false );
+            }
+            LdifChangeModDnRecord modDnRecord = ( LdifChangeModDnRecord ) record;
+            if ( modDnRecord.getNewsuperiorLine() != null )
+            {
+                Dn newSuperiorDn = new Dn( modDnRecord.getNewsuperiorLine()
+                    .getValueAsString() );
+                IEntry newSuperiorEntry = browserConnection.getEntryFromCache( newSuperiorDn );
+                if ( newSuperiorEntry != null )
+                {
+                    newSuperiorEntry.setChildrenInitialized( false );
+                }
+            }
+        }
+        else if ( record instanceof LdifChangeAddRecord || record instanceof LdifContentRecord )
+        {
+            if ( entry != null )
+            {
+                entry.setAttributesInitialized( false );
+            }
+            if ( parentEntry != null )
+            {
+                parentEntry.setChildrenInitialized( false );
+                parentEntry.setHasChildrenHint( true );
+            }
+        }
+        else
+        {
+            if ( entry != null )
+            {
+                entry.setAttributesInitialized( false );
+            }
         }
     }
 
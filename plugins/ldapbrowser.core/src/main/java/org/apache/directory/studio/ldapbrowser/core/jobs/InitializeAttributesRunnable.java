@@ -22,9 +22,15 @@ package org.apache.directory.studio.ldapbrowser.core.jobs;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 import org.apache.directory.api.ldap.model.constants.SchemaConstants;
 import org.apache.directory.api.ldap.model.message.SearchScope;
@@ -44,6 +50,7 @@ import org.apache.directory.studio.ldapbrowser.core.model.IRootDSE;
 import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
 import org.apache.directory.studio.ldapbrowser.core.model.impl.Search;
 import org.apache.directory.studio.ldapbrowser.core.model.schema.SchemaUtils;
+import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
 
 
 /**
@@ -53,6 +60,10 @@ import org.apache.directory.studio.ldapbrowser.core.model.schema.SchemaUtils;
  */
 public class InitializeAttributesRunnable implements StudioConnectionBulkRunnableWithProgress
 {
+    /** The loads currently running, keyed by browser connection and normalized Dn of the entry. */
+    private static final ConcurrentMap<List<Object>, AttributesLoad> RUNNING_LOADS =
+        new ConcurrentHashMap<List<Object>, AttributesLoad>();
+
     /** The entries. */
     private IEntry[] entries;
 
@@ -184,7 +195,7 @@ public class InitializeAttributesRunnable implements StudioConnectionBulkRunnabl
      * @param entry the entry
      * @param monitor the progress monitor
      */
-    public static synchronized void initializeAttributes( IEntry entry, StudioProgressMonitor monitor )
+    public static void initializeAttributes( IEntry entry, StudioProgressMonitor monitor )
     {
         // get user attributes or both user and operational attributes
         String[] returningAttributes = null;
@@ -221,15 +232,28 @@ public class InitializeAttributesRunnable implements StudioConnectionBulkRunnabl
 
 
     /**
-     * Initializes the attributes.
+     * Initializes the attributes. Loads of different entries run in parallel, loads
+     * of the same entry are serialized. If the same attributes of the entry are
+     * already being loaded the result of that load is used instead of searching again.
      * 
      * @param entry the entry
      * @param attributes the returning attributes
      * @param clearAllAttributes true to clear all old attributes before searching
      * @param monitor the progress monitor
      */
-    public static synchronized void initializeAttributes( IEntry entry, String[] attributes,
-        boolean clearAllAttributes, StudioProgressMonitor monitor )
+    public static void initializeAttributes( IEntry entry, String[] attributes, boolean clearAllAttributes,
+        StudioProgressMonitor monitor )
+    {
+        List<Object> key = Arrays.<Object> asList( entry.getBrowserConnection(),
+            Utils.getNormalizedOidString( entry.getDn(), entry.getBrowserConnection().getSchema() ) );
+        AttributesLoad load = new AttributesLoad( attributes, clearAllAttributes );
+        load.run( key, () -> doInitializeAttributes( entry, attributes, clearAllAttributes, monitor ),
+            entry::isAttributesInitialized, monitor );
+    }
+
+
+    private static void doInitializeAttributes( IEntry entry, String[] attributes, boolean clearAllAttributes,
+        StudioProgressMonitor monitor )
     {
         monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__init_entries_progress_att,
             new String[]
@@ -287,4 +311,112 @@ public class InitializeAttributesRunnable implements StudioConnectionBulkRunnabl
             entry.setAttributesInitialized( true );
         }
     }
+
+
+    /**
+     * A running load of the attributes of an entry.
+     */
+    static class AttributesLoad
+    {
+        /** The returning attributes. */
+        private final String[] attributes;
+
+        /** The clear all attributes flag. */
+        private final boolean clearAllAttributes;
+
+        /** Released when the load is finished. */
+        private final CountDownLatch done = new CountDownLatch( 1 );
+
+
+        AttributesLoad( String[] attributes, boolean clearAllAttributes )
+        {
+            this.attributes = attributes;
+            this.clearAllAttributes = clearAllAttributes;
+        }
+
+
+        /**
+         * Runs the loader once no other load of the same entry is running. If a load of the
+         * same attributes finished meanwhile and the entry is initialized the loader isn't run.
+         * 
+         * @param key the key of the entry
+         * @param loader the loader
+         * @param initialized checks if the attributes of the entry are initialized
+         * @param monitor the progress monitor
+         */
+        void run( List<Object> key, Runnable loader, BooleanSupplier initialized, StudioProgressMonitor monitor )
+        {
+            while ( !monitor.isCanceled() )
+            {
+                AttributesLoad runningLoad = RUNNING_LOADS.putIfAbsent( key, this );
+
+                if ( runningLoad == null )
+                {
+                    try
+                    {
+                        loader.run();
+                    }
+                    finally
+                    {
+                        RUNNING_LOADS.remove( key, this );
+                        done.countDown();
+                    }
+
+                    return;
+                }
+
+                if ( !runningLoad.await( monitor ) )
+                {
+                    return;
+                }
+
+                if ( runningLoad.isSameAs( this ) && initialized.getAsBoolean() )
+                {
+                    return;
+                }
+            }
+        }
+
+
+        /**
+         * Checks if the other load requests the same attributes.
+         * 
+         * @param other the other load
+         * 
+         * @return true, if the other load requests the same attributes
+         */
+        private boolean isSameAs( AttributesLoad other )
+        {
+            return clearAllAttributes == other.clearAllAttributes && Arrays.equals( attributes, other.attributes );
+        }
+
+
+        /**
+         * Waits until the load is finished.
+         * 
+         * @param monitor the progress monitor of the waiting job
+         * 
+         * @return true if the load is finished, false if the waiting job was canceled or interrupted
+         */
+        private boolean await( StudioProgressMonitor monitor )
+        {
+            try
+            {
+                while ( !done.await( 100, TimeUnit.MILLISECONDS ) )
+                {
+                    if ( monitor.isCanceled() )
+                    {
+                        return false;
+                    }
+                }
+
+                return true;
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
 }
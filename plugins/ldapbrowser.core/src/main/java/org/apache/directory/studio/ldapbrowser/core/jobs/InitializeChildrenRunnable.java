@@ -23,9 +23,17 @@ package org.apache.directory.studio.ldapbrowser.core.jobs;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.ArrayUtils;
+import org.apache.directory.api.ldap.extras.controls.vlv.VirtualListViewRequest;
+import org.apache.directory.api.ldap.extras.controls.vlv.VirtualListViewResponse;
 import org.apache.directory.api.ldap.model.message.Control;
 import org.apache.directory.api.ldap.model.message.SearchScope;
 import org.apache.directory.api.ldap.model.message.controls.PagedResults;
@@ -38,6 +46,7 @@ import org.apache.directory.studio.connection.core.jobs.StudioConnectionBulkRunn
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCorePlugin;
+import org.apache.directory.studio.ldapbrowser.core.events.ChildrenAddedEvent;
 import org.apache.directory.studio.ldapbrowser.core.events.ChildrenInitializedEvent;
 import org.apache.directory.studio.ldapbrowser.core.events.EventRegistry;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
@@ -57,6 +66,16 @@ import org.apache.directory.studio.ldapbrowser.core.model.impl.SearchContinuatio
  */
 public class InitializeChildrenRunnable implements StudioConnectionBulkRunnableWithProgress
 {
+    /** The interval in milliseconds after which the fetched children are shown while more pages are fetched */
+    private static final long PUBLISH_INTERVAL = 250L;
+
+    /** Fetches the subentries, aliases and referrals concurrently with the search for the children */
+    private static final ExecutorService SUB_SEARCHES = Executors.newCachedThreadPool( r -> {
+        Thread thread = new Thread( r, "InitializeChildrenRunnable" ); //$NON-NLS-1$
+        thread.setDaemon( true );
+        return thread;
+    } );
+
     /** The entries. */
     private IEntry[] entries;
 
@@ -66,6 +85,15 @@ public class InitializeChildrenRunnable implements StudioConnectionBulkRunnableW
     /** The paged search control, only used internally. */
     private PagedResults pagedSearchControl;
 
+    /** The virtual list view control, only used internally. */
+    private VirtualListViewRequest virtualListViewControl;
+
+    /** The entries whose children were shown while more pages were fetched. */
+    private Set<IEntry> publishedEntries = new HashSet<IEntry>();
+
+    /** The time the fetched children were shown the last time. */
+    private long publishedTimestamp;
+
     /**
      * Creates a new instance of InitializeChildrenRunnable.
      * 
@@ -93,6 +121,20 @@ public class InitializeChildrenRunnable implements StudioConnectionBulkRunnableW
     }
 
 
+    /**
+     * Creates a new instance of InitializeChildrenRunnable.
+     * 
+     * @param entry the entry
+     * @param virtualListViewControl the virtual list view control
+     */
+    private InitializeChildrenRunnable( IEntry entry, VirtualListViewRequest virtualListViewControl )
+    {
+        this.entries = new IEntry[]
+            { entry };
+        this.virtualListViewControl = virtualListViewControl;
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -161,12 +203,22 @@ public class InitializeChildrenRunnable implements StudioConnectionBulkRunnableW
                     continue;
                 }
 
-                if ( pagedSearchControl == null && browserConnection.isPagedSearch() )
+                if ( pagedSearchControl == null && virtualListViewControl == null && browserConnection.isPagedSearch() )
                 {
-                    pagedSearchControl = Controls.newPagedResultsControl( browserConnection.getPagedSearchSize() );
+                    if ( browserConnection.isPagedSearchScrollMode()
+                        && VirtualListView.isSupported( browserConnection ) )
+                    {
+                        // fetch the pages sorted by the server, addressed by their offset
+                        virtualListViewControl = VirtualListView.newFirstPageControl( browserConnection
+                            .getPagedSearchSize() );
+                    }
+                    else
+                    {
+                        pagedSearchControl = Controls.newPagedResultsControl( browserConnection.getPagedSearchSize() );
+                    }
                 }
 
-                initializeChildren( entry, monitor, pagedSearchControl );
+                initializeChildren( entry, monitor, pagedSearchControl, virtualListViewControl );
             }
         }
     }
@@ -181,7 +233,9 @@ public class InitializeChildrenRunnable implements StudioConnectionBulkRunnableW
         {
             if ( entry.getBrowserConnection() != null && entry.isChildrenInitialized() )
             {
-                EventRegistry.fireEntryUpdated( new ChildrenInitializedEvent( entry ), this );
+                // the children shown while fetching are still valid, the tree must not be collapsed
+                EventRegistry.fireEntryUpdated( publishedEntries.contains( entry ) ? new ChildrenAddedEvent( entry )
+                    : new ChildrenInitializedEvent( entry ), this );
             }
         }
     }
@@ -193,8 +247,10 @@ public class InitializeChildrenRunnable implements StudioConnectionBulkRunnableW
      * @param parent the parent
      * @param monitor the progress monitor
      * @param pagedSearchControl the paged search control
+     * @param virtualListViewControl the virtual list view control
      */
-    private void initializeChildren( IEntry parent, StudioProgressMonitor monitor, PagedResults pagedSearchControl )
+    private void initializeChildren( IEntry parent, StudioProgressMonitor monitor, PagedResults pagedSearchControl,
+        VirtualListViewRequest virtualListViewControl )
     {
         monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__init_entries_progress_sub,
             new String[]
@@ -202,9 +258,30 @@ public class InitializeChildrenRunnable implements StudioConnectionBulkRunnableW
 
         // clear old children
         clearCaches( parent, purgeAllCaches );
+        publishedEntries.remove( parent );
 
-        // create search
-        ISearch search = createSearch( parent, pagedSearchControl, false, false, false );
+        // create searches
+        ISearch search = createSearch( parent, pagedSearchControl, virtualListViewControl, false, false, false );
+        ISearch subSearch = createSearch( parent, null, null, true, false, false );
+        ISearch aliasOrReferralSearch = createSearch( parent, null, null, false, parent.isFetchAliases(), parent
+            .isFetchReferrals() );
+
+        // the subentries control can't be combined with the search for the children,
+        // so the sub-searches are sent concurrently instead of one after the other,
+        // the monitors are not thread-safe, errors are reported when the sub-searches are joined
+        StudioProgressMonitor subSearchMonitor = new StudioProgressMonitor( monitor );
+        Future<FetchedSearchResults> subSearchFuture = null;
+        if ( parent.getBrowserConnection().isFetchSubentries() || parent.isFetchSubentries() )
+        {
+            subSearchFuture = fetchConcurrently( parent, subSearch, subSearchMonitor );
+        }
+        StudioProgressMonitor aliasOrReferralSearchMonitor = new StudioProgressMonitor( monitor );
+        Future<FetchedSearchResults> aliasOrReferralSearchFuture = null;
+        if ( isAliasOrReferralSearchRequired( parent, search ) )
+        {
+            aliasOrReferralSearchFuture = fetchConcurrently( parent, aliasOrReferralSearch,
+                aliasOrReferralSearchMonitor );
+        }
 
         // search
         executeSearch( parent, search, monitor );
@@ -258,7 +335,30 @@ public class InitializeChildrenRunnable implements StudioConnectionBulkRunnableW
                     }
                 }
 
-                if ( prRequestControl != null && prResponseControl != null )
+                VirtualListViewRequest vlvRequestControl = VirtualListView.getRequestControl( search.getControls() );
+                VirtualListViewResponse vlvResponseControl = VirtualListView.getResponseControl( search
+                    .getResponseControls() );
+
+                if ( vlvRequestControl != null && vlvResponseControl != null )
+                {
+                    if ( vlvRequestControl.getOffset() > 1 )
+                    {
+                        // create top page search runnable, same as original search
+                        InitializeChildrenRunnable topPageChildrenRunnable = new InitializeChildrenRunnable(
+                            parent, ( VirtualListViewRequest ) null );
+                        parent.setTopPageChildrenRunnable( topPageChildrenRunnable );
+                    }
+
+                    VirtualListViewRequest nextVlvc = VirtualListView.newNextPageControl( vlvRequestControl,
+                        vlvResponseControl );
+                    if ( nextVlvc != null )
+                    {
+                        InitializeChildrenRunnable nextPageChildrenRunnable = new InitializeChildrenRunnable(
+                            parent, nextVlvc );
+                        parent.setNextPageChildrenRunnable( nextPageChildrenRunnable );
+                    }
+                }
+                else if ( prRequestControl != null && prResponseControl != null )
                 {
                     if ( search.isPagedSearchScrollMode() )
                     {
@@ -266,7 +366,7 @@ public class InitializeChildrenRunnable implements StudioConnectionBulkRunnableW
                         {
                             // create top page search runnable, same as original search
                             InitializeChildrenRunnable topPageChildrenRunnable = new InitializeChildrenRunnable(
-                                parent, null );
+                                parent, ( PagedResults ) null );
                             parent.setTopPageChildrenRunnable( topPageChildrenRunnable );
                         }
 
@@ -286,6 +386,8 @@ public class InitializeChildrenRunnable implements StudioConnectionBulkRunnableW
                             && ( search.getCountLimit() == 0 || search.getSearchResults().length < search
                                 .getCountLimit() ) )
                         {
+                            // show the children fetched so far while the next page is fetched
+                            publishChildren( parent );
 
                             search.setSearchResults( new ISearchResult[0] );
                             search.getResponseControls().clear();
@@ -306,18 +408,16 @@ public class InitializeChildrenRunnable implements StudioConnectionBulkRunnableW
         }
 
         // get sub-entries
-        ISearch subSearch = createSearch( parent, null, true, false, false );
-        if ( parent.getBrowserConnection().isFetchSubentries() || parent.isFetchSubentries() )
+        if ( subSearchFuture != null )
         {
-            executeSubSearch( parent, subSearch, monitor );
+            joinSubSearch( parent, subSearch, subSearchFuture, subSearchMonitor, monitor );
         }
 
         // get aliases and referrals
-        ISearch aliasOrReferralSearch = createSearch( parent, null, false, parent.isFetchAliases(), parent
-            .isFetchReferrals() );
-        if ( parent.isFetchAliases() || parent.isFetchReferrals() )
+        if ( aliasOrReferralSearchFuture != null )
         {
-            executeSubSearch( parent, aliasOrReferralSearch, monitor );
+            joinSubSearch( parent, aliasOrReferralSearch, aliasOrReferralSearchFuture,
+                aliasOrReferralSearchMonitor, monitor );
         }
 
         // check exceeded limits / canceled
@@ -329,9 +429,120 @@ public class InitializeChildrenRunnable implements StudioConnectionBulkRunnableW
     }
 
 
-    private void executeSubSearch( IEntry parent, ISearch subSearch, StudioProgressMonitor monitor )
+    /**
+     * Shows the children fetched so far. The runnable runs with suspended event firing, 
+     * so the children of a large container would otherwise only be shown after all pages 
+     * were fetched. The first page is shown immediately, further pages periodically.
+     * 
+     * @param parent the parent
+     */
+    private void publishChildren( IEntry parent )
     {
-        executeSearch( parent, subSearch, monitor );
+        long now = System.currentTimeMillis();
+        boolean first = !publishedEntries.contains( parent );
+        if ( !first && now - publishedTimestamp < PUBLISH_INTERVAL )
+        {
+            return;
+        }
+        publishedEntries.add( parent );
+        publishedTimestamp = now;
+
+        parent.setHasMoreChildren( true );
+        EventRegistry.runWithEventFiring( () -> {
+            if ( first )
+            {
+                parent.setChildrenInitialized( true );
+            }
+            else
+            {
+                EventRegistry.fireEntryUpdated( new ChildrenAddedEvent( parent ), this );
+            }
+        } );
+    }
+
+
+    /**
+     * Checks if aliases and referrals must be searched separately. This is not required if 
+     * the search for the children already returns them as entries: aliases are returned 
+     * if they are not dereferenced while searching, referrals if the ManageDsaIT control 
+     * is sent. Both are only returned if the children are not filtered.
+     * 
+     * @param parent the parent
+     * @param search the search for the children
+     * 
+     * @return true if aliases and referrals must be searched separately
+     */
+    private static boolean isAliasOrReferralSearchRequired( IEntry parent, ISearch search )
+    {
+        if ( !parent.isFetchAliases() && !parent.isFetchReferrals() )
+        {
+            return false;
+        }
+        if ( !ISearch.FILTER_TRUE.equals( search.getFilter() ) )
+        {
+            return true;
+        }
+
+        boolean aliasesReturned = search.getAliasesDereferencingMethod() == AliasDereferencingMethod.NEVER
+            || search.getAliasesDereferencingMethod() == AliasDereferencingMethod.FINDING;
+        boolean referralsReturned = search.getControls().contains( Controls.MANAGEDSAIT_CONTROL );
+        return ( parent.isFetchAliases() && !aliasesReturned ) || ( parent.isFetchReferrals() && !referralsReturned );
+    }
+
+
+    /**
+     * Fetches the search results of the given sub-search in another thread. The other 
+     * thread doesn't update the browser model, in particular it doesn't touch the parent.
+     * 
+     * @param parent the parent
+     * @param subSearch the sub-search
+     * @param subMonitor the progress monitor of the sub-search, only used by the other thread
+     * 
+     * @return the future of the fetched search results
+     */
+    private static Future<FetchedSearchResults> fetchConcurrently( IEntry parent, ISearch subSearch,
+        StudioProgressMonitor subMonitor )
+    {
+        IBrowserConnection browserConnection = parent.getBrowserConnection();
+        return SUB_SEARCHES.submit( () -> FetchedSearchResults.fetch( browserConnection, subSearch, subMonitor ) );
+    }
+
+
+    /**
+     * Waits for the given sub-search, then updates the browser model with its search results 
+     * and adds them to the children, in the calling thread.
+     * 
+     * @param parent the parent
+     * @param subSearch the sub-search
+     * @param future the future of the fetched search results
+     * @param subMonitor the progress monitor of the sub-search
+     * @param monitor the progress monitor
+     */
+    private static void joinSubSearch( IEntry parent, ISearch subSearch, Future<FetchedSearchResults> future,
+        StudioProgressMonitor subMonitor, StudioProgressMonitor monitor )
+    {
+        try
+        {
+            FetchedSearchResults fetchedResults = future.get();
+            if ( subMonitor.errorsReported() )
+            {
+                monitor.reportError( subMonitor.getException() );
+                return;
+            }
+            SearchRunnable.updateModel( parent.getBrowserConnection(), subSearch, fetchedResults, monitor );
+            reportProgress( parent, subSearch, monitor );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        catch ( ExecutionException e )
+        {
+            monitor.reportError( e.getCause() instanceof Exception ? ( Exception ) e.getCause() : e );
+            return;
+        }
+
         ISearchResult[] subSrs = subSearch.getSearchResults();
         SearchContinuation[] subScs = subSearch.getSearchContinuations();
 
@@ -356,6 +567,12 @@ public class InitializeChildrenRunnable implements StudioConnectionBulkRunnableW
     private static void executeSearch( IEntry parent, ISearch search, StudioProgressMonitor monitor )
     {
         SearchRunnable.searchAndUpdateModel( parent.getBrowserConnection(), search, monitor );
+        reportProgress( parent, search, monitor );
+    }
+
+
+    private static void reportProgress( IEntry parent, ISearch search, StudioProgressMonitor monitor )
+    {
         ISearchResult[] srs = search.getSearchResults();
         monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__init_entries_progress_subcount,
             new String[]
@@ -363,8 +580,9 @@ public class InitializeChildrenRunnable implements StudioConnectionBulkRunnableW
     }
 
 
-    private static ISearch createSearch( IEntry parent, PagedResults pagedSearchControl, boolean isSubentriesSearch,
-        boolean isAliasSearch, boolean isReferralsSearch )
+    private static ISearch createSearch( IEntry parent, PagedResults pagedSearchControl,
+        VirtualListViewRequest virtualListViewControl, boolean isSubentriesSearch, boolean isAliasSearch,
+        boolean isReferralsSearch )
     {
         // scope
         SearchScope scope = SearchScope.ONELEVEL;
@@ -421,6 +639,11 @@ public class InitializeChildrenRunnable implements StudioConnectionBulkRunnableW
         {
             search.getSearchParameter().getControls().add( pagedSearchControl );
         }
+        if ( virtualListViewControl != null )
+        {
+            VirtualListView.addControls( parent.getBrowserConnection(), search.getSearchParameter().getControls(),
+                virtualListViewControl );
+        }
 
         return search;
     }
@@ -0,0 +1,336 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.apache.directory.api.util.Strings;
+import org.apache.directory.studio.ldapbrowser.core.model.AttributeDescription;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.SchemaUtils;
+import org.apache.directory.studio.ldifparser.LdifFormatParameters;
+import org.apache.directory.studio.ldifparser.LdifUtils;
+
+
+/**
+ * Writes LDAP API entries as LDIF content records directly to a writer, without building
+ * intermediate LDIF or browser model objects.
+ * 
+ * The output is the same as formatting a record whose values are sorted with the default
+ * AttributeComparator: objectClass and must attributes first, operational attributes last,
+ * then by attribute description and value, ignoring case. The attribute order only depends
+ * on the object classes and the attribute descriptions of an entry, so it is computed once
+ * per distinct attribute set and reused for all entries with the same set.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class LdifExportWriter
+{
+    /** The maximum number of cached attribute orders */
+    private static final int MAX_CACHED_ORDERS = 1000;
+
+    /** Orders empty values last, other values by their string representation ignoring case */
+    private static final Comparator<String> VALUE_COMPARATOR = ( s1, s2 ) -> {
+        if ( s1.isEmpty() || s2.isEmpty() )
+        {
+            return Boolean.compare( s1.isEmpty(), s2.isEmpty() );
+        }
+
+        return s1.compareToIgnoreCase( s2 );
+    };
+
+    private final Writer writer;
+    private final Schema schema;
+    private final boolean spaceAfterColon;
+    private final int lineWidth;
+    private final String lineSeparator;
+
+    /** The attribute orders, keyed by the object classes and attribute descriptions of an entry */
+    private final Map<String, int[]> attributeOrders = new HashMap<>();
+
+    /** Reused line buffers */
+    private final StringBuilder line = new StringBuilder();
+    private char[] chars = new char[256];
+    private final StringBuilder keyBuilder = new StringBuilder();
+
+
+    /**
+     * Creates a new instance of LdifExportWriter.
+     *
+     * @param writer the writer, should be buffered
+     * @param schema the schema used to detect must and operational attributes
+     * @param ldifFormatParameters the LDIF format parameters
+     */
+    LdifExportWriter( Writer writer, Schema schema, LdifFormatParameters ldifFormatParameters )
+    {
+        this.writer = writer;
+        this.schema = schema;
+        this.spaceAfterColon = ldifFormatParameters.isSpaceAfterColon();
+        this.lineWidth = ldifFormatParameters.getLineWidth();
+        this.lineSeparator = ldifFormatParameters.getLineSeparator();
+    }
+
+
+    /**
+     * Writes the given entry as LDIF content record, followed by an empty line.
+     *
+     * @param entry the entry
+     * @throws IOException if writing fails
+     */
+    void write( Entry entry ) throws IOException
+    {
+        String dn = entry.getDn().getName();
+
+        if ( LdifUtils.mustEncode( dn ) )
+        {
+            writeLine( "dn", "::", LdifUtils.base64encode( LdifUtils.utf8encode( dn ) ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        else
+        {
+            writeLine( "dn", ":", dn ); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        Attribute[] attributes = entry.getAttributes().toArray( new Attribute[entry.size()] );
+
+        for ( int index : getAttributeOrder( entry, attributes ) )
+        {
+            writeAttribute( attributes[index] );
+        }
+
+        writer.write( lineSeparator );
+    }
+
+
+    private void writeAttribute( Attribute attribute ) throws IOException
+    {
+        String name = attribute.getUpId();
+        int size = attribute.size();
+
+        if ( size == 1 )
+        {
+            writeValue( name, attribute.get() );
+            return;
+        }
+
+        Value[] values = new Value[size];
+        String[] sortKeys = new String[size];
+        Integer[] indexes = new Integer[size];
+        int i = 0;
+
+        for ( Value value : attribute )
+        {
+            values[i] = value;
+            sortKeys[i] = value.isHumanReadable() ? value.getString() : Strings.utf8ToString( value.getBytes() );
+            indexes[i] = i;
+            i++;
+        }
+
+        Arrays.sort( indexes, ( i1, i2 ) -> VALUE_COMPARATOR.compare( sortKeys[i1], sortKeys[i2] ) );
+
+        for ( Integer index : indexes )
+        {
+            writeValue( name, values[index] );
+        }
+    }
+
+
+    private void writeValue( String name, Value value ) throws IOException
+    {
+        if ( value.isHumanReadable() )
+        {
+            String string = value.getString();
+
+            if ( LdifUtils.mustEncode( string ) )
+            {
+                writeLine( name, "::", LdifUtils.base64encode( LdifUtils.utf8encode( string ) ) ); //$NON-NLS-1$
+            }
+            else
+            {
+                writeLine( name, ":", string ); //$NON-NLS-1$
+            }
+        }
+        else
+        {
+            writeLine( name, "::", LdifUtils.base64encode( value.getBytes() ) ); //$NON-NLS-1$
+        }
+    }
+
+
+    /**
+     * Writes a single line, folded at the configured line width.
+     */
+    private void writeLine( String name, String separator, String value ) throws IOException
+    {
+        line.setLength( 0 );
+        line.append( name ).append( separator );
+
+        if ( spaceAfterColon )
+        {
+            line.append( ' ' );
+        }
+
+        line.append( value );
+
+        int length = line.length();
+
+        if ( chars.length < length )
+        {
+            chars = new char[Math.max( length, chars.length * 2 )];
+        }
+
+        line.getChars( 0, length, chars, 0 );
+
+        int start = 0;
+        int chunk = lineWidth;
+
+        while ( start + chunk < length )
+        {
+            writer.write( chars, start, chunk );
+            writer.write( lineSeparator );
+            writer.write( ' ' );
+            start += chunk;
+            chunk = lineWidth - 1;
+        }
+
+        writer.write( chars, start, length - start );
+        writer.write( lineSeparator );
+    }
+
+
+    /**
+     * Gets the order in which the attributes of the entry are written.
+     *
+     * @return the attribute indexes in output order
+     */
+    private int[] getAttributeOrder( Entry entry, Attribute[] attributes )
+    {
+        keyBuilder.setLength( 0 );
+        Attribute objectClass = entry.get( SchemaConstants.OBJECT_CLASS_AT );
+
+        if ( objectClass != null )
+        {
+            for ( Value value : objectClass )
+            {
+                keyBuilder.append( value.getString() ).append( ',' );
+            }
+        }
+
+        for ( Attribute attribute : attributes )
+        {
+            keyBuilder.append( '\u0000' ).append( attribute.getUpId() );
+        }
+
+        String key = keyBuilder.toString();
+        int[] order = attributeOrders.get( key );
+
+        if ( order == null )
+        {
+            order = computeAttributeOrder( objectClass, attributes );
+
+            if ( attributeOrders.size() >= MAX_CACHED_ORDERS )
+            {
+                attributeOrders.clear();
+            }
+
+            attributeOrders.put( key, order );
+        }
+
+        return order;
+    }
+
+
+    private int[] computeAttributeOrder( Attribute objectClass, Attribute[] attributes )
+    {
+        Set<AttributeType> mustAtds = new HashSet<>();
+
+        if ( objectClass != null )
+        {
+            for ( Value value : objectClass )
+            {
+                ObjectClass ocd = schema.getObjectClassDescription( value.getString() );
+
+                if ( ocd != null )
+                {
+                    for ( String must : SchemaUtils.getMustAttributeTypeDescriptionNamesTransitive( ocd, schema ) )
+                    {
+                        mustAtds.add( schema.getAttributeTypeDescription( must ) );
+                    }
+                }
+            }
+        }
+
+        // rank: 0 = objectClass, 1 = must, 2 = other, 3 = operational
+        int[] ranks = new int[attributes.length];
+        List<Integer> indexes = new ArrayList<>( attributes.length );
+
+        for ( int i = 0; i < attributes.length; i++ )
+        {
+            String description = attributes[i].getUpId();
+            AttributeType atd = schema.getAttributeTypeDescription( new AttributeDescription( description )
+                .getParsedAttributeType() );
+
+            if ( SchemaConstants.OBJECT_CLASS_AT.equalsIgnoreCase( description ) )
+            {
+                ranks[i] = 0;
+            }
+            else if ( mustAtds.contains( atd ) )
+            {
+                ranks[i] = 1;
+            }
+            else if ( atd == null || SchemaUtils.isOperational( atd ) )
+            {
+                ranks[i] = 3;
+            }
+            else
+            {
+                ranks[i] = 2;
+            }
+
+            indexes.add( i );
+        }
+
+        indexes.sort( ( i1, i2 ) -> {
+            if ( ranks[i1] != ranks[i2] )
+            {
+                return Integer.compare( ranks[i1], ranks[i2] );
+            }
+
+            return attributes[i1].getUpId().compareToIgnoreCase( attributes[i2].getUpId() );
+        } );
+
+        return indexes.stream().mapToInt( Integer::intValue ).toArray();
+    }
+}
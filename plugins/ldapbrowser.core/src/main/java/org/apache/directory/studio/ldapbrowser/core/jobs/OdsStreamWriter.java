@@ -0,0 +1,158 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+
+/**
+ * Writes an OpenDocument spreadsheet (ODS). All sheets are tables of the single
+ * content.xml, the cells that wrap text share one automatic cell style.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class OdsStreamWriter extends SpreadsheetStreamWriter
+{
+    /** The maximum number of rows of a sheet, as supported by current office suites */
+    private static final int MAX_ROWS_PER_SHEET = 1048576;
+
+    /** The maximum number of characters of a cell, the XLSX limit so the sheet can be opened by all office suites */
+    private static final int MAX_CELL_LENGTH = 32767;
+
+    private static final String MIMETYPE = "application/vnd.oasis.opendocument.spreadsheet"; //$NON-NLS-1$
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"; //$NON-NLS-1$
+
+
+    /**
+     * Creates a new instance of OdsStreamWriter.
+     *
+     * @param filename the ODS filename
+     * @param exportDn the export dn flag
+     */
+    OdsStreamWriter( String filename, boolean exportDn )
+    {
+        super( filename, MAX_ROWS_PER_SHEET, MAX_CELL_LENGTH, exportDn );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void writeRow( Writer writer, int rowNumber, String[] cells, boolean[] wrapped, int columnCount )
+        throws IOException
+    {
+        writer.write( "<table:table-row>" ); //$NON-NLS-1$
+
+        for ( int i = 0; i < columnCount; i++ )
+        {
+            if ( cells[i] == null )
+            {
+                writer.write( "<table:table-cell/>" ); //$NON-NLS-1$
+            }
+            else
+            {
+                writer.write( wrapped[i] ? "<table:table-cell table:style-name=\"ce1\" office:value-type=\"string\"><text:p>" //$NON-NLS-1$
+                    : "<table:table-cell office:value-type=\"string\"><text:p>" ); //$NON-NLS-1$
+
+                // line breaks within a paragraph must be elements
+                String[] lines = cells[i].split( "\n", -1 ); //$NON-NLS-1$
+                for ( int j = 0; j < lines.length; j++ )
+                {
+                    if ( j > 0 )
+                    {
+                        writer.write( "<text:line-break/>" ); //$NON-NLS-1$
+                    }
+                    writeEscaped( writer, lines[j] );
+                }
+
+                writer.write( "</text:p></table:table-cell>" ); //$NON-NLS-1$
+            }
+        }
+
+        writer.write( "</table:table-row>\n" ); //$NON-NLS-1$
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void writePackage( ZipOutputStream zip, List<Sheet> sheets ) throws IOException
+    {
+        // the mimetype must be the first entry and must not be compressed
+        byte[] mimetype = MIMETYPE.getBytes( StandardCharsets.US_ASCII );
+        CRC32 crc = new CRC32();
+        crc.update( mimetype );
+        ZipEntry mimetypeEntry = new ZipEntry( "mimetype" ); //$NON-NLS-1$
+        mimetypeEntry.setMethod( ZipEntry.STORED );
+        mimetypeEntry.setSize( mimetype.length );
+        mimetypeEntry.setCompressedSize( mimetype.length );
+        mimetypeEntry.setCrc( crc.getValue() );
+        zip.putNextEntry( mimetypeEntry );
+        zip.write( mimetype );
+
+        Writer writer = putEntry( zip, "META-INF/manifest.xml" ); //$NON-NLS-1$
+        writer.write( XML_DECLARATION );
+        writer.write( "<manifest:manifest xmlns:manifest=\"urn:oasis:names:tc:opendocument:xmlns:manifest:1.0\" manifest:version=\"1.2\">" ); //$NON-NLS-1$
+        writer.write( "<manifest:file-entry manifest:full-path=\"/\" manifest:version=\"1.2\" manifest:media-type=\"" //$NON-NLS-1$
+            + MIMETYPE + "\"/>" ); //$NON-NLS-1$
+        writer.write( "<manifest:file-entry manifest:full-path=\"content.xml\" manifest:media-type=\"text/xml\"/>" ); //$NON-NLS-1$
+        writer.write( "</manifest:manifest>" ); //$NON-NLS-1$
+        writer.flush();
+
+        writer = putEntry( zip, "content.xml" ); //$NON-NLS-1$
+        writer.write( XML_DECLARATION );
+        writer.write( "<office:document-content" //$NON-NLS-1$
+            + " xmlns:office=\"urn:oasis:names:tc:opendocument:xmlns:office:1.0\"" //$NON-NLS-1$
+            + " xmlns:style=\"urn:oasis:names:tc:opendocument:xmlns:style:1.0\"" //$NON-NLS-1$
+            + " xmlns:text=\"urn:oasis:names:tc:opendocument:xmlns:text:1.0\"" //$NON-NLS-1$
+            + " xmlns:table=\"urn:oasis:names:tc:opendocument:xmlns:table:1.0\"" //$NON-NLS-1$
+            + " xmlns:fo=\"urn:oasis:names:tc:opendocument:xmlns:xsl-fo-compatible:1.0\"" //$NON-NLS-1$
+            + " office:version=\"1.2\">" ); //$NON-NLS-1$
+        writer.write( "<office:automatic-styles>" ); //$NON-NLS-1$
+        writer.write( "<style:style style:name=\"ce1\" style:family=\"table-cell\">" ); //$NON-NLS-1$
+        writer.write( "<style:table-cell-properties fo:wrap-option=\"wrap\"/></style:style>" ); //$NON-NLS-1$
+        writer.write( "</office:automatic-styles>" ); //$NON-NLS-1$
+        writer.write( "<office:body><office:spreadsheet>\n" ); //$NON-NLS-1$
+
+        for ( Sheet sheet : sheets )
+        {
+            writer.write( "<table:table table:name=\"" ); //$NON-NLS-1$
+            writeEscaped( writer, sheet.name );
+            writer.write( "\">" ); //$NON-NLS-1$
+            if ( sheet.header.length > 0 )
+            {
+                writer.write( "<table:table-column table:number-columns-repeated=\"" + sheet.header.length + "\"/>" ); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            writer.write( "\n" ); //$NON-NLS-1$
+            writeRows( writer, sheet );
+            writer.write( "</table:table>\n" ); //$NON-NLS-1$
+        }
+
+        writer.write( "</office:spreadsheet></office:body></office:document-content>" ); //$NON-NLS-1$
+        writer.flush();
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.Control;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
+import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
+import org.apache.directory.studio.connection.core.Controls;
+import org.apache.directory.studio.connection.core.io.api.StudioSearchResult;
+import org.apache.directory.studio.connection.core.io.api.StudioSearchResultEnumeration;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
+import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
+
+
+/**
+ * Reads all pages of a transparently paged search in a background thread. The 
+ * request for the next page is sent as soon as the cookie of the current page 
+ * arrives, while the caller is still building the model from the search results
+ * of the current page. The number of search results read ahead is bounded.
+ * 
+ * The response controls are the ones of the last page read, the paged results 
+ * cookie is only set if reading stopped because the count limit was reached.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class PagedSearchReadAhead extends StudioSearchResultEnumeration
+{
+    /** The number of pages that are read ahead at most. */
+    private static final int READ_AHEAD_PAGES = 2;
+
+    /** The poll interval of the reader and the consumer, to notice cancellation. */
+    private static final long POLL_INTERVAL = 100L;
+
+    /** Marks the end of the search results. */
+    private static final Object END = new Object();
+
+    /**
+     * Searches a single page.
+     */
+    interface PageSearcher
+    {
+        /**
+         * Searches the page requested by the paged results control of the search parameter.
+         * 
+         * @param pageParameter the search parameter of the page
+         * @param monitor the progress monitor
+         * @return the enumeration of the search results of the page, null if the search failed
+         */
+        StudioSearchResultEnumeration search( SearchParameter pageParameter, StudioProgressMonitor monitor );
+    }
+
+    /** Searches the pages. */
+    private final PageSearcher pageSearcher;
+
+    /** The search parameter of the first page. */
+    private final SearchParameter searchParameter;
+
+    /** The progress monitor of the caller. */
+    private final StudioProgressMonitor monitor;
+
+    /** The progress monitor of the reader. */
+    private final StudioProgressMonitor readerMonitor;
+
+    /** The search results read ahead, followed by an LdapException if any, and END. */
+    private final BlockingQueue<Object> queue;
+
+    /** Set when the caller stopped consuming the search results. */
+    private volatile boolean stopped;
+
+    /** The response controls of the last page read. */
+    private volatile Collection<Control> responseControls = Collections.emptyList();
+
+    /** The current element of the queue, null if not yet taken. */
+    private Object current;
+
+
+    /**
+     * Checks if the search should be read ahead. That is the case if the search 
+     * uses the paged results control and all pages are fetched at once.
+     * 
+     * @param search the search
+     * @param searchParameter the search parameter
+     * @return true if the search should be read ahead
+     */
+    static boolean isApplicable( ISearch search, SearchParameter searchParameter )
+    {
+        return !search.isPagedSearchScrollMode() && getPagedResultsControl( searchParameter.getControls() ) != null;
+    }
+
+
+    /**
+     * Starts to read the pages of the search.
+     * 
+     * @param browserConnection the browser connection
+     * @param searchParameter the search parameter, with the paged results control of the first page
+     * @param monitor the progress monitor
+     * @return the enumeration of the search results of all pages
+     */
+    static PagedSearchReadAhead start( IBrowserConnection browserConnection, SearchParameter searchParameter,
+        StudioProgressMonitor monitor )
+    {
+        return start( browserConnection, searchParameter, monitor,
+            ( pageParameter, pageMonitor ) -> SearchRunnable.search( browserConnection, pageParameter, pageMonitor ) );
+    }
+
+
+    /**
+     * Starts to read the pages of the search.
+     * 
+     * @param browserConnection the browser connection
+     * @param searchParameter the search parameter, with the paged results control of the first page
+     * @param monitor the progress monitor
+     * @param pageSearcher searches the pages
+     * @return the enumeration of the search results of all pages
+     */
+    static PagedSearchReadAhead start( IBrowserConnection browserConnection, SearchParameter searchParameter,
+        StudioProgressMonitor monitor, PageSearcher pageSearcher )
+    {
+        PagedSearchReadAhead readAhead = new PagedSearchReadAhead( browserConnection, searchParameter, monitor,
+            pageSearcher );
+        Thread reader = new Thread( readAhead::read, "Paged search read-ahead" ); //$NON-NLS-1$
+        reader.setDaemon( true );
+        reader.start();
+        return readAhead;
+    }
+
+
+    private PagedSearchReadAhead( IBrowserConnection browserConnection, SearchParameter searchParameter,
+        StudioProgressMonitor monitor, PageSearcher pageSearcher )
+    {
+        super( browserConnection.getConnection(), null, searchParameter.getSearchBase().getName(), searchParameter
+            .getFilter(), null, searchParameter.getAliasesDereferencingMethod(), searchParameter
+            .getReferralsHandlingMethod(), null, 0, monitor, null );
+        this.pageSearcher = pageSearcher;
+        this.searchParameter = searchParameter;
+        this.monitor = monitor;
+        this.readerMonitor = new StudioProgressMonitor( monitor );
+
+        int pageSize = Math.max( getPagedResultsControl( searchParameter.getControls() ).getSize(), 1 );
+        this.queue = new ArrayBlockingQueue<Object>( READ_AHEAD_PAGES * pageSize );
+    }
+
+
+    /**
+     * Reads the pages, runs in the reader thread.
+     */
+    private void read()
+    {
+        PagedResults requestControl = getPagedResultsControl( searchParameter.getControls() );
+        byte[] cookie = requestControl.getCookie();
+        int countLimit = searchParameter.getCountLimit();
+        int count = 0;
+
+        try
+        {
+            while ( !stopped && !readerMonitor.isCanceled() )
+            {
+                SearchParameter pageParameter = ( SearchParameter ) searchParameter.clone();
+                List<Control> controls = pageParameter.getControls();
+                PagedResults pageControl = Controls.newPagedResultsControl( requestControl.getSize(), cookie );
+                pageControl.setCritical( requestControl.isCritical() );
+                controls.set( controls.indexOf( requestControl ), pageControl );
+
+                StudioSearchResultEnumeration enumeration = pageSearcher.search( pageParameter, readerMonitor );
+                if ( enumeration == null )
+                {
+                    return;
+                }
+
+                try
+                {
+                    while ( enumeration.hasMore() )
+                    {
+                        if ( !put( enumeration.next() ) )
+                        {
+                            return;
+                        }
+                        count++;
+                    }
+                }
+                finally
+                {
+                    SearchRunnable.closeQuietly( enumeration );
+                }
+
+                responseControls = enumeration.getResponseControls();
+                PagedResults responseControl = getPagedResultsControl( responseControls );
+                cookie = responseControl != null ? responseControl.getCookie() : null;
+
+                if ( ArrayUtils.isEmpty( cookie ) || ( countLimit > 0 && count >= countLimit ) )
+                {
+                    return;
+                }
+            }
+        }
+        catch ( LdapException e )
+        {
+            put( e );
+        }
+        finally
+        {
+            put( END );
+        }
+    }
+
+
+    /**
+     * Puts an element into the queue, waits while the queue is full.
+     * 
+     * @param element the element
+     * @return false if the caller stopped consuming the search results
+     */
+    private boolean put( Object element )
+    {
+        try
+        {
+            while ( !stopped )
+            {
+                if ( queue.offer( element, POLL_INTERVAL, TimeUnit.MILLISECONDS ) )
+                {
+                    return true;
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Stops reading ahead, must be called when the caller stops consuming the search results.
+     */
+    void stop()
+    {
+        stopped = true;
+        queue.clear();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws LdapException
+    {
+        stop();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasMore() throws LdapException
+    {
+        try
+        {
+            while ( current == null )
+            {
+                if ( monitor.isCanceled() )
+                {
+                    return false;
+                }
+                current = queue.poll( POLL_INTERVAL, TimeUnit.MILLISECONDS );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        if ( current instanceof LdapException )
+        {
+            LdapException exception = ( LdapException ) current;
+            current = END;
+            throw exception;
+        }
+        if ( current == END )
+        {
+            if ( readerMonitor.errorsReported() && !monitor.errorsReported() )
+            {
+                monitor.reportError( readerMonitor.getException() );
+            }
+            return false;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StudioSearchResult next() throws LdapException
+    {
+        if ( !hasMore() )
+        {
+            return null;
+        }
+
+        StudioSearchResult searchResult = ( StudioSearchResult ) current;
+        current = null;
+        return searchResult;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Control> getResponseControls()
+    {
+        return responseControls;
+    }
+
+
+    private static PagedResults getPagedResultsControl( Collection<Control> controls )
+    {
+        if ( controls != null )
+        {
+            for ( Control control : controls )
+            {
+                if ( control instanceof PagedResults )
+                {
+                    return ( PagedResults ) control;
+                }
+            }
+        }
+
+        return null;
+    }
+}
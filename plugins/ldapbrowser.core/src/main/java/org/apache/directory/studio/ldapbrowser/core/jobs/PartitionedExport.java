@@ -0,0 +1,358 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.Control;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
+import org.apache.directory.studio.connection.core.Controls;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
+import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
+import org.apache.directory.studio.ldapbrowser.core.utils.JNDIUtils;
+
+
+/**
+ * Splits a subtree export into the search base entry and the subtrees of the children of the search base.
+ * The children are grouped in DN order into one bucket per worker. The buckets are exported concurrently
+ * into temporary segment files, one per bucket, which are appended to the target writer in order once
+ * all segments are complete.
+ * 
+ * The concurrent searches run over the connection pool of the browser connection, so the
+ * number of workers should not exceed the maximum pool size of the connection.
+ * 
+ * If the listing of the children is incomplete, e.g. because of a size limit of the
+ * server, the export falls back to a single search.
+ * 
+ * Only the LDIF and CSV exports are partitioned. A DSML response contains a single search
+ * response with a single result, so the DSML export is still executed as one search.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class PartitionedExport
+{
+    /**
+     * Exports the result of a search to a writer.
+     */
+    interface SegmentExporter
+    {
+        /**
+         * Exports the result of the given search.
+         *
+         * @param searchParameter the search parameter
+         * @param writer the writer
+         * @param monitor the progress monitor
+         * @throws IOException if writing fails
+         */
+        void export( SearchParameter searchParameter, BufferedWriter writer, StudioProgressMonitor monitor )
+            throws IOException;
+    }
+
+    /**
+     * Lists the children of the search base.
+     */
+    interface ChildrenSearcher
+    {
+        /**
+         * Searches the children of the search base.
+         *
+         * @param childrenParameter the one level search parameter
+         * @param monitor the progress monitor
+         * @return the enumeration of the children
+         */
+        ExportLdifRunnable.DefaultLdifEnumeration search( SearchParameter childrenParameter,
+            StudioProgressMonitor monitor );
+    }
+
+
+    private PartitionedExport()
+    {
+    }
+
+
+    /**
+     * Checks whether an export of the given search can be partitioned.
+     * Only unlimited subtree searches are partitioned, a count limit applies to
+     * the whole result and can't be distributed over the segments.
+     *
+     * @param searchParameter the search parameter
+     * @param workers the number of workers
+     * @return true if the export should be partitioned
+     */
+    static boolean isPartitionable( SearchParameter searchParameter, int workers )
+    {
+        return workers > 1 && searchParameter.getScope() == SearchScope.SUBTREE
+            && searchParameter.getCountLimit() == 0;
+    }
+
+
+    /**
+     * Exports the given subtree search partitioned by the children of the search base.
+     * Within a bucket the child subtrees are exported one after the other.
+     *
+     * @param browserConnection the browser connection
+     * @param searchParameter the subtree search parameter
+     * @param workers the number of concurrent segment exports
+     * @param writer the target writer
+     * @param charset the charset of the temporary segment files
+     * @param exporter the exporter writing a single segment
+     * @param monitor the progress monitor
+     * @throws IOException if writing fails
+     */
+    static void export( IBrowserConnection browserConnection, SearchParameter searchParameter, int workers,
+        BufferedWriter writer, Charset charset, SegmentExporter exporter, StudioProgressMonitor monitor )
+        throws IOException
+    {
+        export( searchParameter, workers, writer, charset, exporter,
+            ( childrenParameter, childrenMonitor ) -> ExportLdifRunnable.search( browserConnection,
+                childrenParameter, childrenMonitor ),
+            monitor );
+    }
+
+
+    /**
+     * Exports the given subtree search partitioned by the children listed by the given searcher.
+     */
+    static void export( SearchParameter searchParameter, int workers, BufferedWriter writer, Charset charset,
+        SegmentExporter exporter, ChildrenSearcher childrenSearcher, StudioProgressMonitor monitor )
+        throws IOException
+    {
+        List<Dn> children = getChildren( searchParameter, childrenSearcher, monitor );
+        if ( monitor.isCanceled() || monitor.errorsReported() )
+        {
+            return;
+        }
+
+        if ( children == null )
+        {
+            // the children are incomplete, a partitioned export would silently miss subtrees
+            exporter.export( searchParameter, writer, monitor );
+            return;
+        }
+
+        // the search base itself
+        SearchParameter baseParameter = copy( searchParameter, searchParameter.getSearchBase(), SearchScope.OBJECT );
+        exporter.export( baseParameter, writer, monitor );
+
+        if ( monitor.isCanceled() || monitor.errorsReported() || children.isEmpty() )
+        {
+            return;
+        }
+
+        List<List<Dn>> buckets = getBuckets( children, workers );
+        ExecutorService executor = Executors.newFixedThreadPool( buckets.size() );
+        List<Path> segmentFiles = new ArrayList<>( buckets.size() );
+        List<Future<StudioProgressMonitor>> segments = new ArrayList<>( buckets.size() );
+
+        try
+        {
+            for ( List<Dn> bucket : buckets )
+            {
+                Path segmentFile = Files.createTempFile( "export", ".segment" ); //$NON-NLS-1$ //$NON-NLS-2$
+                segmentFiles.add( segmentFile );
+
+                segments.add( executor.submit( () -> {
+                    StudioProgressMonitor segmentMonitor = new StudioProgressMonitor( monitor );
+
+                    try ( BufferedWriter segmentWriter = Files.newBufferedWriter( segmentFile, charset ) )
+                    {
+                        for ( Dn child : bucket )
+                        {
+                            if ( monitor.isCanceled() || segmentMonitor.errorsReported() )
+                            {
+                                break;
+                            }
+
+                            exporter.export( copy( searchParameter, child, SearchScope.SUBTREE ), segmentWriter,
+                                segmentMonitor );
+                        }
+                    }
+                    catch ( IOException e )
+                    {
+                        segmentMonitor.reportError( e );
+                    }
+
+                    return segmentMonitor;
+                } ) );
+            }
+
+            // concatenate the segments in order
+            char[] buffer = new char[8192];
+            for ( int i = 0; i < segments.size(); i++ )
+            {
+                StudioProgressMonitor segmentMonitor = segments.get( i ).get();
+
+                if ( monitor.isCanceled() )
+                {
+                    return;
+                }
+
+                if ( segmentMonitor.errorsReported() )
+                {
+                    monitor.reportError( segmentMonitor.getException() );
+                    return;
+                }
+
+                try ( BufferedReader segmentReader = Files.newBufferedReader( segmentFiles.get( i ), charset ) )
+                {
+                    int length;
+                    while ( ( length = segmentReader.read( buffer ) ) != -1 )
+                    {
+                        writer.write( buffer, 0, length );
+                    }
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            monitor.reportError( e );
+        }
+        catch ( ExecutionException e )
+        {
+            monitor.reportError( e );
+        }
+        finally
+        {
+            executor.shutdownNow();
+
+            for ( Path segmentFile : segmentFiles )
+            {
+                Files.deleteIfExists( segmentFile );
+            }
+        }
+    }
+
+
+    /**
+     * Splits the sorted children into at most the given number of consecutive buckets
+     * of about the same size, so the concatenated buckets keep the order of the children.
+     */
+    static <T> List<List<T>> getBuckets( List<T> children, int workers )
+    {
+        int bucketCount = Math.max( 1, Math.min( workers, children.size() ) );
+        List<List<T>> buckets = new ArrayList<>( bucketCount );
+
+        for ( int i = 0; i < bucketCount; i++ )
+        {
+            int from = ( int ) ( ( long ) children.size() * i / bucketCount );
+            int to = ( int ) ( ( long ) children.size() * ( i + 1 ) / bucketCount );
+            buckets.add( children.subList( from, to ) );
+        }
+
+        return buckets;
+    }
+
+
+    /**
+     * Gets the DNs of the children of the search base, sorted by DN.
+     * 
+     * @return the children, null if the listing was truncated by a size, time or administrative limit
+     */
+    private static List<Dn> getChildren( SearchParameter searchParameter, ChildrenSearcher childrenSearcher,
+        StudioProgressMonitor monitor )
+    {
+        SearchParameter childrenParameter = copy( searchParameter, searchParameter.getSearchBase(),
+            SearchScope.ONELEVEL );
+        childrenParameter.setFilter( ISearch.FILTER_TRUE );
+        childrenParameter.setReturningAttributes( new String[]
+            { SchemaConstants.NO_ATTRIBUTE } );
+
+        List<Dn> children = new ArrayList<>();
+
+        try ( ExportLdifRunnable.DefaultLdifEnumeration enumeration = childrenSearcher.search( childrenParameter,
+            monitor ) )
+        {
+            while ( !monitor.isCanceled() && !monitor.errorsReported() && enumeration.hasNext() )
+            {
+                Entry entry = enumeration.nextEntry();
+                children.add( entry.getDn() );
+            }
+
+            ResultCodeEnum resultCode = enumeration.getResultCode();
+            if ( resultCode == ResultCodeEnum.TIME_LIMIT_EXCEEDED || resultCode == ResultCodeEnum.SIZE_LIMIT_EXCEEDED
+                || resultCode == ResultCodeEnum.ADMIN_LIMIT_EXCEEDED )
+            {
+                return null;
+            }
+        }
+        catch ( LdapException e )
+        {
+            int ldapStatusCode = JNDIUtils.getLdapStatusCode( e );
+            if ( ldapStatusCode == 3 || ldapStatusCode == 4 || ldapStatusCode == 11 )
+            {
+                return null;
+            }
+
+            monitor.reportError( e );
+        }
+
+        children.sort( ( dn1, dn2 ) -> dn1.getName().compareToIgnoreCase( dn2.getName() ) );
+
+        return children;
+    }
+
+
+    /**
+     * Copies the search parameter with another search base and scope. Paged results
+     * controls carry the cookie of a single search, so each copy gets its own control.
+     */
+    private static SearchParameter copy( SearchParameter searchParameter, Dn searchBase, SearchScope scope )
+    {
+        SearchParameter copy = ( SearchParameter ) searchParameter.clone();
+        copy.setSearchBase( searchBase );
+        copy.setScope( scope );
+        copy.getResponseControls().clear();
+
+        List<Control> controls = copy.getControls();
+        for ( int i = 0; i < controls.size(); i++ )
+        {
+            if ( controls.get( i ) instanceof PagedResults )
+            {
+                PagedResults pagedResults = ( PagedResults ) controls.get( i );
+                PagedResults segmentPagedResults = Controls.newPagedResultsControl( pagedResults.getSize() );
+                segmentPagedResults.setCritical( pagedResults.isCritical() );
+                controls.set( i, segmentPagedResults );
+            }
+        }
+
+        return copy;
+    }
+}
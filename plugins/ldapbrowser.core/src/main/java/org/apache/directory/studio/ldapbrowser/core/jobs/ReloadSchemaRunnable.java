@@ -35,7 +35,6 @@ import org.apache.directory.studio.ldapbrowser.core.events.EventRegistry;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
 import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
-import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
 import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
 
 
@@ -168,17 +167,20 @@ public class ReloadSchemaRunnable implements StudioConnectionBulkRunnableWithPro
                         SchemaConstants.MATCHING_RULE_USE_AT, SchemaConstants.CREATE_TIMESTAMP_AT,
                         SchemaConstants.MODIFY_TIMESTAMP_AT } );
 
-                LdifEnumeration le = ExportLdifRunnable.search( browserConnection, sp, monitor );
-                if ( le.hasNext() )
+                try ( ExportLdifRunnable.DefaultLdifEnumeration le = ExportLdifRunnable.search( browserConnection, sp,
+                    monitor ) )
                 {
-                    LdifContentRecord schemaRecord = ( LdifContentRecord ) le.next();
-                    schema = new Schema();
-                    schema.loadFromRecord( schemaRecord );
-                    browserConnection.setSchema( schema );
-                }
-                else
-                {
-                    monitor.reportError( BrowserCoreMessages.model__no_schema_information );
+                    if ( le.hasNext() )
+                    {
+                        LdifContentRecord schemaRecord = ( LdifContentRecord ) le.next();
+                        schema = new Schema();
+                        schema.loadFromRecord( schemaRecord );
+                        browserConnection.setSchema( schema );
+                    }
+                    else
+                    {
+                        monitor.reportError( BrowserCoreMessages.model__no_schema_information );
+                    }
                 }
             }
             catch ( Exception e )
@@ -201,6 +203,7 @@ public class ReloadSchemaRunnable implements StudioConnectionBulkRunnableWithPro
     {
         Schema schema = browserConnection.getSchema();
 
+        StudioSearchResultEnumeration enumeration = null;
         try
         {
             SearchParameter sp = new SearchParameter();
@@ -209,7 +212,7 @@ public class ReloadSchemaRunnable implements StudioConnectionBulkRunnableWithPro
             sp.setScope( SearchScope.OBJECT );
             sp.setReturningAttributes( new String[]
                 { SchemaConstants.CREATE_TIMESTAMP_AT, SchemaConstants.MODIFY_TIMESTAMP_AT } );
-            StudioSearchResultEnumeration enumeration = SearchRunnable.search( browserConnection, sp, monitor );
+            enumeration = SearchRunnable.search( browserConnection, sp, monitor );
             while ( enumeration != null && enumeration.hasMore() )
             {
                 String createTimestamp = null;
@@ -240,6 +243,10 @@ public class ReloadSchemaRunnable implements StudioConnectionBulkRunnableWithPro
             monitor.reportError( BrowserCoreMessages.model__error_loading_schema, e );
             e.printStackTrace();
         }
+        finally
+        {
+            SearchRunnable.closeQuietly( enumeration );
+        }
 
         return false;
     }
@@ -247,6 +254,7 @@ public class ReloadSchemaRunnable implements StudioConnectionBulkRunnableWithPro
 
     private static Dn getSchemaLocation( IBrowserConnection browserConnection, StudioProgressMonitor monitor )
     {
+        StudioSearchResultEnumeration enumeration = null;
         try
         {
             SearchParameter sp = new SearchParameter();
@@ -254,7 +262,7 @@ public class ReloadSchemaRunnable implements StudioConnectionBulkRunnableWithPro
             sp.setScope( SearchScope.OBJECT );
             sp.setReturningAttributes( new String[]
                 { SchemaConstants.SUBSCHEMA_SUBENTRY_AT } );
-            StudioSearchResultEnumeration enumeration = SearchRunnable.search( browserConnection, sp, monitor );
+            enumeration = SearchRunnable.search( browserConnection, sp, monitor );
             while ( enumeration != null && enumeration.hasMore() )
             {
                 Entry entry = enumeration.next().getEntry();
@@ -274,6 +282,10 @@ public class ReloadSchemaRunnable implements StudioConnectionBulkRunnableWithPro
             monitor.reportError( BrowserCoreMessages.model__error_loading_schema, e );
             return null;
         }
+        finally
+        {
+            SearchRunnable.closeQuietly( enumeration );
+        }
 
         return null;
     }
@@ -32,6 +32,8 @@ import java.util.Set;
 import javax.naming.directory.SearchControls;
 
 import org.apache.commons.lang3.ArrayUtils;
+import org.apache.directory.api.ldap.extras.controls.vlv.VirtualListViewRequest;
+import org.apache.directory.api.ldap.extras.controls.vlv.VirtualListViewResponse;
 import org.apache.directory.api.ldap.model.constants.SchemaConstants;
 import org.apache.directory.api.ldap.model.entry.Attribute;
 import org.apache.directory.api.ldap.model.exception.LdapException;
@@ -77,6 +79,12 @@ import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
  */
 public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
 {
+    /** The number of search results after which the received results are published while the search is running */
+    private static final int PUBLISH_CHUNK_SIZE = 500;
+
+    /** The interval in milliseconds after which the received results are published while the search is running */
+    private static final long PUBLISH_INTERVAL = 250L;
+
     /** The searches. */
     protected ISearch[] searches;
 
@@ -184,15 +192,26 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
                 searchToPerform.setTopPageSearchRunnable( null );
                 searchToPerform.getResponseControls().clear();
 
+                if ( search.isPagedSearchScrollMode() && VirtualListView.isSupported( search.getBrowserConnection() )
+                    && VirtualListView.getRequestControl( searchToPerform.getControls() ) == null )
+                {
+                    // fetch the pages sorted by the server, addressed by their offset
+                    ISearch vlvSearch = VirtualListView.toVirtualListViewSearch( searchToPerform );
+                    if ( vlvSearch != null )
+                    {
+                        searchToPerform = vlvSearch;
+                    }
+                }
+
                 do
                 {
-                    // perform search
-                    searchAndUpdateModel( searchToPerform.getBrowserConnection(), searchToPerform, monitor );
+                    // perform search, the results are published to the search while they are received
+                    ISearchResult[] sr1 = search.getSearchResults();
+                    searchAndUpdateModel( searchToPerform.getBrowserConnection(), searchToPerform, search, monitor );
 
                     if ( search != searchToPerform )
                     {
                         // merge search results
-                        ISearchResult[] sr1 = search.getSearchResults();
                         ISearchResult[] sr2 = searchToPerform.getSearchResults();
                         ISearchResult[] sr = new ISearchResult[sr1.length + sr2.length];
                         System.arraycopy( sr1, 0, sr, 0, sr1.length );
@@ -210,6 +229,9 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
                     clonedSearch.getResponseControls().clear();
                     PagedResults prResponseControl = null;
                     PagedResults prRequestControl = null;
+                    VirtualListViewResponse vlvResponseControl = VirtualListView.getResponseControl( searchToPerform
+                        .getResponseControls() );
+                    VirtualListViewRequest vlvRequestControl = null;
                     for ( org.apache.directory.api.ldap.model.message.Control responseControl : searchToPerform
                         .getResponseControls() )
                     {
@@ -226,11 +248,39 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
                             prRequestControl = ( PagedResults ) requestControl;
                             it.remove();
                         }
+                        else if ( requestControl instanceof VirtualListViewRequest )
+                        {
+                            vlvRequestControl = ( VirtualListViewRequest ) requestControl;
+                            it.remove();
+                        }
                     }
                     searchToPerform = null;
 
+                    // virtual list view, only used in scroll mode
+                    if ( vlvResponseControl != null && vlvRequestControl != null )
+                    {
+                        if ( vlvRequestControl.getOffset() > 1 )
+                        {
+                            // create top page search runnable, same as original search
+                            ISearch topPageSearch = ( ISearch ) search.clone();
+                            topPageSearch.getResponseControls().clear();
+                            SearchRunnable topPageSearchRunnable = new SearchRunnable( search, topPageSearch );
+                            search.setTopPageSearchRunnable( topPageSearchRunnable );
+                        }
+                        VirtualListViewRequest nextVlvc = VirtualListView.newNextPageControl( vlvRequestControl,
+                            vlvResponseControl );
+                        if ( nextVlvc != null )
+                        {
+                            // create next page search runnable
+                            ISearch nextPageSearch = ( ISearch ) clonedSearch.clone();
+                            nextPageSearch.getResponseControls().clear();
+                            nextPageSearch.getControls().add( nextVlvc );
+                            SearchRunnable nextPageSearchRunnable = new SearchRunnable( search, nextPageSearch );
+                            search.setNextPageSearchRunnable( nextPageSearchRunnable );
+                        }
+                    }
                     // paged search
-                    if ( prResponseControl != null && prRequestControl != null )
+                    else if ( prResponseControl != null && prRequestControl != null )
                     {
                         PagedResults nextPrc = Controls.newPagedResultsControl( prRequestControl.getSize(),
                             prResponseControl.getCookie() );
@@ -294,6 +344,46 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
      */
     public static void searchAndUpdateModel( IBrowserConnection browserConnection, ISearch search,
         StudioProgressMonitor monitor )
+    {
+        searchAndUpdateModel( browserConnection, search, null, monitor );
+    }
+
+
+    /**
+     * Searches the directory and updates the browser model. While the search is running
+     * the received search results are published in chunks to the given search, so that
+     * they are shown before the search is finished.
+     * 
+     * @param browserConnection the browser connection
+     * @param search the search
+     * @param publishSearch the search to publish the received search results to, may be null
+     * @param monitor the progress monitor
+     */
+    public static void searchAndUpdateModel( IBrowserConnection browserConnection, ISearch search,
+        ISearch publishSearch, StudioProgressMonitor monitor )
+    {
+        searchAndUpdateModel( browserConnection, search, publishSearch, null, monitor );
+    }
+
+
+    /**
+     * Updates the browser model with the search results that were fetched in advance, 
+     * e.g. in another thread, instead of searching the directory.
+     * 
+     * @param browserConnection the browser connection
+     * @param search the search
+     * @param fetchedResults the search results fetched for the search
+     * @param monitor the progress monitor
+     */
+    static void updateModel( IBrowserConnection browserConnection, ISearch search,
+        FetchedSearchResults fetchedResults, StudioProgressMonitor monitor )
+    {
+        searchAndUpdateModel( browserConnection, search, null, fetchedResults, monitor );
+    }
+
+
+    private static void searchAndUpdateModel( IBrowserConnection browserConnection, ISearch search,
+        ISearch publishSearch, FetchedSearchResults fetchedResults, StudioProgressMonitor monitor )
     {
         if ( browserConnection.getConnection() == null )
         {
@@ -309,11 +399,26 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
                 ArrayList<ISearchResult> searchResultList = new ArrayList<ISearchResult>();
                 ArrayList<SearchContinuation> searchContinuationList = new ArrayList<SearchContinuation>();
 
+                int publishedCount = 0;
+                long publishedTimestamp = System.currentTimeMillis();
+
                 StudioSearchResultEnumeration enumeration = null;
                 // search
                 try
                 {
-                    enumeration = search( browserConnection, searchParameter, monitor );
+                    if ( fetchedResults != null )
+                    {
+                        enumeration = fetchedResults;
+                    }
+                    else if ( PagedSearchReadAhead.isApplicable( search, searchParameter ) )
+                    {
+                        // fetch the following pages while the model is built
+                        enumeration = PagedSearchReadAhead.start( browserConnection, searchParameter, monitor );
+                    }
+                    else
+                    {
+                        enumeration = search( browserConnection, searchParameter, monitor );
+                    }
 
                     // iterate through the search result
                     while ( !monitor.isCanceled() && enumeration != null && enumeration.hasMore() )
@@ -365,6 +470,20 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
                             searchResultList
                                 .add( new org.apache.directory.studio.ldapbrowser.core.model.impl.SearchResult( entry,
                                     search ) );
+
+                            // publish the received search results in chunks
+                            if ( publishSearch != null )
+                            {
+                                long now = System.currentTimeMillis();
+                                if ( searchResultList.size() - publishedCount >= PUBLISH_CHUNK_SIZE
+                                    || now - publishedTimestamp >= PUBLISH_INTERVAL )
+                                {
+                                    publishSearchResults( publishSearch,
+                                        searchResultList.subList( publishedCount, searchResultList.size() ) );
+                                    publishedCount = searchResultList.size();
+                                    publishedTimestamp = now;
+                                }
+                            }
                         }
                         else
                         {
@@ -393,6 +512,12 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
                         monitor.reportError( e );
                     }
                 }
+                finally
+                {
+                    // release the connection and stop reading ahead and following referrals
+                    // if the search results were not consumed completely
+                    closeQuietly( enumeration );
+                }
 
                 // check for response controls
                 try
@@ -408,6 +533,12 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
                                 search.setCountLimitExceeded(
                                     ArrayUtils.isNotEmpty( ( ( PagedResults ) control ).getCookie() ) );
                             }
+                            else if ( control instanceof VirtualListViewResponse )
+                            {
+                                VirtualListViewResponse vlvControl = ( VirtualListViewResponse ) control;
+                                search.setCountLimitExceeded( vlvControl.getTargetPosition()
+                                    + searchResultList.size() - 1 < vlvControl.getContentCount() );
+                            }
                         }
                     }
                 }
@@ -438,6 +569,20 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
     }
 
 
+    /**
+     * Publishes the received search results to the given search. The search runnable
+     * runs with suspended event firing, but the results should be shown right now.
+     *
+     * @param search the search
+     * @param searchResults the received search results
+     */
+    private static void publishSearchResults( ISearch search, List<ISearchResult> searchResults )
+    {
+        ISearchResult[] chunk = searchResults.toArray( new ISearchResult[searchResults.size()] );
+        EventRegistry.runWithEventFiring( () -> search.addSearchResults( chunk ) );
+    }
+
+
     public static StudioSearchResultEnumeration search( IBrowserConnection browserConnection, SearchParameter parameter,
         StudioProgressMonitor monitor )
     {
@@ -492,7 +637,28 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
     }
 
 
-    private static SearchParameter getSearchParameter( ISearch search )
+    /**
+     * Closes the given enumeration and releases its connection, errors are ignored.
+     * 
+     * @param enumeration the enumeration, may be null
+     */
+    public static void closeQuietly( StudioSearchResultEnumeration enumeration )
+    {
+        if ( enumeration != null )
+        {
+            try
+            {
+                enumeration.close();
+            }
+            catch ( LdapException e )
+            {
+                // the connection is released anyway
+            }
+        }
+    }
+
+
+    static SearchParameter getSearchParameter( ISearch search )
     {
         SearchParameter searchParameter = ( SearchParameter ) search.getSearchParameter().clone();
 
@@ -649,12 +815,15 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
                         entry = new BaseDNEntry( aDn, browserConnection );
                         browserConnection.getRootDSE().addChild( entry );
                         browserConnection.cacheEntry( entry );
-                        enumeration.close();
                     }
                 }
                 catch ( LdapException e )
                 {
                 }
+                finally
+                {
+                    closeQuietly( enumeration );
+                }
             }
         }
 
@@ -0,0 +1,425 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.text.translate.CharSequenceTranslator;
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
+import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
+
+
+/**
+ * Base class for spreadsheet writers that stream rows to disk instead of building the
+ * document in memory.
+ * 
+ * The rows of the current sheet are written as XML to a temporary file. The columns are
+ * discovered while the rows are added, so the header row, column widths and sheet
+ * element are written when the sheet is complete, followed by the temporary rows. A new
+ * sheet is started when the current sheet reaches the maximum number of rows. Values
+ * longer than the maximum cell length of the format are truncated.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+abstract class SpreadsheetStreamWriter implements Closeable
+{
+    /** The postal address decoder. */
+    private static final CharSequenceTranslator DECODER = Utils.createPostalAddressDecoder( "\n" ); //$NON-NLS-1$
+
+    /** The name of the first sheet, following sheets get a number appended */
+    private static final String SHEET_NAME = "Export"; //$NON-NLS-1$
+
+    /** The spreadsheet file */
+    private final Path file;
+
+    /** The maximum number of rows per sheet, including the header row */
+    private final int maxRowsPerSheet;
+
+    /** The maximum number of characters of a cell */
+    private final int maxCellLength;
+
+    /** The export dn flag */
+    private final boolean exportDn;
+
+    /** The column indexes by column name, in order of appearance */
+    private final Map<String, Integer> columns = new LinkedHashMap<>();
+
+    /** The maximum value length of each column */
+    private int[] columnWidths = new int[16];
+
+    /** The cells and wrap flags of the current row */
+    private String[] cells = new String[16];
+    private boolean[] wrapped = new boolean[16];
+
+    /** The completed sheets */
+    private final List<Sheet> sheets = new ArrayList<>();
+
+    /** The current sheet, null if no row was written to it yet */
+    private Sheet sheet;
+
+
+    /**
+     * A sheet whose rows, except the header row, are stored in a temporary file.
+     */
+    protected static class Sheet
+    {
+        /** The sheet name */
+        protected final String name;
+
+        /** The temporary file with the row elements */
+        protected final Path rowsFile;
+
+        /** The writer of the temporary file, null when the sheet is complete */
+        private Writer rowsWriter;
+
+        /** The number of rows, including the header row */
+        protected int rowCount = 1;
+
+        /** The column names at completion of the sheet */
+        protected String[] header;
+
+        /** The column widths in characters at completion of the sheet */
+        protected int[] widths;
+
+
+        private Sheet( String name ) throws IOException
+        {
+            this.name = name;
+            this.rowsFile = Files.createTempFile( "export", ".rows" ); //$NON-NLS-1$ //$NON-NLS-2$
+            this.rowsWriter = Files.newBufferedWriter( rowsFile, StandardCharsets.UTF_8 );
+        }
+    }
+
+
+    /**
+     * Creates a new instance of SpreadsheetStreamWriter.
+     *
+     * @param filename the spreadsheet filename
+     * @param maxRowsPerSheet the maximum number of rows per sheet
+     * @param maxCellLength the maximum number of characters of a cell
+     * @param exportDn the export dn flag, the dn is the first column, even if no row is written
+     */
+    protected SpreadsheetStreamWriter( String filename, int maxRowsPerSheet, int maxCellLength, boolean exportDn )
+    {
+        this.file = Paths.get( filename );
+        this.maxRowsPerSheet = maxRowsPerSheet;
+        this.maxCellLength = maxCellLength;
+        this.exportDn = exportDn;
+
+        if ( exportDn )
+        {
+            getColumn( "dn" ); //$NON-NLS-1$
+        }
+    }
+
+
+    /**
+     * Gets the index of a column, adds the column if it does not exist yet.
+     *
+     * @param name the column name
+     * @return the column index
+     */
+    int getColumn( String name )
+    {
+        Integer column = columns.get( name );
+
+        if ( column == null )
+        {
+            column = columns.size();
+            columns.put( name, column );
+
+            if ( column >= cells.length )
+            {
+                int length = cells.length * 2;
+                cells = Arrays.copyOf( cells, length );
+                wrapped = Arrays.copyOf( wrapped, length );
+                columnWidths = Arrays.copyOf( columnWidths, length );
+            }
+
+            columnWidths[column] = Math.max( columnWidths[column], name.length() );
+        }
+
+        return column;
+    }
+
+
+    /**
+     * Sets a cell of the current row. A value longer than the maximum cell length
+     * is truncated, without splitting a surrogate pair.
+     *
+     * @param name the column name
+     * @param value the value
+     * @param wrap true if the cell should wrap its text
+     */
+    void setCell( String name, String value, boolean wrap )
+    {
+        if ( value.length() > maxCellLength )
+        {
+            int length = maxCellLength;
+            if ( Character.isHighSurrogate( value.charAt( length - 1 ) ) )
+            {
+                length--;
+            }
+            value = value.substring( 0, length );
+        }
+
+        int column = getColumn( name );
+        cells[column] = value;
+        wrapped[column] = wrap;
+        columnWidths[column] = Math.max( columnWidths[column], value.length() );
+    }
+
+
+    /**
+     * Writes an LDIF content record as row. Values of multi-valued attributes are
+     * joined with the value delimiter, postal addresses are split into lines.
+     *
+     * @param browserConnection the browser connection
+     * @param record the record
+     * @param valueDelimiter the value delimiter
+     * @param binaryEncoding the binary encoding
+     * @throws IOException if writing fails
+     */
+    void writeRecord( IBrowserConnection browserConnection, LdifContentRecord record, String valueDelimiter,
+        int binaryEncoding ) throws IOException
+    {
+        // group multi-valued attributes
+        Map<String, String> attributeMap = ExportCsvRunnable.getAttributeMap( null, record, valueDelimiter, "UTF-16", //$NON-NLS-1$
+            binaryEncoding );
+
+        if ( exportDn )
+        {
+            setCell( "dn", record.getDnLine().getValueAsString(), false ); //$NON-NLS-1$
+        }
+        for ( Map.Entry<String, String> attribute : attributeMap.entrySet() )
+        {
+            String attributeName = attribute.getKey();
+            String value = attribute.getValue() != null ? attribute.getValue() : ""; //$NON-NLS-1$
+            boolean wrap = false;
+
+            AttributeType type = browserConnection.getSchema().getAttributeTypeDescription( attributeName );
+            if ( SchemaConstants.POSTAL_ADDRESS_SYNTAX.equals( type.getSyntaxOid() ) )
+            {
+                value = DECODER.translate( value );
+                wrap = true;
+            }
+
+            setCell( attributeName, value, wrap );
+        }
+
+        endRow();
+    }
+
+
+    /**
+     * Writes the current row and clears the cells for the next row.
+     *
+     * @throws IOException if writing fails
+     */
+    void endRow() throws IOException
+    {
+        if ( sheet != null && sheet.rowCount >= maxRowsPerSheet )
+        {
+            completeSheet();
+        }
+
+        if ( sheet == null )
+        {
+            sheet = new Sheet( sheets.isEmpty() ? SHEET_NAME : SHEET_NAME + " " + ( sheets.size() + 1 ) ); //$NON-NLS-1$
+        }
+
+        sheet.rowCount++;
+        writeRow( sheet.rowsWriter, sheet.rowCount, cells, wrapped, columns.size() );
+
+        Arrays.fill( cells, null );
+        Arrays.fill( wrapped, false );
+    }
+
+
+    private void completeSheet() throws IOException
+    {
+        sheet.rowsWriter.close();
+        sheet.rowsWriter = null;
+        sheet.header = columns.keySet().toArray( new String[columns.size()] );
+        sheet.widths = Arrays.copyOf( columnWidths, columns.size() );
+        sheets.add( sheet );
+        sheet = null;
+    }
+
+
+    /**
+     * Completes the current sheet and writes the spreadsheet package.
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            if ( sheet == null && sheets.isEmpty() )
+            {
+                // an empty spreadsheet still has a sheet with the header row
+                sheet = new Sheet( SHEET_NAME );
+            }
+
+            if ( sheet != null )
+            {
+                completeSheet();
+            }
+
+            try ( ZipOutputStream zip = new ZipOutputStream( Files.newOutputStream( file ) ) )
+            {
+                writePackage( zip, sheets );
+            }
+        }
+        finally
+        {
+            if ( sheet != null )
+            {
+                sheet.rowsWriter.close();
+                Files.deleteIfExists( sheet.rowsFile );
+            }
+
+            for ( Sheet completedSheet : sheets )
+            {
+                Files.deleteIfExists( completedSheet.rowsFile );
+            }
+        }
+    }
+
+
+    /**
+     * Writes a row element.
+     *
+     * @param writer the writer
+     * @param rowNumber the 1-based row number
+     * @param cells the cell values, null for empty cells
+     * @param wrapped the wrap flags
+     * @param columnCount the number of columns
+     * @throws IOException if writing fails
+     */
+    protected abstract void writeRow( Writer writer, int rowNumber, String[] cells, boolean[] wrapped,
+        int columnCount ) throws IOException;
+
+
+    /**
+     * Writes all entries of the spreadsheet package.
+     *
+     * @param zip the zip output stream
+     * @param sheets the completed sheets
+     * @throws IOException if writing fails
+     */
+    protected abstract void writePackage( ZipOutputStream zip, List<Sheet> sheets ) throws IOException;
+
+
+    /**
+     * Writes the header row and the stored rows of a sheet.
+     *
+     * @param writer the writer
+     * @param sheet the sheet
+     * @throws IOException if writing fails
+     */
+    protected void writeRows( Writer writer, Sheet sheet ) throws IOException
+    {
+        writeRow( writer, 1, sheet.header, new boolean[sheet.header.length], sheet.header.length );
+
+        char[] buffer = new char[8192];
+        try ( BufferedReader reader = Files.newBufferedReader( sheet.rowsFile, StandardCharsets.UTF_8 ) )
+        {
+            int length;
+            while ( ( length = reader.read( buffer ) ) != -1 )
+            {
+                writer.write( buffer, 0, length );
+            }
+        }
+    }
+
+
+    /**
+     * Starts a new zip entry and returns a UTF-8 writer for it. The writer must be
+     * flushed, but not closed, before the next entry is started, closing it would
+     * close the zip output stream.
+     *
+     * @param zip the zip output stream
+     * @param name the entry name
+     * @return the writer
+     * @throws IOException if writing fails
+     */
+    protected static Writer putEntry( ZipOutputStream zip, String name ) throws IOException
+    {
+        zip.putNextEntry( new ZipEntry( name ) );
+        return new OutputStreamWriter( zip, StandardCharsets.UTF_8 );
+    }
+
+
+    /**
+     * Appends the value to the writer, escaping XML markup and dropping
+     * characters that are not allowed in XML.
+     *
+     * @param writer the writer
+     * @param value the value
+     * @throws IOException if writing fails
+     */
+    protected static void writeEscaped( Writer writer, String value ) throws IOException
+    {
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+
+            switch ( c )
+            {
+                case '&':
+                    writer.write( "&amp;" ); //$NON-NLS-1$
+                    break;
+                case '<':
+                    writer.write( "&lt;" ); //$NON-NLS-1$
+                    break;
+                case '>':
+                    writer.write( "&gt;" ); //$NON-NLS-1$
+                    break;
+                case '"':
+                    writer.write( "&quot;" ); //$NON-NLS-1$
+                    break;
+                default:
+                    if ( c >= 0x20 || c == '\t' || c == '\n' || c == '\r' )
+                    {
+                        writer.write( c );
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.directory.api.ldap.extras.controls.vlv.VirtualListViewRequest;
+import org.apache.directory.api.ldap.extras.controls.vlv.VirtualListViewResponse;
+import org.apache.directory.api.ldap.extras.controls.vlv.VirtualListViewResultCode;
+import org.apache.directory.api.ldap.model.message.Control;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
+import org.apache.directory.api.ldap.model.message.controls.SortRequest;
+import org.apache.directory.studio.connection.core.Controls;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.IRootDSE;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
+
+
+/**
+ * Scrolls through search results with the server side sort and virtual list view 
+ * controls. Each page is requested by its offset in the result sorted by the server,
+ * fetching a page only costs the size of the page, regardless of its position. 
+ * Used in paged search scroll mode, if the server supports both controls.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class VirtualListView
+{
+    private VirtualListView()
+    {
+    }
+
+
+    /**
+     * Checks if the virtual list view should be used for the given connection. 
+     * The Root DSE must list the server side sort and the virtual list view 
+     * controls and a sort attribute must be configured.
+     * 
+     * @param browserConnection the browser connection
+     * @return true if the virtual list view should be used
+     */
+    static boolean isSupported( IBrowserConnection browserConnection )
+    {
+        IRootDSE rootDSE = browserConnection.getRootDSE();
+        return rootDSE != null && StringUtils.isNotBlank( browserConnection.getVirtualListViewSortAttribute() )
+            && rootDSE.isControlSupported( SortRequest.OID )
+            && rootDSE.isControlSupported( VirtualListViewRequest.OID );
+    }
+
+
+    /**
+     * Adds the server side sort and the virtual list view control to the controls.
+     * 
+     * @param browserConnection the browser connection
+     * @param controls the controls
+     * @param virtualListViewControl the virtual list view control
+     */
+    static void addControls( IBrowserConnection browserConnection, List<Control> controls,
+        VirtualListViewRequest virtualListViewControl )
+    {
+        controls.add( Controls.newSortRequestControl( browserConnection.getVirtualListViewSortAttribute().trim(),
+            false ) );
+        controls.add( virtualListViewControl );
+    }
+
+
+    /**
+     * Creates the virtual list view control to fetch the first page.
+     * 
+     * @param pageSize the page size
+     * @return the virtual list view control
+     */
+    static VirtualListViewRequest newFirstPageControl( int pageSize )
+    {
+        return Controls.newVirtualListViewRequestControl( 1, pageSize, 0, null );
+    }
+
+
+    /**
+     * Creates the virtual list view control to fetch the page following the 
+     * page returned with the given response.
+     * 
+     * @param request the virtual list view request control of the current page
+     * @param response the virtual list view response control of the current page
+     * @return the virtual list view control of the next page, null if there is no next page
+     */
+    static VirtualListViewRequest newNextPageControl( VirtualListViewRequest request,
+        VirtualListViewResponse response )
+    {
+        if ( response.getVirtualListViewResult() != VirtualListViewResultCode.SUCCESS )
+        {
+            return null;
+        }
+
+        int pageSize = request.getAfterCount() + 1;
+        int nextOffset = response.getTargetPosition() + pageSize;
+        if ( nextOffset > response.getContentCount() )
+        {
+            return null;
+        }
+
+        return Controls.newVirtualListViewRequestControl( nextOffset, pageSize, response.getContentCount(),
+            response.getContextId() );
+    }
+
+
+    /**
+     * Creates a copy of the given search that fetches the first page with the virtual 
+     * list view instead of the paged results control. 
+     * 
+     * @param search the search
+     * @return the copy using the virtual list view, null if the search doesn't use the paged results control
+     */
+    static ISearch toVirtualListViewSearch( ISearch search )
+    {
+        ISearch clone = ( ISearch ) search.clone();
+        for ( Iterator<Control> it = clone.getControls().iterator(); it.hasNext(); )
+        {
+            Control control = it.next();
+            if ( control instanceof PagedResults )
+            {
+                it.remove();
+                addControls( search.getBrowserConnection(), clone.getControls(),
+                    newFirstPageControl( ( ( PagedResults ) control ).getSize() ) );
+                return clone;
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Gets the virtual list view request control.
+     * 
+     * @param controls the request controls
+     * @return the virtual list view request control, null if none
+     */
+    static VirtualListViewRequest getRequestControl( List<Control> controls )
+    {
+        for ( Control control : controls )
+        {
+            if ( control instanceof VirtualListViewRequest )
+            {
+                return ( VirtualListViewRequest ) control;
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Gets the virtual list view response control.
+     * 
+     * @param controls the response controls
+     * @return the virtual list view response control, null if none
+     */
+    static VirtualListViewResponse getResponseControl( List<Control> controls )
+    {
+        for ( Control control : controls )
+        {
+            if ( control instanceof VirtualListViewResponse )
+            {
+                return ( VirtualListViewResponse ) control;
+            }
+        }
+
+        return null;
+    }
+}
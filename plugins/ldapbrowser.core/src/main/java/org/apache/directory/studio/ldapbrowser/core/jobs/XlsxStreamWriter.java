@@ -0,0 +1,202 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.zip.ZipOutputStream;
+
+
+/**
+ * Writes an Office Open XML spreadsheet (XLSX) with inline strings. Two cell
+ * styles are shared by all cells: the default style and a style that wraps text.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class XlsxStreamWriter extends SpreadsheetStreamWriter
+{
+    /** The maximum number of rows of an XLSX sheet */
+    private static final int MAX_ROWS_PER_SHEET = 1048576;
+
+    /** The maximum number of characters of a cell */
+    private static final int MAX_CELL_LENGTH = 32767;
+
+    /** The maximum column width in characters */
+    private static final int MAX_COLUMN_WIDTH = 255;
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"; //$NON-NLS-1$
+    private static final String NS_MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main"; //$NON-NLS-1$
+    private static final String NS_RELATIONSHIPS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships"; //$NON-NLS-1$
+    private static final String NS_PACKAGE_RELATIONSHIPS = "http://schemas.openxmlformats.org/package/2006/relationships"; //$NON-NLS-1$
+    private static final String CONTENT_TYPE_PREFIX = "application/vnd.openxmlformats-officedocument.spreadsheetml."; //$NON-NLS-1$
+
+
+    /**
+     * Creates a new instance of XlsxStreamWriter.
+     *
+     * @param filename the XLSX filename
+     * @param exportDn the export dn flag
+     */
+    XlsxStreamWriter( String filename, boolean exportDn )
+    {
+        super( filename, MAX_ROWS_PER_SHEET, MAX_CELL_LENGTH, exportDn );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void writeRow( Writer writer, int rowNumber, String[] cells, boolean[] wrapped, int columnCount )
+        throws IOException
+    {
+        writer.write( "<row r=\"" ); //$NON-NLS-1$
+        writer.write( Integer.toString( rowNumber ) );
+        writer.write( "\">" ); //$NON-NLS-1$
+
+        for ( int i = 0; i < columnCount; i++ )
+        {
+            if ( cells[i] != null )
+            {
+                writer.write( "<c r=\"" ); //$NON-NLS-1$
+                writer.write( getColumnName( i ) );
+                writer.write( Integer.toString( rowNumber ) );
+                writer.write( wrapped[i] ? "\" s=\"1\" t=\"inlineStr\"><is><t xml:space=\"preserve\">" //$NON-NLS-1$
+                    : "\" t=\"inlineStr\"><is><t xml:space=\"preserve\">" ); //$NON-NLS-1$
+                writeEscaped( writer, cells[i] );
+                writer.write( "</t></is></c>" ); //$NON-NLS-1$
+            }
+        }
+
+        writer.write( "</row>\n" ); //$NON-NLS-1$
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void writePackage( ZipOutputStream zip, List<Sheet> sheets ) throws IOException
+    {
+        Writer writer = putEntry( zip, "[Content_Types].xml" ); //$NON-NLS-1$
+        writer.write( XML_DECLARATION );
+        writer.write( "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">" ); //$NON-NLS-1$
+        writer.write( "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>" ); //$NON-NLS-1$
+        writer.write( "<Default Extension=\"xml\" ContentType=\"application/xml\"/>" ); //$NON-NLS-1$
+        writer.write( "<Override PartName=\"/xl/workbook.xml\" ContentType=\"" + CONTENT_TYPE_PREFIX + "sheet.main+xml\"/>" ); //$NON-NLS-1$ //$NON-NLS-2$
+        writer.write( "<Override PartName=\"/xl/styles.xml\" ContentType=\"" + CONTENT_TYPE_PREFIX + "styles+xml\"/>" ); //$NON-NLS-1$ //$NON-NLS-2$
+        for ( int i = 1; i <= sheets.size(); i++ )
+        {
+            writer.write( "<Override PartName=\"/xl/worksheets/sheet" + i + ".xml\" ContentType=\"" //$NON-NLS-1$ //$NON-NLS-2$
+                + CONTENT_TYPE_PREFIX + "worksheet+xml\"/>" ); //$NON-NLS-1$
+        }
+        writer.write( "</Types>" ); //$NON-NLS-1$
+        writer.flush();
+
+        writer = putEntry( zip, "_rels/.rels" ); //$NON-NLS-1$
+        writer.write( XML_DECLARATION );
+        writer.write( "<Relationships xmlns=\"" + NS_PACKAGE_RELATIONSHIPS + "\">" ); //$NON-NLS-1$ //$NON-NLS-2$
+        writer.write( "<Relationship Id=\"rId1\" Type=\"" + NS_RELATIONSHIPS //$NON-NLS-1$
+            + "/officeDocument\" Target=\"xl/workbook.xml\"/>" ); //$NON-NLS-1$
+        writer.write( "</Relationships>" ); //$NON-NLS-1$
+        writer.flush();
+
+        writer = putEntry( zip, "xl/workbook.xml" ); //$NON-NLS-1$
+        writer.write( XML_DECLARATION );
+        writer.write( "<workbook xmlns=\"" + NS_MAIN + "\" xmlns:r=\"" + NS_RELATIONSHIPS + "\"><sheets>" ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        for ( int i = 1; i <= sheets.size(); i++ )
+        {
+            writer.write( "<sheet name=\"" ); //$NON-NLS-1$
+            writeEscaped( writer, sheets.get( i - 1 ).name );
+            writer.write( "\" sheetId=\"" + i + "\" r:id=\"rId" + i + "\"/>" ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+        writer.write( "</sheets></workbook>" ); //$NON-NLS-1$
+        writer.flush();
+
+        writer = putEntry( zip, "xl/_rels/workbook.xml.rels" ); //$NON-NLS-1$
+        writer.write( XML_DECLARATION );
+        writer.write( "<Relationships xmlns=\"" + NS_PACKAGE_RELATIONSHIPS + "\">" ); //$NON-NLS-1$ //$NON-NLS-2$
+        for ( int i = 1; i <= sheets.size(); i++ )
+        {
+            writer.write( "<Relationship Id=\"rId" + i + "\" Type=\"" + NS_RELATIONSHIPS //$NON-NLS-1$ //$NON-NLS-2$
+                + "/worksheet\" Target=\"worksheets/sheet" + i + ".xml\"/>" ); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        writer.write( "<Relationship Id=\"rId" + ( sheets.size() + 1 ) + "\" Type=\"" + NS_RELATIONSHIPS //$NON-NLS-1$ //$NON-NLS-2$
+            + "/styles\" Target=\"styles.xml\"/>" ); //$NON-NLS-1$
+        writer.write( "</Relationships>" ); //$NON-NLS-1$
+        writer.flush();
+
+        writer = putEntry( zip, "xl/styles.xml" ); //$NON-NLS-1$
+        writer.write( XML_DECLARATION );
+        writer.write( "<styleSheet xmlns=\"" + NS_MAIN + "\">" ); //$NON-NLS-1$ //$NON-NLS-2$
+        writer.write( "<fonts count=\"1\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>" ); //$NON-NLS-1$
+        writer.write( "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>" ); //$NON-NLS-1$
+        writer.write( "<fill><patternFill patternType=\"gray125\"/></fill></fills>" ); //$NON-NLS-1$
+        writer.write( "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>" ); //$NON-NLS-1$
+        writer.write( "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>" ); //$NON-NLS-1$
+        writer.write( "<cellXfs count=\"2\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>" ); //$NON-NLS-1$
+        writer.write( "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyAlignment=\"1\">" ); //$NON-NLS-1$
+        writer.write( "<alignment wrapText=\"1\"/></xf></cellXfs>" ); //$NON-NLS-1$
+        writer.write( "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>" ); //$NON-NLS-1$
+        writer.write( "</styleSheet>" ); //$NON-NLS-1$
+        writer.flush();
+
+        for ( int i = 1; i <= sheets.size(); i++ )
+        {
+            Sheet sheet = sheets.get( i - 1 );
+            writer = putEntry( zip, "xl/worksheets/sheet" + i + ".xml" ); //$NON-NLS-1$ //$NON-NLS-2$
+            writer.write( XML_DECLARATION );
+            writer.write( "<worksheet xmlns=\"" + NS_MAIN + "\">" ); //$NON-NLS-1$ //$NON-NLS-2$
+
+            if ( sheet.widths.length > 0 )
+            {
+                writer.write( "<cols>" ); //$NON-NLS-1$
+                for ( int j = 0; j < sheet.widths.length; j++ )
+                {
+                    int width = Math.min( MAX_COLUMN_WIDTH, ( int ) Math.ceil( sheet.widths[j] * 1.1 ) + 1 );
+                    writer.write( "<col min=\"" + ( j + 1 ) + "\" max=\"" + ( j + 1 ) + "\" width=\"" + width //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                        + "\" customWidth=\"1\"/>" ); //$NON-NLS-1$
+                }
+                writer.write( "</cols>" ); //$NON-NLS-1$
+            }
+
+            writer.write( "<sheetData>\n" ); //$NON-NLS-1$
+            writeRows( writer, sheet );
+            writer.write( "</sheetData></worksheet>" ); //$NON-NLS-1$
+            writer.flush();
+        }
+    }
+
+
+    /**
+     * Gets the column name of a 0-based column index, e.g. A, Z, AA.
+     */
+    private static String getColumnName( int column )
+    {
+        StringBuilder sb = new StringBuilder( 3 );
+
+        for ( int i = column + 1; i > 0; i = ( i - 1 ) / 26 )
+        {
+            sb.insert( 0, ( char ) ( 'A' + ( i - 1 ) % 26 ) );
+        }
+
+        return sb.toString();
+    }
+}
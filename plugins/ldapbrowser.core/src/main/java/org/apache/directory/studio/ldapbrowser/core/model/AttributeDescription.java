@@ -27,6 +27,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.directory.api.ldap.model.constants.SchemaConstants;
 import org.apache.directory.api.ldap.model.schema.AttributeType;
@@ -67,6 +68,13 @@ public class AttributeDescription implements Serializable
 
     private static final long serialVersionUID = 1L;
 
+    /** The maximum number of interned attribute descriptions, the pool is cleared when exceeded. */
+    static final int MAX_INTERNED = 10000;
+
+    /** The interned attribute descriptions, keyed by the user provided description. */
+    private static final ConcurrentHashMap<String, AttributeDescription> INTERNED =
+        new ConcurrentHashMap<String, AttributeDescription>();
+
     /** The user provided description. */
     private String description;
 
@@ -79,6 +87,9 @@ public class AttributeDescription implements Serializable
     /** The parsed option list, except the language tags. */
     private List<String> parsedOptionList;
 
+    /** The last computed OID string and the schema it was computed with. */
+    private transient volatile Object[] oidStringCache;
+
 
     /**
      * Creates a new instance of AttributeDescription.
@@ -108,6 +119,48 @@ public class AttributeDescription implements Serializable
     }
 
 
+    /**
+     * Gets the attribute description for the given user provided description.
+     * Attribute descriptions are immutable, so the same instance is shared by all
+     * attributes with the same description.
+     * 
+     * @param description the user provided description
+     * 
+     * @return the attribute description
+     */
+    public static AttributeDescription valueOf( String description )
+    {
+        AttributeDescription ad = INTERNED.get( description );
+        if ( ad == null )
+        {
+            if ( INTERNED.size() >= MAX_INTERNED )
+            {
+                INTERNED.clear();
+            }
+
+            ad = new AttributeDescription( description );
+            AttributeDescription interned = INTERNED.putIfAbsent( description, ad );
+            if ( interned != null )
+            {
+                ad = interned;
+            }
+        }
+
+        return ad;
+    }
+
+
+    /**
+     * Gets the number of interned attribute descriptions.
+     * 
+     * @return the number of interned attribute descriptions
+     */
+    static int getInternedCount()
+    {
+        return INTERNED.size();
+    }
+
+
     /**
      * Gets the user provided description.
      * 
@@ -167,6 +220,21 @@ public class AttributeDescription implements Serializable
             return description;
         }
 
+        Object[] cache = oidStringCache;
+        if ( cache != null && cache[0] == schema )
+        {
+            return ( String ) cache[1];
+        }
+
+        String oidString = computeOidString( schema );
+        oidStringCache = new Object[]
+            { schema, oidString };
+        return oidString;
+    }
+
+
+    private String computeOidString( Schema schema )
+    {
         AttributeType atd = schema.getAttributeTypeDescription( parsedAttributeType );
         String oidString = atd.getOid();
 
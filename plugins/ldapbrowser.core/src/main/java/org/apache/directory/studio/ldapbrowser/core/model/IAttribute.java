@@ -185,6 +185,16 @@ public interface IAttribute extends Serializable, IAdaptable, AttributePropertyP
     int getValueSize();
 
 
+    /**
+     * Checks if this attribute contains the given value.
+     * 
+     * @param value the value
+     * 
+     * @return true if this attribute contains the given value
+     */
+    boolean containsValue( IValue value );
+
+
     /**
      * Gets the description of this attribute. The description 
      * consists of the attribute type and optional options.
@@ -191,6 +191,21 @@ public interface IBrowserConnection extends Serializable, IAdaptable, Connection
     /** The key for the connection parameter "Paged Search Scroll Mode". */
     String CONNECTION_PARAMETER_PAGED_SEARCH_SCROLL_MODE = "ldapbrowser.pagedSearchScrollMode"; //$NON-NLS-1$
 
+    /** The key for the connection parameter "Cache Size". */
+    String CONNECTION_PARAMETER_CACHE_SIZE = "ldapbrowser.cacheSize"; //$NON-NLS-1$
+
+    /** The default cache size in MB. */
+    int DEFAULT_CACHE_SIZE = 256;
+
+    /** The key for the connection parameter "Virtual List View Sort Attribute". */
+    String CONNECTION_PARAMETER_VIRTUAL_LIST_VIEW_SORT_ATTRIBUTE = "ldapbrowser.vlvSortAttribute"; //$NON-NLS-1$
+
+    /** The default sort attribute for the virtual list view, empty so the virtual list view is off by default. */
+    String DEFAULT_VIRTUAL_LIST_VIEW_SORT_ATTRIBUTE = ""; //$NON-NLS-1$
+
+    /** The key for the connection parameter "Quick Search Index Attributes". */
+    String CONNECTION_PARAMETER_QUICK_SEARCH_INDEX_ATTRIBUTES = "ldapbrowser.quickSearchIndexAttributes"; //$NON-NLS-1$
+
     /** The key for the connection parameter "Modify Mode for attributes with equality matching rule". */
     String CONNECTION_PARAMETER_MODIFY_MODE = "ldapbrowser.modifyMode"; //$NON-NLS-1$
 
@@ -391,6 +406,22 @@ public interface IBrowserConnection extends Serializable, IAdaptable, Connection
     void setPagedSearchSize( int pagedSearchSize );
 
 
+    /**
+     * Gets the memory budget of the attributes cached by this connection.
+     * 
+     * @return the cache size in MB, 0 for unlimited
+     */
+    int getCacheSize();
+
+
+    /**
+     * Sets the memory budget of the attributes cached by this connection.
+     * 
+     * @param cacheSize the cache size in MB, 0 for unlimited
+     */
+    void setCacheSize( int cacheSize );
+
+
     /**
      * Checks if paged search scroll mode should be used.
      * 
@@ -407,6 +438,43 @@ public interface IBrowserConnection extends Serializable, IAdaptable, Connection
     void setPagedSearchScrollMode( boolean pagedSearchScrollMode );
 
 
+    /**
+     * Gets the attribute used to sort the pages on the server if the
+     * server supports the server side sort and virtual list view controls
+     * and paged search scroll mode is used.
+     * 
+     * @return the sort attribute, empty to disable the virtual list view
+     */
+    String getVirtualListViewSortAttribute();
+
+
+    /**
+     * Sets the attribute used to sort the pages on the server if the
+     * server supports the server side sort and virtual list view controls.
+     * 
+     * @param sortAttribute the sort attribute, empty to disable the virtual list view
+     */
+    void setVirtualListViewSortAttribute( String sortAttribute );
+
+
+    /**
+     * Gets the attributes whose cached values are indexed to answer
+     * quick searches without a server round trip.
+     * 
+     * @return the indexed attributes, empty if no index is kept
+     */
+    String[] getQuickSearchIndexAttributes();
+
+
+    /**
+     * Sets the attributes whose cached values are indexed to answer
+     * quick searches without a server round trip.
+     * 
+     * @param attributes the indexed attributes, empty to not keep an index
+     */
+    void setQuickSearchIndexAttributes( String[] attributes );
+
+
     /**
      * Gets the modify mode for attributes.
      * 
@@ -545,6 +613,23 @@ public interface IBrowserConnection extends Serializable, IAdaptable, Connection
     void uncacheEntryRecursive( IEntry entry );
 
 
+    /**
+     * Pins the entry, its attributes are kept in the cache until the
+     * entry is unpinned. Each call must be paired with {@link #unpinEntry(IEntry)}.
+     * 
+     * @param entry the entry to pin
+     */
+    void pinEntry( IEntry entry );
+
+
+    /**
+     * Releases a pin of the entry.
+     * 
+     * @param entry the entry to unpin
+     */
+    void unpinEntry( IEntry entry );
+
+
     /**
      * Clears all caches.
      */
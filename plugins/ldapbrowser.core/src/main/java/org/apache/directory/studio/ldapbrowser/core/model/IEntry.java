@@ -350,6 +350,18 @@ public interface IEntry extends Serializable, IAdaptable, EntryPropertyPageProvi
     IEntry[] getChildren();
 
 
+    /**
+     * Gets a range of the children of the entry, without copying the other children.
+     * 
+     * @param first the index of the first child
+     * @param last the index of the last child, inclusive
+     * 
+     * @return The children in the range, fewer if the range exceeds the children, 
+     *         or null if no child was added yet.
+     */
+    IEntry[] getChildren( int first, int last );
+
+
     /**
      * Gets the number of children of the entry.
      * 
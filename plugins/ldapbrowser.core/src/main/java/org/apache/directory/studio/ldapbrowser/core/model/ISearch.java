@@ -285,6 +285,16 @@ public interface ISearch extends Serializable, IAdaptable, SearchPropertyPagePro
     void setSearchResults( ISearchResult[] searchResults );
 
 
+    /**
+     * Adds search results that were received while the search is still running.
+     * 
+     * Calling this method causes firing a search update event.
+     * 
+     * @param searchResults the received search results
+     */
+    void addSearchResults( ISearchResult[] searchResults );
+
+
     /**
      * Checks if the count limit exceeded.
      * 
@@ -0,0 +1,834 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.filter;
+
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.name.Ava;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.Rdn;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.MatchingRule;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.apache.directory.studio.ldapbrowser.core.model.AttributeHierarchy;
+import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+import org.apache.directory.studio.ldapbrowser.core.model.filter.parser.LdapFilterParser;
+import org.apache.directory.studio.ldapbrowser.core.model.filter.parser.LdapFilterToken;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.SchemaUtils;
+import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
+
+
+/**
+ * An LDAP filter compiled to a predicate that is evaluated against entries in 
+ * the cache, without a server round trip. The filter is compiled once: the 
+ * matching rules are resolved from the schema and the assertion values are 
+ * unescaped and normalized. Evaluating an entry only normalizes its values.
+ * 
+ * The equality, ordering and substring matching rules of the schema are 
+ * approximated by a few normalizations, e.g. all case ignore rules compare 
+ * lower-cased values with insignificant spaces removed. Unknown matching rules 
+ * are treated as case ignore rules, approximate matches as equality matches.
+ * 
+ * Filters evaluate to TRUE, FALSE or UNDEFINED as defined in RFC 4511, an entry 
+ * only matches if the filter is TRUE. An attribute that is not in the cache is 
+ * UNDEFINED unless the entry is known not to have it, so a negated filter item 
+ * doesn't match entries whose attributes were not read.
+ * Instances are immutable and may be used by several threads at once.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class CompiledLdapFilter implements Predicate<IEntry>
+{
+    /** The kinds of matching rules, by lower-cased name and numeric OID. */
+    private static final Map<String, MatchingRuleKind> MATCHING_RULE_KINDS = new HashMap<String, MatchingRuleKind>();
+    static
+    {
+        register( MatchingRuleKind.OBJECT_IDENTIFIER, "2.5.13.0", "objectIdentifierMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.DISTINGUISHED_NAME, "2.5.13.1", "distinguishedNameMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.CASE_IGNORE, "2.5.13.2", "caseIgnoreMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.CASE_IGNORE, "2.5.13.3", "caseIgnoreOrderingMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.CASE_IGNORE, "2.5.13.4", "caseIgnoreSubstringsMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.CASE_EXACT, "2.5.13.5", "caseExactMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.CASE_EXACT, "2.5.13.6", "caseExactOrderingMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.CASE_EXACT, "2.5.13.7", "caseExactSubstringsMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.NUMERIC_STRING, "2.5.13.8", "numericStringMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.NUMERIC_STRING, "2.5.13.9", "numericStringOrderingMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.NUMERIC_STRING, "2.5.13.10", "numericStringSubstringsMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.CASE_IGNORE, "2.5.13.11", "caseIgnoreListMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.CASE_IGNORE, "2.5.13.12", "caseIgnoreListSubstringsMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.BOOLEAN, "2.5.13.13", "booleanMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.INTEGER, "2.5.13.14", "integerMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.INTEGER, "2.5.13.15", "integerOrderingMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.OCTET_STRING, "2.5.13.17", "octetStringMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.OCTET_STRING, "2.5.13.18", "octetStringOrderingMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.TELEPHONE_NUMBER, "2.5.13.20", "telephoneNumberMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.TELEPHONE_NUMBER, "2.5.13.21", "telephoneNumberSubstringsMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.DISTINGUISHED_NAME, "2.5.13.23", "uniqueMemberMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.GENERALIZED_TIME, "2.5.13.27", "generalizedTimeMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.GENERALIZED_TIME, "2.5.13.28", "generalizedTimeOrderingMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.CASE_EXACT, "1.3.6.1.4.1.1466.109.114.1", "caseExactIA5Match" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.CASE_IGNORE, "1.3.6.1.4.1.1466.109.114.2", "caseIgnoreIA5Match" ); //$NON-NLS-1$ //$NON-NLS-2$
+        register( MatchingRuleKind.CASE_IGNORE, "1.3.6.1.4.1.1466.109.114.3", "caseIgnoreIA5SubstringsMatch" ); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /** Evaluates every entry to UNDEFINED. */
+    private static final Evaluator UNDEFINED = entry -> Result.UNDEFINED;
+
+    /** The filter string. */
+    private final String filter;
+
+    /** The compiled filter. */
+    private final Evaluator evaluator;
+
+
+    private CompiledLdapFilter( String filter, Evaluator evaluator )
+    {
+        this.filter = filter;
+        this.evaluator = evaluator;
+    }
+
+
+    /**
+     * Parses and compiles the given filter.
+     * 
+     * @param filter the filter
+     * @param schema the schema used to resolve the matching rules
+     * @return the compiled filter, null if the filter is not valid
+     */
+    public static CompiledLdapFilter compile( String filter, Schema schema )
+    {
+        LdapFilterParser parser = new LdapFilterParser();
+        parser.parse( filter );
+        LdapFilter model = parser.getModel();
+        return model.isValid() ? compile( model, schema ) : null;
+    }
+
+
+    /**
+     * Compiles the given filter.
+     * 
+     * @param filter the filter, must be valid
+     * @param schema the schema used to resolve the matching rules
+     * @return the compiled filter
+     * @throws IllegalArgumentException if the filter is not valid
+     */
+    public static CompiledLdapFilter compile( LdapFilter filter, Schema schema )
+    {
+        if ( !filter.isValid() )
+        {
+            throw new IllegalArgumentException( filter.getInvalidCause() );
+        }
+
+        return new CompiledLdapFilter( filter.toString(), compileFilter( filter, schema ) );
+    }
+
+
+    /**
+     * Checks if the given entry matches this filter, that is if the filter 
+     * evaluates to TRUE. Only the attributes in the cache are taken into account.
+     * 
+     * @param entry the entry
+     * @return true if the entry matches
+     */
+    public boolean test( IEntry entry )
+    {
+        return evaluate( entry ) == Result.TRUE;
+    }
+
+
+    /**
+     * Evaluates this filter against the given entry. Only the attributes 
+     * in the cache are taken into account.
+     * 
+     * @param entry the entry
+     * @return the result, UNDEFINED if it is not known from the cache
+     */
+    public Result evaluate( IEntry entry )
+    {
+        return evaluator.evaluate( entry );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString()
+    {
+        return filter;
+    }
+
+
+    /**
+     * Gets a function that normalizes string values of the given attribute type by 
+     * its equality matching rule, the same way values are normalized to match filters. 
+     * Two values are equal for the matching rule if their normalized values are equal.
+     * 
+     * @param attribute the attribute type
+     * @param schema the schema used to resolve the matching rule
+     * @return the normalizer
+     */
+    public static UnaryOperator<String> getEqualityNormalizer( String attribute, Schema schema )
+    {
+        MatchingRuleKind kind = getEqualityKind( schema.getAttributeTypeDescription( attribute ), schema );
+        return value -> kind.normalize( value, schema );
+    }
+
+
+    private static Evaluator compileFilter( LdapFilter filter, Schema schema )
+    {
+        LdapFilterComponent component = filter.getFilterComponent();
+
+        if ( component instanceof LdapAndFilterComponent )
+        {
+            // FALSE if any filter is FALSE, otherwise UNDEFINED if any filter is UNDEFINED
+            List<Evaluator> evaluators = compileFilters( component.getFilters(), schema );
+            return entry -> {
+                Result result = Result.TRUE;
+                for ( Evaluator evaluator : evaluators )
+                {
+                    Result r = evaluator.evaluate( entry );
+                    if ( r == Result.FALSE )
+                    {
+                        return Result.FALSE;
+                    }
+                    else if ( r == Result.UNDEFINED )
+                    {
+                        result = Result.UNDEFINED;
+                    }
+                }
+                return result;
+            };
+        }
+        else if ( component instanceof LdapOrFilterComponent )
+        {
+            // TRUE if any filter is TRUE, otherwise UNDEFINED if any filter is UNDEFINED
+            List<Evaluator> evaluators = compileFilters( component.getFilters(), schema );
+            return entry -> {
+                Result result = Result.FALSE;
+                for ( Evaluator evaluator : evaluators )
+                {
+                    Result r = evaluator.evaluate( entry );
+                    if ( r == Result.TRUE )
+                    {
+                        return Result.TRUE;
+                    }
+                    else if ( r == Result.UNDEFINED )
+                    {
+                        result = Result.UNDEFINED;
+                    }
+                }
+                return result;
+            };
+        }
+        else if ( component instanceof LdapNotFilterComponent )
+        {
+            Evaluator evaluator = compileFilter( component.getFilters()[0], schema );
+            return entry -> evaluator.evaluate( entry ).not();
+        }
+        else if ( component instanceof LdapFilterItemComponent )
+        {
+            return compileItem( ( LdapFilterItemComponent ) component, schema );
+        }
+        else if ( component instanceof LdapFilterExtensibleComponent )
+        {
+            return compileExtensible( ( LdapFilterExtensibleComponent ) component, schema );
+        }
+
+        throw new IllegalArgumentException( filter.toString() );
+    }
+
+
+    private static List<Evaluator> compileFilters( LdapFilter[] filters, Schema schema )
+    {
+        List<Evaluator> evaluators = new ArrayList<Evaluator>( filters.length );
+        for ( LdapFilter filter : filters )
+        {
+            evaluators.add( compileFilter( filter, schema ) );
+        }
+        return evaluators;
+    }
+
+
+    private static Evaluator compileItem( LdapFilterItemComponent item, Schema schema )
+    {
+        String attribute = item.getAttributeToken().getValue();
+        AttributeType atd = schema.getAttributeTypeDescription( attribute );
+        boolean known = schema.hasAttributeTypeDescription( attribute );
+        Evaluator missing = compileMissing( attribute, atd, schema );
+        int filterType = item.getFilterToken().getType();
+
+        if ( filterType == LdapFilterToken.PRESENT )
+        {
+            if ( isObjectClass( atd ) )
+            {
+                // every entry has an object class, even if its attributes are not in the cache
+                return entry -> Result.TRUE;
+            }
+            return entry -> entry.getAttributeWithSubtypes( attribute ) != null ? Result.TRUE : missing
+                .evaluate( entry );
+        }
+
+        String assertion = item.getValueToken() != null ? item.getValueToken().getValue() : ""; //$NON-NLS-1$
+
+        switch ( filterType )
+        {
+            case LdapFilterToken.EQUAL:
+            case LdapFilterToken.APROX:
+                if ( known && SchemaUtils.getEqualityMatchingRuleNameOrNumericOidTransitive( atd, schema ) == null )
+                {
+                    return UNDEFINED;
+                }
+                return compileEquality( attribute, getEqualityKind( atd, schema ), assertion, missing, schema );
+
+            case LdapFilterToken.GREATER:
+            case LdapFilterToken.LESS:
+                String orderingRule = SchemaUtils.getOrderingMatchingRuleNameOrNumericOidTransitive( atd, schema );
+                if ( known && orderingRule == null )
+                {
+                    return UNDEFINED;
+                }
+                MatchingRuleKind orderingKind = getKind( orderingRule, schema );
+                if ( orderingKind == null )
+                {
+                    orderingKind = getEqualityKind( atd, schema );
+                }
+                return compileOrdering( attribute, orderingKind, filterType == LdapFilterToken.GREATER, assertion,
+                    missing, schema );
+
+            case LdapFilterToken.SUBSTRING:
+                String substringRule = SchemaUtils.getSubstringMatchingRuleNameOrNumericOidTransitive( atd, schema );
+                if ( known && substringRule == null )
+                {
+                    return UNDEFINED;
+                }
+                MatchingRuleKind substringKind = getKind( substringRule, schema );
+                if ( substringKind == null )
+                {
+                    substringKind = getEqualityKind( atd, schema );
+                }
+                return compileSubstring( attribute, substringKind, assertion, missing );
+
+            default:
+                throw new IllegalArgumentException( item.toString() );
+        }
+    }
+
+
+    private static Evaluator compileEquality( String attribute, MatchingRuleKind kind, String assertion,
+        Evaluator missing, Schema schema )
+    {
+        byte[] assertionBytes = unescape( assertion );
+        String normalizedAssertion = kind.normalize( new String( assertionBytes, StandardCharsets.UTF_8 ), schema );
+        if ( !kind.isValid( normalizedAssertion ) )
+        {
+            return UNDEFINED;
+        }
+
+        return entry -> anyValue( entry, attribute, value -> value.isBinary()
+            ? Arrays.equals( assertionBytes, value.getBinaryValue() )
+            : normalizedAssertion.equals( kind.normalize( value.getStringValue(), schema ) ), missing );
+    }
+
+
+    private static Evaluator compileOrdering( String attribute, MatchingRuleKind kind, boolean greaterOrEqual,
+        String assertion, Evaluator missing, Schema schema )
+    {
+        String normalizedAssertion = kind.normalize( unescapeString( assertion ), schema );
+        if ( !kind.isValid( normalizedAssertion ) )
+        {
+            return UNDEFINED;
+        }
+
+        return entry -> anyValue( entry, attribute, value -> {
+            if ( value.isBinary() )
+            {
+                return false;
+            }
+            int result = kind.compare( kind.normalize( value.getStringValue(), schema ), normalizedAssertion );
+            return greaterOrEqual ? result >= 0 : result <= 0;
+        }, missing );
+    }
+
+
+    private static Evaluator compileSubstring( String attribute, MatchingRuleKind kind, String assertion,
+        Evaluator missing )
+    {
+        // the asterisks in the value token are the wildcards, escaped asterisks are \2a
+        String[] parts = assertion.split( "\\*", -1 ); //$NON-NLS-1$
+        String[] normalizedParts = new String[parts.length];
+        for ( int i = 0; i < parts.length; i++ )
+        {
+            normalizedParts[i] = kind.normalizeSubstring( unescapeString( parts[i] ) );
+        }
+
+        return entry -> anyValue( entry, attribute, value -> !value.isBinary()
+            && matchesSubstring( kind.normalizeSubstring( value.getStringValue() ), normalizedParts ), missing );
+    }
+
+
+    private static boolean matchesSubstring( String value, String[] parts )
+    {
+        String initial = parts[0];
+        String fin = parts[parts.length - 1];
+        if ( !value.startsWith( initial ) )
+        {
+            return false;
+        }
+
+        int position = initial.length();
+        for ( int i = 1; i < parts.length - 1; i++ )
+        {
+            int index = value.indexOf( parts[i], position );
+            if ( index == -1 )
+            {
+                return false;
+            }
+            position = index + parts[i].length();
+        }
+
+        return value.length() - fin.length() >= position && value.endsWith( fin );
+    }
+
+
+    private static Evaluator compileExtensible( LdapFilterExtensibleComponent extensible, Schema schema )
+    {
+        String attribute = extensible.getAttributeToken() != null ? extensible.getAttributeToken().getValue() : null;
+        AttributeType atd = attribute != null ? schema.getAttributeTypeDescription( attribute ) : null;
+        boolean dnAttributes = extensible.getDnAttrToken() != null;
+        String assertion = unescapeString( extensible.getValueToken().getValue() );
+
+        MatchingRuleKind kind = null;
+        if ( extensible.getMatchingRuleToken() != null )
+        {
+            String matchingRule = extensible.getMatchingRuleToken().getValue();
+            if ( !MATCHING_RULE_KINDS.containsKey( matchingRule.toLowerCase( Locale.ROOT ) )
+                && !schema.hasMatchingRuleDescription( matchingRule ) )
+            {
+                // the matching rule is not recognized
+                return UNDEFINED;
+            }
+            kind = getKind( matchingRule, schema );
+        }
+        if ( kind == null )
+        {
+            kind = atd != null ? getEqualityKind( atd, schema ) : MatchingRuleKind.CASE_IGNORE;
+        }
+
+        MatchingRuleKind matchingRuleKind = kind;
+        String normalizedAssertion = kind.normalize( assertion, schema );
+        if ( !kind.isValid( normalizedAssertion ) )
+        {
+            return UNDEFINED;
+        }
+        Predicate<IValue> valuePredicate = value -> !value.isBinary()
+            && normalizedAssertion.equals( matchingRuleKind.normalize( value.getStringValue(), schema ) );
+
+        Evaluator evaluator;
+        if ( attribute != null )
+        {
+            Evaluator missing = compileMissing( attribute, atd, schema );
+            evaluator = entry -> anyValue( entry, attribute, valuePredicate, missing );
+        }
+        else
+        {
+            evaluator = entry -> {
+                IAttribute[] attributes = entry.getAttributes();
+                if ( attributes != null )
+                {
+                    for ( IAttribute a : attributes )
+                    {
+                        for ( IValue value : a.getValues() )
+                        {
+                            if ( !value.isEmpty() && valuePredicate.test( value ) )
+                            {
+                                return Result.TRUE;
+                            }
+                        }
+                    }
+                }
+                return entry.isAttributesInitialized() ? Result.FALSE : Result.UNDEFINED;
+            };
+        }
+
+        if ( dnAttributes )
+        {
+            // the attribute values of the Dn are taken into account too
+            String oid = atd != null ? atd.getOid() : null;
+            Evaluator attributesEvaluator = evaluator;
+            evaluator = entry -> {
+                for ( Rdn rdn : entry.getDn() )
+                {
+                    for ( Ava ava : rdn )
+                    {
+                        String avaOid = schema.getAttributeTypeDescription( ava.getType() ).getOid();
+                        if ( ( oid == null || oid.equals( avaOid ) ) && normalizedAssertion.equals(
+                            matchingRuleKind.normalize( ava.getValue().getString(), schema ) ) )
+                        {
+                            return Result.TRUE;
+                        }
+                    }
+                }
+                return attributesEvaluator.evaluate( entry );
+            };
+        }
+
+        return evaluator;
+    }
+
+
+    /**
+     * Checks if any cached value of the attribute or its subtypes matches.
+     * 
+     * @param entry the entry
+     * @param attribute the attribute type
+     * @param predicate the predicate of a single value
+     * @param missing evaluates the entry if the attribute is not in the cache
+     * @return TRUE if any value matches, FALSE if none matches
+     */
+    private static Result anyValue( IEntry entry, String attribute, Predicate<IValue> predicate, Evaluator missing )
+    {
+        AttributeHierarchy ah = entry.getAttributeWithSubtypes( attribute );
+        if ( ah == null )
+        {
+            return missing.evaluate( entry );
+        }
+
+        for ( IAttribute a : ah )
+        {
+            for ( IValue value : a.getValues() )
+            {
+                if ( !value.isEmpty() && predicate.test( value ) )
+                {
+                    return Result.TRUE;
+                }
+            }
+        }
+
+        return Result.FALSE;
+    }
+
+
+    /**
+     * Compiles the result of a filter item whose attribute is not in the cache. The 
+     * attribute is known to be absent if the attributes of the entry were read, and 
+     * for operational attributes if the operational attributes were read too. Then 
+     * the item is FALSE. Otherwise the attribute may just not be in the cache, and 
+     * the item is UNDEFINED. It is UNDEFINED too if the schema doesn't know the 
+     * attribute type.
+     */
+    private static Evaluator compileMissing( String attribute, AttributeType atd, Schema schema )
+    {
+        if ( !schema.hasAttributeTypeDescription( attribute ) )
+        {
+            return UNDEFINED;
+        }
+
+        boolean operational = SchemaUtils.isOperational( atd );
+        return entry -> entry.isAttributesInitialized() && ( !operational || entry.isInitOperationalAttributes() )
+            ? Result.FALSE
+            : Result.UNDEFINED;
+    }
+
+
+    private static boolean isObjectClass( AttributeType atd )
+    {
+        return SchemaConstants.OBJECT_CLASS_AT_OID.equals( atd.getOid() )
+            || SchemaConstants.OBJECT_CLASS_AT.equalsIgnoreCase( atd.getName() );
+    }
+
+
+    private static MatchingRuleKind getEqualityKind( AttributeType atd, Schema schema )
+    {
+        MatchingRuleKind kind = getKind( SchemaUtils.getEqualityMatchingRuleNameOrNumericOidTransitive( atd, schema ),
+            schema );
+        return kind != null ? kind : MatchingRuleKind.CASE_IGNORE;
+    }
+
+
+    private static MatchingRuleKind getKind( String matchingRule, Schema schema )
+    {
+        if ( matchingRule == null )
+        {
+            return null;
+        }
+
+        MatchingRuleKind kind = MATCHING_RULE_KINDS.get( matchingRule.toLowerCase( Locale.ROOT ) );
+        if ( kind == null )
+        {
+            // the rule may be referenced by another name or by its numeric OID
+            MatchingRule mrd = schema.getMatchingRuleDescription( matchingRule );
+            kind = MATCHING_RULE_KINDS.get( mrd.getOid().toLowerCase( Locale.ROOT ) );
+            for ( String name : mrd.getNames() )
+            {
+                if ( kind == null )
+                {
+                    kind = MATCHING_RULE_KINDS.get( name.toLowerCase( Locale.ROOT ) );
+                }
+            }
+        }
+
+        return kind;
+    }
+
+
+    private static void register( MatchingRuleKind kind, String oid, String name )
+    {
+        MATCHING_RULE_KINDS.put( oid, kind );
+        MATCHING_RULE_KINDS.put( name.toLowerCase( Locale.ROOT ), kind );
+    }
+
+
+    private static String unescapeString( String value )
+    {
+        return new String( unescape( value ), StandardCharsets.UTF_8 );
+    }
+
+
+    /**
+     * Unescapes the \XX hex pairs of an assertion value.
+     */
+    private static byte[] unescape( String value )
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream( value.length() );
+        int i = 0;
+        while ( i < value.length() )
+        {
+            char c = value.charAt( i );
+            if ( c == '\\' && i + 2 < value.length() && Character.digit( value.charAt( i + 1 ), 16 ) >= 0
+                && Character.digit( value.charAt( i + 2 ), 16 ) >= 0 )
+            {
+                out.write( Character.digit( value.charAt( i + 1 ), 16 ) * 16 + Character.digit( value.charAt( i + 2 ),
+                    16 ) );
+                i += 3;
+            }
+            else
+            {
+                int end = i + 1;
+                while ( end < value.length() && value.charAt( end ) != '\\' )
+                {
+                    end++;
+                }
+                byte[] bytes = value.substring( i, end ).getBytes( StandardCharsets.UTF_8 );
+                out.write( bytes, 0, bytes.length );
+                i = end;
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+
+    /**
+     * The result of a filter evaluated against an entry, see RFC 4511, section 4.5.1.7. 
+     * A filter item is UNDEFINED if its attribute type has no matching rule of the 
+     * requested kind, if its assertion value is not valid, or if it is not known from 
+     * the cache whether the entry has the attribute.
+     */
+    public enum Result
+    {
+        TRUE, FALSE, UNDEFINED;
+
+        /**
+         * Negates this result, UNDEFINED stays UNDEFINED.
+         * 
+         * @return the negated result
+         */
+        public Result not()
+        {
+            switch ( this )
+            {
+                case TRUE:
+                    return FALSE;
+                case FALSE:
+                    return TRUE;
+                default:
+                    return UNDEFINED;
+            }
+        }
+    }
+
+
+    /**
+     * A compiled filter or filter component.
+     */
+    private interface Evaluator
+    {
+        Result evaluate( IEntry entry );
+    }
+
+
+    /**
+     * The kinds of matching rules and how their values are normalized and compared.
+     */
+    private enum MatchingRuleKind
+    {
+        CASE_IGNORE, CASE_EXACT, NUMERIC_STRING, TELEPHONE_NUMBER, INTEGER, BOOLEAN, DISTINGUISHED_NAME,
+        OBJECT_IDENTIFIER, GENERALIZED_TIME, OCTET_STRING;
+
+        /** Compares integers by their numeric value. */
+        private static final Comparator<String> INTEGER_COMPARATOR = ( i1, i2 ) -> {
+            try
+            {
+                return new BigInteger( i1 ).compareTo( new BigInteger( i2 ) );
+            }
+            catch ( NumberFormatException e )
+            {
+                return i1.compareTo( i2 );
+            }
+        };
+
+
+        /**
+         * Normalizes an attribute or assertion value.
+         */
+        String normalize( String value, Schema schema )
+        {
+            switch ( this )
+            {
+                case CASE_IGNORE:
+                    return removeInsignificantSpaces( value ).toLowerCase( Locale.ROOT );
+                case CASE_EXACT:
+                    return removeInsignificantSpaces( value );
+                case NUMERIC_STRING:
+                    return value.replace( " ", "" ); //$NON-NLS-1$ //$NON-NLS-2$
+                case TELEPHONE_NUMBER:
+                    return value.replace( " ", "" ).replace( "-", "" ).toLowerCase( Locale.ROOT ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+                case INTEGER:
+                    String trimmed = value.trim();
+                    try
+                    {
+                        return new BigInteger( trimmed ).toString();
+                    }
+                    catch ( NumberFormatException e )
+                    {
+                        return trimmed;
+                    }
+                case BOOLEAN:
+                case GENERALIZED_TIME:
+                    return value.trim().toUpperCase( Locale.ROOT );
+                case DISTINGUISHED_NAME:
+                    try
+                    {
+                        return Utils.getNormalizedOidString( new Dn( value ), schema );
+                    }
+                    catch ( Exception e )
+                    {
+                        return removeInsignificantSpaces( value ).toLowerCase( Locale.ROOT );
+                    }
+                case OBJECT_IDENTIFIER:
+                    String oid = value.trim();
+                    ObjectClass ocd = schema.hasObjectClassDescription( oid ) ? schema
+                        .getObjectClassDescription( oid ) : null;
+                    if ( ocd != null )
+                    {
+                        return ocd.getOid();
+                    }
+                    if ( schema.hasAttributeTypeDescription( oid ) )
+                    {
+                        return schema.getAttributeTypeDescription( oid ).getOid();
+                    }
+                    return oid.toLowerCase( Locale.ROOT );
+                default:
+                    return value;
+            }
+        }
+
+
+        /**
+         * Normalizes an attribute value or a part of a substring assertion. Unlike 
+         * {@link #normalize(String, Schema)}, leading and trailing spaces are kept.
+         */
+        String normalizeSubstring( String value )
+        {
+            switch ( this )
+            {
+                case CASE_IGNORE:
+                    return value.replaceAll( "\\s+", " " ).toLowerCase( Locale.ROOT ); //$NON-NLS-1$ //$NON-NLS-2$
+                case CASE_EXACT:
+                    return value.replaceAll( "\\s+", " " ); //$NON-NLS-1$ //$NON-NLS-2$
+                case NUMERIC_STRING:
+                    return value.replace( " ", "" ); //$NON-NLS-1$ //$NON-NLS-2$
+                case TELEPHONE_NUMBER:
+                    return value.replace( " ", "" ).replace( "-", "" ).toLowerCase( Locale.ROOT ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+                default:
+                    return value.toLowerCase( Locale.ROOT );
+            }
+        }
+
+
+        /**
+         * Checks if a normalized assertion value is valid for the syntax of the matching rule.
+         */
+        boolean isValid( String value )
+        {
+            switch ( this )
+            {
+                case NUMERIC_STRING:
+                    return value.matches( "[0-9]*" ); //$NON-NLS-1$
+                case INTEGER:
+                    try
+                    {
+                        new BigInteger( value );
+                        return true;
+                    }
+                    catch ( NumberFormatException e )
+                    {
+                        return false;
+                    }
+                case BOOLEAN:
+                    return "TRUE".equals( value ) || "FALSE".equals( value ); //$NON-NLS-1$ //$NON-NLS-2$
+                default:
+                    return true;
+            }
+        }
+
+
+        /**
+         * Compares two normalized values.
+         */
+        int compare( String value1, String value2 )
+        {
+            return this == INTEGER ? INTEGER_COMPARATOR.compare( value1, value2 ) : value1.compareTo( value2 );
+        }
+
+
+        private static String removeInsignificantSpaces( String value )
+        {
+            return value.trim().replaceAll( "\\s+", " " ); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+}
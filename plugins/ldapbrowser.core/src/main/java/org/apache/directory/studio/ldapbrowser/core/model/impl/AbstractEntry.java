@@ -24,8 +24,8 @@ package org.apache.directory.studio.ldapbrowser.core.model.impl;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.apache.directory.api.ldap.model.constants.SchemaConstants;
 import org.apache.directory.api.ldap.model.name.Rdn;
@@ -123,18 +123,14 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
      */
     public void addChild( IEntry childToAdd )
     {
-        ChildrenInfo ci = getBrowserConnectionImpl().getChildrenInfo( this );
-        if ( ci == null )
-        {
-            ci = new ChildrenInfo();
-            getBrowserConnectionImpl().setChildrenInfo( this, ci );
-        }
+        updateChildrenInfo( ci -> {
+            if ( ci.childrenSet == null )
+            {
+                ci.childrenSet = new ChildrenStore();
+            }
+            ci.childrenSet.add( childToAdd );
+        } );
 
-        if ( ci.childrenSet == null )
-        {
-            ci.childrenSet = new LinkedHashSet<IEntry>();
-        }
-        ci.childrenSet.add( childToAdd );
         entryModified( new EntryAddedEvent( childToAdd.getBrowserConnection(), childToAdd ) );
     }
 
@@ -148,13 +144,16 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
 
         if ( ci != null )
         {
-            if ( ci.childrenSet != null )
-            {
-                ci.childrenSet.remove( childToDelete );
-            }
-            if ( ci.childrenSet == null || ci.childrenSet.isEmpty() )
+            synchronized ( ci )
             {
-                getBrowserConnectionImpl().setChildrenInfo( this, null );
+                if ( ci.childrenSet != null )
+                {
+                    ci.childrenSet.remove( childToDelete );
+                }
+                if ( ci.childrenSet == null || ci.childrenSet.isEmpty() )
+                {
+                    getBrowserConnectionImpl().removeChildrenInfo( this, ci );
+                }
             }
             entryModified( new EntryDeletedEvent( getBrowserConnectionImpl(), childToDelete ) );
         }
@@ -184,21 +183,38 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
         {
             String oidString = attributeToAdd.getAttributeDescription()
                 .toOidString( getBrowserConnection().getSchema() );
-            AttributeInfo ai = getBrowserConnectionImpl().getAttributeInfo( this );
-            if ( ai == null )
-            {
-                ai = new AttributeInfo();
-                getBrowserConnectionImpl().setAttributeInfo( this, ai );
-            }
+            String key = Strings.toLowerCase( oidString );
 
-            if ( ai.attributeMap.containsKey( Strings.toLowerCase( oidString ) ) )
+            while ( true )
             {
-                throw new IllegalArgumentException( BrowserCoreMessages.model__attribute_already_exists );
-            }
+                AttributeInfo ai = getBrowserConnectionImpl().getOrCreateAttributeInfo( this );
 
-            ai.attributeMap.put( Strings.toLowerCase( oidString ), attributeToAdd );
+                synchronized ( ai )
+                {
+                    // the attribute info may have been removed meanwhile, e.g. by deleting the last attribute
+                    if ( getBrowserConnectionImpl().getAttributeInfo( this ) != ai )
+                    {
+                        continue;
+                    }
+
+                    if ( ai.attributeMap.containsKey( key ) )
+                    {
+                        throw new IllegalArgumentException( BrowserCoreMessages.model__attribute_already_exists );
+                    }
+
+                    ai.attributeMap.put( key, attributeToAdd );
+                    if ( attributeToAdd instanceof Attribute )
+                    {
+                        ( ( Attribute ) attributeToAdd ).setAttributeInfo( ai );
+                    }
+                    getBrowserConnectionImpl().attributeInfoSizeChanged( this, ai,
+                        EntryCache.estimateSize( attributeToAdd ) );
+                    break;
+                }
+            }
         }
 
+        getBrowserConnectionImpl().attributesModified( this );
         entryModified( new AttributeAddedEvent( getBrowserConnectionImpl(), this, attributeToAdd ) );
     }
 
@@ -223,16 +239,32 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
             String oidString = attributeToDelete.getAttributeDescription().toOidString(
                 getBrowserConnection().getSchema() );
             AttributeInfo ai = getBrowserConnectionImpl().getAttributeInfo( this );
-            if ( ai != null && ai.attributeMap != null
-                && ai.attributeMap.containsKey( Strings.toLowerCase( oidString ) ) )
+            IAttribute deleted = null;
+            if ( ai != null )
             {
-                attributeToDelete = ( IAttribute ) ai.attributeMap.get( Strings.toLowerCase( oidString ) );
-                ai.attributeMap.remove( Strings.toLowerCase( oidString ) );
-                if ( ai.attributeMap.isEmpty() )
+                synchronized ( ai )
                 {
-                    getBrowserConnectionImpl().setAttributeInfo( this, null );
+                    deleted = ai.attributeMap.remove( Strings.toLowerCase( oidString ) );
+                    if ( deleted != null )
+                    {
+                        if ( deleted instanceof Attribute )
+                        {
+                            ( ( Attribute ) deleted ).setAttributeInfo( null );
+                        }
+                        getBrowserConnectionImpl().attributeInfoSizeChanged( this, ai,
+                            -EntryCache.estimateSize( deleted ) );
+                        if ( ai.attributeMap.isEmpty() )
+                        {
+                            getBrowserConnectionImpl().removeAttributeInfo( this, ai );
+                        }
+                    }
                 }
             }
+
+            if ( deleted != null )
+            {
+                attributeToDelete = deleted;
+            }
             else
             {
                 throw new IllegalArgumentException( BrowserCoreMessages.model__attribute_does_not_exist + ": " //$NON-NLS-1$
@@ -240,6 +272,7 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
             }
         }
 
+        getBrowserConnectionImpl().attributesModified( this );
         entryModified( new AttributeDeletedEvent( getBrowserConnectionImpl(), this, attributeToDelete ) );
     }
 
@@ -407,12 +440,8 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
      */
     public void setAttributesInitialized( boolean b )
     {
-        AttributeInfo ai = getBrowserConnectionImpl().getAttributeInfo( this );
-        if ( ai == null && b )
-        {
-            ai = new AttributeInfo();
-            getBrowserConnectionImpl().setAttributeInfo( this, ai );
-        }
+        AttributeInfo ai = b ? getBrowserConnectionImpl().getOrCreateAttributeInfo( this )
+            : getBrowserConnectionImpl().getAttributeInfo( this );
 
         if ( ai != null )
         {
@@ -421,10 +450,21 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
 
         if ( ai != null && !b )
         {
-            ai.attributeMap.clear();
-            getBrowserConnectionImpl().setAttributeInfo( this, null );
+            synchronized ( ai )
+            {
+                for ( IAttribute attribute : ai.attributeMap.values() )
+                {
+                    if ( attribute instanceof Attribute )
+                    {
+                        ( ( Attribute ) attribute ).setAttributeInfo( null );
+                    }
+                }
+                ai.attributeMap.clear();
+                getBrowserConnectionImpl().removeAttributeInfo( this, ai );
+            }
         }
 
+        getBrowserConnectionImpl().attributesModified( this );
         entryModified( new AttributesInitializedEvent( this ) );
     }
 
@@ -537,9 +577,12 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
         Collection<IAttribute> attributes = new HashSet<IAttribute>();
 
         AttributeInfo ai = getBrowserConnectionImpl().getAttributeInfo( this );
-        if ( ai != null && ai.attributeMap != null )
+        if ( ai != null )
         {
-            attributes.addAll( ai.attributeMap.values() );
+            synchronized ( ai )
+            {
+                attributes.addAll( ai.attributeMap.values() );
+            }
         }
         if ( objectClassAttribute != null )
         {
@@ -555,7 +598,7 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
      */
     public IAttribute getAttribute( String attributeDescription )
     {
-        AttributeDescription ad = new AttributeDescription( attributeDescription );
+        AttributeDescription ad = AttributeDescription.valueOf( attributeDescription );
         String oidString = ad.toOidString( getBrowserConnection().getSchema() );
         if ( oidString.equals( SchemaConstants.OBJECT_CLASS_AT_OID )
             || ( SchemaConstants.OBJECT_CLASS_AT.equalsIgnoreCase( attributeDescription ) ) )
@@ -565,13 +608,16 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
         else
         {
             AttributeInfo ai = getBrowserConnectionImpl().getAttributeInfo( this );
-            if ( ai == null || ai.attributeMap == null )
+            if ( ai == null )
             {
                 return null;
             }
             else
             {
-                return ( IAttribute ) ai.attributeMap.get( Strings.toLowerCase( oidString ) );
+                synchronized ( ai )
+                {
+                    return ai.attributeMap.get( Strings.toLowerCase( oidString ) );
+                }
             }
         }
     }
@@ -590,7 +636,7 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
             attributeList.add( myAttribute );
         }
 
-        AttributeDescription ad = new AttributeDescription( attributeDescription );
+        AttributeDescription ad = AttributeDescription.valueOf( attributeDescription );
         IAttribute[] allAttributes = getAttributes();
         for ( IAttribute attribute : allAttributes )
         {
@@ -619,25 +665,25 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
      */
     public void setChildrenInitialized( boolean b )
     {
-        ChildrenInfo ci = getBrowserConnectionImpl().getChildrenInfo( this );
-        if ( ci == null && b )
-        {
-            ci = new ChildrenInfo();
-            getBrowserConnectionImpl().setChildrenInfo( this, ci );
-        }
-
-        if ( ci != null )
+        if ( b )
         {
-            ci.childrenInitialized = b;
+            updateChildrenInfo( ci -> ci.childrenInitialized = true );
         }
-
-        if ( ci != null && !b )
+        else
         {
-            if ( ci.childrenSet != null )
+            ChildrenInfo ci = getBrowserConnectionImpl().getChildrenInfo( this );
+            if ( ci != null )
             {
-                ci.childrenSet.clear();
+                synchronized ( ci )
+                {
+                    ci.childrenInitialized = false;
+                    if ( ci.childrenSet != null )
+                    {
+                        ci.childrenSet.clear();
+                    }
+                    getBrowserConnectionImpl().removeChildrenInfo( this, ci );
+                }
             }
-            getBrowserConnectionImpl().setChildrenInfo( this, null );
         }
 
         entryModified( new ChildrenInitializedEvent( this ) );
@@ -670,22 +716,29 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
         }
         else
         {
-            IEntry[] children = new IEntry[count];
             ChildrenInfo ci = getBrowserConnectionImpl().getChildrenInfo( this );
-            int i = 0;
-            if ( ci.childrenSet != null )
-            {
-                for ( IEntry child : ci.childrenSet )
-                {
-                    children[i] = child;
-                    i++;
-                }
-            }
-            return children;
+            ChildrenStore children = ci != null ? ci.childrenSet : null;
+            return children != null ? children.toArray() : new IEntry[0];
         }
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    public IEntry[] getChildren( int first, int last )
+    {
+        if ( getChildrenCount() < 0 )
+        {
+            return null;
+        }
+
+        ChildrenInfo ci = getBrowserConnectionImpl().getChildrenInfo( this );
+        ChildrenStore children = ci != null ? ci.childrenSet : null;
+        return children != null ? children.toArray( first, last ) : new IEntry[0];
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -712,13 +765,7 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
      */
     public void setHasMoreChildren( boolean b )
     {
-        ChildrenInfo ci = getBrowserConnectionImpl().getChildrenInfo( this );
-        if ( ci == null )
-        {
-            ci = new ChildrenInfo();
-            getBrowserConnectionImpl().setChildrenInfo( this, ci );
-        }
-        ci.hasMoreChildren = b;
+        updateChildrenInfo( ci -> ci.hasMoreChildren = b );
 
         entryModified( new ChildrenInitializedEvent( this ) );
     }
@@ -739,16 +786,17 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
      */
     public void setTopPageChildrenRunnable( StudioConnectionBulkRunnableWithProgress topPageChildrenRunnable )
     {
-        ChildrenInfo ci = getBrowserConnectionImpl().getChildrenInfo( this );
-        if ( ci == null && topPageChildrenRunnable != null )
+        if ( topPageChildrenRunnable != null )
         {
-            ci = new ChildrenInfo();
-            getBrowserConnectionImpl().setChildrenInfo( this, ci );
+            updateChildrenInfo( ci -> ci.topPageChildrenRunnable = topPageChildrenRunnable );
         }
-
-        if ( ci != null )
+        else
         {
-            ci.topPageChildrenRunnable = topPageChildrenRunnable;
+            ChildrenInfo ci = getBrowserConnectionImpl().getChildrenInfo( this );
+            if ( ci != null )
+            {
+                ci.topPageChildrenRunnable = null;
+            }
         }
     }
 
@@ -768,16 +816,17 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
      */
     public void setNextPageChildrenRunnable( StudioConnectionBulkRunnableWithProgress nextPageChildrenRunnable )
     {
-        ChildrenInfo ci = getBrowserConnectionImpl().getChildrenInfo( this );
-        if ( ci == null && nextPageChildrenRunnable != null )
+        if ( nextPageChildrenRunnable != null )
         {
-            ci = new ChildrenInfo();
-            getBrowserConnectionImpl().setChildrenInfo( this, ci );
+            updateChildrenInfo( ci -> ci.nextPageChildrenRunnable = nextPageChildrenRunnable );
         }
-
-        if ( ci != null )
+        else
         {
-            ci.nextPageChildrenRunnable = nextPageChildrenRunnable;
+            ChildrenInfo ci = getBrowserConnectionImpl().getChildrenInfo( this );
+            if ( ci != null )
+            {
+                ci.nextPageChildrenRunnable = null;
+            }
         }
     }
 
@@ -792,6 +841,33 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
     }
 
 
+    /**
+     * Updates the children info of this entry while holding its lock, the children info 
+     * is created if it doesn't exist. The children info is removed when the last child 
+     * is deleted, so the update is retried until it was applied to the children info
+     * that is still registered at the browser connection.
+     * 
+     * @param update the update
+     */
+    private void updateChildrenInfo( Consumer<ChildrenInfo> update )
+    {
+        while ( true )
+        {
+            ChildrenInfo ci = getBrowserConnectionImpl().getOrCreateChildrenInfo( this );
+
+            synchronized ( ci )
+            {
+                // the children info may have been removed meanwhile, e.g. by deleting the last child
+                if ( getBrowserConnectionImpl().getChildrenInfo( this ) == ci )
+                {
+                    update.accept( ci );
+                    return;
+                }
+            }
+        }
+    }
+
+
     /**
      * {@inheritDoc}
      */
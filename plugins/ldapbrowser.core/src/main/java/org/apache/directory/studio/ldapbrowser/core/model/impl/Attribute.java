@@ -22,9 +22,12 @@ package org.apache.directory.studio.ldapbrowser.core.model.impl;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
 
 import org.apache.directory.api.ldap.model.constants.SchemaConstants;
 import org.apache.directory.api.ldap.model.schema.AttributeType;
@@ -43,7 +46,10 @@ import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
 import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+import org.apache.directory.studio.ldapbrowser.core.model.filter.CompiledLdapFilter;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
 import org.apache.directory.studio.ldapbrowser.core.model.schema.SchemaUtils;
+import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
 import org.eclipse.search.ui.ISearchPageScoreComputer;
 
 
@@ -58,14 +64,53 @@ public class Attribute implements IAttribute
     /** The serialVersionUID. */
     private static final long serialVersionUID = -5679384884002589786L;
 
+    /** The packed raw values of an attribute without values */
+    private static final Object[] NO_RAW_VALUES = new Object[0];
+
+    /** The number of values from which on the values are indexed */
+    static final int INDEX_THRESHOLD = 64;
+
     /** The attribute description */
     private AttributeDescription attributeDescription;
 
     /** The entry this attribute belongs to */
     private IEntry entry;
 
-    /** The values */
-    private List<IValue> valueList;
+    /** The packed raw values, the {@link IValue}s are created on demand */
+    private Object[] rawValues;
+
+    /** The number of used slots of the packed raw values, deleted values of an indexed attribute leave a null slot */
+    private int slotCount;
+
+    /** The number of values */
+    private int valueCount;
+
+    /** The index from value keys to slots, only maintained for attributes with many values */
+    private transient Map<Object, Integer> valueIndex;
+
+    /** Whether the index was built for binary values */
+    private transient boolean valueIndexBinary;
+
+    /** The normalizer the index was built with */
+    private transient UnaryOperator<String> valueIndexNormalizer;
+
+    /** The normalizer of string values by the equality matching rule of the attribute type */
+    private transient UnaryOperator<String> valueNormalizer;
+
+    /** The schema the normalizer was created with */
+    private transient Schema valueNormalizerSchema;
+
+    /** The number of non-empty values that are not indexed because an equal value is already indexed */
+    private transient int unindexedValueCount;
+
+    /** The estimated memory used by the values */
+    private transient long estimatedValuesSize;
+
+    /** The {@link IValue} views of the values, created on demand and dropped when the values change */
+    private transient volatile IValue[] valueViews;
+
+    /** The attribute info of the entry while this attribute is added to the entry, null otherwise */
+    private transient volatile AttributeInfo attributeInfo;
 
 
     /**
@@ -83,9 +128,8 @@ public class Attribute implements IAttribute
         assert description != null;
 
         this.entry = entry;
-        this.attributeDescription = new AttributeDescription( description );
-        this.valueList = new ArrayList<IValue>();
-
+        this.attributeDescription = AttributeDescription.valueOf( description );
+        this.rawValues = NO_RAW_VALUES;
     }
 
 
@@ -103,14 +147,14 @@ public class Attribute implements IAttribute
      */
     public boolean isConsistent()
     {
-        if ( valueList.isEmpty() )
+        if ( valueCount == 0 )
         {
             return false;
         }
 
-        for ( IValue value : valueList )
+        for ( int i = 0; i < slotCount; i++ )
         {
-            if ( value.isEmpty() )
+            if ( isEmptyRawValue( rawValues[i] ) )
             {
                 return false;
             }
@@ -188,7 +232,7 @@ public class Attribute implements IAttribute
     public void addEmptyValue()
     {
         IValue emptyValue = new Value( this );
-        valueList.add( emptyValue );
+        appendRawValue( emptyValue.getRawValue() );
         attributeModified( new EmptyValueAddedEvent( getEntry().getBrowserConnection(), getEntry(), this, emptyValue ) );
     }
 
@@ -198,12 +242,12 @@ public class Attribute implements IAttribute
      */
     public void deleteEmptyValue()
     {
-        for ( Iterator<IValue> it = this.valueList.iterator(); it.hasNext(); )
+        for ( int i = 0; i < slotCount; i++ )
         {
-            IValue value = it.next();
-            if ( value.isEmpty() )
+            if ( isEmptyRawValue( rawValues[i] ) )
             {
-                it.remove();
+                IValue value = new Value( this, rawValues[i] );
+                removeRawValue( i );
                 attributeModified( new EmptyValueDeletedEvent( getEntry().getBrowserConnection(), getEntry(), this,
                     value ) );
                 return;
@@ -219,6 +263,10 @@ public class Attribute implements IAttribute
      */
     private void attributeModified( EntryModificationEvent event )
     {
+        if ( getEntry().getBrowserConnection() instanceof BrowserConnection )
+        {
+            ( ( BrowserConnection ) getEntry().getBrowserConnection() ).attributesModified( getEntry() );
+        }
         EventRegistry.fireEntryUpdated( event, getEntry() );
     }
 
@@ -250,16 +298,282 @@ public class Attribute implements IAttribute
      */
     private boolean internalDeleteValue( IValue valueToDelete )
     {
-        for ( Iterator<IValue> it = valueList.iterator(); it.hasNext(); )
+        int slot = findSlot( valueToDelete );
+        if ( slot >= 0 )
         {
-            IValue value = it.next();
-            if ( value.equals( valueToDelete ) )
+            removeRawValue( slot );
+            return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Finds the slot of the given value, using the index if the attribute has many values.
+     * String values are compared by the equality matching rule of the attribute type, e.g.
+     * a member is found regardless of the case and the spaces of its Dn.
+     *
+     * @param value the value
+     * @return the slot, -1 if the value doesn't exist
+     */
+    private int findSlot( IValue value )
+    {
+        Map<Object, Integer> index = getValueIndex();
+        Object key = getValueKey( value );
+        if ( key != null && index != null )
+        {
+            Integer slot = index.get( key );
+            return slot != null ? slot : -1;
+        }
+
+        for ( int i = 0; i < slotCount; i++ )
+        {
+            if ( rawValues[i] != null && ( key != null ? key.equals( getValueKey( new Value( this, rawValues[i] ) ) )
+                : new Value( this, rawValues[i] ).equals( value ) ) )
             {
-                it.remove();
-                return true;
+                return i;
             }
         }
-        return false;
+        return -1;
+    }
+
+
+    /**
+     * Gets the key of the given value, string values are normalized by the equality
+     * matching rule of the attribute type.
+     *
+     * @param value the value
+     * @return the key, null for an empty value
+     */
+    private Object getValueKey( IValue value )
+    {
+        return Utils.getValueKey( value, getValueNormalizer() );
+    }
+
+
+    /**
+     * Gets the normalizer of string values, it is created again if the schema changes.
+     *
+     * @return the normalizer
+     */
+    private UnaryOperator<String> getValueNormalizer()
+    {
+        Schema schema = getEntry().getBrowserConnection().getSchema();
+        if ( valueNormalizer == null || valueNormalizerSchema != schema )
+        {
+            valueNormalizer = schema != null ? CompiledLdapFilter.getEqualityNormalizer( getType(), schema )
+                : UnaryOperator.identity();
+            valueNormalizerSchema = schema;
+        }
+        return valueNormalizer;
+    }
+
+
+    /**
+     * Gets the index of the values. The index is built lazily once the attribute has
+     * many values, and rebuilt if the schema changes whether the values are binary or
+     * how they are normalized.
+     *
+     * @return the index, null if the attribute has few values
+     */
+    private Map<Object, Integer> getValueIndex()
+    {
+        if ( valueCount < INDEX_THRESHOLD )
+        {
+            if ( valueIndex != null )
+            {
+                compactRawValues();
+            }
+            return null;
+        }
+
+        boolean binary = isBinary();
+        UnaryOperator<String> normalizer = getValueNormalizer();
+        if ( valueIndex == null || valueIndexBinary != binary || valueIndexNormalizer != normalizer )
+        {
+            compactRawValues();
+            valueIndex = new HashMap<Object, Integer>( valueCount * 2 );
+            valueIndexBinary = binary;
+            valueIndexNormalizer = normalizer;
+            for ( int i = 0; i < slotCount; i++ )
+            {
+                indexRawValue( rawValues[i], i );
+            }
+        }
+        return valueIndex;
+    }
+
+
+    /**
+     * Adds the raw value at the given slot to the index.
+     *
+     * @param rawValue the raw value
+     * @param slot the slot
+     */
+    private void indexRawValue( Object rawValue, int slot )
+    {
+        Object key = getValueKey( new Value( this, rawValue ) );
+        if ( key != null && valueIndex.putIfAbsent( key, slot ) != null )
+        {
+            unindexedValueCount++;
+        }
+    }
+
+
+    /**
+     * Removes the null slots left by deleted values and drops the index.
+     */
+    private void compactRawValues()
+    {
+        if ( slotCount != valueCount )
+        {
+            int count = 0;
+            for ( int i = 0; i < slotCount; i++ )
+            {
+                if ( rawValues[i] != null )
+                {
+                    rawValues[count++] = rawValues[i];
+                }
+            }
+            Arrays.fill( rawValues, count, slotCount, null );
+            slotCount = count;
+        }
+
+        valueIndex = null;
+        unindexedValueCount = 0;
+    }
+
+
+    /**
+     * Appends the raw value to the packed values.
+     *
+     * @param rawValue the raw value
+     */
+    private void appendRawValue( Object rawValue )
+    {
+        getValueIndex();
+        if ( slotCount == rawValues.length )
+        {
+            rawValues = Arrays.copyOf( rawValues, slotCount < 4 ? slotCount + 1 : slotCount + ( slotCount >> 1 ) );
+        }
+        if ( valueIndex != null )
+        {
+            indexRawValue( rawValue, slotCount );
+        }
+        rawValues[slotCount++] = rawValue;
+        valueCount++;
+        valueViews = null;
+        valuesSizeChanged( EntryCache.estimateSize( rawValue ) );
+    }
+
+
+    /**
+     * Updates the estimated size of the values and of the cached attributes of the entry.
+     *
+     * @param delta the size delta in bytes
+     */
+    private void valuesSizeChanged( long delta )
+    {
+        estimatedValuesSize += delta;
+
+        AttributeInfo ai = attributeInfo;
+        if ( ai != null && getEntry().getBrowserConnection() instanceof BrowserConnection )
+        {
+            ( ( BrowserConnection ) getEntry().getBrowserConnection() ).attributeInfoSizeChanged( getEntry(), ai,
+                delta );
+        }
+    }
+
+
+    /**
+     * Gets the estimated memory used by the values.
+     *
+     * @return the estimated size in bytes
+     */
+    long getEstimatedValuesSize()
+    {
+        return estimatedValuesSize;
+    }
+
+
+    /**
+     * Sets the attribute info of the entry when this attribute is added to or deleted from the entry.
+     *
+     * @param attributeInfo the attribute info, null if the attribute was deleted
+     */
+    void setAttributeInfo( AttributeInfo attributeInfo )
+    {
+        this.attributeInfo = attributeInfo;
+    }
+
+
+    /**
+     * Removes the raw value at the given slot from the packed values. If the values
+     * are indexed the slot is cleared and the values are compacted once half of the
+     * slots are unused, otherwise the following values are moved.
+     *
+     * @param slot the slot
+     */
+    private void removeRawValue( int slot )
+    {
+        valuesSizeChanged( -EntryCache.estimateSize( rawValues[slot] ) );
+        valueViews = null;
+
+        if ( valueIndex == null )
+        {
+            System.arraycopy( rawValues, slot + 1, rawValues, slot, slotCount - slot - 1 );
+            rawValues[--slotCount] = null;
+            valueCount--;
+            return;
+        }
+
+        Object key = getValueKey( new Value( this, rawValues[slot] ) );
+        rawValues[slot] = null;
+        valueCount--;
+        if ( key != null )
+        {
+            if ( valueIndex.remove( key, slot ) )
+            {
+                if ( unindexedValueCount > 0 )
+                {
+                    reindexDuplicate( key );
+                }
+            }
+            else
+            {
+                unindexedValueCount--;
+            }
+        }
+
+        if ( slotCount - valueCount > slotCount / 2 )
+        {
+            compactRawValues();
+        }
+    }
+
+
+    /**
+     * Indexes the next value with the given key after the indexed one was removed.
+     *
+     * @param key the key
+     */
+    private void reindexDuplicate( Object key )
+    {
+        for ( int i = 0; i < slotCount; i++ )
+        {
+            if ( rawValues[i] != null && key.equals( getValueKey( new Value( this, rawValues[i] ) ) ) )
+            {
+                valueIndex.put( key, i );
+                unindexedValueCount--;
+                return;
+            }
+        }
+    }
+
+
+    private static boolean isEmptyRawValue( Object rawValue )
+    {
+        return rawValue == IValue.EMPTY_STRING_VALUE || rawValue == IValue.EMPTY_BINARY_VALUE;
     }
 
 
@@ -269,7 +583,7 @@ public class Attribute implements IAttribute
     public void addValue( IValue valueToAdd ) throws IllegalArgumentException
     {
         checkValue( valueToAdd );
-        valueList.add( valueToAdd );
+        appendRawValue( valueToAdd.getRawValue() );
         attributeModified( new ValueAddedEvent( getEntry().getBrowserConnection(), getEntry(), this, valueToAdd ) );
     }
 
@@ -298,7 +612,7 @@ public class Attribute implements IAttribute
         checkValue( newValue );
 
         internalDeleteValue( oldValue );
-        valueList.add( newValue );
+        appendRawValue( newValue.getRawValue() );
         attributeModified( new ValueModifiedEvent( getEntry().getBrowserConnection(), getEntry(), this, oldValue,
             newValue ) );
     }
@@ -309,7 +623,45 @@ public class Attribute implements IAttribute
      */
     public IValue[] getValues()
     {
-        return ( IValue[] ) valueList.toArray( new IValue[0] );
+        // callers may reorder the returned array, so only the views are shared
+        return getValueViews().clone();
+    }
+
+
+    /**
+     * Gets the {@link IValue} views of the values. The views are created once and
+     * reused until the values change. The returned array must not be modified.
+     *
+     * @return the value views
+     */
+    private IValue[] getValueViews()
+    {
+        IValue[] views = valueViews;
+        if ( views == null )
+        {
+            Object[] raw = rawValues;
+            int count = Math.min( slotCount, raw.length );
+            List<IValue> values = new ArrayList<IValue>( count );
+            for ( int i = 0; i < count; i++ )
+            {
+                if ( raw[i] != null )
+                {
+                    values.add( new Value( this, raw[i] ) );
+                }
+            }
+            views = values.toArray( new IValue[values.size()] );
+            valueViews = views;
+        }
+        return views;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsValue( IValue value )
+    {
+        return value != null && findSlot( value ) >= 0;
     }
 
 
@@ -318,7 +670,7 @@ public class Attribute implements IAttribute
      */
     public int getValueSize()
     {
-        return valueList.size();
+        return valueCount;
     }
 
 
@@ -386,9 +738,9 @@ public class Attribute implements IAttribute
      */
     public byte[][] getBinaryValues()
     {
-        List<byte[]> binaryValueList = new ArrayList<byte[]>();
+        List<byte[]> binaryValueList = new ArrayList<byte[]>( valueCount );
 
-        IValue[] values = getValues();
+        IValue[] values = getValueViews();
         for ( IValue value : values )
         {
             binaryValueList.add( value.getBinaryValue() );
@@ -403,14 +755,14 @@ public class Attribute implements IAttribute
      */
     public String getStringValue()
     {
-        if ( getValueSize() > 0 )
+        for ( int i = 0; i < slotCount; i++ )
         {
-            return ( ( IValue ) valueList.get( 0 ) ).getStringValue();
-        }
-        else
-        {
-            return null;
+            if ( rawValues[i] != null )
+            {
+                return new Value( this, rawValues[i] ).getStringValue();
+            }
         }
+        return null;
     }
 
 
@@ -419,9 +771,9 @@ public class Attribute implements IAttribute
      */
     public String[] getStringValues()
     {
-        List<String> stringValueList = new ArrayList<String>();
+        List<String> stringValueList = new ArrayList<String>( valueCount );
 
-        IValue[] values = getValues();
+        IValue[] values = getValueViews();
         for ( IValue value : values )
         {
             stringValueList.add( value.getStringValue() );
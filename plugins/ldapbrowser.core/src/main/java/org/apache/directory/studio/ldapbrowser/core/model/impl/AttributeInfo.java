@@ -41,9 +41,15 @@ public class AttributeInfo implements Serializable
     /** The attributes initialized flag. */
     protected volatile boolean attributesInitialized = false;
 
-    /** The attribute map. */
+    /** The attribute map, guarded by the lock of this attribute info. */
     protected volatile Map<String, IAttribute> attributeMap = new LinkedHashMap<String, IAttribute>();
 
+    /** The time of the last access, used by the {@link EntryCache}. */
+    protected transient volatile long lastAccess;
+
+    /** The estimated size of the attributes and values, maintained by the {@link EntryCache}. */
+    protected transient volatile long estimatedSize;
+
 
     /**
      * Creates a new instance of AttributeInfo.
@@ -0,0 +1,487 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.directory.studio.ldapbrowser.core.model.AttributeHierarchy;
+import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+
+
+/**
+ * The AttributeValueIndex maps the normalized values of some attributes to the cached
+ * entries of a browser connection, it is used to answer quick searches from the cache.
+ * Values are lower-cased and insignificant spaces are removed, so the index yields
+ * candidates that must be checked against the matching rules of the attribute.
+ * <p>
+ * Modified entries are only marked and indexed again by an update in a background
+ * thread, so filling the cache during a search costs one set operation per modification
+ * and lookups never index. Until the update ran, lookups may miss modified entries.
+ * When the indexed attributes are changed, only added attributes are indexed and
+ * removed attributes are dropped; the values of the other attributes are kept.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class AttributeValueIndex
+{
+
+    /** Separates the attribute OID and the value in the keys of the index. */
+    private static final char SEPARATOR = '\u0000';
+
+    /** Runs the updates of all indexes, one after the other. */
+    private static final ExecutorService UPDATER = Executors.newSingleThreadExecutor( r -> {
+        Thread thread = new Thread( r, "AttributeValueIndex" ); //$NON-NLS-1$
+        thread.setDaemon( true );
+        thread.setPriority( Thread.MIN_PRIORITY );
+        return thread;
+    } );
+
+    /**
+     * The cache of a browser connection whose entries are indexed.
+     */
+    interface Source
+    {
+        /**
+         * Gets the schema used to resolve the attribute OIDs.
+         * 
+         * @return the schema
+         */
+        Schema getSchema();
+
+
+        /**
+         * Gets the cached entries.
+         * 
+         * @return the cached entries
+         */
+        Collection<IEntry> getCachedEntries();
+
+
+        /**
+         * Checks if the entry is still cached.
+         * 
+         * @param entry the entry
+         * @return true if the entry is cached
+         */
+        boolean isCached( IEntry entry );
+    }
+
+    /** The cache whose entries are indexed. */
+    private final Source source;
+
+    /** Runs the updates. */
+    private final Executor updater;
+
+    /** The indexed attributes, as configured. */
+    private volatile String attributes = ""; //$NON-NLS-1$
+
+    /** The names of the applied attributes by OID, guarded by this. */
+    private final Map<String, String> appliedAttributes = new LinkedHashMap<String, String>();
+
+    /** The OIDs of the applied attributes whose values of all cached entries are indexed, guarded by this. */
+    private final Set<String> completeOids = new HashSet<String>();
+
+    /** The entries by attribute OID and normalized value, guarded by this. */
+    private final TreeMap<String, Set<IEntry>> index = new TreeMap<String, Set<IEntry>>();
+
+    /** The keys of the indexed entries, guarded by this. */
+    private final Map<IEntry, List<String>> entryKeys = new HashMap<IEntry, List<String>>();
+
+    /** The entries modified since they were indexed. */
+    private final Set<IEntry> modifiedEntries = ConcurrentHashMap.newKeySet();
+
+    /** Set while an update is scheduled and has not yet started. */
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
+
+    /** Serializes the updates. */
+    private final Object updateLock = new Object();
+
+
+    /**
+     * Creates a new instance of AttributeValueIndex, updated in a background thread.
+     * 
+     * @param source the cache whose entries are indexed
+     */
+    AttributeValueIndex( Source source )
+    {
+        this( source, UPDATER );
+    }
+
+
+    /**
+     * Creates a new instance of AttributeValueIndex.
+     * 
+     * @param source the cache whose entries are indexed
+     * @param updater runs the updates
+     */
+    AttributeValueIndex( Source source, Executor updater )
+    {
+        this.source = source;
+        this.updater = updater;
+    }
+
+
+    /**
+     * Gets the indexed attributes, as configured.
+     * 
+     * @return the comma separated names of the indexed attributes
+     */
+    String getAttributes()
+    {
+        return attributes;
+    }
+
+
+    /**
+     * Sets the indexed attributes, they are applied by the next update.
+     * 
+     * @param attributes the comma separated names of the indexed attributes
+     */
+    void setAttributes( String attributes )
+    {
+        if ( !attributes.equals( this.attributes ) )
+        {
+            this.attributes = attributes;
+            scheduleUpdate();
+        }
+    }
+
+
+    /**
+     * Gets the names of the indexed attributes.
+     * 
+     * @return the names of the indexed attributes
+     */
+    String[] getAttributeNames()
+    {
+        List<String> names = new ArrayList<String>();
+        for ( String name : attributes.split( "," ) ) //$NON-NLS-1$
+        {
+            if ( !name.trim().isEmpty() )
+            {
+                names.add( name.trim() );
+            }
+        }
+        return names.toArray( new String[names.size()] );
+    }
+
+
+    /**
+     * Marks the entry as modified, it is indexed again by the next update.
+     * 
+     * @param entry the entry
+     */
+    void invalidate( IEntry entry )
+    {
+        if ( modifiedEntries.add( entry ) )
+        {
+            scheduleUpdate();
+        }
+    }
+
+
+    /**
+     * Removes the entry from the index.
+     * 
+     * @param entry the entry
+     */
+    synchronized void remove( IEntry entry )
+    {
+        modifiedEntries.remove( entry );
+        unindex( entry );
+    }
+
+
+    /**
+     * Removes all entries from the index.
+     */
+    synchronized void clear()
+    {
+        modifiedEntries.clear();
+        index.clear();
+        entryKeys.clear();
+    }
+
+
+    /**
+     * Gets the entries with a value of the given attribute that equals or starts with
+     * the given value. Only the cached attributes of the entries are taken into account.
+     * The index is not modified, entries modified since the last update may be missing.
+     * 
+     * @param attribute the attribute
+     * @param value the value
+     * @param prefix true to get the entries with a value starting with the given value
+     * 
+     * @return the candidate entries, null if the attribute is not indexed
+     */
+    synchronized List<IEntry> lookup( String attribute, String value, boolean prefix )
+    {
+        String oid = getOid( attribute, source.getSchema() );
+        if ( !completeOids.contains( oid ) )
+        {
+            return null;
+        }
+
+        Set<IEntry> entries = new LinkedHashSet<IEntry>();
+        if ( prefix )
+        {
+            String from = oid + SEPARATOR + normalize( value, false );
+            for ( Set<IEntry> set : index.subMap( from, from + Character.MAX_VALUE ).values() )
+            {
+                entries.addAll( set );
+            }
+        }
+        else
+        {
+            Set<IEntry> set = index.get( oid + SEPARATOR + normalize( value, true ) );
+            if ( set != null )
+            {
+                entries.addAll( set );
+            }
+        }
+
+        return new ArrayList<IEntry>( entries );
+    }
+
+
+    private void scheduleUpdate()
+    {
+        if ( updateScheduled.compareAndSet( false, true ) )
+        {
+            updater.execute( this::update );
+        }
+    }
+
+
+    /**
+     * Applies the configured attributes and indexes the modified entries again. 
+     * The lock of the index is only held for one entry at a time.
+     */
+    void update()
+    {
+        synchronized ( updateLock )
+        {
+            updateScheduled.set( false );
+            Schema schema = source.getSchema();
+
+            applyAttributes( schema );
+
+            for ( Iterator<IEntry> it = modifiedEntries.iterator(); it.hasNext(); )
+            {
+                IEntry entry = it.next();
+                it.remove();
+                synchronized ( this )
+                {
+                    unindex( entry );
+                    if ( source.isCached( entry ) )
+                    {
+                        index( entry, appliedAttributes, schema );
+                    }
+                }
+            }
+        }
+    }
+
+
+    private void applyAttributes( Schema schema )
+    {
+        Map<String, String> requested = new LinkedHashMap<String, String>();
+        for ( String name : getAttributeNames() )
+        {
+            requested.put( getOid( name, schema ), name );
+        }
+
+        Map<String, String> added = new LinkedHashMap<String, String>();
+        synchronized ( this )
+        {
+            for ( Iterator<String> it = appliedAttributes.keySet().iterator(); it.hasNext(); )
+            {
+                String oid = it.next();
+                if ( !requested.containsKey( oid ) )
+                {
+                    it.remove();
+                    completeOids.remove( oid );
+                    unindex( oid );
+                }
+            }
+            for ( Map.Entry<String, String> attribute : requested.entrySet() )
+            {
+                if ( !appliedAttributes.containsKey( attribute.getKey() ) )
+                {
+                    appliedAttributes.put( attribute.getKey(), attribute.getValue() );
+                    added.put( attribute.getKey(), attribute.getValue() );
+                }
+            }
+        }
+
+        if ( !added.isEmpty() )
+        {
+            // only the values of the added attributes are indexed
+            for ( IEntry entry : source.getCachedEntries() )
+            {
+                synchronized ( this )
+                {
+                    if ( source.isCached( entry ) )
+                    {
+                        index( entry, added, schema );
+                    }
+                }
+            }
+
+            synchronized ( this )
+            {
+                for ( String oid : added.keySet() )
+                {
+                    if ( appliedAttributes.containsKey( oid ) )
+                    {
+                        completeOids.add( oid );
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Indexes the values of the given attributes of the entry.
+     */
+    private void index( IEntry entry, Map<String, String> attributes, Schema schema )
+    {
+        List<String> keys = new ArrayList<String>();
+        for ( Map.Entry<String, String> attribute : attributes.entrySet() )
+        {
+            AttributeHierarchy ah = entry.getAttributeWithSubtypes( attribute.getValue() );
+            if ( ah == null )
+            {
+                continue;
+            }
+
+            for ( IAttribute a : ah )
+            {
+                for ( IValue value : a.getValues() )
+                {
+                    if ( value.isString() && !value.isEmpty() )
+                    {
+                        String key = attribute.getKey() + SEPARATOR + normalize( value.getStringValue(), true );
+                        Set<IEntry> set = index.get( key );
+                        if ( set == null )
+                        {
+                            set = new LinkedHashSet<IEntry>( 2 );
+                            index.put( key, set );
+                        }
+                        set.add( entry );
+                        keys.add( key );
+                    }
+                }
+            }
+        }
+
+        if ( !keys.isEmpty() )
+        {
+            List<String> entryKeyList = entryKeys.get( entry );
+            if ( entryKeyList == null )
+            {
+                entryKeys.put( entry, keys );
+            }
+            else
+            {
+                entryKeyList.addAll( keys );
+            }
+        }
+    }
+
+
+    /**
+     * Removes the entry from the index.
+     */
+    private void unindex( IEntry entry )
+    {
+        List<String> keys = entryKeys.remove( entry );
+        if ( keys != null )
+        {
+            for ( String key : keys )
+            {
+                Set<IEntry> set = index.get( key );
+                if ( set != null && set.remove( entry ) && set.isEmpty() )
+                {
+                    index.remove( key );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Removes the values of the attribute from the index.
+     */
+    private void unindex( String oid )
+    {
+        String prefix = oid + SEPARATOR;
+        index.subMap( prefix, prefix + Character.MAX_VALUE ).clear();
+        for ( Iterator<List<String>> it = entryKeys.values().iterator(); it.hasNext(); )
+        {
+            List<String> keys = it.next();
+            keys.removeIf( key -> key.startsWith( prefix ) );
+            if ( keys.isEmpty() )
+            {
+                it.remove();
+            }
+        }
+    }
+
+
+    private static String getOid( String attribute, Schema schema )
+    {
+        return schema.getAttributeTypeDescription( attribute ).getOid().toLowerCase( Locale.ROOT );
+    }
+
+
+    /**
+     * Lower-cases the value and removes insignificant spaces. Trailing spaces of 
+     * a prefix are kept.
+     */
+    private static String normalize( String value, boolean trim )
+    {
+        String normalized = value.replaceAll( "\\s+", " " ).toLowerCase( Locale.ROOT ); //$NON-NLS-1$ //$NON-NLS-2$
+        return trim ? normalized.trim() : normalized.replaceAll( "^ ", "" ); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+}
@@ -22,8 +22,13 @@ package org.apache.directory.studio.ldapbrowser.core.model.impl;
 
 
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
 import org.apache.directory.api.ldap.model.name.Dn;
@@ -79,12 +84,18 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     /** The entry to children filter map. */
     private volatile Map<IEntry, String> entryToChildrenFilterMap;
 
-    /** The entry to attribute info map. */
-    private volatile Map<IEntry, AttributeInfo> entryToAttributeInfoMap;
+    /** The entry to attribute info cache. */
+    private volatile EntryCache entryToAttributeInfoCache;
 
     /** The entry to children info map. */
     private volatile Map<IEntry, ChildrenInfo> entryToChildrenInfoMap;
 
+    /** The memoized keys of the dn to entry cache. */
+    private transient volatile DnKeyCache dnKeyCache;
+
+    /** The index of the cached attribute values used by quick searches, null if disabled. */
+    private transient volatile AttributeValueIndex attributeValueIndex;
+
 
     /**
      * Creates a new instance of BrowserConnection.
@@ -124,10 +135,10 @@ public class BrowserConnection implements IBrowserConnection, Serializable
         this.searchManager = new SearchManager( this );
         this.bookmarkManager = new BookmarkManager( this );
 
-        this.entryToChildrenFilterMap = new HashMap<IEntry, String>();
-        this.dnToEntryCache = new HashMap<String, IEntry>();
-        this.entryToAttributeInfoMap = new HashMap<IEntry, AttributeInfo>();
-        this.entryToChildrenInfoMap = new HashMap<IEntry, ChildrenInfo>();
+        this.entryToChildrenFilterMap = new ConcurrentHashMap<IEntry, String>();
+        this.dnToEntryCache = new ConcurrentHashMap<String, IEntry>();
+        this.entryToAttributeInfoCache = new EntryCache();
+        this.entryToChildrenInfoMap = new ConcurrentHashMap<IEntry, ChildrenInfo>();
 
         this.schema = Schema.DEFAULT_SCHEMA;
         this.rootDSE = new RootDSE( this );
@@ -155,9 +166,14 @@ public class BrowserConnection implements IBrowserConnection, Serializable
         }
 
         dnToEntryCache.clear();
-        entryToAttributeInfoMap.clear();
+        entryToAttributeInfoCache.clear();
         entryToChildrenInfoMap.clear();
         entryToChildrenFilterMap.clear();
+        AttributeValueIndex index = attributeValueIndex;
+        if ( index != null )
+        {
+            index.clear();
+        }
         //        searchManager.setQuickSearch( null ); TODO
 
         rootDSE = new RootDSE( this );
@@ -175,10 +191,11 @@ public class BrowserConnection implements IBrowserConnection, Serializable
             return null;
         }
 
-        String oidDn = Utils.getNormalizedOidString( dn, getSchema() );
-        if ( dnToEntryCache != null && dnToEntryCache.containsKey( oidDn ) )
+        String oidDn = getDnKey( dn );
+        IEntry entry = dnToEntryCache != null ? dnToEntryCache.get( oidDn ) : null;
+        if ( entry != null )
         {
-            return dnToEntryCache.get( oidDn );
+            return entry;
         }
         if ( getRootDSE().getDn().equals( dn ) )
         {
@@ -414,6 +431,26 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    public int getCacheSize()
+    {
+        int cacheSize = connection.getConnectionParameter().getExtendedIntProperty( CONNECTION_PARAMETER_CACHE_SIZE );
+        return cacheSize < 0 ? DEFAULT_CACHE_SIZE : cacheSize;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setCacheSize( int cacheSize )
+    {
+        connection.getConnectionParameter().setExtendedIntProperty( CONNECTION_PARAMETER_CACHE_SIZE, cacheSize );
+        ConnectionEventRegistry.fireConnectionUpdated( connection, this );
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -435,6 +472,49 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    public String getVirtualListViewSortAttribute()
+    {
+        String sortAttribute = connection.getConnectionParameter().getExtendedProperty(
+            CONNECTION_PARAMETER_VIRTUAL_LIST_VIEW_SORT_ATTRIBUTE );
+        return sortAttribute == null ? DEFAULT_VIRTUAL_LIST_VIEW_SORT_ATTRIBUTE : sortAttribute;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setVirtualListViewSortAttribute( String sortAttribute )
+    {
+        connection.getConnectionParameter().setExtendedProperty( CONNECTION_PARAMETER_VIRTUAL_LIST_VIEW_SORT_ATTRIBUTE,
+            sortAttribute );
+        ConnectionEventRegistry.fireConnectionUpdated( connection, this );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String[] getQuickSearchIndexAttributes()
+    {
+        AttributeValueIndex index = getAttributeValueIndex();
+        return index == null ? new String[0] : index.getAttributeNames();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setQuickSearchIndexAttributes( String[] attributes )
+    {
+        connection.getConnectionParameter().setExtendedProperty( CONNECTION_PARAMETER_QUICK_SEARCH_INDEX_ATTRIBUTES,
+            String.join( ",", attributes ) ); //$NON-NLS-1$
+        ConnectionEventRegistry.fireConnectionUpdated( connection, this );
+    }
+
+
     /** 
      * {@inheritDoc}
      */
@@ -594,9 +674,9 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     /**
      * {@inheritDoc}
      */
-    public synchronized void cacheEntry( IEntry entry )
+    public void cacheEntry( IEntry entry )
     {
-        dnToEntryCache.put( Utils.getNormalizedOidString( entry.getDn(), getSchema() ), entry );
+        dnToEntryCache.put( getDnKey( entry.getDn() ), entry );
     }
 
 
@@ -605,9 +685,14 @@ public class BrowserConnection implements IBrowserConnection, Serializable
      * 
      * @param entry the entry to remove from cache
      */
-    protected synchronized void uncacheEntry( IEntry entry )
+    protected void uncacheEntry( IEntry entry )
     {
-        dnToEntryCache.remove( Utils.getNormalizedOidString( entry.getDn(), getSchema() ) );
+        dnToEntryCache.remove( getDnKey( entry.getDn() ) );
+        AttributeValueIndex index = attributeValueIndex;
+        if ( index != null )
+        {
+            index.remove( entry );
+        }
         setAttributeInfo( entry, null );
         setChildrenInfo( entry, null );
         setChildrenFilter(entry, null);
@@ -617,17 +702,180 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     /**
      * {@inheritDoc}
      */
-    public synchronized void uncacheEntryRecursive( IEntry entry )
+    public void uncacheEntryRecursive( IEntry entry )
     {
-        IEntry[] children = entry.getChildren();
-        if ( entry.getChildren() != null )
+        // collect the subtree first, the children are not reachable once their parent is uncached
+        List<IEntry> subtree = new ArrayList<IEntry>();
+        Deque<IEntry> stack = new ArrayDeque<IEntry>();
+        stack.push( entry );
+        while ( !stack.isEmpty() )
         {
-            for ( int i = 0; i < children.length; i++ )
+            IEntry current = stack.pop();
+            subtree.add( current );
+
+            IEntry[] children = current.getChildren();
+            if ( children != null )
             {
-                uncacheEntryRecursive( children[i] );
+                for ( IEntry child : children )
+                {
+                    stack.push( child );
+                }
             }
         }
-        uncacheEntry( entry );
+
+        // uncache children before their parent, like the recursive traversal did
+        for ( int i = subtree.size() - 1; i >= 0; i-- )
+        {
+            uncacheEntry( subtree.get( i ) );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void pinEntry( IEntry entry )
+    {
+        entryToAttributeInfoCache.pin( entry );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void unpinEntry( IEntry entry )
+    {
+        entryToAttributeInfoCache.unpin( entry );
+    }
+
+
+    /**
+     * Gets the key of the Dn in the dn to entry cache.
+     * 
+     * @param dn the Dn
+     * 
+     * @return the normalized oid string of the Dn
+     */
+    private String getDnKey( Dn dn )
+    {
+        DnKeyCache keyCache = dnKeyCache;
+        if ( keyCache == null || keyCache.getSchema() != getSchema() )
+        {
+            keyCache = new DnKeyCache( getSchema() );
+            dnKeyCache = keyCache;
+        }
+
+        return keyCache.getKey( dn );
+    }
+
+
+    /**
+     * Gets the index of the cached attribute values, creates it if the index is 
+     * enabled. Changed index attributes are applied by the index in the background.
+     * 
+     * @return the index, null if no attributes are indexed
+     */
+    private AttributeValueIndex getAttributeValueIndex()
+    {
+        String attributes = connection.getConnectionParameter().getExtendedProperty(
+            CONNECTION_PARAMETER_QUICK_SEARCH_INDEX_ATTRIBUTES );
+        if ( attributes == null || attributes.trim().isEmpty() )
+        {
+            attributeValueIndex = null;
+            return null;
+        }
+
+        AttributeValueIndex index = attributeValueIndex;
+        if ( index == null )
+        {
+            index = createAttributeValueIndex();
+        }
+        index.setAttributes( attributes );
+
+        return index;
+    }
+
+
+    /**
+     * Creates the index of the cached attribute values, unless another thread created it.
+     * 
+     * @return the index
+     */
+    private synchronized AttributeValueIndex createAttributeValueIndex()
+    {
+        AttributeValueIndex index = attributeValueIndex;
+        if ( index == null )
+        {
+            index = new AttributeValueIndex( new AttributeValueIndex.Source()
+            {
+                public Schema getSchema()
+                {
+                    return BrowserConnection.this.getSchema();
+                }
+
+
+                public Collection<IEntry> getCachedEntries()
+                {
+                    return dnToEntryCache.values();
+                }
+
+
+                public boolean isCached( IEntry entry )
+                {
+                    return dnToEntryCache.get( getDnKey( entry.getDn() ) ) == entry;
+                }
+            } );
+            attributeValueIndex = index;
+        }
+
+        return index;
+    }
+
+
+    /**
+     * Called when attributes or values of the entry were added, deleted or modified.
+     * 
+     * @param entry the entry
+     */
+    protected void attributesModified( IEntry entry )
+    {
+        AttributeValueIndex index = getAttributeValueIndex();
+        if ( index != null )
+        {
+            index.invalidate( entry );
+        }
+    }
+
+
+    /**
+     * Updates the estimated size of the cached attributes of the entry after
+     * an attribute or a value was added or removed.
+     * 
+     * @param entry the entry
+     * @param ai the attribute info of the entry
+     * @param delta the size delta in bytes
+     */
+    protected void attributeInfoSizeChanged( IEntry entry, AttributeInfo ai, long delta )
+    {
+        entryToAttributeInfoCache.sizeChanged( entry, ai, delta );
+    }
+
+
+    /**
+     * Gets the cached entries with a value of the given attribute that equals or starts 
+     * with the given value. The values are compared ignoring case and insignificant spaces.
+     * The index is only read, entries modified since its last update may be missing.
+     * 
+     * @param attribute the attribute
+     * @param value the value
+     * @param prefix true to get the entries with a value starting with the given value
+     * 
+     * @return the candidate entries, null if the attribute is not indexed (yet)
+     */
+    protected List<IEntry> getEntriesFromIndex( String attribute, String value, boolean prefix )
+    {
+        AttributeValueIndex index = getAttributeValueIndex();
+        return index == null ? null : index.lookup( attribute, value, prefix );
     }
 
 
@@ -672,7 +920,20 @@ public class BrowserConnection implements IBrowserConnection, Serializable
      */
     protected AttributeInfo getAttributeInfo( IEntry entry )
     {
-        return entryToAttributeInfoMap == null ? null : entryToAttributeInfoMap.get( entry );
+        return entryToAttributeInfoCache == null ? null : entryToAttributeInfoCache.get( entry );
+    }
+
+
+    /**
+     * Gets the attribute info, creates it if no attribute info exists.
+     * 
+     * @param entry the entry
+     * 
+     * @return the attribute info
+     */
+    protected AttributeInfo getOrCreateAttributeInfo( IEntry entry )
+    {
+        return entryToAttributeInfoCache.getOrCreate( entry, getCacheSize() * 1024L * 1024L );
     }
 
 
@@ -686,15 +947,27 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     {
         if ( ai == null )
         {
-            entryToAttributeInfoMap.remove( entry );
+            entryToAttributeInfoCache.remove( entry );
         }
         else
         {
-            entryToAttributeInfoMap.put( entry, ai );
+            entryToAttributeInfoCache.put( entry, ai, getCacheSize() * 1024L * 1024L );
         }
     }
 
 
+    /**
+     * Removes the attribute info if it is still the attribute info of the entry.
+     * 
+     * @param entry the entry
+     * @param ai the attribute info to remove
+     */
+    protected void removeAttributeInfo( IEntry entry, AttributeInfo ai )
+    {
+        entryToAttributeInfoCache.remove( entry, ai );
+    }
+
+
     /**
      * Gets the children info.
      * 
@@ -708,6 +981,19 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     }
 
 
+    /**
+     * Gets the children info, creates it if no children info exists.
+     * 
+     * @param entry the entry
+     * 
+     * @return the children info
+     */
+    protected ChildrenInfo getOrCreateChildrenInfo( IEntry entry )
+    {
+        return entryToChildrenInfoMap.computeIfAbsent( entry, e -> new ChildrenInfo() );
+    }
+
+
     /**
      * Sets the children info.
      * 
@@ -727,6 +1013,18 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     }
 
 
+    /**
+     * Removes the children info if it is still the children info of the entry.
+     * 
+     * @param entry the entry
+     * @param ci the children info to remove
+     */
+    protected void removeChildrenInfo( IEntry entry, ChildrenInfo ci )
+    {
+        entryToChildrenInfoMap.remove( entry, ci );
+    }
+
+
     /**
      * {@inheritDoc}
      */
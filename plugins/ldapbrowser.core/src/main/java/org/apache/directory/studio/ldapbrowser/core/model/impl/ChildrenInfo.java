@@ -22,10 +22,8 @@ package org.apache.directory.studio.ldapbrowser.core.model.impl;
 
 
 import java.io.Serializable;
-import java.util.Set;
 
 import org.apache.directory.studio.connection.core.jobs.StudioConnectionBulkRunnableWithProgress;
-import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
 
 
 /**
@@ -42,8 +40,8 @@ public class ChildrenInfo implements Serializable
     /** The children initialized flag. */
     protected volatile boolean childrenInitialized = false;
 
-    /** The children set. */
-    protected volatile Set<IEntry> childrenSet = null;
+    /** The children set, created and removed while holding the lock of this children info. */
+    protected volatile ChildrenStore childrenSet = null;
 
     /** The has more children flag. */
     protected volatile boolean hasMoreChildren = false;
@@ -0,0 +1,225 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+
+
+/**
+ * The ChildrenStore holds the children of an entry in insertion order. The children are
+ * stored in fixed size chunks, so adding a child never copies the already stored children
+ * and a range of children is read without copying all of them. Deleted children leave a
+ * gap that is closed by the next read, so deleting all children one by one is linear.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class ChildrenStore implements Serializable
+{
+
+    private static final long serialVersionUID = 3412883927520475031L;
+
+    /** The number of children per chunk, a power of two. */
+    private static final int CHUNK_SIZE = 1024;
+
+    /** The shift to get the chunk of an index. */
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros( CHUNK_SIZE );
+
+    /** The chunks. */
+    private final List<IEntry[]> chunks = new ArrayList<IEntry[]>();
+
+    /** The index of each child. */
+    private final Map<IEntry, Integer> indexes = new HashMap<IEntry, Integer>();
+
+    /** The number of used slots, including the gaps of deleted children. */
+    private int length;
+
+
+    /**
+     * Adds the child if it isn't contained yet.
+     * 
+     * @param child the child
+     * 
+     * @return true if the child was added
+     */
+    synchronized boolean add( IEntry child )
+    {
+        if ( indexes.containsKey( child ) )
+        {
+            return false;
+        }
+
+        if ( ( length & ( CHUNK_SIZE - 1 ) ) == 0 && length >>> CHUNK_SHIFT == chunks.size() )
+        {
+            chunks.add( new IEntry[CHUNK_SIZE] );
+        }
+        set( length, child );
+        indexes.put( child, length );
+        length++;
+        return true;
+    }
+
+
+    /**
+     * Removes the child.
+     * 
+     * @param child the child
+     * 
+     * @return true if the child was removed
+     */
+    synchronized boolean remove( IEntry child )
+    {
+        Integer index = indexes.remove( child );
+        if ( index == null )
+        {
+            return false;
+        }
+
+        set( index, null );
+        if ( indexes.isEmpty() )
+        {
+            clear();
+        }
+        return true;
+    }
+
+
+    /**
+     * Removes all children.
+     */
+    synchronized void clear()
+    {
+        chunks.clear();
+        indexes.clear();
+        length = 0;
+    }
+
+
+    /**
+     * Gets the number of children.
+     * 
+     * @return the number of children
+     */
+    synchronized int size()
+    {
+        return indexes.size();
+    }
+
+
+    /**
+     * Checks if there are no children.
+     * 
+     * @return true if there are no children
+     */
+    synchronized boolean isEmpty()
+    {
+        return indexes.isEmpty();
+    }
+
+
+    /**
+     * Gets all children.
+     * 
+     * @return the children
+     */
+    synchronized IEntry[] toArray()
+    {
+        return toArray( 0, indexes.size() - 1 );
+    }
+
+
+    /**
+     * Gets the children in the given range, the cost only depends on the size of the range.
+     * 
+     * @param first the index of the first child
+     * @param last the index of the last child, inclusive
+     * 
+     * @return the children in the given range, fewer if the range exceeds the children
+     */
+    synchronized IEntry[] toArray( int first, int last )
+    {
+        compact();
+
+        first = Math.max( first, 0 );
+        last = Math.min( last, length - 1 );
+        if ( last < first )
+        {
+            return new IEntry[0];
+        }
+
+        IEntry[] children = new IEntry[last - first + 1];
+        int i = first;
+        while ( i <= last )
+        {
+            int offset = i & ( CHUNK_SIZE - 1 );
+            int count = Math.min( CHUNK_SIZE - offset, last - i + 1 );
+            System.arraycopy( chunks.get( i >>> CHUNK_SHIFT ), offset, children, i - first, count );
+            i += count;
+        }
+        return children;
+    }
+
+
+    private void set( int index, IEntry child )
+    {
+        chunks.get( index >>> CHUNK_SHIFT )[index & ( CHUNK_SIZE - 1 )] = child;
+    }
+
+
+    /**
+     * Closes the gaps of deleted children.
+     */
+    private void compact()
+    {
+        if ( length == indexes.size() )
+        {
+            return;
+        }
+
+        int target = 0;
+        for ( int source = 0; source < length; source++ )
+        {
+            IEntry child = chunks.get( source >>> CHUNK_SHIFT )[source & ( CHUNK_SIZE - 1 )];
+            if ( child != null )
+            {
+                set( target, child );
+                indexes.put( child, target );
+                target++;
+            }
+        }
+        for ( int i = target; i < length; i++ )
+        {
+            set( i, null );
+        }
+        while ( chunks.size() > ( target + CHUNK_SIZE - 1 ) >>> CHUNK_SHIFT )
+        {
+            chunks.remove( chunks.size() - 1 );
+        }
+        length = target;
+    }
+
+}
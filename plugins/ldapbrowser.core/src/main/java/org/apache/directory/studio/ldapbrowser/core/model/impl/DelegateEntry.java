@@ -427,6 +427,22 @@ public abstract class DelegateEntry implements IEntry
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    public IEntry[] getChildren( int first, int last )
+    {
+        if ( getDelegate() != null )
+        {
+            return getDelegate().getChildren( first, last );
+        }
+        else
+        {
+            return new IEntry[0];
+        }
+    }
+
+
     /**
      * {@inheritDoc}
      */
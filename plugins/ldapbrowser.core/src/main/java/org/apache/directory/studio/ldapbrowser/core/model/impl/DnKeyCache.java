@@ -0,0 +1,140 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.Rdn;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
+
+
+/**
+ * The DnKeyCache memoizes the normalized oid strings used as keys of the entry cache,
+ * see {@link Utils#getNormalizedOidString(Dn, Schema)}. The keys are memoized by the
+ * user provided name of the Dn. When a key is computed the keys of all its parents
+ * are derived from it, so walking up the parents doesn't normalize the Rdns again.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class DnKeyCache
+{
+
+    /** The maximum number of memoized keys, the memo is cleared when exceeded. */
+    private static final int MAX_SIZE = 100000;
+
+    /** The schema used to normalize the keys. */
+    private final Schema schema;
+
+    /** The Dn name to key memo. */
+    private final ConcurrentHashMap<String, String> dnKeys = new ConcurrentHashMap<String, String>();
+
+    /** The Rdn name to key memo. */
+    private final ConcurrentHashMap<String, String> rdnKeys = new ConcurrentHashMap<String, String>();
+
+
+    /**
+     * Creates a new instance of DnKeyCache.
+     * 
+     * @param schema the schema used to normalize the keys
+     */
+    DnKeyCache( Schema schema )
+    {
+        this.schema = schema;
+    }
+
+
+    /**
+     * Gets the schema used to normalize the keys.
+     * 
+     * @return the schema
+     */
+    Schema getSchema()
+    {
+        return schema;
+    }
+
+
+    /**
+     * Gets the normalized key of the Dn.
+     * 
+     * @param dn the Dn
+     * 
+     * @return the normalized key
+     */
+    String getKey( Dn dn )
+    {
+        String key = dnKeys.get( dn.getName() );
+        if ( key != null )
+        {
+            return key;
+        }
+
+        int size = dn.size();
+        String[] names = new String[size];
+        String[] keys = new String[size];
+        int i = 0;
+        for ( Rdn rdn : dn )
+        {
+            names[i] = rdn.getName();
+            keys[i] = getRdnKey( rdn );
+            i++;
+        }
+
+        if ( dnKeys.size() + size > MAX_SIZE )
+        {
+            dnKeys.clear();
+        }
+
+        // build the keys from the root down, each key extends the key of its parent
+        String parentName = null;
+        String parentKey = null;
+        for ( i = size - 1; i >= 0; i-- )
+        {
+            parentName = parentName == null ? names[i] : names[i] + ',' + parentName;
+            parentKey = parentKey == null ? keys[i] : keys[i] + ',' + parentKey;
+            dnKeys.putIfAbsent( parentName, parentKey );
+        }
+
+        key = parentKey == null ? "" : parentKey; //$NON-NLS-1$
+        dnKeys.putIfAbsent( dn.getName(), key );
+        return key;
+    }
+
+
+    private String getRdnKey( Rdn rdn )
+    {
+        String key = rdnKeys.get( rdn.getName() );
+        if ( key == null )
+        {
+            if ( rdnKeys.size() >= MAX_SIZE )
+            {
+                rdnKeys.clear();
+            }
+
+            key = Utils.getNormalizedOidString( rdn, schema );
+            rdnKeys.putIfAbsent( rdn.getName(), key );
+        }
+        return key;
+    }
+
+}
@@ -387,6 +387,57 @@ public class DummyConnection implements IBrowserConnection
     }
 
 
+    /** 
+     * {@inheritDoc}
+     */
+    public String getVirtualListViewSortAttribute()
+    {
+        return ""; //$NON-NLS-1$
+    }
+
+
+    /** 
+     * {@inheritDoc}
+     */
+    public void setVirtualListViewSortAttribute( String sortAttribute )
+    {
+    }
+
+
+    /** 
+     * {@inheritDoc}
+     */
+    public String[] getQuickSearchIndexAttributes()
+    {
+        return new String[0];
+    }
+
+
+    /** 
+     * {@inheritDoc}
+     */
+    public void setQuickSearchIndexAttributes( String[] attributes )
+    {
+    }
+
+
+    /** 
+     * {@inheritDoc}
+     */
+    public int getCacheSize()
+    {
+        return 0;
+    }
+
+
+    /** 
+     * {@inheritDoc}
+     */
+    public void setCacheSize( int cacheSize )
+    {
+    }
+
+
     /** 
      * {@inheritDoc}
      */
@@ -438,6 +489,22 @@ public class DummyConnection implements IBrowserConnection
     }
 
 
+    /** 
+     * {@inheritDoc}
+     */
+    public void pinEntry( IEntry entry )
+    {
+    }
+
+
+    /** 
+     * {@inheritDoc}
+     */
+    public void unpinEntry( IEntry entry )
+    {
+    }
+
+
     /** 
      * {@inheritDoc}
      */
@@ -146,7 +146,7 @@ public class DummyEntry implements IEntry, ICompareableEntry
      */
     public IAttribute getAttribute( String attributeDescription )
     {
-        AttributeDescription ad = new AttributeDescription( attributeDescription );
+        AttributeDescription ad = AttributeDescription.valueOf( attributeDescription );
         String oidString = ad.toOidString( getBrowserConnection().getSchema() );
         return attributeMap.get( Strings.toLowerCase( oidString ) );
     }
@@ -165,7 +165,7 @@ public class DummyEntry implements IEntry, ICompareableEntry
             attributeList.add( myAttribute );
         }
 
-        AttributeDescription ad = new AttributeDescription( attributeDescription );
+        AttributeDescription ad = AttributeDescription.valueOf( attributeDescription );
         for ( IAttribute attribute : attributeMap.values() )
         {
             AttributeDescription other = attribute.getAttributeDescription();
@@ -252,6 +252,15 @@ public class DummyEntry implements IEntry, ICompareableEntry
     }
 
 
+    /**
+     * This implementation always returns null.
+     */
+    public IEntry[] getChildren( int first, int last )
+    {
+        return null;
+    }
+
+
     /**
      * This implementation always returns -1.
      */
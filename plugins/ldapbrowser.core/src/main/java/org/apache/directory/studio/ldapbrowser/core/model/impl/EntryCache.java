@@ -0,0 +1,417 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+
+
+/**
+ * The EntryCache holds the {@link AttributeInfo}s of the entries of a browser connection.
+ * The estimated memory used by the attributes is limited to a budget, when it is exceeded
+ * the attributes of the least recently used entries are dropped. Such entries are no
+ * longer initialized and their attributes are fetched again when they are requested.
+ * Entries that are pinned, e.g. because they are opened in an editor, are never evicted.
+ * <p>
+ * The estimated size of each attribute info and the total size are maintained when
+ * attributes and values are added and removed, so checking the budget doesn't need to
+ * walk the cached attributes.
+ * <p>
+ * Reads don't lock, writes only lock the bin of the concurrent map. The memory budget
+ * is checked by one thread at a time, other writers don't wait for it.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class EntryCache
+{
+
+    /** The minimum number of attribute infos added between two checks of the memory budget. */
+    private static final int TRIM_INTERVAL = 256;
+
+    /** The estimated overhead of an attribute info. */
+    private static final long ATTRIBUTE_INFO_OVERHEAD = 128;
+
+    /** The estimated overhead of an attribute. */
+    private static final long ATTRIBUTE_OVERHEAD = 96;
+
+    /** The estimated overhead of a value. */
+    private static final long VALUE_OVERHEAD = 64;
+
+    /** Orders attribute infos from the least to the most recently used. */
+    private static final Comparator<Map.Entry<IEntry, AttributeInfo>> LEAST_RECENTLY_USED_FIRST =
+        ( o1, o2 ) -> Long.compare( o1.getValue().lastAccess, o2.getValue().lastAccess );
+
+    /** Updates the estimated size of an attribute info without locking it, it may be called within a bin lock. */
+    private static final AtomicLongFieldUpdater<AttributeInfo> ATTRIBUTE_INFO_SIZE =
+        AtomicLongFieldUpdater.newUpdater( AttributeInfo.class, "estimatedSize" );
+
+    /** The attribute infos. */
+    private final ConcurrentHashMap<IEntry, AttributeInfo> attributeInfos =
+        new ConcurrentHashMap<IEntry, AttributeInfo>();
+
+    /** The pinned entries with their pin count. */
+    private final ConcurrentHashMap<IEntry, Integer> pinnedEntries = new ConcurrentHashMap<IEntry, Integer>();
+
+    /** The estimated size of all cached attribute infos. */
+    private final AtomicLong estimatedSize = new AtomicLong();
+
+    /** The number of attribute infos added since the last check of the memory budget. */
+    private final AtomicInteger addedSinceTrim = new AtomicInteger();
+
+    /** The number of attribute infos to add before the next check of the memory budget. */
+    private volatile int trimInterval = TRIM_INTERVAL;
+
+    /** Held by the thread checking the memory budget. */
+    private final ReentrantLock trimLock = new ReentrantLock();
+
+
+    /**
+     * Gets the attribute info of the entry and marks the entry as recently used.
+     * 
+     * @param entry the entry
+     * 
+     * @return the attribute info, null if no attribute info exists
+     */
+    AttributeInfo get( IEntry entry )
+    {
+        AttributeInfo ai = attributeInfos.get( entry );
+        if ( ai != null )
+        {
+            ai.lastAccess = System.nanoTime();
+        }
+        return ai;
+    }
+
+
+    /**
+     * Puts the attribute info of the entry into the cache.
+     * 
+     * @param entry the entry
+     * @param ai the attribute info
+     * @param budget the memory budget in bytes, 0 for unlimited
+     */
+    void put( IEntry entry, AttributeInfo ai, long budget )
+    {
+        ai.lastAccess = System.nanoTime();
+        synchronized ( ai )
+        {
+            ai.estimatedSize = estimateSize( ai );
+        }
+
+        AttributeInfo[] old = new AttributeInfo[1];
+        attributeInfos.compute( entry, ( e, cached ) -> {
+            old[0] = cached;
+            if ( cached != ai )
+            {
+                estimatedSize.addAndGet( ai.estimatedSize - ( cached != null ? cached.estimatedSize : 0 ) );
+            }
+            return ai;
+        } );
+
+        if ( old[0] != ai && budget > 0 && addedSinceTrim.incrementAndGet() >= trimInterval )
+        {
+            trim( budget );
+        }
+    }
+
+
+    /**
+     * Gets the attribute info of the entry, creates and puts it into the cache if
+     * no attribute info exists. Concurrent callers get the same attribute info.
+     * 
+     * @param entry the entry
+     * @param budget the memory budget in bytes, 0 for unlimited
+     * 
+     * @return the attribute info
+     */
+    AttributeInfo getOrCreate( IEntry entry, long budget )
+    {
+        AttributeInfo ai = get( entry );
+        if ( ai == null )
+        {
+            AttributeInfo created = new AttributeInfo();
+            created.lastAccess = System.nanoTime();
+            created.estimatedSize = ATTRIBUTE_INFO_OVERHEAD;
+            ai = attributeInfos.putIfAbsent( entry, created );
+            if ( ai == null )
+            {
+                ai = created;
+                estimatedSize.addAndGet( ATTRIBUTE_INFO_OVERHEAD );
+                if ( budget > 0 && addedSinceTrim.incrementAndGet() >= trimInterval )
+                {
+                    trim( budget );
+                }
+            }
+        }
+        return ai;
+    }
+
+
+    /**
+     * Removes the attribute info of the entry from the cache.
+     * 
+     * @param entry the entry
+     */
+    void remove( IEntry entry )
+    {
+        attributeInfos.computeIfPresent( entry, ( e, cached ) -> {
+            estimatedSize.addAndGet( -cached.estimatedSize );
+            return null;
+        } );
+    }
+
+
+    /**
+     * Removes the attribute info of the entry from the cache if it is still the cached one.
+     * 
+     * @param entry the entry
+     * @param ai the attribute info to remove
+     */
+    void remove( IEntry entry, AttributeInfo ai )
+    {
+        attributeInfos.computeIfPresent( entry, ( e, cached ) -> {
+            if ( cached != ai )
+            {
+                return cached;
+            }
+            estimatedSize.addAndGet( -cached.estimatedSize );
+            return null;
+        } );
+    }
+
+
+    /**
+     * Adds the given delta to the estimated size of the attribute info, e.g. because an
+     * attribute or a value was added or removed. The total size is only changed if the
+     * attribute info is still cached.
+     * 
+     * @param entry the entry
+     * @param ai the attribute info of the entry
+     * @param delta the size delta in bytes
+     */
+    void sizeChanged( IEntry entry, AttributeInfo ai, long delta )
+    {
+        // the total and the removals are only updated while holding the bin lock of the entry
+        AttributeInfo cached = attributeInfos.computeIfPresent( entry, ( e, c ) -> {
+            if ( c == ai )
+            {
+                addSize( ai, delta );
+                estimatedSize.addAndGet( delta );
+            }
+            return c;
+        } );
+
+        if ( cached != ai )
+        {
+            addSize( ai, delta );
+        }
+    }
+
+
+    private static void addSize( AttributeInfo ai, long delta )
+    {
+        ATTRIBUTE_INFO_SIZE.addAndGet( ai, delta );
+    }
+
+
+    /**
+     * Gets the estimated size of all cached attribute infos.
+     * 
+     * @return the estimated size in bytes
+     */
+    long getEstimatedSize()
+    {
+        return estimatedSize.get();
+    }
+
+
+    /**
+     * Removes all attribute infos and pins.
+     */
+    void clear()
+    {
+        attributeInfos.clear();
+        estimatedSize.set( 0 );
+        pinnedEntries.clear();
+        addedSinceTrim.set( 0 );
+        trimInterval = TRIM_INTERVAL;
+    }
+
+
+    /**
+     * Pins the entry, its attributes are not evicted until it is unpinned.
+     * Pins are counted, each pin must be released by an unpin.
+     * 
+     * @param entry the entry
+     */
+    void pin( IEntry entry )
+    {
+        pinnedEntries.merge( entry, 1, Integer::sum );
+    }
+
+
+    /**
+     * Releases a pin of the entry.
+     * 
+     * @param entry the entry
+     */
+    void unpin( IEntry entry )
+    {
+        pinnedEntries.computeIfPresent( entry, ( e, count ) -> count > 1 ? count - 1 : null );
+    }
+
+
+    /**
+     * Evicts the least recently used attribute infos of unpinned entries
+     * until the estimated size is within the budget.
+     * 
+     * @param budget the memory budget in bytes
+     */
+    private void trim( long budget )
+    {
+        if ( !trimLock.tryLock() )
+        {
+            return;
+        }
+
+        try
+        {
+            addedSinceTrim.set( 0 );
+
+            if ( estimatedSize.get() > budget )
+            {
+                List<Map.Entry<IEntry, AttributeInfo>> candidates = new ArrayList<Map.Entry<IEntry, AttributeInfo>>();
+                for ( Map.Entry<IEntry, AttributeInfo> entry : attributeInfos.entrySet() )
+                {
+                    if ( !pinnedEntries.containsKey( entry.getKey() ) && !( entry.getKey() instanceof RootDSE ) )
+                    {
+                        candidates.add( entry );
+                    }
+                }
+
+                // evict a bit more than needed, so the next checks don't evict again right away
+                long target = budget - budget / 10;
+                Collections.sort( candidates, LEAST_RECENTLY_USED_FIRST );
+                for ( int i = 0; i < candidates.size() && estimatedSize.get() > target; i++ )
+                {
+                    Map.Entry<IEntry, AttributeInfo> candidate = candidates.get( i );
+                    AttributeInfo ai = candidate.getValue();
+                    attributeInfos.computeIfPresent( candidate.getKey(), ( e, cached ) -> {
+                        if ( cached != ai )
+                        {
+                            return cached;
+                        }
+                        estimatedSize.addAndGet( -cached.estimatedSize );
+                        return null;
+                    } );
+                }
+            }
+
+            trimInterval = Math.max( TRIM_INTERVAL, attributeInfos.size() / 8 );
+        }
+        finally
+        {
+            trimLock.unlock();
+        }
+    }
+
+
+    /**
+     * Estimates the memory used by the attributes and values of the attribute info.
+     * 
+     * @param ai the attribute info
+     * 
+     * @return the estimated size in bytes
+     */
+    private static long estimateSize( AttributeInfo ai )
+    {
+        long size = ATTRIBUTE_INFO_OVERHEAD;
+
+        for ( IAttribute attribute : ai.attributeMap.values() )
+        {
+            size += estimateSize( attribute );
+        }
+
+        return size;
+    }
+
+
+    /**
+     * Estimates the memory used by the attribute and its values.
+     * 
+     * @param attribute the attribute
+     * 
+     * @return the estimated size in bytes
+     */
+    static long estimateSize( IAttribute attribute )
+    {
+        long size = ATTRIBUTE_OVERHEAD + 2L * attribute.getDescription().length();
+
+        if ( attribute instanceof Attribute )
+        {
+            return size + ( ( Attribute ) attribute ).getEstimatedValuesSize();
+        }
+
+        for ( IValue value : attribute.getValues() )
+        {
+            size += estimateSize( value.getRawValue() );
+        }
+
+        return size;
+    }
+
+
+    /**
+     * Estimates the memory used by the raw value.
+     * 
+     * @param rawValue the raw value
+     * 
+     * @return the estimated size in bytes
+     */
+    static long estimateSize( Object rawValue )
+    {
+        if ( rawValue instanceof byte[] )
+        {
+            return VALUE_OVERHEAD + ( ( byte[] ) rawValue ).length;
+        }
+        else if ( rawValue instanceof String )
+        {
+            return VALUE_OVERHEAD + 2L * ( ( String ) rawValue ).length();
+        }
+        else
+        {
+            return VALUE_OVERHEAD;
+        }
+    }
+
+}
@@ -21,12 +21,21 @@
 package org.apache.directory.studio.ldapbrowser.core.model.impl;
 
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.directory.api.ldap.model.message.SearchScope;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
 import org.apache.directory.studio.ldapbrowser.core.model.IQuickSearch;
 import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearchResult;
+import org.apache.directory.studio.ldapbrowser.core.model.filter.CompiledLdapFilter;
+import org.apache.directory.studio.ldapbrowser.core.model.filter.LdapFilter;
+import org.apache.directory.studio.ldapbrowser.core.model.filter.LdapFilterItemComponent;
+import org.apache.directory.studio.ldapbrowser.core.model.filter.parser.LdapFilterParser;
+import org.apache.directory.studio.ldapbrowser.core.model.filter.parser.LdapFilterToken;
 
 
 /**
@@ -80,4 +89,109 @@ public class QuickSearch extends Search implements IQuickSearch
     {
         return searchBaseEntry;
     }
+
+
+    /**
+     * Performs this quick search against the cached entries, if the connection keeps an 
+     * index of the searched attribute. Only simple filters like (uid=jdoe) or (mail=jdoe*) 
+     * are supported. The search results are set if at least one cached entry matches.
+     * 
+     * @return true if the search results were set, false if the search must be sent to the server
+     */
+    public boolean performIndexSearch()
+    {
+        if ( !( connection instanceof BrowserConnection ) )
+        {
+            return false;
+        }
+
+        LdapFilterParser parser = new LdapFilterParser();
+        parser.parse( getFilter() );
+        LdapFilter filter = parser.getModel();
+        if ( !filter.isValid() || !( filter.getFilterComponent() instanceof LdapFilterItemComponent ) )
+        {
+            return false;
+        }
+
+        LdapFilterItemComponent item = ( LdapFilterItemComponent ) filter.getFilterComponent();
+        int filterType = item.getFilterToken().getType();
+        String value = item.getValueToken() != null ? item.getValueToken().getValue() : ""; //$NON-NLS-1$
+        boolean prefix;
+        if ( filterType == LdapFilterToken.EQUAL )
+        {
+            prefix = false;
+        }
+        else if ( filterType == LdapFilterToken.SUBSTRING && value.indexOf( '*' ) == value.length() - 1 )
+        {
+            prefix = true;
+            value = value.substring( 0, value.length() - 1 );
+        }
+        else
+        {
+            return false;
+        }
+
+        // escaped characters are not unescaped, the part before is looked up and the filter decides
+        if ( value.indexOf( '\\' ) > -1 )
+        {
+            prefix = true;
+            value = value.substring( 0, value.indexOf( '\\' ) );
+        }
+        if ( value.trim().isEmpty() )
+        {
+            return false;
+        }
+
+        List<IEntry> candidates = ( ( BrowserConnection ) connection ).getEntriesFromIndex( item
+            .getAttributeToken().getValue(), value, prefix );
+        if ( candidates == null || candidates.isEmpty() )
+        {
+            return false;
+        }
+
+        CompiledLdapFilter compiledFilter = CompiledLdapFilter.compile( filter, connection.getSchema() );
+        List<ISearchResult> searchResults = new ArrayList<ISearchResult>();
+        for ( IEntry entry : candidates )
+        {
+            if ( isInScope( entry ) && compiledFilter.test( entry ) )
+            {
+                if ( getCountLimit() > 0 && searchResults.size() >= getCountLimit() )
+                {
+                    setCountLimitExceeded( true );
+                    break;
+                }
+                searchResults.add( new SearchResult( entry, this ) );
+            }
+        }
+        if ( searchResults.isEmpty() )
+        {
+            return false;
+        }
+
+        setSearchResults( searchResults.toArray( new ISearchResult[searchResults.size()] ) );
+        return true;
+    }
+
+
+    /**
+     * Checks if the entry is within the scope of this quick search.
+     * 
+     * @param entry the entry
+     * 
+     * @return true if the entry is within the scope
+     */
+    private boolean isInScope( IEntry entry )
+    {
+        IEntry parent = entry.getParententry();
+        if ( getScope() == SearchScope.ONELEVEL )
+        {
+            return searchBaseEntry.equals( parent );
+        }
+
+        while ( parent != null && !searchBaseEntry.equals( parent ) )
+        {
+            parent = parent.getParententry();
+        }
+        return parent != null || searchBaseEntry.equals( entry );
+    }
 }
@@ -22,6 +22,8 @@ package org.apache.directory.studio.ldapbrowser.core.model.impl;
 
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -61,6 +63,9 @@ public class Search implements ISearch
     /** The search results. */
     protected ISearchResult[] searchResults;
 
+    /** The search results received while the search is running, null if no search results were added. */
+    private transient List<ISearchResult> addedSearchResults;
+
     /** The search parameter. */
     protected SearchParameter searchParameter;
 
@@ -404,8 +409,13 @@ public class Search implements ISearch
     /**
      * {@inheritDoc}
      */
-    public ISearchResult[] getSearchResults()
+    public synchronized ISearchResult[] getSearchResults()
     {
+        if ( searchResults == null && addedSearchResults != null )
+        {
+            // the added search results are only copied to an array when they are requested
+            searchResults = addedSearchResults.toArray( new ISearchResult[addedSearchResults.size()] );
+        }
         return searchResults;
     }
 
@@ -415,7 +425,11 @@ public class Search implements ISearch
      */
     public void setSearchResults( ISearchResult[] searchResults )
     {
-        this.searchResults = searchResults;
+        synchronized ( this )
+        {
+            this.searchResults = searchResults;
+            this.addedSearchResults = null;
+        }
         if ( searchResults != null && getName() != null )
         {
             fireSearchUpdated( SearchUpdateEvent.EventDetail.SEARCH_PERFORMED );
@@ -423,6 +437,32 @@ public class Search implements ISearch
     }
 
 
+    /**
+     * {@inheritDoc}
+     * 
+     * The search results are appended to a growable list, the fired event 
+     * contains the added search results only.
+     */
+    public void addSearchResults( ISearchResult[] searchResults )
+    {
+        synchronized ( this )
+        {
+            if ( addedSearchResults == null )
+            {
+                addedSearchResults = this.searchResults != null ? new ArrayList<ISearchResult>( Arrays
+                    .asList( this.searchResults ) ) : new ArrayList<ISearchResult>();
+            }
+            addedSearchResults.addAll( Arrays.asList( searchResults ) );
+            this.searchResults = null;
+        }
+
+        if ( getName() != null && !"".equals( getName() ) ) //$NON-NLS-1$
+        {
+            EventRegistry.fireSearchUpdated( new SearchUpdateEvent( this, searchResults ), this );
+        }
+    }
+
+
     /**
      * {@inheritDoc}
      */
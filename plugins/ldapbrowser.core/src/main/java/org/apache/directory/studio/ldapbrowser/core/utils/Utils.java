@@ -25,15 +25,16 @@ import java.beans.XMLDecoder;
 import java.beans.XMLEncoder;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 
 import org.apache.commons.text.translate.CharSequenceTranslator;
 import org.apache.commons.text.translate.LookupTranslator;
@@ -113,6 +114,21 @@ public class Utils
     }
 
 
+    /**
+     * Transforms the given Rdn into a normalized String, the same way
+     * {@link #getNormalizedOidString(Dn, Schema)} transforms each Rdn of a Dn.
+     * 
+     * @param rdn the Rdn
+     * @param schema the schema
+     * 
+     * @return the oid string
+     */
+    public static String getNormalizedOidString( Rdn rdn, Schema schema )
+    {
+        return getOidString( rdn, schema );
+    }
+
+
     private static String getOidString( Rdn rdn, Schema schema )
     {
         StringBuilder sb = new StringBuilder();
@@ -184,6 +200,47 @@ public class Utils
     }
 
 
+    /**
+     * Gets a key for the given value that is suitable for hash based collections.
+     * Two non-empty values of the same attribute have equal keys if and only if
+     * the values are equal.
+     *
+     * @param value the value
+     * @return the key, null for an empty value
+     */
+    public static Object getValueKey( IValue value )
+    {
+        return getValueKey( value, UnaryOperator.identity() );
+    }
+
+
+    /**
+     * Gets a key for the given value that is suitable for hash based collections.
+     * String values are normalized with the given normalizer, so two non-empty values
+     * of the same attribute have equal keys if and only if the normalized values
+     * are equal.
+     *
+     * @param value the value
+     * @param normalizer the normalizer for string values
+     * @return the key, null for an empty value
+     */
+    public static Object getValueKey( IValue value, UnaryOperator<String> normalizer )
+    {
+        if ( value.isEmpty() )
+        {
+            return null;
+        }
+        else if ( value.isBinary() )
+        {
+            return ByteBuffer.wrap( value.getBinaryValue() );
+        }
+        else
+        {
+            return normalizer.apply( value.getStringValue() );
+        }
+    }
+
+
     public static String getShortenedString( String value, int length )
     {
         StringBuilder sb = new StringBuilder();
@@ -446,33 +503,11 @@ public class Utils
                 && atd.getExtensions().get( "X-ORDERED" ).contains( "VALUES" ); //$NON-NLS-1$ //$NON-NLS-2$
 
             // get old an new values for comparison
+            // the LDIF lines are only created for changed values, this matters for large groups
             IAttribute oldAttribute = oldEntry.getAttribute( attributeDescription );
-            Set<String> oldValues = new HashSet<>();
-            Map<String, LdifAttrValLine> oldAttrValLines = new LinkedHashMap<>();
-            
-            if ( oldAttribute != null )
-            {
-                for ( IValue value : oldAttribute.getValues() )
-                {
-                    LdifAttrValLine attrValLine = computeDiffCreateAttrValLine( value );
-                    oldValues.add( attrValLine.getUnfoldedValue() );
-                    oldAttrValLines.put( attrValLine.getUnfoldedValue(), attrValLine );
-                }
-            }
-            
+            Map<Object, IValue> oldValues = computeDiffGetValueMap( oldAttribute );
             IAttribute newAttribute = newEntry.getAttribute( attributeDescription );
-            Set<String> newValues = new HashSet<>();
-            Map<String, LdifAttrValLine> newAttrValLines = new LinkedHashMap<>();
-            
-            if ( newAttribute != null )
-            {
-                for ( IValue value : newAttribute.getValues() )
-                {
-                    LdifAttrValLine attrValLine = computeDiffCreateAttrValLine( value );
-                    newValues.add( attrValLine.getUnfoldedValue() );
-                    newAttrValLines.put( attrValLine.getUnfoldedValue(), attrValLine );
-                }
-            }
+            Map<Object, IValue> newValues = computeDiffGetValueMap( newAttribute );
 
             // check what to do
             if ( oldAttribute != null && newAttribute == null )
@@ -524,7 +559,7 @@ public class Utils
                 modSpec.finish( LdifModSpecSepLine.create() );
                 record.addModSpec( modSpec );
             }
-            else if ( oldAttribute != null && newAttribute != null && !oldValues.equals( newValues ) )
+            else if ( oldAttribute != null && newAttribute != null && !oldValues.keySet().equals( newValues.keySet() ) )
             {
                 // attribute exists in both entries, check modifications
                 if ( isReplaceForced )
@@ -546,19 +581,19 @@ public class Utils
                     List<LdifAttrValLine> toDel = new ArrayList<>();
                     List<LdifAttrValLine> toAdd = new ArrayList<>();
 
-                    for ( Map.Entry<String, LdifAttrValLine> entry : oldAttrValLines.entrySet() )
+                    for ( Map.Entry<Object, IValue> entry : oldValues.entrySet() )
                     {
-                        if ( !newValues.contains( entry.getKey() ) )
+                        if ( !newValues.containsKey( entry.getKey() ) )
                         {
-                            toDel.add( entry.getValue() );
+                            toDel.add( computeDiffCreateAttrValLine( entry.getValue() ) );
                         }
                     }
                     
-                    for ( Map.Entry<String, LdifAttrValLine> entry : newAttrValLines.entrySet() )
+                    for ( Map.Entry<Object, IValue> entry : newValues.entrySet() )
                     {
-                        if ( !oldValues.contains( entry.getKey() ) )
+                        if ( !oldValues.containsKey( entry.getKey() ) )
                         {
-                            toAdd.add( entry.getValue() );
+                            toAdd.add( computeDiffCreateAttrValLine( entry.getValue() ) );
                         }
                     }
 
@@ -620,9 +655,9 @@ public class Utils
                         // replace (all new values)
                         LdifModSpec modSpec = LdifModSpec.createReplace( attributeDescription );
                         
-                        for ( LdifAttrValLine attrValLine : newAttrValLines.values() )
+                        for ( IValue value : newValues.values() )
                         {
-                            modSpec.addAttrVal( attrValLine );
+                            modSpec.addAttrVal( computeDiffCreateAttrValLine( value ) );
                         }
                         
                         modSpec.finish( LdifModSpecSepLine.create() );
@@ -646,6 +681,22 @@ public class Utils
     }
 
 
+    private static Map<Object, IValue> computeDiffGetValueMap( IAttribute attribute )
+    {
+        Map<Object, IValue> values = new LinkedHashMap<>();
+
+        if ( attribute != null )
+        {
+            for ( IValue value : attribute.getValues() )
+            {
+                values.putIfAbsent( Utils.getValueKey( value ), value );
+            }
+        }
+
+        return values;
+    }
+
+
     private static LdifAttrValLine computeDiffCreateAttrValLine( IValue value )
     {
         IAttribute attribute = value.getAttribute();
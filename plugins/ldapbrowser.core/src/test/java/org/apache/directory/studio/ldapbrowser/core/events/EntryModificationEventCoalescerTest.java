@@ -0,0 +1,243 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.events;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.Attribute;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.DummyConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.DummyEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.Value;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the aggregation and the order of the events dispatched by the {@link EntryModificationEventCoalescer}.
+ */
+public class EntryModificationEventCoalescerTest
+{
+    private DummyConnection connection;
+
+    private DummyEntry entry;
+
+    private Attribute attribute;
+
+    private List<EntryModificationEvent> dispatched;
+
+    private EntryModificationEventCoalescer coalescer;
+
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        connection = new DummyConnection( Schema.DEFAULT_SCHEMA );
+        entry = new DummyEntry( new Dn( "cn=entry,dc=example,dc=com" ), connection );
+        attribute = new Attribute( entry, "description" );
+        dispatched = Collections.synchronizedList( new ArrayList<>() );
+        coalescer = new EntryModificationEventCoalescer( dispatched::add );
+    }
+
+
+    private EntryModificationEvent valueAdded( String value, Object source )
+    {
+        EntryModificationEvent event = new ValueAddedEvent( connection, entry, attribute, new Value( attribute,
+            value ) );
+        event.setSource( source );
+        return event;
+    }
+
+
+    private void awaitDispatched( int count ) throws InterruptedException
+    {
+        long timeout = System.currentTimeMillis() + 50 * EntryModificationEventCoalescer.DISPATCH_WINDOW;
+        while ( dispatched.size() < count && System.currentTimeMillis() < timeout )
+        {
+            Thread.sleep( 10 );
+        }
+        assertEquals( count, dispatched.size() );
+    }
+
+
+    /**
+     * The first event is dispatched immediately, the burst that follows as one aggregated event.
+     */
+    @Test
+    public void testBurstIsAggregated() throws Exception
+    {
+        Object source = new Object();
+        EntryModificationEvent first = valueAdded( "1", source );
+        coalescer.fire( first, true );
+        coalescer.fire( valueAdded( "2", source ), true );
+        coalescer.fire( valueAdded( "3", source ), true );
+
+        assertEquals( Arrays.asList( first ), new ArrayList<>( dispatched ) );
+
+        awaitDispatched( 2 );
+        assertTrue( dispatched.get( 1 ) instanceof ValueMultiModificationEvent );
+        assertSame( entry, dispatched.get( 1 ).getModifiedEntry() );
+        assertSame( source, dispatched.get( 1 ).getSource() );
+    }
+
+
+    /**
+     * Events of different sources are aggregated separately and keep their source.
+     */
+    @Test
+    public void testSourcesAreSeparated() throws Exception
+    {
+        Object user = new Object();
+        Object manager = new Object();
+        coalescer.fire( valueAdded( "1", user ), true );
+        coalescer.fire( valueAdded( "2", manager ), true );
+        coalescer.fire( valueAdded( "3", user ), true );
+        coalescer.fire( valueAdded( "4", user ), true );
+        coalescer.fire( valueAdded( "5", manager ), true );
+
+        // both first events are dispatched immediately, each source gets its own window
+        assertEquals( 2, dispatched.size() );
+        assertSame( user, dispatched.get( 0 ).getSource() );
+        assertSame( manager, dispatched.get( 1 ).getSource() );
+
+        awaitDispatched( 4 );
+        List<EntryModificationEvent> windows = dispatched.subList( 2, 4 );
+        int userEvents = 0;
+        int managerEvents = 0;
+        for ( EntryModificationEvent event : windows )
+        {
+            if ( event.getSource() == user )
+            {
+                userEvents++;
+                assertTrue( event instanceof ValueMultiModificationEvent );
+            }
+            else if ( event.getSource() == manager )
+            {
+                managerEvents++;
+                assertTrue( event instanceof ValueAddedEvent );
+            }
+        }
+        assertEquals( 1, userEvents );
+        assertEquals( 1, managerEvents );
+    }
+
+
+    /**
+     * A non-coalesced event flushes the pending events first, so it is dispatched after them.
+     */
+    @Test
+    public void testPendingEventsAreDispatchedFirst() throws Exception
+    {
+        Object source = new Object();
+        coalescer.fire( valueAdded( "1", source ), true );
+        coalescer.fire( valueAdded( "2", source ), true );
+        EntryModificationEvent initialized = new AttributesInitializedEvent( entry );
+        coalescer.fire( initialized, true );
+
+        assertEquals( 3, dispatched.size() );
+        assertTrue( dispatched.get( 0 ) instanceof ValueAddedEvent );
+        assertTrue( dispatched.get( 1 ) instanceof ValueAddedEvent );
+        assertSame( initialized, dispatched.get( 2 ) );
+
+        // the flushed window doesn't dispatch again when it closes
+        Thread.sleep( 3 * EntryModificationEventCoalescer.DISPATCH_WINDOW );
+        assertEquals( 3, dispatched.size() );
+    }
+
+
+    /**
+     * An empty value added to a new attribute is dispatched as such, the entry editor 
+     * selects the empty value when it receives the event.
+     */
+    @Test
+    public void testEmptyValueEventsAreNotCoalesced() throws Exception
+    {
+        Object source = new Object();
+        EntryModificationEvent attributeAdded = new AttributeAddedEvent( connection, entry, attribute );
+        attributeAdded.setSource( source );
+        EntryModificationEvent emptyValueAdded = new EmptyValueAddedEvent( connection, entry, attribute,
+            new Value( attribute ) );
+        emptyValueAdded.setSource( source );
+
+        coalescer.fire( attributeAdded, true );
+        coalescer.fire( emptyValueAdded, true );
+
+        assertEquals( Arrays.asList( attributeAdded, emptyValueAdded ), new ArrayList<>( dispatched ) );
+
+        Thread.sleep( 3 * EntryModificationEventCoalescer.DISPATCH_WINDOW );
+        assertEquals( 2, dispatched.size() );
+    }
+
+
+    /**
+     * Events that are not fired while the model is loaded, e.g. user edits, are dispatched 
+     * immediately and unchanged.
+     */
+    @Test
+    public void testUserEditsAreNotCoalesced() throws Exception
+    {
+        Object source = new Object();
+        List<EntryModificationEvent> events = Arrays.asList( valueAdded( "1", source ), valueAdded( "2", source ),
+            valueAdded( "3", source ) );
+        for ( EntryModificationEvent event : events )
+        {
+            coalescer.fire( event, false );
+        }
+
+        assertEquals( events, new ArrayList<>( dispatched ) );
+
+        Thread.sleep( 3 * EntryModificationEventCoalescer.DISPATCH_WINDOW );
+        assertEquals( 3, dispatched.size() );
+    }
+
+
+    /**
+     * Events fired by a listener are dispatched after the current event, not nested within it.
+     */
+    @Test
+    public void testEventsOfListenersAreQueued() throws Exception
+    {
+        List<String> calls = new ArrayList<>();
+        EntryModificationEvent nested = new AttributesInitializedEvent( entry );
+        EntryModificationEventCoalescer[] reentrant = new EntryModificationEventCoalescer[1];
+        reentrant[0] = new EntryModificationEventCoalescer( event -> {
+            calls.add( "begin " + event.getClass().getSimpleName() );
+            if ( event != nested )
+            {
+                reentrant[0].fire( nested, true );
+            }
+            calls.add( "end " + event.getClass().getSimpleName() );
+        } );
+
+        reentrant[0].fire( valueAdded( "1", null ), true );
+
+        assertEquals( Arrays.asList( "begin ValueAddedEvent", "end ValueAddedEvent",
+            "begin AttributesInitializedEvent", "end AttributesInitializedEvent" ), calls );
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+
+import org.apache.commons.text.translate.CharSequenceTranslator;
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
+import org.apache.directory.studio.ldapbrowser.core.model.AttributeDescription;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.DummyConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
+import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests that the {@link CsvRecordEncoder} encodes the raw entries exactly like the former
+ * serial encoder encoded the LDIF records of the entries.
+ */
+public class CsvRecordEncoderTest
+{
+    private static final String[] ATTRIBUTES =
+        { "cn", "description", "userCertificate", "postalAddress", "CN", "mail" };
+
+    private DummyConnection connection;
+
+    private Entry entry;
+
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        connection = new DummyConnection( Schema.DEFAULT_SCHEMA );
+        entry = new DefaultEntry( "cn=John \"Doe\",dc=example,dc=com" );
+        entry.add( "cn", "John \"Doe\"", "Johnny" );
+        entry.add( "description", "=SUM(A1)", " leading space", "Gr\u00fc\u00dfe \u20ac" );
+        entry.add( "userCertificate", new byte[]
+            { 0, 1, 2, ( byte ) 0xff, ( byte ) 0xfe } );
+        entry.add( "postalAddress", "Street 1$City" );
+        entry.add( "objectClass", "person" );
+    }
+
+
+    /**
+     * Tests string, binary and multi-valued attributes with base64 encoded binary values.
+     */
+    @Test
+    public void testBase64() throws Exception
+    {
+        assertSameAsSerial( "UTF-8", BrowserCoreConstants.BINARYENCODING_BASE64, true );
+        assertSameAsSerial( "ISO-8859-1", BrowserCoreConstants.BINARYENCODING_BASE64, true );
+    }
+
+
+    /**
+     * Tests string, binary and multi-valued attributes with hex encoded binary values.
+     */
+    @Test
+    public void testHex() throws Exception
+    {
+        assertSameAsSerial( "UTF-8", BrowserCoreConstants.BINARYENCODING_HEX, false );
+        assertSameAsSerial( "ISO-8859-1", BrowserCoreConstants.BINARYENCODING_HEX, true );
+    }
+
+
+    /**
+     * Tests string, binary and multi-valued attributes with ignored binary values.
+     */
+    @Test
+    public void testIgnore() throws Exception
+    {
+        assertSameAsSerial( "UTF-8", BrowserCoreConstants.BINARYENCODING_IGNORE, true );
+        assertSameAsSerial( "US-ASCII", BrowserCoreConstants.BINARYENCODING_IGNORE, false );
+    }
+
+
+    private void assertSameAsSerial( String encoding, int binaryEncoding, boolean exportDn )
+    {
+        CsvRecordEncoder encoder = new CsvRecordEncoder( connection.getSchema(), ATTRIBUTES, ";", "|", "\"",
+            "\n", encoding, binaryEncoding, exportDn );
+        LdifContentRecord record = ExportLdifRunnable.DefaultLdifEnumeration.toContentRecord( entry );
+
+        assertEquals( serialEncode( record, ATTRIBUTES, ";", "|", "\"", "\n", encoding, binaryEncoding, exportDn ),
+            encoder.encode( entry ) );
+    }
+
+
+    /**
+     * The former serial encoder of ExportCsvRunnable, which encoded the LDIF record of the entry.
+     */
+    private String serialEncode( LdifContentRecord record, String[] attributes, String attributeDelimiter,
+        String valueDelimiter, String quoteCharacter, String lineSeparator, String encoding, int binaryEncoding,
+        boolean exportDn )
+    {
+        CharSequenceTranslator decoder = Utils.createPostalAddressDecoder( lineSeparator );
+
+        Map<String, String> attributeMap = ExportCsvRunnable.getAttributeMap( connection, record, valueDelimiter,
+            encoding, binaryEncoding );
+
+        StringBuffer sb = new StringBuffer();
+        if ( exportDn )
+        {
+            appendValue( quoteCharacter, sb, record.getDnLine().getValueAsString() );
+            if ( attributes.length > 0 )
+            {
+                sb.append( attributeDelimiter );
+            }
+        }
+        for ( int i = 0; i < attributes.length; i++ )
+        {
+            String oidString = new AttributeDescription( attributes[i] ).toOidString( connection.getSchema() );
+            if ( attributeMap.containsKey( oidString ) )
+            {
+                String value = attributeMap.get( oidString );
+                if ( SchemaConstants.POSTAL_ADDRESS_SYNTAX.equals( connection.getSchema()
+                    .getAttributeTypeDescription( attributes[i] ).getSyntaxOid() ) )
+                {
+                    value = decoder.translate( value );
+                }
+                appendValue( quoteCharacter, sb, value );
+            }
+            if ( i + 1 < attributes.length )
+            {
+                sb.append( attributeDelimiter );
+            }
+        }
+        sb.append( lineSeparator );
+
+        return sb.toString();
+    }
+
+
+    private static void appendValue( String quoteCharacter, StringBuffer sb, String value )
+    {
+        value = value.replaceAll( quoteCharacter, quoteCharacter + quoteCharacter );
+        if ( value.startsWith( "=" ) )
+        {
+            value = "'" + value;
+        }
+        sb.append( quoteCharacter );
+        sb.append( value );
+        sb.append( quoteCharacter );
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.Control;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
+import org.apache.directory.studio.connection.core.Controls;
+import org.apache.directory.studio.connection.core.io.api.StudioSearchResult;
+import org.apache.directory.studio.connection.core.io.api.StudioSearchResultEnumeration;
+import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.DummyConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests that the {@link FetchedSearchResults} replay the search results fetched in another thread.
+ */
+public class FetchedSearchResultsTest
+{
+    private DummyConnection connection;
+
+    private StudioProgressMonitor monitor;
+
+    private SearchParameter searchParameter;
+
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        connection = new DummyConnection( Schema.DEFAULT_SCHEMA );
+        monitor = new StudioProgressMonitor( new NullProgressMonitor() );
+        searchParameter = new SearchParameter();
+        searchParameter.setSearchBase( new Dn( "ou=users,dc=example,dc=com" ) );
+    }
+
+
+    /**
+     * Tests that the search results are fetched in another thread and replayed in order with 
+     * the response controls, and that the enumeration is closed after fetching.
+     */
+    @Test
+    public void testReplay() throws Exception
+    {
+        ListEnumeration enumeration = new ListEnumeration( 3, null );
+        List<FetchedSearchResults> fetched = new ArrayList<>();
+        Thread worker = new Thread( () -> fetched.add( FetchedSearchResults.fetch( connection, searchParameter,
+            monitor, ( parameter, searchMonitor ) -> enumeration ) ) );
+        worker.start();
+        worker.join();
+
+        assertTrue( enumeration.closed );
+        FetchedSearchResults fetchedResults = fetched.get( 0 );
+        assertEquals( Arrays.asList( "cn=0", "cn=1", "cn=2" ), consume( fetchedResults ) );
+        assertSame( enumeration.responseControls, fetchedResults.getResponseControls() );
+        assertNull( fetchedResults.next() );
+    }
+
+
+    /**
+     * Tests that an error is thrown after the search results fetched before the error, and only once.
+     */
+    @Test
+    public void testErrorAfterSearchResults() throws Exception
+    {
+        LdapException error = new LdapException( "size limit exceeded" );
+        FetchedSearchResults fetchedResults = FetchedSearchResults.fetch( connection, searchParameter, monitor,
+            ( parameter, searchMonitor ) -> new ListEnumeration( 2, error ) );
+
+        assertTrue( fetchedResults.hasMore() );
+        assertEquals( "cn=0", fetchedResults.next().getDn().getName() );
+        assertTrue( fetchedResults.hasMore() );
+        assertEquals( "cn=1", fetchedResults.next().getDn().getName() );
+        assertSame( error, assertThrows( LdapException.class, fetchedResults::hasMore ) );
+        assertFalse( fetchedResults.hasMore() );
+    }
+
+
+    /**
+     * Tests that a failed search yields no search results.
+     */
+    @Test
+    public void testFailedSearch() throws Exception
+    {
+        FetchedSearchResults fetchedResults = FetchedSearchResults.fetch( connection, searchParameter, monitor,
+            ( parameter, searchMonitor ) -> null );
+
+        assertFalse( fetchedResults.hasMore() );
+        assertTrue( fetchedResults.getResponseControls().isEmpty() );
+    }
+
+
+    /**
+     * Tests that fetching stops when the monitor is canceled.
+     */
+    @Test
+    public void testCanceled() throws Exception
+    {
+        monitor.setCanceled( true );
+        ListEnumeration enumeration = new ListEnumeration( 3, null );
+        FetchedSearchResults fetchedResults = FetchedSearchResults.fetch( connection, searchParameter, monitor,
+            ( parameter, searchMonitor ) -> enumeration );
+
+        assertFalse( fetchedResults.hasMore() );
+        assertTrue( enumeration.closed );
+    }
+
+
+    private static List<String> consume( FetchedSearchResults fetchedResults ) throws LdapException
+    {
+        List<String> dns = new ArrayList<>();
+        while ( fetchedResults.hasMore() )
+        {
+            dns.add( fetchedResults.next().getDn().getName() );
+        }
+        return dns;
+    }
+
+
+    /**
+     * Returns the search results cn=0, cn=1, ... followed by an error, if any.
+     */
+    private static class ListEnumeration extends StudioSearchResultEnumeration
+    {
+        private final List<StudioSearchResult> searchResults = new ArrayList<>();
+
+        private final Collection<Control> responseControls = Collections.singletonList( Controls.MANAGEDSAIT_CONTROL );
+
+        private final LdapException error;
+
+        private boolean closed;
+
+
+        ListEnumeration( int count, LdapException error ) throws LdapException
+        {
+            super( null, null, null, null, null, null, null, null, 0, null, null );
+            for ( int i = 0; i < count; i++ )
+            {
+                SearchResultEntryImpl entry = new SearchResultEntryImpl();
+                entry.setEntry( new DefaultEntry( "cn=" + i ) );
+                searchResults.add( new StudioSearchResult( entry, null, false, null ) );
+            }
+            this.error = error;
+        }
+
+
+        @Override
+        public boolean hasMore() throws LdapException
+        {
+            if ( searchResults.isEmpty() && error != null )
+            {
+                throw error;
+            }
+            return !searchResults.isEmpty();
+        }
+
+
+        @Override
+        public StudioSearchResult next() throws LdapException
+        {
+            return searchResults.remove( 0 );
+        }
+
+
+        @Override
+        public Collection<Control> getResponseControls()
+        {
+            return responseControls;
+        }
+
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+    }
+}
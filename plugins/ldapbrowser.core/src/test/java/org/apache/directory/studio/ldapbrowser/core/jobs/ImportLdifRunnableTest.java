@@ -0,0 +1,106 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.directory.studio.ldifparser.model.container.LdifRecord;
+import org.apache.directory.studio.ldifparser.parser.LdifParser;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the dependency tracking of the pipelined LDIF import.
+ */
+public class ImportLdifRunnableTest
+{
+    private static List<String> key( String dn )
+    {
+        LdifRecord record = new LdifParser().parse( "dn: " + dn + "\nobjectClass: top\n\n" ).getRecords()[0];
+        return ImportLdifRunnable.getDependencyKey( record, null );
+    }
+
+
+    /**
+     * Dns that differ only in case and spacing get the same key.
+     */
+    @Test
+    public void testKeyIsNormalized()
+    {
+        assertEquals( key( "ou=People,dc=example,dc=com" ), key( "OU=people , DC=Example,dc=COM" ) );
+    }
+
+
+    /**
+     * The key of a parent is a prefix of the key of its children, also if they are written differently.
+     */
+    @Test
+    public void testAncestorOrSelf()
+    {
+        List<String> parent = key( "ou=People,dc=example,dc=com" );
+        List<String> child = key( "uid=jdoe,OU=PEOPLE,dc=Example,dc=com" );
+        List<String> sibling = key( "ou=Groups,dc=example,dc=com" );
+
+        assertTrue( ImportLdifRunnable.isAncestorOrSelf( parent, child ) );
+        assertTrue( ImportLdifRunnable.isAncestorOrSelf( parent, parent ) );
+        assertFalse( ImportLdifRunnable.isAncestorOrSelf( child, parent ) );
+        assertFalse( ImportLdifRunnable.isAncestorOrSelf( sibling, child ) );
+    }
+
+
+    /**
+     * Records below an entry whose add failed are detected, the entry itself and its siblings are not.
+     */
+    @Test
+    public void testFailedAncestor()
+    {
+        Set<List<String>> failedAdds = new HashSet<>();
+        failedAdds.add( key( "ou=People,dc=example,dc=com" ) );
+
+        assertTrue( ImportLdifRunnable.hasFailedAncestor( key( "uid=jdoe,ou=people,dc=example,dc=com" ), failedAdds ) );
+        assertTrue( ImportLdifRunnable.hasFailedAncestor( key( "cn=x,uid=jdoe,ou=People,dc=example,dc=com" ),
+            failedAdds ) );
+        assertFalse( ImportLdifRunnable.hasFailedAncestor( key( "ou=People,dc=example,dc=com" ), failedAdds ) );
+        assertFalse( ImportLdifRunnable.hasFailedAncestor( key( "uid=jdoe,ou=Groups,dc=example,dc=com" ),
+            failedAdds ) );
+        assertFalse( ImportLdifRunnable.hasFailedAncestor( null, failedAdds ) );
+        assertFalse( ImportLdifRunnable.hasFailedAncestor( key( "uid=jdoe,ou=People,dc=example,dc=com" ),
+            Collections.emptySet() ) );
+    }
+
+
+    /**
+     * Records with an invalid Dn are barriers.
+     */
+    @Test
+    public void testInvalidDnIsBarrier()
+    {
+        assertNull( key( "this is no dn" ) );
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
+import org.apache.directory.studio.ldapbrowser.core.jobs.InitializeAttributesRunnable.AttributesLoad;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the coordination of concurrent attribute loads.
+ */
+public class InitializeAttributesRunnableTest
+{
+    private static final String[] ALL = new String[]
+        { "*" };
+
+
+    private static List<Object> key( String dn )
+    {
+        return Arrays.<Object> asList( InitializeAttributesRunnableTest.class, dn );
+    }
+
+
+    private static Thread start( Runnable runnable )
+    {
+        Thread thread = new Thread( runnable );
+        thread.setDaemon( true );
+        thread.start();
+        return thread;
+    }
+
+
+    /**
+     * Loads of different entries run at the same time.
+     */
+    @Test
+    public void testDifferentEntriesRunInParallel() throws Exception
+    {
+        CountDownLatch bothRunning = new CountDownLatch( 2 );
+        AtomicBoolean parallel = new AtomicBoolean();
+
+        Runnable loader = () -> {
+            bothRunning.countDown();
+            try
+            {
+                parallel.compareAndSet( false, bothRunning.await( 5, TimeUnit.SECONDS ) );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        Thread t1 = start( () -> new AttributesLoad( ALL, true ).run( key( "cn=a" ), loader, () -> false,
+            new StudioProgressMonitor( new NullProgressMonitor() ) ) );
+        Thread t2 = start( () -> new AttributesLoad( ALL, true ).run( key( "cn=b" ), loader, () -> false,
+            new StudioProgressMonitor( new NullProgressMonitor() ) ) );
+        t1.join( 10000 );
+        t2.join( 10000 );
+
+        assertTrue( parallel.get() );
+    }
+
+
+    /**
+     * A load of the same attributes of the same entry waits for the running load and reuses its result.
+     */
+    @Test
+    public void testSameLoadIsReused() throws Exception
+    {
+        CountDownLatch firstStarted = new CountDownLatch( 1 );
+        CountDownLatch releaseFirst = new CountDownLatch( 1 );
+        AtomicInteger loads = new AtomicInteger();
+        AtomicBoolean initialized = new AtomicBoolean();
+
+        Thread t1 = start( () -> new AttributesLoad( ALL, true ).run( key( "cn=same" ), () -> {
+            loads.incrementAndGet();
+            firstStarted.countDown();
+            try
+            {
+                releaseFirst.await( 5, TimeUnit.SECONDS );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            initialized.set( true );
+        }, initialized::get, new StudioProgressMonitor( new NullProgressMonitor() ) ) );
+
+        assertTrue( firstStarted.await( 5, TimeUnit.SECONDS ) );
+        Thread t2 = start( () -> new AttributesLoad( ALL, true ).run( key( "cn=same" ), loads::incrementAndGet,
+            initialized::get, new StudioProgressMonitor( new NullProgressMonitor() ) ) );
+
+        // wait until the second load waits for the first one
+        for ( int i = 0; i < 500 && t2.getState() != Thread.State.TIMED_WAITING; i++ )
+        {
+            Thread.sleep( 10 );
+        }
+
+        releaseFirst.countDown();
+        t1.join( 10000 );
+        t2.join( 10000 );
+
+        assertEquals( 1, loads.get() );
+    }
+
+
+    /**
+     * A load of other attributes of the same entry runs after the running load.
+     */
+    @Test
+    public void testOtherAttributesRunAfterwards() throws Exception
+    {
+        AtomicInteger loads = new AtomicInteger();
+        StudioProgressMonitor monitor = new StudioProgressMonitor( new NullProgressMonitor() );
+
+        new AttributesLoad( ALL, true ).run( key( "cn=other" ), loads::incrementAndGet, () -> true, monitor );
+        new AttributesLoad( new String[]
+            { "cn" }, false ).run( key( "cn=other" ), loads::incrementAndGet, () -> true, monitor );
+
+        assertEquals( 2, loads.get() );
+    }
+
+
+    /**
+     * A waiting load returns when its monitor is canceled.
+     */
+    @Test
+    public void testWaitingLoadHonoursCancel() throws Exception
+    {
+        CountDownLatch firstStarted = new CountDownLatch( 1 );
+        CountDownLatch releaseFirst = new CountDownLatch( 1 );
+        AtomicInteger loads = new AtomicInteger();
+
+        Thread t1 = start( () -> new AttributesLoad( ALL, true ).run( key( "cn=cancel" ), () -> {
+            firstStarted.countDown();
+            try
+            {
+                releaseFirst.await( 10, TimeUnit.SECONDS );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }, () -> false, new StudioProgressMonitor( new NullProgressMonitor() ) ) );
+
+        assertTrue( firstStarted.await( 5, TimeUnit.SECONDS ) );
+        StudioProgressMonitor monitor = new StudioProgressMonitor( new NullProgressMonitor() );
+        Thread t2 = start( () -> new AttributesLoad( ALL, true ).run( key( "cn=cancel" ), loads::incrementAndGet,
+            () -> false, monitor ) );
+
+        monitor.setCanceled( true );
+        t2.join( 5000 );
+
+        assertTrue( !t2.isAlive() );
+        assertEquals( 0, loads.get() );
+
+        releaseFirst.countDown();
+        t1.join( 10000 );
+    }
+}
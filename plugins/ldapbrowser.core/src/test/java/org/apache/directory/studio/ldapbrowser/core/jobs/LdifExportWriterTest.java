@@ -0,0 +1,193 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.DummyConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.DummyEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.apache.directory.studio.ldapbrowser.core.utils.AttributeComparator;
+import org.apache.directory.studio.ldapbrowser.core.utils.ModelConverter;
+import org.apache.directory.studio.ldifparser.LdifFormatParameters;
+import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
+import org.apache.directory.studio.ldifparser.model.lines.LdifAttrValLine;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests that the {@link LdifExportWriter} writes the same bytes as the former export, which converted
+ * each record to a browser entry, sorted its values with the {@link AttributeComparator} and formatted
+ * a new {@link LdifContentRecord}.
+ */
+public class LdifExportWriterTest
+{
+    private static final List<LdifFormatParameters> FORMATS = Arrays.asList(
+        new LdifFormatParameters( true, 76, "\n" ),
+        new LdifFormatParameters( false, 76, "\r\n" ),
+        new LdifFormatParameters( true, 20, "\n" ) );
+
+    private final DummyConnection connection = new DummyConnection( Schema.DEFAULT_SCHEMA );
+
+
+    /**
+     * objectClass and must attributes come first, operational attributes last, then the attributes
+     * are ordered by description and the values by their string representation, ignoring case.
+     */
+    @Test
+    public void testAttributeOrder() throws Exception
+    {
+        Entry entry = new DefaultEntry( "cn=Barbara Jensen,ou=people,dc=example,dc=com",
+            "createTimestamp: 20200101000000Z",
+            "telephoneNumber: +1 408 555 1212",
+            "sn: Jensen",
+            "objectClass: top",
+            "objectClass: person",
+            "cn: Barbara Jensen",
+            "cn: babs",
+            "description: Manager" );
+
+        assertEquals( "dn: cn=Barbara Jensen,ou=people,dc=example,dc=com\n"
+            + "objectClass: person\n"
+            + "objectClass: top\n"
+            + "cn: babs\n"
+            + "cn: Barbara Jensen\n"
+            + "sn: Jensen\n"
+            + "description: Manager\n"
+            + "telephoneNumber: +1 408 555 1212\n"
+            + "createTimestamp: 20200101000000Z\n"
+            + "\n", write( entry, FORMATS.get( 0 ) ) );
+        assertSameBytes( entry );
+    }
+
+
+    /**
+     * Long dn and value lines are folded at the line width, a line of exactly the line width is not folded.
+     */
+    @Test
+    public void testFolding() throws Exception
+    {
+        Entry entry = new DefaultEntry( "cn=" + repeat( 'c', 100 ) + ",dc=example,dc=com",
+            "objectClass: person",
+            "sn: " + repeat( 's', 72 ),
+            "description: " + repeat( 'x', 63 ),
+            "description: " + repeat( 'y', 64 ),
+            "description: " + repeat( 'z', 200 ) );
+
+        String ldif = write( entry, FORMATS.get( 0 ) );
+        assertTrue( ldif.contains( "\nsn: " + repeat( 's', 72 ) + "\n" ) );
+        assertTrue( ldif.contains( "\ndescription: " + repeat( 'x', 63 ) + "\n" ) );
+        assertTrue( ldif.contains( "\ndescription: " + repeat( 'y', 63 ) + "\n y\n" ) );
+        for ( String line : ldif.split( "\n" ) )
+        {
+            assertTrue( line.length() <= 76 );
+        }
+        assertSameBytes( entry );
+    }
+
+
+    /**
+     * Binary values, values that start or end with an unsafe character or contain line breaks
+     * or non-ASCII characters, and such dns are base64 encoded.
+     */
+    @Test
+    public void testBase64() throws Exception
+    {
+        byte[] photo = new byte[100];
+        for ( int i = 0; i < photo.length; i++ )
+        {
+            photo[i] = ( byte ) ( 0xFF - i );
+        }
+        Entry entry = new DefaultEntry( "cn=M\u00fcller,dc=example,dc=com" );
+        entry.add( "objectClass", "person" );
+        entry.add( "cn", "M\u00fcller" );
+        entry.add( "sn", "plain" );
+        entry.add( "description", " leading space", ":colon", "<less than", "trailing space ", "line\nbreak",
+            "nul\u0000char", "plain" );
+        entry.add( "jpegPhoto", photo );
+
+        String ldif = write( entry, FORMATS.get( 0 ) );
+        assertTrue( ldif.startsWith( "dn:: " ) );
+        assertTrue( ldif.contains( "\ndescription: plain\n" ) );
+        assertTrue( ldif.contains( "\njpegPhoto:: " ) );
+        assertSameBytes( entry );
+    }
+
+
+    private void assertSameBytes( Entry entry ) throws Exception
+    {
+        for ( LdifFormatParameters format : FORMATS )
+        {
+            assertArrayEquals( writeRecord( entry, format ).getBytes( StandardCharsets.UTF_8 ),
+                write( entry, format ).getBytes( StandardCharsets.UTF_8 ) );
+        }
+    }
+
+
+    private String write( Entry entry, LdifFormatParameters format ) throws Exception
+    {
+        StringWriter writer = new StringWriter();
+        new LdifExportWriter( writer, Schema.DEFAULT_SCHEMA, format ).write( entry );
+        return writer.toString();
+    }
+
+
+    /**
+     * The former export of a single entry.
+     */
+    private String writeRecord( Entry entry, LdifFormatParameters format ) throws Exception
+    {
+        LdifContentRecord record = ExportLdifRunnable.DefaultLdifEnumeration.toContentRecord( entry );
+        DummyEntry dummyEntry = ModelConverter.ldifContentRecordToEntry( record, connection );
+        List<IValue> sortedValues = AttributeComparator.toSortedValues( dummyEntry );
+        LdifContentRecord newRecord = new LdifContentRecord( record.getDnLine() );
+        for ( IValue value : sortedValues )
+        {
+            // ModelConverter.valueToLdifAttrValLine() reads the binary attributes from the plugin
+            // preferences, for the attributes used here it creates the line from the raw value
+            Object rawValue = value.getRawValue();
+            String description = value.getAttribute().getDescription();
+            newRecord.addAttrVal( rawValue instanceof byte[]
+                ? LdifAttrValLine.create( description, ( byte[] ) rawValue )
+                : LdifAttrValLine.create( description, value.getStringValue() ) );
+        }
+        newRecord.finish( record.getSepLine() );
+        return newRecord.toFormattedString( format );
+    }
+
+
+    private static String repeat( char c, int count )
+    {
+        char[] chars = new char[count];
+        Arrays.fill( chars, c );
+        return new String( chars );
+    }
+}
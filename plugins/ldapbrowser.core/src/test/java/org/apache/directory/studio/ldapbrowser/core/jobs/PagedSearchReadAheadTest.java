@@ -0,0 +1,300 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.Control;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
+import org.apache.directory.studio.connection.core.Controls;
+import org.apache.directory.studio.connection.core.io.api.StudioSearchResult;
+import org.apache.directory.studio.connection.core.io.api.StudioSearchResultEnumeration;
+import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.DummyConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests that the {@link PagedSearchReadAhead} requests the next page before the current page is consumed.
+ */
+public class PagedSearchReadAheadTest
+{
+    private static final int PAGE_SIZE = 2;
+
+    private DummyConnection connection;
+
+    private StudioProgressMonitor monitor;
+
+    private SearchParameter searchParameter;
+
+    /** The cookies of the requested pages, in request order. */
+    private List<byte[]> requestedCookies;
+
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        connection = new DummyConnection( Schema.DEFAULT_SCHEMA );
+        monitor = new StudioProgressMonitor( new NullProgressMonitor() );
+        searchParameter = new SearchParameter();
+        searchParameter.setSearchBase( new Dn( "ou=users,dc=example,dc=com" ) );
+        searchParameter.getControls().add( Controls.newPagedResultsControl( PAGE_SIZE ) );
+        requestedCookies = Collections.synchronizedList( new ArrayList<byte[]>() );
+    }
+
+
+    /**
+     * Tests that the search results of all pages are returned in order and the cookies are passed on.
+     */
+    @Test
+    public void testReadAllPages() throws Exception
+    {
+        PagedSearchReadAhead readAhead = PagedSearchReadAhead.start( connection, searchParameter, monitor,
+            pages( 3, null ) );
+
+        assertEquals( Arrays.asList( "cn=0-0", "cn=0-1", "cn=1-0", "cn=1-1", "cn=2-0", "cn=2-1" ),
+            consume( readAhead ) );
+        assertEquals( 3, requestedCookies.size() );
+        assertNull( requestedCookies.get( 0 ) );
+        assertArrayEquals( new byte[]
+            { 1 }, requestedCookies.get( 1 ) );
+        assertArrayEquals( new byte[]
+            { 2 }, requestedCookies.get( 2 ) );
+        assertFalse( hasCookie( readAhead.getResponseControls() ) );
+    }
+
+
+    /**
+     * Tests that the second page is requested while no search result of the first page was taken.
+     */
+    @Test
+    public void testNextPageRequestedBeforeCurrentPageConsumed() throws Exception
+    {
+        CountDownLatch secondPageRequested = new CountDownLatch( 1 );
+        PagedSearchReadAhead.PageSearcher pages = pages( 3, null );
+        PagedSearchReadAhead readAhead = PagedSearchReadAhead.start( connection, searchParameter, monitor,
+            ( pageParameter, pageMonitor ) -> {
+                StudioSearchResultEnumeration page = pages.search( pageParameter, pageMonitor );
+                if ( requestedCookies.size() == 2 )
+                {
+                    secondPageRequested.countDown();
+                }
+                return page;
+            } );
+
+        try
+        {
+            assertTrue( secondPageRequested.await( 10, TimeUnit.SECONDS ) );
+            assertEquals( 6, consume( readAhead ).size() );
+        }
+        finally
+        {
+            readAhead.stop();
+        }
+    }
+
+
+    /**
+     * Tests that reading stops at the count limit and the cookie of the last page is kept.
+     */
+    @Test
+    public void testStopAtCountLimit() throws Exception
+    {
+        searchParameter.setCountLimit( PAGE_SIZE );
+        PagedSearchReadAhead readAhead = PagedSearchReadAhead.start( connection, searchParameter, monitor,
+            pages( 3, null ) );
+
+        assertEquals( Arrays.asList( "cn=0-0", "cn=0-1" ), consume( readAhead ) );
+        assertEquals( 1, requestedCookies.size() );
+        assertTrue( hasCookie( readAhead.getResponseControls() ) );
+    }
+
+
+    /**
+     * Tests that an error of a later page is thrown after the search results of the earlier pages.
+     */
+    @Test
+    public void testErrorOfLaterPage() throws Exception
+    {
+        LdapException error = new LdapException( "page 1 failed" );
+        PagedSearchReadAhead readAhead = PagedSearchReadAhead.start( connection, searchParameter, monitor,
+            pages( 3, error ) );
+
+        assertTrue( readAhead.hasMore() );
+        assertEquals( "cn=0-0", readAhead.next().getDn().getName() );
+        assertTrue( readAhead.hasMore() );
+        assertEquals( "cn=0-1", readAhead.next().getDn().getName() );
+        assertEquals( error, assertThrows( LdapException.class, readAhead::hasMore ) );
+        assertFalse( readAhead.hasMore() );
+    }
+
+
+    /**
+     * Tests that the reader stops requesting pages once the caller stopped consuming.
+     */
+    @Test
+    public void testStop() throws Exception
+    {
+        PagedSearchReadAhead readAhead = PagedSearchReadAhead.start( connection, searchParameter, monitor,
+            pages( Integer.MAX_VALUE, null ) );
+
+        assertTrue( readAhead.hasMore() );
+        readAhead.stop();
+
+        // the reader leaves its current put within a poll interval and does not request further pages
+        Thread.sleep( 500 );
+        int requested = requestedCookies.size();
+        Thread.sleep( 500 );
+        assertEquals( requested, requestedCookies.size() );
+    }
+
+
+    /**
+     * Creates a page searcher. Page i holds the search results cn=i-0 and cn=i-1, its response 
+     * cookie is i+1 unless it is the last page.
+     * 
+     * @param pageCount the number of pages
+     * @param errorOfSecondPage the error thrown while reading the second page, may be null
+     * @return the page searcher
+     */
+    private PagedSearchReadAhead.PageSearcher pages( int pageCount, LdapException errorOfSecondPage )
+    {
+        return ( pageParameter, pageMonitor ) -> {
+            byte[] cookie = getPagedResultsControl( pageParameter.getControls() ).getCookie();
+            requestedCookies.add( cookie );
+            int page = cookie == null || cookie.length == 0 ? 0 : cookie[0];
+            byte[] nextCookie = page + 1 < pageCount ? new byte[]
+                { ( byte ) ( page + 1 ) } : null;
+            return new PageEnumeration( page, nextCookie, page == 1 ? errorOfSecondPage : null );
+        };
+    }
+
+
+    private static List<String> consume( PagedSearchReadAhead readAhead ) throws LdapException
+    {
+        List<String> dns = new ArrayList<>();
+        while ( readAhead.hasMore() )
+        {
+            dns.add( readAhead.next().getDn().getName() );
+        }
+        return dns;
+    }
+
+
+    private static boolean hasCookie( Collection<Control> controls )
+    {
+        PagedResults control = getPagedResultsControl( controls );
+        return control != null && control.getCookie() != null && control.getCookie().length > 0;
+    }
+
+
+    private static PagedResults getPagedResultsControl( Collection<Control> controls )
+    {
+        for ( Control control : controls )
+        {
+            if ( control instanceof PagedResults )
+            {
+                return ( PagedResults ) control;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * The search results of a single page.
+     */
+    private static class PageEnumeration extends StudioSearchResultEnumeration
+    {
+        private final List<StudioSearchResult> searchResults = new ArrayList<>();
+
+        private final Collection<Control> responseControls;
+
+        private final LdapException error;
+
+
+        PageEnumeration( int page, byte[] nextCookie, LdapException error ) throws LdapException
+        {
+            super( null, null, null, null, null, null, null, null, 0, null, null );
+            for ( int i = 0; i < PAGE_SIZE; i++ )
+            {
+                SearchResultEntryImpl entry = new SearchResultEntryImpl();
+                entry.setEntry( new DefaultEntry( "cn=" + page + "-" + i ) );
+                searchResults.add( new StudioSearchResult( entry, null, false, null ) );
+            }
+            this.responseControls = Collections.singletonList( Controls.newPagedResultsControl( PAGE_SIZE,
+                nextCookie ) );
+            this.error = error;
+        }
+
+
+        @Override
+        public boolean hasMore() throws LdapException
+        {
+            if ( error != null )
+            {
+                throw error;
+            }
+            return !searchResults.isEmpty();
+        }
+
+
+        @Override
+        public StudioSearchResult next() throws LdapException
+        {
+            return searchResults.remove( 0 );
+        }
+
+
+        @Override
+        public Collection<Control> getResponseControls()
+        {
+            return responseControls;
+        }
+
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
+import org.apache.directory.studio.connection.core.io.api.StudioSearchResult;
+import org.apache.directory.studio.connection.core.io.api.StudioSearchResultEnumeration;
+import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the grouping of the children of a partitioned export and the fallback to a
+ * single search if the listing of the children is incomplete.
+ */
+public class PartitionedExportTest
+{
+    private StudioProgressMonitor monitor;
+
+    private SearchParameter searchParameter;
+
+    /** The search base and scope of each exported segment, in export order. */
+    private List<String> exported;
+
+    private StringWriter output;
+
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        monitor = new StudioProgressMonitor( new NullProgressMonitor() );
+        searchParameter = new SearchParameter();
+        searchParameter.setSearchBase( new Dn( "dc=example,dc=com" ) );
+        searchParameter.setScope( SearchScope.SUBTREE );
+        exported = Collections.synchronizedList( new ArrayList<String>() );
+        output = new StringWriter();
+    }
+
+
+    private static List<Integer> children( int count )
+    {
+        List<Integer> children = new ArrayList<>();
+
+        for ( int i = 0; i < count; i++ )
+        {
+            children.add( i );
+        }
+
+        return children;
+    }
+
+
+    /**
+     * The children are split into one bucket per worker of about the same size, and the
+     * concatenated buckets keep the order of the children.
+     */
+    @Test
+    public void testBucketsKeepOrder()
+    {
+        List<Integer> children = children( 1000 );
+        List<List<Integer>> buckets = PartitionedExport.getBuckets( children, 8 );
+
+        assertEquals( 8, buckets.size() );
+
+        List<Integer> concatenated = new ArrayList<>();
+        for ( List<Integer> bucket : buckets )
+        {
+            assertEquals( 125, bucket.size() );
+            concatenated.addAll( bucket );
+        }
+
+        assertEquals( children, concatenated );
+    }
+
+
+    /**
+     * Uneven splits differ by at most one child per bucket.
+     */
+    @Test
+    public void testUnevenBuckets()
+    {
+        List<List<Integer>> buckets = PartitionedExport.getBuckets( children( 10 ), 4 );
+
+        assertEquals( 4, buckets.size() );
+        for ( List<Integer> bucket : buckets )
+        {
+            assertTrue( bucket.size() == 2 || bucket.size() == 3 );
+        }
+    }
+
+
+    /**
+     * There are never more buckets than children and never an empty bucket.
+     */
+    @Test
+    public void testFewChildren()
+    {
+        assertEquals( Arrays.asList( Arrays.asList( 0 ), Arrays.asList( 1 ) ),
+            PartitionedExport.getBuckets( children( 2 ), 8 ) );
+        assertEquals( 1, PartitionedExport.getBuckets( children( 5 ), 1 ).size() );
+    }
+
+
+    /**
+     * The search base and the subtrees of the children are exported and concatenated in DN order.
+     */
+    @Test
+    public void testPartitionedExport() throws Exception
+    {
+        export( new ChildrenEnumeration( ResultCodeEnum.SUCCESS, null, "ou=c", "ou=a", "ou=b" ) );
+
+        assertFalse( monitor.errorsReported() );
+        assertEquals( "dc=example,dc=com OBJECT\n" + "ou=a SUBTREE\n" + "ou=b SUBTREE\n" + "ou=c SUBTREE\n",
+            output.toString() );
+    }
+
+
+    /**
+     * If the server truncates the listing of the children at its size limit the export falls
+     * back to a single search, a partitioned export would silently miss the unlisted subtrees.
+     */
+    @Test
+    public void testChildrenSizeLimitExceeded() throws Exception
+    {
+        export( new ChildrenEnumeration( ResultCodeEnum.SIZE_LIMIT_EXCEEDED, null, "ou=a", "ou=b" ) );
+
+        assertFalse( monitor.errorsReported() );
+        assertEquals( Collections.singletonList( "dc=example,dc=com SUBTREE" ), exported );
+        assertEquals( "dc=example,dc=com SUBTREE\n", output.toString() );
+    }
+
+
+    /**
+     * A size, time or administrative limit reported as an error also falls back to a single search.
+     */
+    @Test
+    public void testChildrenLimitError() throws Exception
+    {
+        export( new ChildrenEnumeration( null, new LdapException( "[LDAP: error code 4 - Sizelimit Exceeded]" ),
+            "ou=a" ) );
+
+        assertFalse( monitor.errorsReported() );
+        assertEquals( Collections.singletonList( "dc=example,dc=com SUBTREE" ), exported );
+    }
+
+
+    /**
+     * Any other error of the listing of the children is reported and nothing is exported.
+     */
+    @Test
+    public void testChildrenError() throws Exception
+    {
+        LdapException error = new LdapException( "[LDAP: error code 32 - No Such Object]" );
+        export( new ChildrenEnumeration( null, error, "ou=a" ) );
+
+        assertTrue( monitor.errorsReported() );
+        assertSame( error, monitor.getException() );
+        assertTrue( exported.isEmpty() );
+        assertEquals( "", output.toString() );
+    }
+
+
+    private void export( ChildrenEnumeration childrenEnumeration ) throws IOException
+    {
+        try ( BufferedWriter writer = new BufferedWriter( output ) )
+        {
+            PartitionedExport.export( searchParameter, 2, writer, StandardCharsets.UTF_8,
+                ( parameter, segmentWriter, segmentMonitor ) -> {
+                    String segment = parameter.getSearchBase().getName() + " " + parameter.getScope();
+                    exported.add( segment );
+                    segmentWriter.write( segment );
+                    segmentWriter.write( '\n' );
+                },
+                ( childrenParameter, childrenMonitor ) -> new ExportLdifRunnable.DefaultLdifEnumeration(
+                    childrenEnumeration, null, childrenParameter, childrenMonitor ),
+                monitor );
+        }
+
+        assertTrue( childrenEnumeration.closed );
+    }
+
+
+    /**
+     * Returns the given children followed by an error or the given result code.
+     */
+    private static class ChildrenEnumeration extends StudioSearchResultEnumeration
+    {
+        private final List<StudioSearchResult> searchResults = new ArrayList<>();
+
+        private final ResultCodeEnum resultCode;
+
+        private final LdapException error;
+
+        private boolean closed;
+
+
+        ChildrenEnumeration( ResultCodeEnum resultCode, LdapException error, String... children )
+            throws LdapException
+        {
+            super( null, null, null, null, null, null, null, null, 0, null, null );
+            for ( String child : children )
+            {
+                SearchResultEntryImpl entry = new SearchResultEntryImpl();
+                entry.setEntry( new DefaultEntry( child ) );
+                searchResults.add( new StudioSearchResult( entry, null, false, null ) );
+            }
+            this.resultCode = resultCode;
+            this.error = error;
+        }
+
+
+        @Override
+        public boolean hasMore() throws LdapException
+        {
+            if ( searchResults.isEmpty() && error != null )
+            {
+                throw error;
+            }
+            return !searchResults.isEmpty();
+        }
+
+
+        @Override
+        public StudioSearchResult next() throws LdapException
+        {
+            return searchResults.remove( 0 );
+        }
+
+
+        @Override
+        public ResultCodeEnum getResultCode()
+        {
+            return searchResults.isEmpty() ? resultCode : null;
+        }
+
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+    }
+}
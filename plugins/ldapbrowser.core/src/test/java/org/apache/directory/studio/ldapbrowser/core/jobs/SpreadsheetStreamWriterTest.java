@@ -0,0 +1,261 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+
+/**
+ * Tests the packages, sheets, escaping and cell limits of the {@link XlsxStreamWriter} and the {@link OdsStreamWriter}.
+ */
+public class SpreadsheetStreamWriterTest
+{
+    private static final String CONTENT_TYPE_PREFIX = "application/vnd.openxmlformats-officedocument.spreadsheetml.";
+
+    @TempDir
+    Path tempDir;
+
+    /** The method of each zip entry, in order */
+    private final Map<String, Integer> methods = new LinkedHashMap<>();
+
+
+    /**
+     * Tests the entries and content types of an XLSX package and the escaping of the cells.
+     */
+    @Test
+    public void testXlsx() throws Exception
+    {
+        Path file = tempDir.resolve( "export.xlsx" );
+        try ( XlsxStreamWriter writer = new XlsxStreamWriter( file.toString(), true ) )
+        {
+            writeRow( writer );
+        }
+
+        Map<String, String> entries = unzip( file );
+        assertEquals( Arrays.asList( "[Content_Types].xml", "_rels/.rels", "xl/workbook.xml",
+            "xl/_rels/workbook.xml.rels", "xl/styles.xml", "xl/worksheets/sheet1.xml" ),
+            new ArrayList<>( entries.keySet() ) );
+        for ( String xml : entries.values() )
+        {
+            parse( xml );
+        }
+
+        String contentTypes = entries.get( "[Content_Types].xml" );
+        assertTrue( contentTypes.contains( "<Override PartName=\"/xl/workbook.xml\" ContentType=\""
+            + CONTENT_TYPE_PREFIX + "sheet.main+xml\"/>" ) );
+        assertTrue( contentTypes.contains( "<Override PartName=\"/xl/styles.xml\" ContentType=\""
+            + CONTENT_TYPE_PREFIX + "styles+xml\"/>" ) );
+        assertTrue( contentTypes.contains( "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\""
+            + CONTENT_TYPE_PREFIX + "worksheet+xml\"/>" ) );
+        assertTrue( entries.get( "xl/workbook.xml" ).contains(
+            "<sheet name=\"Export\" sheetId=\"1\" r:id=\"rId1\"/>" ) );
+
+        String sheet = entries.get( "xl/worksheets/sheet1.xml" );
+        assertTrue( sheet.contains( "<row r=\"1\">"
+            + "<c r=\"A1\" t=\"inlineStr\"><is><t xml:space=\"preserve\">dn</t></is></c>"
+            + "<c r=\"B1\" t=\"inlineStr\"><is><t xml:space=\"preserve\">cn</t></is></c>"
+            + "<c r=\"C1\" t=\"inlineStr\"><is><t xml:space=\"preserve\">postalAddress</t></is></c></row>" ) );
+        assertTrue( sheet.contains( "<c r=\"A2\" t=\"inlineStr\"><is><t xml:space=\"preserve\">"
+            + "cn=a&amp;b,dc=example</t>" ) );
+        assertTrue( sheet.contains( "<c r=\"B2\" t=\"inlineStr\"><is><t xml:space=\"preserve\">"
+            + "&lt;x&gt; &quot;y&quot;</t>" ) );
+        assertTrue( sheet.contains( "<c r=\"C2\" s=\"1\" t=\"inlineStr\"><is><t xml:space=\"preserve\">"
+            + "a\nb</t>" ) );
+        assertEquals( Arrays.asList( "dn", "cn", "postalAddress", "cn=a&b,dc=example", "<x> \"y\"", "a\nb" ),
+            getTexts( sheet, "t" ) );
+    }
+
+
+    /**
+     * Tests that an XLSX export without entries has the dn header row if the dn is exported.
+     */
+    @Test
+    public void testXlsxDnHeaderWithoutRows() throws Exception
+    {
+        Path file = tempDir.resolve( "export.xlsx" );
+        new XlsxStreamWriter( file.toString(), true ).close();
+
+        String sheet = unzip( file ).get( "xl/worksheets/sheet1.xml" );
+        assertTrue( sheet.contains( "<sheetData>\n<row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is>"
+            + "<t xml:space=\"preserve\">dn</t></is></c></row>\n</sheetData>" ) );
+        assertEquals( Arrays.asList( "dn" ), getTexts( sheet, "t" ) );
+    }
+
+
+    /**
+     * Tests that cells are truncated at the XLSX limit of 32767 characters, without splitting a surrogate pair.
+     */
+    @Test
+    public void testXlsxCellLimit() throws Exception
+    {
+        String emoji = "\uD83D\uDE00";
+        Path file = tempDir.resolve( "export.xlsx" );
+        try ( XlsxStreamWriter writer = new XlsxStreamWriter( file.toString(), false ) )
+        {
+            writer.setCell( "description", repeat( 'a', 40000 ), false );
+            writer.setCell( "cn", repeat( 'b', 32766 ) + emoji, false );
+            writer.setCell( "sn", repeat( 'c', 32765 ) + emoji, false );
+            writer.endRow();
+        }
+
+        List<String> texts = getTexts( unzip( file ).get( "xl/worksheets/sheet1.xml" ), "t" );
+        assertEquals( 6, texts.size() );
+        assertEquals( repeat( 'a', 32767 ), texts.get( 3 ) );
+        assertEquals( repeat( 'b', 32766 ), texts.get( 4 ) );
+        assertEquals( repeat( 'c', 32765 ) + emoji, texts.get( 5 ) );
+    }
+
+
+    /**
+     * Tests the entries and the uncompressed mimetype of an ODS package and the escaping of the cells.
+     */
+    @Test
+    public void testOds() throws Exception
+    {
+        Path file = tempDir.resolve( "export.ods" );
+        try ( OdsStreamWriter writer = new OdsStreamWriter( file.toString(), true ) )
+        {
+            writeRow( writer );
+        }
+
+        Map<String, String> entries = unzip( file );
+        assertEquals( Arrays.asList( "mimetype", "META-INF/manifest.xml", "content.xml" ),
+            new ArrayList<>( entries.keySet() ) );
+        assertEquals( "application/vnd.oasis.opendocument.spreadsheet", entries.get( "mimetype" ) );
+        assertEquals( Integer.valueOf( ZipEntry.STORED ), methods.get( "mimetype" ) );
+        parse( entries.get( "META-INF/manifest.xml" ) );
+        assertTrue( entries.get( "META-INF/manifest.xml" ).contains(
+            "<manifest:file-entry manifest:full-path=\"content.xml\" manifest:media-type=\"text/xml\"/>" ) );
+
+        String content = entries.get( "content.xml" );
+        parse( content );
+        assertTrue( content.contains( "<table:table table:name=\"Export\">"
+            + "<table:table-column table:number-columns-repeated=\"3\"/>" ) );
+        assertTrue( content.contains( "<text:p>cn=a&amp;b,dc=example</text:p>" ) );
+        assertTrue( content.contains( "<text:p>&lt;x&gt; &quot;y&quot;</text:p>" ) );
+        assertTrue( content.contains( "<table:table-cell table:style-name=\"ce1\" office:value-type=\"string\">"
+            + "<text:p>a<text:line-break/>b</text:p></table:table-cell>" ) );
+        assertEquals( Arrays.asList( "dn", "cn", "postalAddress", "cn=a&b,dc=example", "<x> \"y\"", "ab" ),
+            getTexts( content, "text:p" ) );
+    }
+
+
+    /**
+     * Tests that an ODS export without entries has the dn header row if the dn is exported.
+     */
+    @Test
+    public void testOdsDnHeaderWithoutRows() throws Exception
+    {
+        Path file = tempDir.resolve( "export.ods" );
+        new OdsStreamWriter( file.toString(), true ).close();
+
+        String content = unzip( file ).get( "content.xml" );
+        assertTrue( content.contains( "<table:table-row><table:table-cell office:value-type=\"string\">"
+            + "<text:p>dn</text:p></table:table-cell></table:table-row>\n</table:table>" ) );
+        assertEquals( Arrays.asList( "dn" ), getTexts( content, "text:p" ) );
+    }
+
+
+    private static void writeRow( SpreadsheetStreamWriter writer ) throws IOException
+    {
+        writer.setCell( "dn", "cn=a&b,dc=example", false );
+        writer.setCell( "cn", "<x> \"y\"\u0001", false );
+        writer.setCell( "postalAddress", "a\nb", true );
+        writer.endRow();
+    }
+
+
+    private Map<String, String> unzip( Path file ) throws IOException
+    {
+        Map<String, String> entries = new LinkedHashMap<>();
+        methods.clear();
+
+        try ( InputStream in = Files.newInputStream( file ); ZipInputStream zip = new ZipInputStream( in ) )
+        {
+            ZipEntry entry;
+            byte[] buffer = new byte[8192];
+            while ( ( entry = zip.getNextEntry() ) != null )
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                int length;
+                while ( ( length = zip.read( buffer ) ) != -1 )
+                {
+                    out.write( buffer, 0, length );
+                }
+                entries.put( entry.getName(), new String( out.toByteArray(), StandardCharsets.UTF_8 ) );
+                methods.put( entry.getName(), entry.getMethod() );
+            }
+        }
+
+        return entries;
+    }
+
+
+    private static Document parse( String xml ) throws Exception
+    {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+            .parse( new InputSource( new StringReader( xml ) ) );
+    }
+
+
+    private static List<String> getTexts( String xml, String tagName ) throws Exception
+    {
+        NodeList nodes = parse( xml ).getElementsByTagName( tagName );
+        List<String> texts = new ArrayList<>();
+        for ( int i = 0; i < nodes.getLength(); i++ )
+        {
+            texts.add( nodes.item( i ).getTextContent() );
+        }
+        return texts;
+    }
+
+
+    private static String repeat( char c, int count )
+    {
+        char[] chars = new char[count];
+        Arrays.fill( chars, c );
+        return new String( chars );
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.model;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the interning of {@link AttributeDescription}s.
+ */
+public class AttributeDescriptionTest
+{
+
+    /**
+     * Equal descriptions share one instance, different spellings don't.
+     */
+    @Test
+    public void testValueOfInterns()
+    {
+        AttributeDescription cn = AttributeDescription.valueOf( "cn;lang-de" );
+        assertSame( cn, AttributeDescription.valueOf( "cn;lang-de" ) );
+        assertNotSame( cn, AttributeDescription.valueOf( "CN;lang-de" ) );
+        assertEquals( "cn;lang-de", cn.getDescription() );
+    }
+
+
+    /**
+     * The pool never grows beyond its cap, descriptions created after a reset are still correct.
+     */
+    @Test
+    public void testInternedPoolIsCapped()
+    {
+        for ( int i = 0; i < AttributeDescription.MAX_INTERNED * 2 + 10; i++ )
+        {
+            AttributeDescription.valueOf( "description;x-option" + i );
+            assertTrue( AttributeDescription.getInternedCount() <= AttributeDescription.MAX_INTERNED );
+        }
+
+        AttributeDescription ad = AttributeDescription.valueOf( "description;x-option1" );
+        assertEquals( "description;x-option1", ad.getDescription() );
+        assertSame( ad, AttributeDescription.valueOf( "description;x-option1" ) );
+    }
+
+
+    /**
+     * The memoized OID string follows the schema it was computed with.
+     */
+    @Test
+    public void testOidStringIsMemoizedPerSchema()
+    {
+        AttributeDescription ad = AttributeDescription.valueOf( "cn" );
+        String oid = ad.toOidString( Schema.DEFAULT_SCHEMA );
+        assertEquals( "2.5.4.3", oid );
+        assertSame( oid, ad.toOidString( Schema.DEFAULT_SCHEMA ) );
+        assertEquals( "cn", ad.toOidString( null ) );
+    }
+}
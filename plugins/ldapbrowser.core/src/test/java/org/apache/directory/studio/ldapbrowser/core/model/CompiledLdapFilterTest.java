@@ -0,0 +1,245 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.model;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.connection.core.event.ConnectionEventRegistry;
+import org.apache.directory.studio.ldapbrowser.core.model.filter.CompiledLdapFilter;
+import org.apache.directory.studio.ldapbrowser.core.model.filter.CompiledLdapFilter.Result;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.Attribute;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.DummyConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.DummyEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.Value;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the evaluation of compiled filters against cached entries, including the 
+ * UNDEFINED results of RFC 4511.
+ */
+public class CompiledLdapFilterTest
+{
+    private DummyConnection connection;
+
+    private CacheEntry entry;
+
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        ConnectionEventRegistry.suspendEventFiringInCurrentThread();
+        connection = new DummyConnection( Schema.DEFAULT_SCHEMA );
+        entry = new CacheEntry( new Dn( "cn=John Doe,dc=example,dc=com" ), connection );
+        addValue( "objectClass", "inetOrgPerson" );
+        addValue( "cn", "John  Doe" );
+        addValue( "uidNumber", "1000" );
+        addValue( "telephoneNumber", "+1 555-0100" );
+        addValue( "createTimestamp", "20200101000000Z" );
+    }
+
+
+    private void addValue( String type, String value )
+    {
+        Attribute attribute = new Attribute( entry, type );
+        attribute.addValue( new Value( attribute, value ) );
+        entry.addAttribute( attribute );
+    }
+
+
+    private Result evaluate( String filter )
+    {
+        CompiledLdapFilter compiledFilter = CompiledLdapFilter.compile( filter, Schema.DEFAULT_SCHEMA );
+        return compiledFilter.evaluate( entry );
+    }
+
+
+    /**
+     * Tests that an invalid filter is not compiled.
+     */
+    @Test
+    public void testInvalidFilter()
+    {
+        assertNull( CompiledLdapFilter.compile( "(cn=John", Schema.DEFAULT_SCHEMA ) );
+    }
+
+
+    /**
+     * Tests equality, substring, ordering and presence items against cached values.
+     */
+    @Test
+    public void testItems()
+    {
+        assertEquals( Result.TRUE, evaluate( "(cn=john doe)" ) );
+        assertEquals( Result.FALSE, evaluate( "(cn=jane doe)" ) );
+        assertEquals( Result.TRUE, evaluate( "(cn=*OHN*)" ) );
+        assertEquals( Result.TRUE, evaluate( "(uidNumber=01000)" ) );
+        assertEquals( Result.TRUE, evaluate( "(telephoneNumber=+15550100)" ) );
+        assertEquals( Result.TRUE, evaluate( "(createTimestamp>=20190101000000Z)" ) );
+        assertEquals( Result.FALSE, evaluate( "(createTimestamp<=20190101000000Z)" ) );
+        assertEquals( Result.TRUE, evaluate( "(cn=*)" ) );
+        assertEquals( Result.TRUE, evaluate( "(objectClass=*)" ) );
+    }
+
+
+    /**
+     * Tests that a missing attribute is FALSE if the attributes of the entry were read.
+     */
+    @Test
+    public void testMissingAttributeOfInitializedEntry()
+    {
+        assertEquals( Result.FALSE, evaluate( "(description=x)" ) );
+        assertEquals( Result.FALSE, evaluate( "(description=*)" ) );
+        assertEquals( Result.TRUE, evaluate( "(!(description=x))" ) );
+        assertTrue( CompiledLdapFilter.compile( "(!(description=*))", Schema.DEFAULT_SCHEMA ).test( entry ) );
+    }
+
+
+    /**
+     * Tests that a missing attribute is UNDEFINED if the attributes of the entry were not read, 
+     * and that the negation of UNDEFINED doesn't match.
+     */
+    @Test
+    public void testMissingAttributeOfUninitializedEntry()
+    {
+        entry.attributesInitialized = false;
+
+        assertEquals( Result.UNDEFINED, evaluate( "(description=x)" ) );
+        assertEquals( Result.UNDEFINED, evaluate( "(description=*)" ) );
+        assertEquals( Result.UNDEFINED, evaluate( "(!(description=x))" ) );
+        assertFalse( CompiledLdapFilter.compile( "(!(description=x))", Schema.DEFAULT_SCHEMA ).test( entry ) );
+        assertFalse( CompiledLdapFilter.compile( "(!(description=*))", Schema.DEFAULT_SCHEMA ).test( entry ) );
+
+        // cached attributes are still evaluated
+        assertEquals( Result.TRUE, evaluate( "(cn=John Doe)" ) );
+        assertEquals( Result.FALSE, evaluate( "(!(cn=John Doe))" ) );
+        assertEquals( Result.TRUE, evaluate( "(objectClass=*)" ) );
+    }
+
+
+    /**
+     * Tests that a missing operational attribute is UNDEFINED if the operational attributes were not read.
+     */
+    @Test
+    public void testMissingOperationalAttribute()
+    {
+        entry.operationalAttributesInitialized = false;
+
+        assertEquals( Result.UNDEFINED, evaluate( "(modifyTimestamp=20200101000000Z)" ) );
+        assertEquals( Result.UNDEFINED, evaluate( "(!(modifyTimestamp=*))" ) );
+        assertEquals( Result.FALSE, evaluate( "(description=x)" ) );
+    }
+
+
+    /**
+     * Tests the three-valued logic of AND, OR and NOT.
+     */
+    @Test
+    public void testAndOrNot()
+    {
+        entry.attributesInitialized = false;
+
+        assertEquals( Result.UNDEFINED, evaluate( "(&(cn=John Doe)(description=x))" ) );
+        assertEquals( Result.FALSE, evaluate( "(&(cn=Jane Doe)(description=x))" ) );
+        assertEquals( Result.TRUE, evaluate( "(&(cn=John Doe)(uidNumber=1000))" ) );
+        assertEquals( Result.TRUE, evaluate( "(|(cn=John Doe)(description=x))" ) );
+        assertEquals( Result.UNDEFINED, evaluate( "(|(cn=Jane Doe)(description=x))" ) );
+        assertEquals( Result.FALSE, evaluate( "(|(cn=Jane Doe)(uidNumber=1001))" ) );
+        assertEquals( Result.UNDEFINED, evaluate( "(!(&(cn=John Doe)(description=x)))" ) );
+        assertEquals( Result.TRUE, evaluate( "(!(&(cn=Jane Doe)(description=x)))" ) );
+    }
+
+
+    /**
+     * Tests that items are UNDEFINED if the attribute type has no matching rule of the requested kind.
+     */
+    @Test
+    public void testNoMatchingRule()
+    {
+        // cn has no ordering rule, jpegPhoto has no matching rules at all
+        assertEquals( Result.UNDEFINED, evaluate( "(cn>=A)" ) );
+        assertEquals( Result.UNDEFINED, evaluate( "(!(cn>=A))" ) );
+        assertEquals( Result.UNDEFINED, evaluate( "(jpegPhoto=x)" ) );
+    }
+
+
+    /**
+     * Tests that items with an assertion value that is invalid for the syntax are UNDEFINED.
+     */
+    @Test
+    public void testInvalidAssertionValue()
+    {
+        assertEquals( Result.UNDEFINED, evaluate( "(uidNumber=abc)" ) );
+        assertEquals( Result.UNDEFINED, evaluate( "(!(uidNumber=abc))" ) );
+    }
+
+
+    /**
+     * Tests that unknown attribute types and matching rules are UNDEFINED.
+     */
+    @Test
+    public void testUnknownAttributeTypeAndMatchingRule()
+    {
+        assertEquals( Result.UNDEFINED, evaluate( "(unknownAttribute=x)" ) );
+        assertEquals( Result.UNDEFINED, evaluate( "(!(unknownAttribute=*))" ) );
+        assertEquals( Result.UNDEFINED, evaluate( "(cn:1.2.3.4.5:=John Doe)" ) );
+        assertEquals( Result.TRUE, evaluate( "(cn:caseIgnoreMatch:=john doe)" ) );
+    }
+
+
+    /**
+     * An entry whose attributes may be partly read.
+     */
+    private static class CacheEntry extends DummyEntry
+    {
+        private static final long serialVersionUID = 1L;
+
+        private boolean attributesInitialized = true;
+
+        private boolean operationalAttributesInitialized = true;
+
+
+        CacheEntry( Dn dn, IBrowserConnection browserConnection )
+        {
+            super( dn, browserConnection );
+        }
+
+
+        @Override
+        public boolean isAttributesInitialized()
+        {
+            return attributesInitialized;
+        }
+
+
+        @Override
+        public boolean isInitOperationalAttributes()
+        {
+            return operationalAttributesInitialized;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.connection.core.event.ConnectionEventRegistry;
+import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the packed values of an {@link Attribute}.
+ */
+public class AttributeTest
+{
+    private Attribute attribute;
+
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        ConnectionEventRegistry.suspendEventFiringInCurrentThread();
+        DummyConnection connection = new DummyConnection( Schema.DEFAULT_SCHEMA );
+        DummyEntry entry = new DummyEntry( new Dn( "cn=group,dc=example,dc=com" ), connection );
+        attribute = new Attribute( entry, "member" );
+    }
+
+
+    private List<String> addMembers( int count )
+    {
+        List<String> members = new ArrayList<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            String member = "uid=user" + i + ",ou=people,dc=example,dc=com";
+            members.add( member );
+            attribute.addValue( new Value( attribute, member ) );
+        }
+        return members;
+    }
+
+
+    /**
+     * Values keep their order when values are deleted from the middle of a few values.
+     */
+    @Test
+    public void testOrderIsKeptOnDelete()
+    {
+        assertOrderIsKeptOnDelete( Attribute.INDEX_THRESHOLD / 2 );
+    }
+
+
+    /**
+     * Values keep their order when values are deleted from the middle of indexed values.
+     */
+    @Test
+    public void testOrderIsKeptOnDeleteIndexed()
+    {
+        assertOrderIsKeptOnDelete( Attribute.INDEX_THRESHOLD * 4 );
+    }
+
+
+    private void assertOrderIsKeptOnDelete( int count )
+    {
+        List<String> members = addMembers( count );
+
+        for ( int i = count - 2; i > 0; i -= 3 )
+        {
+            attribute.deleteValue( new Value( attribute, members.get( i ) ) );
+            members.remove( i );
+        }
+
+        assertEquals( members.size(), attribute.getValueSize() );
+        assertArrayEquals( members.toArray( new String[0] ), attribute.getStringValues() );
+    }
+
+
+    /**
+     * Deleting most values of an indexed attribute compacts the slots and keeps the remaining values findable.
+     */
+    @Test
+    public void testDeleteBelowThresholdCompacts()
+    {
+        List<String> members = addMembers( Attribute.INDEX_THRESHOLD * 2 );
+
+        for ( int i = 0; i < members.size() - 10; i++ )
+        {
+            attribute.deleteValue( new Value( attribute, members.get( i ) ) );
+        }
+
+        assertEquals( 10, attribute.getValueSize() );
+        assertEquals( 10, attribute.getValues().length );
+        assertFalse( attribute.containsValue( new Value( attribute, members.get( 0 ) ) ) );
+        assertTrue( attribute.containsValue( new Value( attribute, members.get( members.size() - 1 ) ) ) );
+        assertEquals( members.get( members.size() - 10 ), attribute.getStringValue() );
+    }
+
+
+    /**
+     * Duplicate values are kept, deleting one copy leaves the other one findable.
+     */
+    @Test
+    public void testDuplicateValues()
+    {
+        List<String> members = addMembers( Attribute.INDEX_THRESHOLD );
+        attribute.addValue( new Value( attribute, members.get( 5 ) ) );
+        assertEquals( Attribute.INDEX_THRESHOLD + 1, attribute.getValueSize() );
+
+        attribute.deleteValue( new Value( attribute, members.get( 5 ) ) );
+        assertTrue( attribute.containsValue( new Value( attribute, members.get( 5 ) ) ) );
+
+        attribute.deleteValue( new Value( attribute, members.get( 5 ) ) );
+        assertFalse( attribute.containsValue( new Value( attribute, members.get( 5 ) ) ) );
+    }
+
+
+    /**
+     * Editing a large group finds members by the distinguished name matching rule,
+     * regardless of the case and the spaces of the Dn.
+     */
+    @Test
+    public void testLargeGroupEditUsesNormalizedValues()
+    {
+        List<String> members = addMembers( Attribute.INDEX_THRESHOLD * 20 );
+
+        Value differentlyWritten = new Value( attribute, "UID=User7, OU=People,DC=Example,DC=Com" );
+        assertTrue( attribute.containsValue( differentlyWritten ) );
+
+        attribute.modifyValue( differentlyWritten, new Value( attribute, "uid=renamed,ou=people,dc=example,dc=com" ) );
+        assertEquals( members.size(), attribute.getValueSize() );
+        assertFalse( attribute.containsValue( new Value( attribute, members.get( 7 ) ) ) );
+        assertTrue( attribute.containsValue( new Value( attribute, "uid=RENAMED,ou=people,dc=example,dc=com" ) ) );
+
+        attribute.deleteValue( new Value( attribute, "Uid=User8,Ou=People,Dc=Example,Dc=Com" ) );
+        assertEquals( members.size() - 1, attribute.getValueSize() );
+        assertFalse( attribute.containsValue( new Value( attribute, members.get( 8 ) ) ) );
+    }
+
+
+    /**
+     * Few values are compared by the matching rule too, so the result doesn't depend on the number of values.
+     */
+    @Test
+    public void testSmallGroupUsesNormalizedValues()
+    {
+        addMembers( 3 );
+
+        assertTrue( attribute.containsValue( new Value( attribute, "UID=User1, OU=People,DC=Example,DC=Com" ) ) );
+        attribute.deleteValue( new Value( attribute, "UID=User1, OU=People,DC=Example,DC=Com" ) );
+        assertEquals( 2, attribute.getValueSize() );
+    }
+
+
+    /**
+     * The value views are reused until the values change, each call gets its own array.
+     */
+    @Test
+    public void testValueViewsAreReused()
+    {
+        addMembers( 3 );
+
+        IValue[] first = attribute.getValues();
+        IValue[] second = attribute.getValues();
+        assertNotSame( first, second );
+        for ( int i = 0; i < first.length; i++ )
+        {
+            assertSame( first[i], second[i] );
+        }
+
+        // reordering the returned array doesn't affect the attribute
+        IValue swap = first[0];
+        first[0] = first[2];
+        first[2] = swap;
+        assertSame( second[0], attribute.getValues()[0] );
+
+        attribute.addValue( new Value( attribute, "uid=other,dc=example,dc=com" ) );
+        IValue[] third = attribute.getValues();
+        assertEquals( 4, third.length );
+        assertEquals( "uid=other,dc=example,dc=com", third[3].getStringValue() );
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.connection.core.event.ConnectionEventRegistry;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests that the {@link AttributeValueIndex} is only updated in the background and 
+ * that changed index attributes keep the values of the other attributes.
+ */
+public class AttributeValueIndexTest
+{
+    private DummyConnection connection;
+
+    /** The cached entries. */
+    private Set<IEntry> cache;
+
+    /** The number of times the cached entries were iterated. */
+    private int cacheScans;
+
+    /** The scheduled updates, run by the tests. */
+    private List<Runnable> updates;
+
+    private AttributeValueIndex index;
+
+
+    @BeforeEach
+    public void setup()
+    {
+        ConnectionEventRegistry.suspendEventFiringInCurrentThread();
+        connection = new DummyConnection( Schema.DEFAULT_SCHEMA );
+        cache = ConcurrentHashMap.newKeySet();
+        updates = new ArrayList<>();
+        index = new AttributeValueIndex( new AttributeValueIndex.Source()
+        {
+            public Schema getSchema()
+            {
+                return Schema.DEFAULT_SCHEMA;
+            }
+
+
+            public Collection<IEntry> getCachedEntries()
+            {
+                cacheScans++;
+                return cache;
+            }
+
+
+            public boolean isCached( IEntry entry )
+            {
+                return cache.contains( entry );
+            }
+        }, updates::add );
+    }
+
+
+    private DummyEntry addEntry( String uid, String mail ) throws Exception
+    {
+        DummyEntry entry = new DummyEntry( new Dn( "uid=" + uid + ",dc=example,dc=com" ), connection );
+        addValue( entry, "uid", uid );
+        addValue( entry, "mail", mail );
+        cache.add( entry );
+        return entry;
+    }
+
+
+    private void addValue( DummyEntry entry, String type, String value )
+    {
+        Attribute attribute = new Attribute( entry, type );
+        attribute.addValue( new Value( attribute, value ) );
+        entry.addAttribute( attribute );
+    }
+
+
+    private void runUpdates()
+    {
+        List<Runnable> scheduled = new ArrayList<>( updates );
+        updates.clear();
+        scheduled.forEach( Runnable::run );
+    }
+
+
+    /**
+     * Tests that the cached entries are indexed once the attributes are applied.
+     */
+    @Test
+    public void testLookup() throws Exception
+    {
+        DummyEntry jdoe = addEntry( "jdoe", "John.Doe@example.com" );
+        DummyEntry jsmith = addEntry( "jsmith", "john.smith@example.com" );
+
+        index.setAttributes( "uid" );
+        assertNull( index.lookup( "uid", "jdoe", false ) );
+
+        runUpdates();
+        assertEquals( Collections.singletonList( jdoe ), index.lookup( "uid", "JDOE", false ) );
+        assertEquals( Arrays.asList( jdoe, jsmith ), index.lookup( "uid", "j", true ) );
+        assertTrue( index.lookup( "uid", "x", true ).isEmpty() );
+        assertNull( index.lookup( "mail", "john.doe@example.com", false ) );
+    }
+
+
+    /**
+     * Tests that a lookup doesn't index modified entries, the update in the background does.
+     */
+    @Test
+    public void testLookupIsReadOnly() throws Exception
+    {
+        index.setAttributes( "uid" );
+        runUpdates();
+
+        DummyEntry jdoe = addEntry( "jdoe", "john.doe@example.com" );
+        index.invalidate( jdoe );
+        assertEquals( 1, updates.size() );
+
+        // invalidating again doesn't schedule another update
+        index.invalidate( jdoe );
+        assertEquals( 1, updates.size() );
+
+        assertTrue( index.lookup( "uid", "jdoe", false ).isEmpty() );
+        assertTrue( index.lookup( "uid", "jdoe", false ).isEmpty() );
+
+        runUpdates();
+        assertEquals( Collections.singletonList( jdoe ), index.lookup( "uid", "jdoe", false ) );
+    }
+
+
+    /**
+     * Tests that a modified entry is indexed with its new values.
+     */
+    @Test
+    public void testModifiedEntry() throws Exception
+    {
+        DummyEntry jdoe = addEntry( "jdoe", "john.doe@example.com" );
+        index.setAttributes( "uid" );
+        runUpdates();
+
+        jdoe.deleteAttribute( jdoe.getAttribute( "uid" ) );
+        addValue( jdoe, "uid", "johnd" );
+        index.invalidate( jdoe );
+        runUpdates();
+
+        assertTrue( index.lookup( "uid", "jdoe", false ).isEmpty() );
+        assertEquals( Collections.singletonList( jdoe ), index.lookup( "uid", "johnd", false ) );
+    }
+
+
+    /**
+     * Tests that removed and uncached entries are not indexed again.
+     */
+    @Test
+    public void testUncachedEntry() throws Exception
+    {
+        DummyEntry jdoe = addEntry( "jdoe", "john.doe@example.com" );
+        index.setAttributes( "uid" );
+        runUpdates();
+
+        cache.remove( jdoe );
+        index.remove( jdoe );
+        index.invalidate( jdoe );
+        runUpdates();
+
+        assertTrue( index.lookup( "uid", "jdoe", false ).isEmpty() );
+    }
+
+
+    /**
+     * Tests that an added index attribute only indexes that attribute and keeps the others searchable.
+     */
+    @Test
+    public void testChangedAttributes() throws Exception
+    {
+        DummyEntry jdoe = addEntry( "jdoe", "john.doe@example.com" );
+        index.setAttributes( "uid" );
+        runUpdates();
+        assertEquals( 1, cacheScans );
+
+        index.setAttributes( "uid,mail" );
+        assertEquals( Collections.singletonList( jdoe ), index.lookup( "uid", "jdoe", false ) );
+        assertNull( index.lookup( "mail", "john.doe@example.com", false ) );
+
+        runUpdates();
+        assertEquals( 2, cacheScans );
+        assertEquals( Collections.singletonList( jdoe ), index.lookup( "uid", "jdoe", false ) );
+        assertEquals( Collections.singletonList( jdoe ), index.lookup( "mail", "john.doe@example.com", false ) );
+
+        // the same attributes don't schedule an update, a removed attribute doesn't scan the cache
+        index.setAttributes( "uid,mail" );
+        assertTrue( updates.isEmpty() );
+        index.setAttributes( "mail" );
+        runUpdates();
+        assertEquals( 2, cacheScans );
+        assertNull( index.lookup( "uid", "jdoe", false ) );
+        assertEquals( Collections.singletonList( jdoe ), index.lookup( "mail", "john.doe@example.com", false ) );
+    }
+}
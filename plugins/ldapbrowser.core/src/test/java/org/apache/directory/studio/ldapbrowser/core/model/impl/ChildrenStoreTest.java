@@ -0,0 +1,194 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the order, ranges and gaps of the {@link ChildrenStore}, across chunk boundaries.
+ */
+public class ChildrenStoreTest
+{
+    private DummyConnection connection;
+
+    private ChildrenStore store;
+
+
+    @BeforeEach
+    public void setup()
+    {
+        connection = new DummyConnection( Schema.DEFAULT_SCHEMA );
+        store = new ChildrenStore();
+    }
+
+
+    /**
+     * Tests that children are kept in insertion order and added only once.
+     */
+    @Test
+    public void testAdd() throws Exception
+    {
+        List<IEntry> children = children( 2500 );
+        for ( IEntry child : children )
+        {
+            assertTrue( store.add( child ) );
+        }
+
+        assertFalse( store.add( children.get( 1500 ) ) );
+        assertFalse( store.add( new DummyEntry( new Dn( "cn=1500,dc=example,dc=com" ), connection ) ) );
+        assertEquals( 2500, store.size() );
+        assertArrayEquals( children.toArray(), store.toArray() );
+    }
+
+
+    /**
+     * Tests that a range is read across chunk boundaries and is cut at the last child.
+     */
+    @Test
+    public void testRange() throws Exception
+    {
+        List<IEntry> children = add( 3000 );
+
+        assertArrayEquals( children.subList( 1000, 2100 ).toArray(), store.toArray( 1000, 2099 ) );
+        assertArrayEquals( children.subList( 2900, 3000 ).toArray(), store.toArray( 2900, 3999 ) );
+        assertArrayEquals( children.subList( 0, 10 ).toArray(), store.toArray( -5, 9 ) );
+        assertEquals( 0, store.toArray( 3000, 3999 ).length );
+        assertEquals( 0, store.toArray( 10, 9 ).length );
+    }
+
+
+    /**
+     * Tests that removed children leave no gaps in the following reads and that the
+     * remaining children keep their order.
+     */
+    @Test
+    public void testRemove() throws Exception
+    {
+        List<IEntry> children = add( 2500 );
+
+        for ( int i = 0; i < 2500; i += 3 )
+        {
+            assertTrue( store.remove( children.get( i ) ) );
+        }
+        assertFalse( store.remove( children.get( 0 ) ) );
+
+        List<IEntry> expected = new ArrayList<IEntry>();
+        for ( int i = 0; i < 2500; i++ )
+        {
+            if ( i % 3 != 0 )
+            {
+                expected.add( children.get( i ) );
+            }
+        }
+        assertEquals( expected.size(), store.size() );
+        assertArrayEquals( expected.toArray(), store.toArray() );
+        assertArrayEquals( expected.subList( 1000, 1100 ).toArray(), store.toArray( 1000, 1099 ) );
+    }
+
+
+    /**
+     * Tests that children added after a removal are appended after the remaining children.
+     */
+    @Test
+    public void testAddAfterRemove() throws Exception
+    {
+        List<IEntry> children = add( 1030 );
+        store.remove( children.get( 0 ) );
+        store.remove( children.get( 1029 ) );
+        IEntry child = new DummyEntry( new Dn( "cn=new,dc=example,dc=com" ), connection );
+        assertTrue( store.add( child ) );
+
+        List<IEntry> expected = new ArrayList<IEntry>( children.subList( 1, 1029 ) );
+        expected.add( child );
+        assertArrayEquals( expected.toArray(), store.toArray() );
+
+        assertTrue( store.add( children.get( 0 ) ) );
+        expected.add( children.get( 0 ) );
+        assertArrayEquals( expected.toArray(), store.toArray() );
+    }
+
+
+    /**
+     * Tests that removing all children empties the store and that it can be filled again.
+     */
+    @Test
+    public void testRemoveAll() throws Exception
+    {
+        List<IEntry> children = add( 1100 );
+        for ( IEntry child : children )
+        {
+            store.remove( child );
+        }
+
+        assertTrue( store.isEmpty() );
+        assertEquals( 0, store.toArray().length );
+
+        assertTrue( store.add( children.get( 5 ) ) );
+        assertArrayEquals( new IEntry[]
+            { children.get( 5 ) }, store.toArray() );
+
+        store.clear();
+        assertTrue( store.isEmpty() );
+        add( children.subList( 7, 9 ) );
+        assertEquals( Arrays.asList( children.get( 7 ), children.get( 8 ) ), Arrays.asList( store.toArray() ) );
+    }
+
+
+    private List<IEntry> add( int count ) throws Exception
+    {
+        return add( children( count ) );
+    }
+
+
+    private List<IEntry> add( List<IEntry> children )
+    {
+        for ( IEntry child : children )
+        {
+            store.add( child );
+        }
+        return children;
+    }
+
+
+    private List<IEntry> children( int count ) throws Exception
+    {
+        List<IEntry> children = new ArrayList<IEntry>();
+        for ( int i = 0; i < count; i++ )
+        {
+            children.add( new DummyEntry( new Dn( "cn=" + i + ",dc=example,dc=com" ), connection ) );
+        }
+        return children;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
+import org.junit.jupiter.api.Test;
+
+
+public class DnKeyCacheTest
+{
+    @Test
+    public void testKeyMatchesNormalizedOidString() throws Exception
+    {
+        DnKeyCache cache = new DnKeyCache( null );
+
+        for ( String name : new String[]
+            { "", "dc=example,dc=com", "CN=Foo Bar , OU=People,dc=Example,dc=COM", "cn=a+sn=b,dc=com",
+                "cn=a\\,b,dc=com" } )
+        {
+            Dn dn = new Dn( name );
+            assertEquals( Utils.getNormalizedOidString( dn, null ), cache.getKey( dn ) );
+            assertEquals( Utils.getNormalizedOidString( dn, null ), cache.getKey( new Dn( name ) ) );
+        }
+    }
+
+
+    @Test
+    public void testParentKeysAreDerived() throws Exception
+    {
+        DnKeyCache cache = new DnKeyCache( null );
+        Dn dn = new Dn( "uid=jdoe,ou=People,dc=Example,dc=com" );
+        cache.getKey( dn );
+
+        for ( Dn parent = dn.getParent(); !parent.isEmpty(); parent = parent.getParent() )
+        {
+            assertEquals( Utils.getNormalizedOidString( parent, null ), cache.getKey( parent ) );
+        }
+    }
+}
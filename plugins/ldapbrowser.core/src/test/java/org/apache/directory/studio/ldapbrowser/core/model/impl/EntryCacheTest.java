@@ -0,0 +1,150 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.connection.core.event.ConnectionEventRegistry;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the size accounting and the eviction of the {@link EntryCache}.
+ */
+public class EntryCacheTest
+{
+    private DummyConnection connection;
+
+
+    @BeforeEach
+    public void setup()
+    {
+        ConnectionEventRegistry.suspendEventFiringInCurrentThread();
+        connection = new DummyConnection( Schema.DEFAULT_SCHEMA );
+    }
+
+
+    private IEntry entry( int i ) throws Exception
+    {
+        return new DummyEntry( new Dn( "cn=entry" + i + ",dc=example,dc=com" ), connection );
+    }
+
+
+    /**
+     * The total size follows the size changes of the cached attribute infos and drops to 0 when they are removed.
+     */
+    @Test
+    public void testSizeIsMaintained() throws Exception
+    {
+        EntryCache cache = new EntryCache();
+        IEntry entry = entry( 1 );
+
+        AttributeInfo ai = cache.getOrCreate( entry, 0 );
+        long initial = cache.getEstimatedSize();
+        assertTrue( initial > 0 );
+
+        cache.sizeChanged( entry, ai, 1000 );
+        assertEquals( initial + 1000, cache.getEstimatedSize() );
+        cache.sizeChanged( entry, ai, -400 );
+        assertEquals( initial + 600, cache.getEstimatedSize() );
+
+        cache.remove( entry );
+        assertEquals( 0, cache.getEstimatedSize() );
+
+        // changes of an attribute info that is no longer cached don't count
+        cache.sizeChanged( entry, ai, 1000 );
+        assertEquals( 0, cache.getEstimatedSize() );
+    }
+
+
+    /**
+     * Adding and deleting values updates the estimated size of the attribute without walking the values.
+     */
+    @Test
+    public void testAttributeSizeFollowsValues() throws Exception
+    {
+        Attribute attribute = new Attribute( entry( 1 ), "member" );
+        long empty = EntryCache.estimateSize( attribute );
+
+        List<Value> values = new ArrayList<>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            Value value = new Value( attribute, "uid=user" + i + ",ou=people,dc=example,dc=com" );
+            values.add( value );
+            attribute.addValue( value );
+        }
+        assertTrue( EntryCache.estimateSize( attribute ) > empty );
+
+        for ( Value value : values )
+        {
+            attribute.deleteValue( value );
+        }
+        assertEquals( empty, EntryCache.estimateSize( attribute ) );
+    }
+
+
+    /**
+     * Once the budget is exceeded the least recently used entries are evicted, pinned entries are kept.
+     */
+    @Test
+    public void testEvictionKeepsPinnedEntries() throws Exception
+    {
+        EntryCache cache = new EntryCache();
+        long budget = 100000;
+
+        IEntry pinned = entry( 0 );
+        cache.pin( pinned );
+
+        List<IEntry> entries = new ArrayList<>();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            IEntry entry = i == 0 ? pinned : entry( i );
+            entries.add( entry );
+            cache.sizeChanged( entry, cache.getOrCreate( entry, budget ), 1000 );
+        }
+
+        assertNotNull( cache.get( pinned ) );
+
+        long sum = 0;
+        int cached = 0;
+        for ( IEntry entry : entries )
+        {
+            AttributeInfo ai = cache.get( entry );
+            if ( ai != null )
+            {
+                sum += ai.estimatedSize;
+                cached++;
+            }
+        }
+
+        assertTrue( cached < entries.size() );
+        assertEquals( sum, cache.getEstimatedSize() );
+    }
+}
@@ -122,6 +122,9 @@ public class EntryEditorManager
     /** The shared working copies for auto-save editors; original entry -> working copy */
     private Map<IEntry, IEntry> autoSaveSharedWorkingCopies = new HashMap<>();
 
+    /** The original entries pinned in the cache of their browser connection while opened in an editor */
+    private Set<IEntry> pinnedEntries = new HashSet<>();
+
     /** The comparator for entry editors */
     private Comparator<EntryEditorExtension> entryEditorComparator = new Comparator<EntryEditorExtension>()
     {
@@ -923,6 +926,11 @@ public class EntryEditorManager
     {
         cleanupCopies( PlatformUI.getWorkbench().getActiveWorkbenchWindow().getActivePage() );
 
+        if ( pinnedEntries.add( originalEntry ) )
+        {
+            originalEntry.getBrowserConnection().pinEntry( originalEntry );
+        }
+
         EntryEditorUtils.ensureAttributesInitialized( originalEntry );
         
         if ( editor.isAutoSave() )
@@ -1146,5 +1154,53 @@ public class EntryEditorManager
                 it.remove();
             }
         }
+
+        updatePinnedEntries();
+    }
+
+
+    /**
+     * Pins the original entries of all open entry editors in the cache of their
+     * browser connection and unpins the entries no longer opened in an editor.
+     */
+    private void updatePinnedEntries()
+    {
+        Set<IEntry> openEntries = new HashSet<>();
+
+        for ( IWorkbenchWindow window : PlatformUI.getWorkbench().getWorkbenchWindows() )
+        {
+            for ( IWorkbenchPage page : window.getPages() )
+            {
+                for ( IEditorReference ref : page.getEditorReferences() )
+                {
+                    IEntryEditor editor = getEntryEditor( ref );
+
+                    if ( ( editor != null ) && ( editor.getEntryEditorInput() != null )
+                        && ( editor.getEntryEditorInput().getResolvedEntry() != null ) )
+                    {
+                        openEntries.add( editor.getEntryEditorInput().getResolvedEntry() );
+                    }
+                }
+            }
+        }
+
+        for ( Iterator<IEntry> it = pinnedEntries.iterator(); it.hasNext(); )
+        {
+            IEntry entry = it.next();
+
+            if ( !openEntries.contains( entry ) )
+            {
+                it.remove();
+                entry.getBrowserConnection().unpinEntry( entry );
+            }
+        }
+
+        for ( IEntry entry : openEntries )
+        {
+            if ( pinnedEntries.add( entry ) )
+            {
+                entry.getBrowserConnection().pinEntry( entry );
+            }
+        }
     }
 }
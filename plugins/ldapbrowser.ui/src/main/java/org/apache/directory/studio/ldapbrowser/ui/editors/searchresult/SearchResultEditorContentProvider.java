@@ -21,13 +21,28 @@
 package org.apache.directory.studio.ldapbrowser.ui.editors.searchresult;
 
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.directory.studio.connection.core.jobs.StudioConnectionJob;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
 import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
 import org.apache.directory.studio.ldapbrowser.core.model.ISearchResult;
 import org.apache.directory.studio.ldapbrowser.ui.BrowserUIConstants;
 import org.apache.directory.studio.ldapbrowser.ui.BrowserUIPlugin;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.eclipse.jface.viewers.ILazyContentProvider;
 import org.eclipse.jface.viewers.TableViewer;
 import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Table;
 
 
 /**
@@ -48,11 +63,23 @@ public class SearchResultEditorContentProvider implements ILazyContentProvider
     /** The input. */
     private Object input;
 
-    /** The elements. */
-    private Object[] elements;
+    /** The elements, search results received while the search is running are appended. */
+    private List<Object> elements;
 
-    /** The filtered and sorted elements. */
-    private Object[] filteredAndSortedElements;
+    /** The filtered and sorted elements, elements appended while the search is running are not sorted. */
+    private List<Object> filteredAndSortedElements;
+
+    /** Whether search results of the input were received. */
+    private boolean searchResultsReceived;
+
+    /** The job that filters and sorts a large data set in background, null if none is running. */
+    private StudioConnectionJob filterAndSortJob;
+
+    /** The entries of the visible rows, they are pinned in the cache of their browser connection. */
+    private Set<IEntry> pinnedEntries = new HashSet<>();
+
+    /** Pins the entries of the visible rows whenever the table is painted, e.g. after scrolling. */
+    private Listener pinListener = event -> updatePinnedEntries();
 
 
     /**
@@ -69,6 +96,8 @@ public class SearchResultEditorContentProvider implements ILazyContentProvider
 
         this.configuration.getFilter().connect( this );
         this.configuration.getSorter().connect( this );
+
+        this.mainWidget.getViewer().getTable().addListener( SWT.Paint, pinListener );
     }
 
 
@@ -77,6 +106,13 @@ public class SearchResultEditorContentProvider implements ILazyContentProvider
      */
     public void dispose()
     {
+        cancelFilterAndSortJob();
+        unpinEntries( new HashSet<>() );
+        if ( mainWidget != null && mainWidget.getViewer() != null
+            && !mainWidget.getViewer().getTable().isDisposed() )
+        {
+            mainWidget.getViewer().getTable().removeListener( SWT.Paint, pinListener );
+        }
         mainWidget = null;
         configuration = null;
         elements = null;
@@ -99,30 +135,141 @@ public class SearchResultEditorContentProvider implements ILazyContentProvider
      */
     private void filterAndSort()
     {
-        filteredAndSortedElements = elements;
+        cancelFilterAndSortJob();
+        filteredAndSortedElements = new ArrayList<Object>( elements );
 
         // filter and sort, use Job if too much elements
         if ( configuration.getFilter().isFiltered() || configuration.getSorter().isSorted() )
         {
-            if ( elements.length > BrowserUIPlugin.getDefault().getPreferenceStore()
+            if ( elements.size() > BrowserUIPlugin.getDefault().getPreferenceStore()
                 .getInt( BrowserUIConstants.PREFERENCE_SEARCHRESULTEDITOR_SORT_FILTER_LIMIT )
                 && mainWidget.getViewer() != null && !mainWidget.getViewer().getTable().isDisposed() )
             {
-                // deactivate fitering and sorting for large data set
-                // FilterAndSortRunnable runnable = new FilterAndSortRunnable( configuration, mainWidget, elements );
-                // RunnableContextRunner.execute( runnable, null, true );
-                // filteredAndSortedElements = runnable.getFilteredAndSortedElements();
+                // filter and sort large data set in background, the unsorted elements are shown meanwhile
+                startFilterAndSortJob();
             }
-            else if ( elements.length > 0 && mainWidget.getViewer() != null
+            else if ( !elements.isEmpty() && mainWidget.getViewer() != null
                 && !mainWidget.getViewer().getTable().isDisposed() )
             {
-                filteredAndSortedElements = configuration.getFilter().filter( mainWidget.getViewer(), "", elements ); //$NON-NLS-1$
-                configuration.getSorter().sort( mainWidget.getViewer(), filteredAndSortedElements );
+                Object[] filteredAndSorted = configuration.getFilter().filter( mainWidget.getViewer(), "", //$NON-NLS-1$
+                    elements.toArray() );
+                configuration.getSorter().sort( mainWidget.getViewer(), filteredAndSorted );
+                filteredAndSortedElements = new ArrayList<Object>( Arrays.asList( filteredAndSorted ) );
+            }
+        }
+
+        updateState();
+    }
+
+
+    /**
+     * Appends the search results received while the search is running. Only the added
+     * elements are filtered and appended to the virtual table, unsorted. The elements
+     * are sorted once when the search is performed and the input is refreshed.
+     *
+     * @param addedElements the added elements
+     */
+    public void addElements( Object[] addedElements )
+    {
+        if ( elements == null || mainWidget == null || mainWidget.getViewer() == null
+            || mainWidget.getViewer().getTable().isDisposed() )
+        {
+            return;
+        }
+
+        searchResultsReceived = true;
+        elements.addAll( Arrays.asList( addedElements ) );
+
+        // not yet refreshed, the refresh filters and sorts all elements
+        if ( filteredAndSortedElements != null )
+        {
+            filteredAndSortedElements.addAll( Arrays.asList( filter( addedElements ) ) );
+            updateState();
+        }
+    }
+
+
+    /**
+     * Filters the given elements without sorting them.
+     *
+     * @param elementsToFilter the elements to filter
+     * @return the filtered elements
+     */
+    private Object[] filter( Object[] elementsToFilter )
+    {
+        return configuration.getFilter().filter( mainWidget.getViewer(), "", elementsToFilter ); //$NON-NLS-1$
+    }
+
+
+    /**
+     * Starts the job that filters and sorts the elements in background. When the job
+     * is done the filtered and sorted elements are set to the virtual table in the UI thread.
+     * Elements appended meanwhile are added unsorted to the result of the job.
+     */
+    private void startFilterAndSortJob()
+    {
+        final int count = elements.size();
+        final FilterAndSortRunnable runnable = new FilterAndSortRunnable( configuration, mainWidget,
+            elements.toArray() );
+        final StudioConnectionJob job = new StudioConnectionJob( runnable );
+        job.addJobChangeListener( new JobChangeAdapter()
+        {
+            public void done( IJobChangeEvent event )
+            {
+                if ( event.getResult().isOK() && mainWidget != null && mainWidget.getViewer() != null )
+                {
+                    Display display = mainWidget.getViewer().getTable().getDisplay();
+                    display.asyncExec( new Runnable()
+                    {
+                        public void run()
+                        {
+                            // ignore results of outdated jobs
+                            if ( filterAndSortJob != job || mainWidget == null
+                                || mainWidget.getViewer().getTable().isDisposed() )
+                            {
+                                return;
+                            }
+                            filterAndSortJob = null;
+                            List<Object> filteredAndSorted = new ArrayList<Object>( Arrays.asList( runnable
+                                .getFilteredAndSortedElements() ) );
+                            if ( elements.size() > count )
+                            {
+                                filteredAndSorted.addAll( Arrays.asList( filter( elements.subList( count,
+                                    elements.size() ).toArray() ) ) );
+                            }
+                            filteredAndSortedElements = filteredAndSorted;
+                            updateState();
+                            mainWidget.getViewer().refresh();
+                        }
+                    } );
+                }
             }
+        } );
+        filterAndSortJob = job;
+        job.execute();
+    }
+
+
+    /**
+     * Cancels the running filter and sort job, if any.
+     */
+    private void cancelFilterAndSortJob()
+    {
+        if ( filterAndSortJob != null )
+        {
+            filterAndSortJob.cancel();
+            filterAndSortJob = null;
         }
+    }
+
 
-        // update virtual table
-        mainWidget.getViewer().setItemCount( filteredAndSortedElements.length );
+    /**
+     * Updates the item count of the virtual table and the state of the widgets.
+     */
+    private void updateState()
+    {
+        // update virtual table, only the visible rows are materialized
+        mainWidget.getViewer().setItemCount( filteredAndSortedElements.size() );
 
         // update state
         String url = ""; //$NON-NLS-1$
@@ -132,24 +279,25 @@ public class SearchResultEditorContentProvider implements ILazyContentProvider
         {
             ISearch search = ( ISearch ) input;
 
-            if ( filteredAndSortedElements.length < elements.length )
+            if ( filteredAndSortedElements.size() < elements.size() )
             {
-                url += filteredAndSortedElements.length + Messages.getString( "SearchResultEditorContentProvider.Of" ); //$NON-NLS-1$
+                url += filteredAndSortedElements.size() + Messages.getString( "SearchResultEditorContentProvider.Of" ); //$NON-NLS-1$
             }
 
-            if ( search.getSearchResults() == null )
+            // the elements are the search results, including the ones received while the search is running
+            if ( !searchResultsReceived )
             {
                 url += Messages.getString( "SearchResultEditorContentProvider.SearchNotPerformed" ); //$NON-NLS-1$
                 enabled = false;
             }
-            else if ( search.getSearchResults().length == 1 )
+            else if ( elements.size() == 1 )
             {
-                url += search.getSearchResults().length
+                url += elements.size()
                     + Messages.getString( "SearchResultEditorContentProvider.Result" ); //$NON-NLS-1$
             }
             else
             {
-                url += search.getSearchResults().length
+                url += elements.size()
                     + Messages.getString( "SearchResultEditorContentProvider.Results" ); //$NON-NLS-1$
             }
 
@@ -191,7 +339,8 @@ public class SearchResultEditorContentProvider implements ILazyContentProvider
     public void inputChanged( Viewer viewer, Object oldInput, Object newInput )
     {
         this.input = newInput;
-        this.elements = getElements( newInput );
+        this.elements = new ArrayList<Object>( Arrays.asList( getElements( newInput ) ) );
+        this.searchResultsReceived = newInput instanceof ISearch && ( ( ISearch ) newInput ).getSearchResults() != null;
     }
 
 
@@ -220,6 +369,65 @@ public class SearchResultEditorContentProvider implements ILazyContentProvider
     }
 
 
+    /**
+     * Pins the entries of the visible rows in the cache of their browser connection, so their
+     * attributes shown in the table are not evicted, and unpins the entries no longer visible.
+     */
+    private void updatePinnedEntries()
+    {
+        if ( mainWidget == null || mainWidget.getViewer() == null || filteredAndSortedElements == null )
+        {
+            return;
+        }
+
+        Table table = mainWidget.getViewer().getTable();
+        int top = table.getTopIndex();
+        int visibleRows = table.getClientArea().height / Math.max( 1, table.getItemHeight() ) + 1;
+        int bottom = Math.min( filteredAndSortedElements.size(), top + visibleRows );
+
+        Set<IEntry> visibleEntries = new HashSet<>();
+        for ( int i = top; i < bottom; i++ )
+        {
+            Object element = filteredAndSortedElements.get( i );
+            if ( element instanceof ISearchResult )
+            {
+                visibleEntries.add( ( ( ISearchResult ) element ).getEntry() );
+            }
+        }
+
+        unpinEntries( visibleEntries );
+
+        // search results may belong to other connections when referrals were followed
+        for ( IEntry entry : visibleEntries )
+        {
+            if ( pinnedEntries.add( entry ) )
+            {
+                entry.getBrowserConnection().pinEntry( entry );
+            }
+        }
+    }
+
+
+    /**
+     * Unpins the pinned entries except the given ones.
+     * 
+     * @param keep the entries to keep pinned
+     */
+    private void unpinEntries( Set<IEntry> keep )
+    {
+        for ( Iterator<IEntry> it = pinnedEntries.iterator(); it.hasNext(); )
+        {
+            IEntry entry = it.next();
+
+            if ( !keep.contains( entry ) )
+            {
+                it.remove();
+                entry.getBrowserConnection().unpinEntry( entry );
+            }
+        }
+    }
+
+
     /**
      * Gets the viewer.
      * 
@@ -236,10 +444,9 @@ public class SearchResultEditorContentProvider implements ILazyContentProvider
      */
     public void updateElement( int index )
     {
-        if ( filteredAndSortedElements != null && filteredAndSortedElements.length > 0
-            && index < filteredAndSortedElements.length )
+        if ( filteredAndSortedElements != null && index < filteredAndSortedElements.size() )
         {
-            mainWidget.getViewer().replace( filteredAndSortedElements[index], index );
+            mainWidget.getViewer().replace( filteredAndSortedElements.get( index ), index );
         }
     }
 
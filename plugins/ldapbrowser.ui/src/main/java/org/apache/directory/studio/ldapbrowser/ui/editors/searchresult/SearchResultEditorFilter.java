@@ -28,6 +28,8 @@ import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
 import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
 import org.apache.directory.studio.ldapbrowser.core.model.ISearchResult;
 import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+import org.apache.directory.studio.ldapbrowser.core.model.filter.CompiledLdapFilter;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
 import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.jface.viewers.ViewerFilter;
 
@@ -46,6 +48,12 @@ public class SearchResultEditorFilter extends ViewerFilter
     /** The quick filter value. */
     protected String quickFilterValue;
 
+    /** The quick filter value compiled to an LDAP filter, null if it isn't an LDAP filter. */
+    private volatile CompiledLdapFilter compiledFilter;
+
+    /** The schema of the current search, used to compile LDAP filters. */
+    private Schema schema;
+
     /** The show Dn flag. */
     private boolean showDn;
 
@@ -79,6 +87,8 @@ public class SearchResultEditorFilter extends ViewerFilter
     public void inputChanged( ISearch newSearch, boolean showDn )
     {
         this.showDn = showDn;
+        this.schema = newSearch != null ? newSearch.getBrowserConnection().getSchema() : null;
+        this.compiledFilter = compileQuickFilter( quickFilterValue );
     }
 
 
@@ -129,6 +139,12 @@ public class SearchResultEditorFilter extends ViewerFilter
         {
             ISearchResult searchResult = ( ISearchResult ) element;
 
+            CompiledLdapFilter compiledFilter = this.compiledFilter;
+            if ( compiledFilter != null )
+            {
+                return compiledFilter.test( searchResult.getEntry() );
+            }
+
             String[] returningAttributes = searchResult.getSearch().getReturningAttributes();
             for ( int r = 0; r < returningAttributes.length; r++ )
             {
@@ -218,6 +234,7 @@ public class SearchResultEditorFilter extends ViewerFilter
         if ( !this.quickFilterValue.equals( quickFilterValue ) )
         {
             this.quickFilterValue = quickFilterValue;
+            this.compiledFilter = compileQuickFilter( quickFilterValue );
             if ( contentProvider != null )
             {
                 contentProvider.refresh();
@@ -225,4 +242,23 @@ public class SearchResultEditorFilter extends ViewerFilter
         }
     }
 
+
+    /**
+     * Compiles a quick filter value that is an LDAP filter, e.g. (&(objectClass=person)(cn=a*)), 
+     * it is then evaluated against the cached attributes of the search results.
+     * 
+     * @param quickFilterValue the quick filter value
+     * 
+     * @return the compiled filter, null if the value is not a valid LDAP filter
+     */
+    private CompiledLdapFilter compileQuickFilter( String quickFilterValue )
+    {
+        if ( schema == null || quickFilterValue == null || !quickFilterValue.trim().startsWith( "(" ) ) //$NON-NLS-1$
+        {
+            return null;
+        }
+
+        return CompiledLdapFilter.compile( quickFilterValue.trim(), schema );
+    }
+
 }
@@ -47,6 +47,8 @@ import org.eclipse.swt.widgets.TableColumn;
  */
 public class SearchResultEditorSorter extends ViewerSorter implements SelectionListener
 {
+    /** The number of elements from which on the elements are sorted in parallel. */
+    private static final int PARALLEL_SORT_THRESHOLD = 10000;
 
     /** The content provider. */
     protected SearchResultEditorContentProvider contentProvider;
@@ -237,20 +239,44 @@ public class SearchResultEditorSorter extends ViewerSorter implements SelectionL
 
     /**
      * {@inheritDoc}
+     *
+     * The sort keys are computed once per element before sorting, large arrays are
+     * sorted in parallel. This method may be called outside the UI thread.
      */
     public void sort( final Viewer viewer, Object[] elements )
     {
-        if ( isSorted() )
+        if ( isSorted() && search != null && elements.length > 1 )
         {
-            Arrays.sort( elements, new Comparator<Object>()
+            String attributeName = getSortAttributeName();
+            final boolean ascending = sortOrder == BrowserCoreConstants.SORT_ORDER_ASCENDING;
+
+            SortKey[] keys = new SortKey[elements.length];
+            for ( int i = 0; i < elements.length; i++ )
+            {
+                keys[i] = getSortKey( elements[i], attributeName );
+            }
+
+            Comparator<SortKey> comparator = new Comparator<SortKey>()
             {
-                public int compare( Object a, Object b )
+                public int compare( SortKey k1, SortKey k2 )
                 {
-                    return SearchResultEditorSorter.this.compare( viewer, a, b );
+                    return compareSortKeys( k1, k2, ascending );
                 }
-            } );
-        }
+            };
+            if ( keys.length >= PARALLEL_SORT_THRESHOLD )
+            {
+                Arrays.parallelSort( keys, comparator );
+            }
+            else
+            {
+                Arrays.sort( keys, comparator );
+            }
 
+            for ( int i = 0; i < elements.length; i++ )
+            {
+                elements[i] = keys[i].element;
+            }
+        }
     }
 
 
@@ -261,83 +287,102 @@ public class SearchResultEditorSorter extends ViewerSorter implements SelectionL
     {
         if ( search == null )
         {
-            return equal();
+            return 0;
         }
 
-        ISearchResult sr1 = ( ISearchResult ) o1;
-        ISearchResult sr2 = ( ISearchResult ) o2;
+        String attributeName = getSortAttributeName();
+        return compareSortKeys( getSortKey( o1, attributeName ), getSortKey( o2, attributeName ),
+            sortOrder == BrowserCoreConstants.SORT_ORDER_ASCENDING );
+    }
 
-        IEntry entry1 = sr1.getEntry();
-        IEntry entry2 = sr2.getEntry();
 
-        if ( entry1 == null )
+    /**
+     * Gets the name of the attribute of the sort column.
+     * 
+     * @return the attribute name, {@link BrowserUIConstants#DN} for the Dn column
+     */
+    private String getSortAttributeName()
+    {
+        if ( showDn && ( sortBy == 0 ) )
         {
-            if ( entry2 == null )
-            {
-                return equal();
-            }
-            else
-            {
-                return lessThan();
-            }
+            return BrowserUIConstants.DN;
         }
-        else if ( entry2 == null )
+        else if ( showDn && ( sortBy > 0 ) )
         {
-            return greaterThan();
+            return search.getReturningAttributes()[sortBy - 1];
         }
         else
         {
-            String attributeName;
+            return search.getReturningAttributes()[sortBy];
+        }
+    }
 
-            if ( showDn && ( sortBy == 0 ) )
-            {
-                attributeName = BrowserUIConstants.DN;
-            }
-            else if ( showDn && ( sortBy > 0 ) )
+
+    /**
+     * Gets the sort key of the given search result.
+     * 
+     * @param element the search result
+     * @param attributeName the attribute name of the sort column
+     * 
+     * @return the sort key
+     */
+    private SortKey getSortKey( Object element, String attributeName )
+    {
+        IEntry entry = ( ( ISearchResult ) element ).getEntry();
+
+        if ( entry == null )
+        {
+            return new SortKey( element, 0, null );
+        }
+        else if ( attributeName == BrowserUIConstants.DN )
+        {
+            // compare normalized names
+            return new SortKey( element, 2, entry.getDn().getNormName() );
+        }
+        else
+        {
+            AttributeHierarchy ah = entry.getAttributeWithSubtypes( attributeName );
+
+            if ( ah == null )
             {
-                attributeName = search.getReturningAttributes()[sortBy - 1];
+                return new SortKey( element, 1, null );
             }
             else
             {
-                attributeName = search.getReturningAttributes()[sortBy];
+                return new SortKey( element, 2, getValue( ah.getAttribute() ) );
             }
+        }
+    }
 
-            if ( attributeName == BrowserUIConstants.DN )
-            {
-                // compare normalized names
-                return compare( entry1.getDn().getNormName(), entry2.getDn().getNormName() );
-            }
-            else
-            {
-                AttributeHierarchy ah1 = entry1.getAttributeWithSubtypes( attributeName );
-                AttributeHierarchy ah2 = entry2.getAttributeWithSubtypes( attributeName );
 
-                if ( ah1 == null )
-                {
-                    if ( ah2 == null )
-                    {
-                        return equal();
-                    }
-                    else
-                    {
-                        return lessThan();
-                    }
-                }
-                else if ( ah2 == null )
-                {
-                    return greaterThan();
-                }
-                else
-                {
-                    IAttribute attribute1 = ah1.getAttribute();
-                    IAttribute attribute2 = ah2.getAttribute();
+    /**
+     * Compares two sort keys. Search results without entry come first, followed by
+     * search results without the attribute, followed by the values.
+     * 
+     * @param k1 the 1st sort key
+     * @param k2 the 2nd sort key
+     * @param ascending the sort order
+     * 
+     * @return the compare result
+     */
+    private static int compareSortKeys( SortKey k1, SortKey k2, boolean ascending )
+    {
+        int result;
 
-                    String value1 = getValue( attribute1 );
-                    String value2 = getValue( attribute2 );
-                    return compare( value1, value2 );
-                }
-            }
+        if ( k1.rank != k2.rank )
+        {
+            result = k1.rank < k2.rank ? -1 : 1;
         }
+        else if ( k1.value == null )
+        {
+            return 0;
+        }
+        else
+        {
+            result = k1.value.compareToIgnoreCase( k2.value );
+        }
+
+        return ascending ? result : -result;
     }
 
 
@@ -362,50 +407,26 @@ public class SearchResultEditorSorter extends ViewerSorter implements SelectionL
 
 
     /**
-     * Gets the less than value.
-     * 
-     * @return the less than value
+     * The precomputed sort key of a search result.
      */
-    private int lessThan()
+    private static final class SortKey
     {
-        return sortOrder == BrowserCoreConstants.SORT_ORDER_ASCENDING ? -1 : 1;
-    }
+        /** The search result. */
+        private final Object element;
 
+        /** The rank: 0 without entry, 1 without attribute, 2 with value. */
+        private final int rank;
 
-    /**
-     * Gets the equal value.
-     * 
-     * @return the equal value
-     */
-    private int equal()
-    {
-        return 0;
-    }
-
-
-    /**
-     * Gets the greater than value.
-     * 
-     * @return the greater than value
-     */
-    private int greaterThan()
-    {
-        return sortOrder == BrowserCoreConstants.SORT_ORDER_ASCENDING ? 1 : -1;
-    }
+        /** The value, null if the rank is lower than 2. */
+        private final String value;
 
 
-    /**
-     * Compare two strings.
-     * 
-     * @param s1 the 1st string
-     * @param s2 the 2nd string
-     * 
-     * @return the compare result
-     */
-    private int compare( String s1, String s2 )
-    {
-        return sortOrder == BrowserCoreConstants.SORT_ORDER_ASCENDING ? s1.compareToIgnoreCase( s2 ) : s2
-            .compareToIgnoreCase( s1 );
+        private SortKey( Object element, int rank, String value )
+        {
+            this.element = element;
+            this.rank = rank;
+            this.value = value;
+        }
     }
 
 }
@@ -519,13 +519,24 @@ public class SearchResultEditorUniversalListener implements SearchUpdateListener
     /**
      * {@inheritDoc}
      *
-     * This implementation refreshes the search result editor.
+     * This implementation refreshes the search result editor. Search results received
+     * while the search is running are only appended, the search result editor is
+     * refreshed and sorted once when the search is performed.
      */
     public void searchUpdated( SearchUpdateEvent searchUpdateEvent )
     {
         if ( selectedSearch == searchUpdateEvent.getSearch() )
         {
-            refreshInput();
+            if ( searchUpdateEvent.getDetail() == SearchUpdateEvent.EventDetail.SEARCH_RESULTS_ADDED
+                && searchUpdateEvent.getAddedSearchResults() != null )
+            {
+                editor.getConfiguration().getContentProvider( editor.getMainWidget() ).addElements(
+                    searchUpdateEvent.getAddedSearchResults() );
+            }
+            else
+            {
+                refreshInput();
+            }
         }
     }
 
@@ -548,6 +548,13 @@ public class BrowserViewUniversalListener extends BrowserUniversalListener imple
     {
         ISearch search = searchUpdateEvent.getSearch();
 
+        // search results received while the search is running, don't change the selection
+        if ( searchUpdateEvent.getDetail() == EventDetail.SEARCH_RESULTS_ADDED )
+        {
+            viewer.refresh( search, true );
+            return;
+        }
+
         if ( ( search instanceof IQuickSearch ) && ( searchUpdateEvent.getDetail() == EventDetail.SEARCH_REMOVED ) )
         {
             if ( search.getBrowserConnection().getQuickSearch() == search )
@@ -27,12 +27,14 @@ import org.apache.directory.studio.common.ui.widgets.BaseWidgetUtils;
 import org.apache.directory.studio.common.ui.widgets.WidgetModifyEvent;
 import org.apache.directory.studio.common.ui.widgets.WidgetModifyListener;
 import org.apache.directory.studio.ldapbrowser.common.widgets.FileBrowserWidget;
+import org.apache.directory.studio.ldapbrowser.ui.BrowserUIPlugin;
 import org.eclipse.jface.wizard.WizardPage;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Text;
 
 
 /**
@@ -42,6 +44,9 @@ import org.eclipse.swt.widgets.Composite;
  */
 public abstract class ExportBaseToPage extends WizardPage
 {
+    /** The dialog setting key for the number of concurrently exported subtrees */
+    public static final String PARTITION_WORKERS_DIALOGSETTING_KEY = ExportBaseToPage.class.getName()
+        + ".partitionWorkers"; //$NON-NLS-1$
 
     /** The wizard. */
     protected ExportBaseWizard wizard;
@@ -52,6 +57,9 @@ public abstract class ExportBaseToPage extends WizardPage
     /** The overwrite file button. */
     protected Button overwriteFileButton;
 
+    /** The text with the number of concurrently exported subtrees, null if not supported by the export. */
+    protected Text partitionWorkersText;
+
 
     /**
      * Creates a new instance of ExportBaseToPage.
@@ -155,6 +163,52 @@ public abstract class ExportBaseToPage extends WizardPage
     }
 
 
+    /**
+     * Creates the text to enter the number of concurrent searches a subtree
+     * search is partitioned into.
+     * 
+     * @param composite the composite
+     */
+    protected void createPartitionWorkersText( Composite composite )
+    {
+        BaseWidgetUtils.createLabel( composite, Messages.getString( "ExportBaseToPage.ParallelSubtrees" ), 1 ); //$NON-NLS-1$
+        if ( BrowserUIPlugin.getDefault().getDialogSettings().get( PARTITION_WORKERS_DIALOGSETTING_KEY ) == null )
+        {
+            BrowserUIPlugin.getDefault().getDialogSettings().put( PARTITION_WORKERS_DIALOGSETTING_KEY, 1 );
+        }
+        partitionWorkersText = BaseWidgetUtils.createText( composite, BrowserUIPlugin.getDefault()
+            .getDialogSettings().get( PARTITION_WORKERS_DIALOGSETTING_KEY ), 2 );
+        partitionWorkersText.setTextLimit( 3 );
+        partitionWorkersText.setToolTipText( Messages.getString( "ExportBaseToPage.ParallelSubtreesTooltip" ) ); //$NON-NLS-1$
+        wizard.setPartitionWorkers( getPartitionWorkers() );
+        partitionWorkersText.addVerifyListener( event -> {
+            if ( !event.text.matches( "[0-9]*" ) ) //$NON-NLS-1$
+            {
+                event.doit = false;
+            }
+        } );
+        partitionWorkersText.addModifyListener( event -> wizard.setPartitionWorkers( getPartitionWorkers() ) );
+    }
+
+
+    /**
+     * Gets the number of concurrently exported subtrees.
+     * 
+     * @return the number of concurrently exported subtrees, at least 1
+     */
+    private int getPartitionWorkers()
+    {
+        String partitionWorkers = partitionWorkersText.getText();
+
+        if ( partitionWorkers.isEmpty() )
+        {
+            return 1;
+        }
+
+        return Math.max( 1, Integer.parseInt( partitionWorkers ) );
+    }
+
+
     /**
      * Gets the valid file extensions.
      * 
@@ -177,6 +231,12 @@ public abstract class ExportBaseToPage extends WizardPage
     public void saveDialogSettings()
     {
         fileBrowserWidget.saveDialogSettings();
+
+        if ( partitionWorkersText != null )
+        {
+            BrowserUIPlugin.getDefault().getDialogSettings().put( PARTITION_WORKERS_DIALOGSETTING_KEY,
+                getPartitionWorkers() );
+        }
     }
 
 }
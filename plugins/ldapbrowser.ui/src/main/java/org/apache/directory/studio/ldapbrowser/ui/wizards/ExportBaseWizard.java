@@ -44,6 +44,9 @@ public abstract class ExportBaseWizard extends Wizard implements IExportWizard
     /** The search. */
     protected ISearch search;
 
+    /** The number of concurrently exported subtrees. */
+    protected int partitionWorkers = 1;
+
 
     /**
      * Creates a new instance of ExportBaseWizard.
@@ -92,6 +95,17 @@ public abstract class ExportBaseWizard extends Wizard implements IExportWizard
     }
 
 
+    /**
+     * Sets the number of child subtrees of a subtree search that are exported concurrently.
+     * 
+     * @param partitionWorkers the number of concurrently exported subtrees
+     */
+    public void setPartitionWorkers( int partitionWorkers )
+    {
+        this.partitionWorkers = partitionWorkers;
+    }
+
+
     /**
      * Gets the search.
      * 
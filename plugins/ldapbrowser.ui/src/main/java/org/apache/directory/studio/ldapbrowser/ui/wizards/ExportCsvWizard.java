@@ -100,7 +100,7 @@ public class ExportCsvWizard extends ExportBaseWizard
         boolean exportDn = this.fromPage.isExportDn();
 
         new StudioBrowserJob( new ExportCsvRunnable( exportFilename, search.getBrowserConnection(),
-            search.getSearchParameter(), exportDn ) ).execute();
+            search.getSearchParameter(), exportDn, partitionWorkers ) ).execute();
 
         return true;
     }
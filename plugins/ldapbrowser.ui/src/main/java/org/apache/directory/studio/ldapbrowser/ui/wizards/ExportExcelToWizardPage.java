@@ -42,7 +42,7 @@ public class ExportExcelToWizardPage extends ExportBaseToPage
 
     /** The extensions used by Excel files */
     private static final String[] EXTENSIONS = new String[]
-        { "*.xls", "*" }; //$NON-NLS-1$ //$NON-NLS-2$
+        { "*.xlsx", "*" }; //$NON-NLS-1$ //$NON-NLS-2$
 
 
     /**
@@ -79,10 +79,6 @@ public class ExportExcelToWizardPage extends ExportBaseToPage
                     null, TextFormatsPreferencePage.XLS_TAB ).open();
             }
         } );
-
-        BaseWidgetUtils.createSpacer( composite, 3 );
-        BaseWidgetUtils.createSpacer( composite, 1 );
-        BaseWidgetUtils.createWrappedLabel( composite, Messages.getString( "ExportExcelToWizardPage.WarningExcel" ), 2 ); //$NON-NLS-1$
     }
 
 
@@ -66,6 +66,9 @@ public class ExportLdifToWizardPage extends ExportBaseToPage
         final Composite composite = BaseWidgetUtils.createColumnContainer( parent, 3, 1 );
         super.createControl( composite );
 
+        BaseWidgetUtils.createSpacer( composite, 3 );
+        createPartitionWorkersText( composite );
+
         BaseWidgetUtils.createSpacer( composite, 3 );
 
         BaseWidgetUtils.createSpacer( composite, 1 );
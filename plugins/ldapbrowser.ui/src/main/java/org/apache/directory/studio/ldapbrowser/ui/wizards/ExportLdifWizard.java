@@ -99,7 +99,7 @@ public class ExportLdifWizard extends ExportBaseWizard
         toPage.saveDialogSettings();
 
         new StudioBrowserJob( new ExportLdifRunnable( exportFilename, search.getBrowserConnection(),
-            search.getSearchParameter() ) ).execute();
+            search.getSearchParameter(), partitionWorkers ) ).execute();
 
         return true;
     }
@@ -36,6 +36,7 @@ import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Group;
+import org.eclipse.swt.widgets.Text;
 
 
 /**
@@ -54,6 +55,10 @@ public class ImportLdifMainWizardPage extends WizardPage
     public static final String UPDATE_IF_ENTRY_EXISTS_DIALOGSETTING_KEY = ImportLdifMainWizardPage.class.getName()
         + ".updateIfEntryExists"; //$NON-NLS-1$
 
+    /** The operations in flight key */
+    public static final String WINDOW_SIZE_DIALOGSETTING_KEY = ImportLdifMainWizardPage.class.getName()
+        + ".windowSize"; //$NON-NLS-1$
+
     /** The valid extension. */
     private static final String[] EXTENSIONS = new String[]
         { "*.ldif", "*" }; //$NON-NLS-1$ //$NON-NLS-2$
@@ -95,6 +100,12 @@ public class ImportLdifMainWizardPage extends WizardPage
     /** The continue on error button. */
     private Button continueOnErrorButton;
 
+    /** The operations in flight text. */
+    private Text windowSizeText;
+
+    /** The resume from checkpoint button. */
+    private Button resumeButton;
+
 
     /**
      * Creates a new instance of ImportLdifMainWizardPage.
@@ -153,7 +164,7 @@ public class ImportLdifMainWizardPage extends WizardPage
                 setErrorMessage( Messages.getString( "ImportLdifMainWizardPage.ErrorSelectedLogFileNotFile" ) ); //$NON-NLS-1$
                 ok = false;
             }
-            else if ( logFile.exists() && !overwriteLogfileButton.getSelection() )
+            else if ( logFile.exists() && !overwriteLogfileButton.getSelection() && !resumeButton.getSelection() )
             {
                 setErrorMessage( Messages.getString( "ImportLdifMainWizardPage.ErrorSelectedLogFileExist" ) ); //$NON-NLS-1$
                 ok = false;
@@ -356,10 +367,64 @@ public class ImportLdifMainWizardPage extends WizardPage
             }
         } );
 
+        resumeButton = BaseWidgetUtils.createCheckbox( optionsContainer, Messages
+            .getString( "ImportLdifMainWizardPage.ResumeFromCheckpoint" ), 3 ); //$NON-NLS-1$
+        resumeButton.setToolTipText( Messages.getString( "ImportLdifMainWizardPage.ResumeFromCheckpointTooltip" ) ); //$NON-NLS-1$
+        resumeButton.setSelection( false );
+        wizard.setResume( resumeButton.getSelection() );
+        resumeButton.addSelectionListener( new SelectionAdapter()
+        {
+            public void widgetSelected( SelectionEvent event )
+            {
+                wizard.setResume( resumeButton.getSelection() );
+                validate();
+            }
+        } );
+
+        BaseWidgetUtils.createLabel( optionsContainer, Messages
+            .getString( "ImportLdifMainWizardPage.OperationsInFlight" ), 1 ); //$NON-NLS-1$
+        if ( BrowserUIPlugin.getDefault().getDialogSettings().get( WINDOW_SIZE_DIALOGSETTING_KEY ) == null )
+        {
+            BrowserUIPlugin.getDefault().getDialogSettings().put( WINDOW_SIZE_DIALOGSETTING_KEY, 1 );
+        }
+        windowSizeText = BaseWidgetUtils.createText( optionsContainer, BrowserUIPlugin.getDefault()
+            .getDialogSettings().get( WINDOW_SIZE_DIALOGSETTING_KEY ), 2 );
+        windowSizeText.setTextLimit( 3 );
+        windowSizeText.setToolTipText( Messages.getString( "ImportLdifMainWizardPage.OperationsInFlightTooltip" ) ); //$NON-NLS-1$
+        wizard.setWindowSize( getWindowSize() );
+        windowSizeText.addVerifyListener( event -> {
+            if ( !event.text.matches( "[0-9]*" ) ) //$NON-NLS-1$
+            {
+                event.doit = false;
+            }
+        } );
+        windowSizeText.addModifyListener( event -> {
+            wizard.setWindowSize( getWindowSize() );
+            validate();
+        } );
+
         setControl( composite );
     }
 
 
+    /**
+     * Gets the number of operations to keep in flight.
+     *
+     * @return the number of operations in flight, at least 1
+     */
+    private int getWindowSize()
+    {
+        String windowSize = windowSizeText.getText();
+
+        if ( windowSize.isEmpty() )
+        {
+            return 1;
+        }
+
+        return Math.max( 1, Integer.parseInt( windowSize ) );
+    }
+
+
     /**
      * Saves the dialog settings.
      */
@@ -370,6 +435,7 @@ public class ImportLdifMainWizardPage extends WizardPage
             updateIfEntryExistsButton.getSelection() );
         BrowserUIPlugin.getDefault().getDialogSettings().put( CONTINUE_ON_ERROR_DIALOGSETTING_KEY,
             continueOnErrorButton.getSelection() );
+        BrowserUIPlugin.getDefault().getDialogSettings().put( WINDOW_SIZE_DIALOGSETTING_KEY, getWindowSize() );
     }
 
 }
\ No newline at end of file
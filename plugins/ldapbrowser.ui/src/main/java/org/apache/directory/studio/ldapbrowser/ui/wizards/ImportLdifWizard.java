@@ -72,6 +72,12 @@ public class ImportLdifWizard extends Wizard implements IImportWizard
     /** The continue on error flag. */
     private boolean continueOnError;
 
+    /** The number of operations in flight. */
+    private int windowSize = 1;
+
+    /** The resume from checkpoint flag. */
+    private boolean resume;
+
 
     /**
      * Creates a new instance of ImportLdifWizard.
@@ -185,17 +191,9 @@ public class ImportLdifWizard extends Wizard implements IImportWizard
         {
             File ldifFile = new File( ldifFilename );
 
-            if ( enableLogging )
-            {
-                File logFile = new File( logFilename );
-                new StudioBrowserJob( new ImportLdifRunnable( importConnection, ldifFile, logFile, updateIfEntryExists,
-                    continueOnError ) ).execute();
-            }
-            else
-            {
-                new StudioBrowserJob( new ImportLdifRunnable( importConnection, ldifFile, updateIfEntryExists,
-                    continueOnError ) ).execute();
-            }
+            File logFile = enableLogging ? new File( logFilename ) : null;
+            new StudioBrowserJob( new ImportLdifRunnable( importConnection, ldifFile, logFile, updateIfEntryExists,
+                continueOnError, windowSize, resume ) ).execute();
 
             return true;
         }
@@ -258,6 +256,26 @@ public class ImportLdifWizard extends Wizard implements IImportWizard
     }
 
 
+    /**
+     * Sets the number of operations to keep in flight.
+     * @param windowSize the number of operations in flight, 1 for sequential import
+     */
+    public void setWindowSize( int windowSize )
+    {
+        this.windowSize = windowSize;
+    }
+
+
+    /**
+     * Sets the resume from checkpoint flag.
+     * @param resume true to continue an interrupted import from its checkpoint
+     */
+    public void setResume( boolean resume )
+    {
+        this.resume = resume;
+    }
+
+
     /**
      * Sets the log filename.
      * 
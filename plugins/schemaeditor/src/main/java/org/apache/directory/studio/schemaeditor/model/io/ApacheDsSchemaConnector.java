@@ -117,6 +117,10 @@ public class ApacheDsSchemaConnector extends AbstractSchemaConnector implements
             {
                 throw new SchemaConnectorException( e );
             }
+            finally
+            {
+                closeQuietly( answer );
+            }
         }
 
         monitor.worked( 1 );
@@ -175,6 +179,10 @@ public class ApacheDsSchemaConnector extends AbstractSchemaConnector implements
             {
                 monitor.reportError( e );
             }
+            finally
+            {
+                closeQuietly( answer );
+            }
         }
 
         return false;
@@ -239,6 +247,10 @@ public class ApacheDsSchemaConnector extends AbstractSchemaConnector implements
             {
                 monitor.reportError( e );
             }
+            finally
+            {
+                closeQuietly( answer );
+            }
         }
 
         return schema;
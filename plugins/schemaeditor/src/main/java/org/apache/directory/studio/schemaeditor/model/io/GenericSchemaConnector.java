@@ -113,6 +113,10 @@ public class GenericSchemaConnector extends AbstractSchemaConnector implements S
             {
                 throw new SchemaConnectorException( e );
             }
+            finally
+            {
+                closeQuietly( answer );
+            }
         }
 
         monitor.worked( 1 );
@@ -175,6 +179,10 @@ public class GenericSchemaConnector extends AbstractSchemaConnector implements S
             {
                 monitor.reportError( e );
             }
+            finally
+            {
+                closeQuietly( answer );
+            }
         }
 
         return null;